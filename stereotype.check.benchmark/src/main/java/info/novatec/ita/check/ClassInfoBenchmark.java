@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+import info.novatec.ita.check.config.StereotypeCheckReader;
+import info.novatec.ita.check.config.StereotypeRuleSet;
+import info.novatec.ita.check.generator.CodebaseGenerator;
+import info.novatec.ita.check.generator.GeneratedClass;
+import info.novatec.ita.check.generator.GeneratedCodebase;
+
+/**
+ * Collects the imports, annotations, interfaces and base classes of a class
+ * in {@link ClassInfo} and resolves their simple names to the types of the
+ * stereotypes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassInfoBenchmark {
+
+	private static final int STEREOTYPES = 20;
+
+	/** The number of explicit imports. */
+	@Param({ "10", "200" })
+	public int imports;
+
+	/** The number of imports on demand. */
+	@Param({ "0", "5" })
+	public int wildcardImports;
+
+	private StereotypeRuleSet ruleSet;
+
+	private String packageName;
+
+	private String[] importNames;
+
+	private String[] wildcardNames;
+
+	private String[] typeNames;
+
+	private final DetailAST ast = new DetailAST();
+
+	@Setup
+	public void createNames() throws IOException {
+		// the first classes belong to the stereotypes in their order
+		CodebaseGenerator generator = new CodebaseGenerator(0);
+		generator.setClasses(Math.max(STEREOTYPES, imports));
+		generator.setStereotypes(STEREOTYPES);
+		generator.setImports(0);
+		GeneratedCodebase codebase = generator.generate(Files.createTempDirectory("stereotype-benchmark").toFile());
+		List<GeneratedClass> classes = codebase.getClasses();
+		try {
+			ruleSet = StereotypeCheckReader.read(codebase.getConfiguration()).getRuleSet();
+		} finally {
+			codebase.delete();
+		}
+
+		packageName = classes.get(2).getPackageName();
+		importNames = new String[imports];
+		for (int i = 0; i < imports; i++) {
+			importNames[i] = classes.get(i).getName();
+		}
+		// annotations are imported explicitly, on demand or not at all
+		importNames[0] = classes.get(0).getAnnotation();
+		wildcardNames = new String[wildcardImports];
+		for (int i = 0; i < wildcardImports; i++) {
+			wildcardNames[i] = classes.get(i).getPackageName() + ".*";
+		}
+		typeNames = new String[] { simpleName(classes.get(0).getAnnotation()),
+				simpleName(classes.get(1).getAnnotation()), "Override", classes.get(1).getSimpleName(),
+				"Serializable" };
+	}
+
+	private static String simpleName(String className) {
+		return className.substring(className.lastIndexOf('.') + 1);
+	}
+
+	@Benchmark
+	public ClassInfo resolve() {
+		ClassInfo classInfo = new ClassInfo();
+		classInfo.setPackageName(packageName);
+		for (String importName : importNames) {
+			classInfo.addImport(importName, ast);
+		}
+		for (String wildcardName : wildcardNames) {
+			classInfo.addImport(wildcardName, ast);
+		}
+		for (String typeName : typeNames) {
+			classInfo.addAnnotation(typeName);
+			classInfo.addInterface(typeName);
+		}
+		classInfo.addBaseClass(typeNames[3]);
+		classInfo.resolveTypes(ruleSet);
+		return classInfo;
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+
+import info.novatec.ita.check.generator.CodebaseGenerator;
+import info.novatec.ita.check.generator.GeneratedCodebase;
+
+/**
+ * Runs the {@link StereotypeCheck} in a Checkstyle {@link TreeWalker} over a
+ * synthetic source tree, including reading and parsing the files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TreeWalkerBenchmark {
+
+	/** The number of classes of the source tree. */
+	@Param({ "1000" })
+	public int classes;
+
+	/** The number of stereotypes of the configuration. */
+	@Param({ "20" })
+	public int stereotypes;
+
+	/** The average number of imports of a class. */
+	@Param({ "10" })
+	public int imports;
+
+	private GeneratedCodebase codebase;
+
+	private Checker checker;
+
+	@Setup
+	public void createChecker() throws IOException, CheckstyleException {
+		CodebaseGenerator generator = new CodebaseGenerator(0);
+		generator.setClasses(classes);
+		generator.setStereotypes(stereotypes);
+		generator.setImports(imports);
+		codebase = generator.generate(Files.createTempDirectory("stereotype-benchmark").toFile());
+
+		DefaultConfiguration checkConfig = new DefaultConfiguration(StereotypeCheck.class.getName());
+		checkConfig.addAttribute("file", codebase.getConfiguration().getPath());
+		DefaultConfiguration treeWalkerConfig = new DefaultConfiguration(TreeWalker.class.getName());
+		treeWalkerConfig.addChild(checkConfig);
+		DefaultConfiguration checkerConfig = new DefaultConfiguration("configuration");
+		checkerConfig.addChild(treeWalkerConfig);
+		checker = new Checker();
+		checker.setModuleClassLoader(getClass().getClassLoader());
+		checker.configure(checkerConfig);
+	}
+
+	@TearDown
+	public void destroyChecker() throws IOException {
+		checker.destroy();
+		codebase.delete();
+	}
+
+	@Benchmark
+	public int process() throws CheckstyleException {
+		return checker.process(codebase.getSources());
+	}
+}
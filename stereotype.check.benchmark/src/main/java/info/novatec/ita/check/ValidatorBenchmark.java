@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+import info.novatec.ita.check.config.StereotypeCheckConfiguration;
+import info.novatec.ita.check.config.StereotypeCheckReader;
+import info.novatec.ita.check.generator.CodebaseGenerator;
+import info.novatec.ita.check.generator.GeneratedClass;
+import info.novatec.ita.check.generator.GeneratedCodebase;
+
+/**
+ * Validates a class with many annotations and imports against many
+ * stereotypes with {@link StereotypeCheckValidator#validate(CheckContext)}.
+ * The facts about the class are collected once, only the validation is
+ * measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+	/** The number of stereotypes of the configuration. */
+	@Param({ "20", "500" })
+	public int stereotypes;
+
+	/** The number of imports of the validated class. */
+	@Param({ "10", "200" })
+	public int imports;
+
+	/** The number of annotations of the validated class. */
+	@Param({ "20" })
+	public int annotations;
+
+	private StereotypeCheckValidator validator;
+
+	private ClassInfo classInfo;
+
+	private final StereotypeCheckStatistics statistics = new StereotypeCheckStatistics();
+
+	@Setup
+	public void createValidator() throws IOException {
+		// the first classes belong to the stereotypes in their order, the
+		// others to random stereotypes
+		CodebaseGenerator generator = new CodebaseGenerator(0);
+		generator.setClasses(stereotypes + imports);
+		generator.setStereotypes(stereotypes);
+		generator.setImports(0);
+		GeneratedCodebase codebase = generator.generate(Files.createTempDirectory("stereotype-benchmark").toFile());
+		List<GeneratedClass> classes = codebase.getClasses();
+		try {
+			StereotypeCheckConfiguration config = StereotypeCheckReader.read(codebase.getConfiguration());
+			validator = new StereotypeCheckValidator(config);
+		} finally {
+			codebase.delete();
+		}
+
+		GeneratedClass validated = classes.get(stereotypes / 2);
+		DetailAST ast = new DetailAST();
+		ast.setLineNo(1);
+		classInfo = new ClassInfo();
+		classInfo.setPackageName(validated.getPackageName());
+		classInfo.setClassName(validated.getSimpleName(), ast);
+		for (int i = 0; i < annotations; i++) {
+			classInfo.addAnnotation(classes.get((stereotypes / 2 + i) % stereotypes).getAnnotation());
+		}
+		for (int i = 0; i < imports; i++) {
+			classInfo.addImport(classes.get(stereotypes + i).getName(), ast);
+		}
+	}
+
+	@Benchmark
+	public int validate() {
+		int[] errors = new int[1];
+		validator.validate(new CheckContext((ast, message) -> errors[0]++, statistics, classInfo));
+		return errors[0];
+	}
+}
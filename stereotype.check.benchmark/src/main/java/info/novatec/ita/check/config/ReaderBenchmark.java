@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.novatec.ita.check.generator.CodebaseGenerator;
+import info.novatec.ita.check.generator.GeneratedCodebase;
+
+/**
+ * Reads a small and a very large configuration with
+ * {@link StereotypeCheckReader#read(File)}, including the validation against
+ * the XSD and the compilation of the rule set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReaderBenchmark {
+
+	/** The number of stereotypes of the configuration. */
+	@Param({ "20", "500" })
+	public int stereotypes;
+
+	private GeneratedCodebase codebase;
+
+	@Setup
+	public void writeConfiguration() throws IOException {
+		CodebaseGenerator generator = new CodebaseGenerator(0);
+		generator.setClasses(0);
+		generator.setStereotypes(stereotypes);
+		codebase = generator.generate(Files.createTempDirectory("stereotype-benchmark").toFile());
+	}
+
+	@TearDown
+	public void deleteConfiguration() throws IOException {
+		codebase.delete();
+	}
+
+	@Benchmark
+	public StereotypeCheckConfiguration read() {
+		return StereotypeCheckReader.read(codebase.getConfiguration());
+	}
+}
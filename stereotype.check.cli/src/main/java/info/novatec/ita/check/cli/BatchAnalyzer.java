@@ -0,0 +1,614 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.cli;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+
+import info.novatec.ita.check.ImportGraph;
+import info.novatec.ita.check.StereotypeCheck;
+import info.novatec.ita.check.StereotypeClassFileCheck;
+import info.novatec.ita.check.StereotypeGraphExporter;
+import info.novatec.ita.check.TypeIndex;
+
+/**
+ * Runs the {@link StereotypeCheck} on many files in parallel, without a
+ * Checkstyle {@link com.puppycrawl.tools.checkstyle.Checker}.
+ * <p>
+ * The files are split between the threads of a work-stealing
+ * {@link ForkJoinPool}. Every thread has its own check. The configuration is
+ * read, or loaded from its snapshot, only once by the
+ * {@link info.novatec.ita.check.config.StereotypeCheckConfigurationCache} and
+ * shared by all checks, as long as the configuration files do not change. The
+ * check gets the tokens of a file in the same order as from the
+ * {@link TreeWalker}, so it reports the same violations.
+ * <p>
+ * With a {@link info.novatec.ita.check.ResultCache} the files are hashed before
+ * they are parsed. Unchanged files are answered from the cache without parsing
+ * them.
+ * <p>
+ * With the header lexer the check reads its facts directly from the text of
+ * a file. Only the files the lexer does not understand are parsed.
+ * <p>
+ * Compiled classes and jars are checked by a {@link StereotypeClassFileCheck},
+ * which reads the facts from the class files. It is shared by all threads. The
+ * class files of nested classes are checked with their top level class.
+ * <p>
+ * In the two-phase mode a first pass reads only the headers of the .java
+ * files and builds a {@link TypeIndex} of the stereotypes of all classes. The
+ * second pass checks the files like a single pass, but also finds the
+ * dependencies to classes belonging to a stereotype by their annotations,
+ * interfaces or base classes. The result cache is not used then.
+ * <p>
+ * If the imports are collected, the imports of the checked .java files make
+ * up an {@link ImportGraph} of the run, which finds the cycles between the
+ * classes. The result cache is not used then, either.
+ * <p>
+ * A {@link StereotypeGraphExporter} receives the stereotypes and dependencies
+ * of the checked .java files while they are checked, on all threads.
+ */
+public final class BatchAnalyzer implements AutoCloseable {
+
+	private static final Logger logger = Logger.getLogger(BatchAnalyzer.class.getCanonicalName());
+
+	/** Files processed by one task without splitting it further. */
+	private static final int FILES_PER_TASK = 16;
+
+	private static final String CLASS_FILE = ".class";
+
+	private static final String JAR_FILE = ".jar";
+
+	private final String filename;
+
+	private final String compiledFilename;
+
+	private final String cacheFilename;
+
+	private final ForkJoinPool pool;
+
+	/** The check of the current thread. */
+	private final ThreadLocal<StereotypeCheck> checks = ThreadLocal.withInitial(this::createCheck);
+
+	/** All checks created, to destroy them at the end. */
+	private final Queue<StereotypeCheck> createdChecks = new ConcurrentLinkedQueue<>();
+
+	/** The tokens the check has to visit. */
+	private final BitSet tokens = new BitSet();
+
+	/** Checks the class files, shared by all threads. */
+	private final StereotypeClassFileCheck classFileCheck;
+
+	/** Are the files read by the header lexer instead of being parsed. */
+	private boolean headerLexer = false;
+
+	/** Is the index of the stereotypes built by a first pass. */
+	private boolean twoPhase = false;
+
+	/** The index of the actual run, null if there is no first pass. */
+	private volatile TypeIndex typeIndex;
+
+	/** Are the imports between the classes collected. */
+	private boolean collectImports = false;
+
+	/** Receives the imports of the actual run, null if none are collected. */
+	private volatile ImportGraph.Builder importGraphBuilder;
+
+	/** The imports of the last run, null if none were collected. */
+	private volatile ImportGraph importGraph;
+
+	/** Receives the stereotypes and dependencies, null if there is none. */
+	private volatile StereotypeGraphExporter exporter;
+
+	/** The nested class files of every class file of the actual run. */
+	private volatile Map<Path, List<Path>> nestedClassFiles = Collections.emptyMap();
+
+	/**
+	 * Creates an analyzer and loads the configuration.
+	 *
+	 * @param filename
+	 *            the filename of the configuration.
+	 * @param compiledFilename
+	 *            the filename of the compiled snapshot of the configuration,
+	 *            null if there is no snapshot.
+	 * @param cacheFilename
+	 *            the filename of the cache of the results, null if there is no
+	 *            cache.
+	 * @param parallelism
+	 *            the number of threads.
+	 */
+	public BatchAnalyzer(String filename, String compiledFilename, String cacheFilename, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The number of threads must be positive, but is " + parallelism);
+		}
+		this.filename = filename;
+		this.compiledFilename = compiledFilename;
+		this.cacheFilename = cacheFilename;
+		// loads the configuration once before the threads share it and
+		// reports an invalid configuration before any file is read
+		StereotypeCheck check = checks.get();
+		for (int token : check.getDefaultTokens()) {
+			tokens.set(token);
+		}
+		this.classFileCheck = new StereotypeClassFileCheck(filename, compiledFilename);
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Creates an analyzer without a cache.
+	 *
+	 * @param filename
+	 *            the filename of the configuration.
+	 * @param compiledFilename
+	 *            the filename of the compiled snapshot of the configuration,
+	 *            null if there is no snapshot.
+	 * @param parallelism
+	 *            the number of threads.
+	 */
+	public BatchAnalyzer(String filename, String compiledFilename, int parallelism) {
+		this(filename, compiledFilename, null, parallelism);
+	}
+
+	/**
+	 * Creates an analyzer without a cache and with one thread per available
+	 * processor.
+	 *
+	 * @param filename
+	 *            the filename of the configuration.
+	 * @param compiledFilename
+	 *            the filename of the compiled snapshot of the configuration,
+	 *            null if there is no snapshot.
+	 */
+	public BatchAnalyzer(String filename, String compiledFilename) {
+		this(filename, compiledFilename, null, Runtime.getRuntime().availableProcessors());
+	}
+
+	private StereotypeCheck createCheck() {
+		DefaultConfiguration configuration = new DefaultConfiguration(StereotypeCheck.class.getName());
+		configuration.addAttribute("file", filename);
+		if (compiledFilename != null) {
+			configuration.addAttribute("compiledFile", compiledFilename);
+		}
+		if (cacheFilename != null) {
+			configuration.addAttribute("cacheFile", cacheFilename);
+		}
+		StereotypeCheck check = new StereotypeCheck();
+		try {
+			// configured like by the TreeWalker, the messages of the check
+			// are looked up in its configuration
+			check.configure(configuration);
+		} catch (CheckstyleException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+		check.init();
+		createdChecks.add(check);
+		return check;
+	}
+
+	/**
+	 * Finds all .java files below the source roots.
+	 *
+	 * @param roots
+	 *            the source roots, a root may also be a single file.
+	 * @return the files, sorted by path.
+	 * @throws IOException
+	 *             if a directory can not be read.
+	 */
+	public static List<Path> findSources(Collection<Path> roots) throws IOException {
+		return find(roots, ".java");
+	}
+
+	/**
+	 * Finds all .class and .jar files below the roots.
+	 *
+	 * @param roots
+	 *            the roots, a root may also be a single file.
+	 * @return the files, sorted by path.
+	 * @throws IOException
+	 *             if a directory can not be read.
+	 */
+	public static List<Path> findClasses(Collection<Path> roots) throws IOException {
+		return find(roots, CLASS_FILE, JAR_FILE);
+	}
+
+	private static List<Path> find(Collection<Path> roots, String... extensions) throws IOException {
+		List<Path> found = new ArrayList<>();
+		for (Path root : roots) {
+			try (Stream<Path> files = Files.walk(root)) {
+				found.addAll(files.filter(file -> hasExtension(file, extensions) && Files.isRegularFile(file))
+						.collect(Collectors.toList()));
+			}
+		}
+		Collections.sort(found);
+		return found;
+	}
+
+	private static boolean hasExtension(Path file, String... extensions) {
+		String name = file.toString();
+		for (String extension : extensions) {
+			if (name.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks the files in parallel.
+	 *
+	 * @param files
+	 *            the .java, .class or .jar files.
+	 * @return the violations of all files, sorted.
+	 */
+	public List<Violation> analyze(List<Path> files) {
+		// the class files of nested classes are checked with their top level
+		// class and are no tasks of their own
+		Map<Path, List<Path>> classFiles = StereotypeClassFileCheck.groupClassFiles(
+				files.stream().filter(file -> file.toString().endsWith(CLASS_FILE)).collect(Collectors.toList()));
+		List<Path> checkedFiles = files.stream()
+				.filter(file -> !file.toString().endsWith(CLASS_FILE) || classFiles.containsKey(file))
+				.collect(Collectors.toList());
+		nestedClassFiles = classFiles;
+		if (twoPhase) {
+			TypeIndex.Builder builder = new TypeIndex.Builder();
+			pool.invoke(new AnalyzeTask(checkedFiles, 0, checkedFiles.size(), file -> index(file, builder)));
+			typeIndex = builder.build();
+			logger.fine("type index: " + typeIndex);
+		} else {
+			typeIndex = null;
+		}
+		ImportGraph.Builder graphBuilder = collectImports ? new ImportGraph.Builder() : null;
+		importGraphBuilder = graphBuilder;
+		List<Violation> violations = pool
+				.invoke(new AnalyzeTask(checkedFiles, 0, checkedFiles.size(), this::analyze));
+		importGraphBuilder = null;
+		nestedClassFiles = Collections.emptyMap();
+		importGraph = graphBuilder != null ? graphBuilder.build() : null;
+		Collections.sort(violations);
+		return violations;
+	}
+
+	/**
+	 * Adds the stereotypes of the class of a .java file to the index, reading
+	 * only the header of the file if possible.
+	 *
+	 * @return no violations, the errors are reported by the second pass.
+	 */
+	private List<Violation> index(Path file, TypeIndex.Builder builder) {
+		if (!file.toString().endsWith(".java")) {
+			return Collections.emptyList();
+		}
+		StereotypeCheck check = checks.get();
+		check.setTypeIndexBuilder(builder);
+		try {
+			FileContents contents = new FileContents(new FileText(file.toAbsolutePath().toFile(), "UTF-8"));
+			check.setFileContents(contents);
+			if (!check.checkWithoutTree()) {
+				DetailAST root = TreeWalker.parse(contents);
+				check.beginTree(root);
+				walk(check, root);
+				check.finishTree(root);
+			}
+		} catch (Exception e) {
+			logger.fine("Exception while indexing " + file + ": " + e);
+		} finally {
+			check.setTypeIndexBuilder(null);
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Checks a single file on the current thread.
+	 *
+	 * @param file
+	 *            the .java, .class or .jar file.
+	 * @return the violations of the file.
+	 */
+	List<Violation> analyze(Path file) {
+		String path = file.toString();
+		if (path.endsWith(CLASS_FILE)) {
+			return analyzeClassFile(file);
+		}
+		if (path.endsWith(JAR_FILE)) {
+			return analyzeJar(file);
+		}
+		StereotypeCheck check = checks.get();
+		check.setTypeIndex(typeIndex);
+		check.setImportGraphBuilder(importGraphBuilder);
+		check.setExporter(exporter);
+		LocalizedMessages messages = new LocalizedMessages();
+		check.setMessages(messages);
+		try {
+			// the absolute path is the key in the cache, like in a Checker
+			FileText text = new FileText(file.toAbsolutePath().toFile(), "UTF-8");
+			FileContents contents = new FileContents(text);
+			check.setFileContents(contents);
+			// the check reports the cached errors of an unchanged file, which is
+			// not parsed
+			if (!check.checkFromCache() && (!headerLexer || !check.checkWithoutTree())) {
+				DetailAST root = TreeWalker.parse(contents);
+				check.beginTree(root);
+				walk(check, root);
+				check.finishTree(root);
+			}
+		} catch (Exception e) {
+			// a file that can not be read or parsed must not stop the other
+			// files
+			logger.fine("Exception while checking " + path + ": " + e);
+			return Collections.singletonList(new Violation(path, 0, 0, "Got an exception - " + e.getMessage()));
+		}
+
+		List<Violation> violations = new ArrayList<>(messages.size());
+		for (LocalizedMessage message : messages.getMessages()) {
+			violations.add(new Violation(path, message.getLineNo(), message.getColumnNo(), message.getMessage()));
+		}
+		return violations;
+	}
+
+	/**
+	 * Checks a class file with the class files of its nested classes, which
+	 * are mapped into memory by the check.
+	 */
+	private List<Violation> analyzeClassFile(Path file) {
+		String path = file.toString();
+		try {
+			return violations(path,
+					classFileCheck.check(file, nestedClassFiles.getOrDefault(file, Collections.emptyList())));
+		} catch (IOException | IllegalArgumentException e) {
+			logger.fine("Exception while checking " + path + ": " + e);
+			return Collections.singletonList(new Violation(path, 0, 0, "Got an exception - " + e.getMessage()));
+		}
+	}
+
+	/**
+	 * Checks the class files in a jar. The entries of the nested classes of a
+	 * class, e.g. <code>a/b/Outer$1.class</code> for
+	 * <code>a/b/Outer.class</code>, are checked with the class. The entries
+	 * are compressed, so they are read into memory, one class with its nested
+	 * classes at a time, instead of being mapped.
+	 */
+	private List<Violation> analyzeJar(Path file) {
+		List<Violation> violations = new ArrayList<>();
+		String path = file.toString();
+		try (ZipFile jar = new ZipFile(file.toFile())) {
+			Map<String, ZipEntry> classEntries = new LinkedHashMap<>();
+			for (Enumeration<? extends ZipEntry> entries = jar.entries(); entries.hasMoreElements();) {
+				ZipEntry entry = entries.nextElement();
+				if (!entry.isDirectory() && entry.getName().endsWith(CLASS_FILE)) {
+					classEntries.put(entry.getName(), entry);
+				}
+			}
+			Map<String, List<ZipEntry>> nestedEntries = new HashMap<>();
+			for (ZipEntry entry : classEntries.values()) {
+				String topLevelName = StereotypeClassFileCheck.topLevelClassFileName(entry.getName());
+				if (topLevelName != null && classEntries.containsKey(topLevelName)) {
+					nestedEntries.computeIfAbsent(topLevelName, name -> new ArrayList<>()).add(entry);
+				}
+			}
+			for (ZipEntry entry : classEntries.values()) {
+				String topLevelName = StereotypeClassFileCheck.topLevelClassFileName(entry.getName());
+				if (topLevelName == null || !classEntries.containsKey(topLevelName)) {
+					violations.addAll(analyzeJarEntry(jar, entry,
+							nestedEntries.getOrDefault(entry.getName(), Collections.emptyList()), path));
+				}
+			}
+		} catch (IOException e) {
+			logger.fine("Exception while checking " + path + ": " + e);
+			violations.add(new Violation(path, 0, 0, "Got an exception - " + e.getMessage()));
+		}
+		return violations;
+	}
+
+	/**
+	 * Checks a class of a jar with its nested classes.
+	 */
+	private List<Violation> analyzeJarEntry(ZipFile jar, ZipEntry entry, List<ZipEntry> nestedEntries, String path)
+			throws IOException {
+		List<ByteBuffer> nestedClasses = new ArrayList<>(nestedEntries.size());
+		for (ZipEntry nestedEntry : nestedEntries) {
+			nestedClasses.add(read(jar, nestedEntry));
+		}
+		String entryPath = path + "!/" + entry.getName();
+		try {
+			return violations(entryPath, classFileCheck.check(read(jar, entry), nestedClasses));
+		} catch (IllegalArgumentException e) {
+			logger.fine("Exception while checking " + entryPath + ": " + e);
+			return Collections.singletonList(new Violation(entryPath, 0, 0, "Got an exception - " + e.getMessage()));
+		}
+	}
+
+	private static ByteBuffer read(ZipFile jar, ZipEntry entry) throws IOException {
+		// the central directory of a jar knows the size of every entry
+		if (entry.getSize() < 0 || entry.getSize() > Integer.MAX_VALUE) {
+			throw new IOException("Entry " + entry.getName() + " has an invalid size " + entry.getSize());
+		}
+		byte[] bytes = new byte[(int) entry.getSize()];
+		try (DataInputStream in = new DataInputStream(jar.getInputStream(entry))) {
+			in.readFully(bytes);
+		}
+		return ByteBuffer.wrap(bytes);
+	}
+
+	/**
+	 * @return the violations of a class file, which concern the whole class.
+	 */
+	private static List<Violation> violations(String path, List<String> messages) {
+		List<Violation> violations = new ArrayList<>(messages.size());
+		for (String message : messages) {
+			violations.add(new Violation(path, 0, 0, message));
+		}
+		return violations;
+	}
+
+	/**
+	 * Passes the tokens to the check in the order of the {@link TreeWalker}.
+	 * The siblings are iterated, only the children are walked recursively.
+	 */
+	private void walk(StereotypeCheck check, DetailAST ast) {
+		for (DetailAST node = ast; node != null; node = node.getNextSibling()) {
+			boolean isVisited = tokens.get(node.getType());
+			if (isVisited) {
+				check.visitToken(node);
+			}
+			walk(check, node.getFirstChild());
+			if (isVisited) {
+				check.leaveToken(node);
+			}
+		}
+	}
+
+	/**
+	 * Set if the files are read by the header lexer of the check instead of
+	 * being parsed by Checkstyle. Files the lexer does not understand are
+	 * still parsed.
+	 * 
+	 * @param headerLexer
+	 *            true to read the files by the header lexer.
+	 */
+	public void setHeaderLexer(boolean headerLexer) {
+		this.headerLexer = headerLexer;
+	}
+
+	/**
+	 * Set if the .java files are checked in two phases. The first pass builds
+	 * the index of the stereotypes of all classes, the second pass checks the
+	 * dependencies also against the index.
+	 * 
+	 * @param twoPhase
+	 *            true to check in two phases.
+	 */
+	public void setTwoPhase(boolean twoPhase) {
+		this.twoPhase = twoPhase;
+	}
+
+	/**
+	 * Set if the imports between the classes of the checked .java files are
+	 * collected into an {@link ImportGraph}. The imports of class files are
+	 * not collected.
+	 * 
+	 * @param collectImports
+	 *            true to collect the imports.
+	 */
+	public void setCollectImports(boolean collectImports) {
+		this.collectImports = collectImports;
+	}
+
+	/**
+	 * @return the imports of the last run, null if none were collected.
+	 */
+	public ImportGraph getImportGraph() {
+		return importGraph;
+	}
+
+	/**
+	 * Set the exporter of the stereotypes and dependencies of the checked
+	 * .java files. The class files are not exported. The exporter is not
+	 * closed by the analyzer.
+	 * 
+	 * @param exporter
+	 *            the exporter, null to export nothing.
+	 */
+	public void setExporter(StereotypeGraphExporter exporter) {
+		this.exporter = exporter;
+	}
+
+	/**
+	 * @return the number of threads.
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Stops the threads and destroys the checks, which writes the cache of
+	 * the results.
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+		for (StereotypeCheck check : createdChecks) {
+			check.destroy();
+		}
+		createdChecks.clear();
+	}
+
+	/** Checks a range of files, splits the range while it is large. */
+	private static final class AnalyzeTask extends RecursiveTask<List<Violation>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient List<Path> files;
+		private final int start;
+		private final int end;
+
+		/** Checks a single file on the current thread. */
+		private final transient Function<Path, List<Violation>> analysis;
+
+		private AnalyzeTask(List<Path> files, int start, int end, Function<Path, List<Violation>> analysis) {
+			this.files = files;
+			this.start = start;
+			this.end = end;
+			this.analysis = analysis;
+		}
+
+		@Override
+		protected List<Violation> compute() {
+			if (end - start <= FILES_PER_TASK) {
+				List<Violation> violations = new ArrayList<>();
+				for (int i = start; i < end; i++) {
+					violations.addAll(analysis.apply(files.get(i)));
+				}
+				return violations;
+			}
+			int middle = (start + end) >>> 1;
+			AnalyzeTask second = new AnalyzeTask(files, middle, end, analysis);
+			second.fork();
+			List<Violation> violations = new AnalyzeTask(files, start, middle, analysis).compute();
+			violations.addAll(second.join());
+			return violations;
+		}
+	}
+}
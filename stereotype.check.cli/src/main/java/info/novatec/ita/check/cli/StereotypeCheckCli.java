@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.cli;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import info.novatec.ita.check.ImportGraph;
+import info.novatec.ita.check.StereotypeGraphExporter;
+
+/**
+ * Command line for the {@link BatchAnalyzer}.
+ *
+ * <pre>
+ * java -jar stereotype.check.cli.jar -c stereotype.xml [-s stereotype.ser] [-r results.cache] [-t threads] [-l] [-b] [-i] [-g cycles] [-x graph.graphml] sourceRoot...
+ * </pre>
+ *
+ * Files not changed since the last run with the same configuration are
+ * answered from the cache of the results given with <code>-r</code>. With
+ * <code>-l</code> the files are read by the header lexer instead of being
+ * parsed by Checkstyle. With <code>-b</code> the compiled classes and the jars
+ * below the roots are checked instead of the sources. With <code>-i</code> a
+ * first pass builds an index of the stereotypes of all classes, which finds
+ * dependencies to classes belonging to a stereotype by their annotations,
+ * interfaces or base classes, too. With <code>-g classes</code> the cycles
+ * between the classes are reported after the violations, with
+ * <code>-g classes:&lt;stereotype&gt;</code> only the cycles between the classes
+ * of a stereotype and with <code>-g stereotypes</code> the cycles between the
+ * stereotypes of the classes. With <code>-x</code> the stereotypes of the
+ * classes and the number of dependencies between the stereotypes are exported
+ * to a file, as GraphML, Graphviz or JSON lines by the extension
+ * <code>.graphml</code>, <code>.dot</code> or <code>.jsonl</code>.
+ * The violations are printed sorted, one per line. The exit code is 0 if there
+ * are no violations, 1 if there are violations and 2 if the arguments or the
+ * configuration are invalid.
+ */
+public final class StereotypeCheckCli {
+
+	/** Exit code if no violation was found. */
+	static final int OK = 0;
+
+	/** Exit code if a violation or a cycle was found. */
+	static final int VIOLATIONS = 1;
+
+	/** Exit code if the arguments or the configuration are invalid. */
+	static final int INVALID = 2;
+
+	private static final String USAGE = "Usage: -c <stereotype.xml> [-s <compiled snapshot>] [-r <result cache>]"
+			+ " [-t <threads>] [-l] [-b] [-i] [-g classes|classes:<stereotype>|stereotypes]"
+			+ " [-x <graph.graphml|graph.dot|graph.jsonl>] <source root>...";
+
+	private static final String CLASS_CYCLES = "classes";
+
+	private static final String STEREOTYPE_CYCLES = "stereotypes";
+
+	private StereotypeCheckCli() {
+	}
+
+	/**
+	 * Checks the source roots.
+	 *
+	 * @param args
+	 *            the arguments.
+	 */
+	public static void main(String[] args) {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	/**
+	 * Checks the source roots.
+	 *
+	 * @param args
+	 *            the arguments.
+	 * @param out
+	 *            receives the violations.
+	 * @param err
+	 *            receives the summary and errors.
+	 * @return the exit code.
+	 */
+	static int run(String[] args, PrintStream out, PrintStream err) {
+		String filename = null;
+		String compiledFilename = null;
+		String cacheFilename = null;
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		boolean headerLexer = false;
+		boolean classFiles = false;
+		boolean twoPhase = false;
+		String cycles = null;
+		String exportFilename = null;
+		StereotypeGraphExporter.Format exportFormat = null;
+		List<Path> roots = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-c":
+					filename = value(args, ++i);
+					break;
+				case "-s":
+					compiledFilename = value(args, ++i);
+					break;
+				case "-r":
+					cacheFilename = value(args, ++i);
+					break;
+				case "-t":
+					parallelism = Integer.parseInt(value(args, ++i));
+					break;
+				case "-l":
+					headerLexer = true;
+					break;
+				case "-b":
+					classFiles = true;
+					break;
+				case "-i":
+					twoPhase = true;
+					break;
+				case "-g":
+					cycles = value(args, ++i);
+					if (!cycles.equals(CLASS_CYCLES) && !cycles.startsWith(CLASS_CYCLES + ":")
+							&& !cycles.equals(STEREOTYPE_CYCLES)) {
+						throw new IllegalArgumentException("Unknown cycles " + cycles);
+					}
+					break;
+				case "-x":
+					exportFilename = value(args, ++i);
+					exportFormat = StereotypeGraphExporter.Format.of(exportFilename);
+					break;
+				default:
+					roots.add(Paths.get(args[i]));
+				}
+			}
+			if (filename == null || roots.isEmpty()) {
+				throw new IllegalArgumentException("No configuration or no source root given");
+			}
+		} catch (IllegalArgumentException e) {
+			err.println(e.getMessage());
+			err.println(USAGE);
+			return INVALID;
+		}
+
+		long start = System.currentTimeMillis();
+		List<Violation> violations;
+		List<ImportGraph.Cycle> foundCycles = Collections.emptyList();
+		int files;
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(filename, compiledFilename, cacheFilename, parallelism);
+				StereotypeGraphExporter exporter = exportFilename == null ? null
+						: new StereotypeGraphExporter(
+								Files.newBufferedWriter(Paths.get(exportFilename), StandardCharsets.UTF_8),
+								exportFormat)) {
+			analyzer.setExporter(exporter);
+			analyzer.setHeaderLexer(headerLexer);
+			analyzer.setTwoPhase(twoPhase);
+			analyzer.setCollectImports(cycles != null);
+			List<Path> sources = classFiles ? BatchAnalyzer.findClasses(roots) : BatchAnalyzer.findSources(roots);
+			files = sources.size();
+			violations = analyzer.analyze(sources);
+			if (cycles != null) {
+				foundCycles = findCycles(analyzer.getImportGraph(), cycles);
+			}
+		} catch (IllegalArgumentException | IOException e) {
+			err.println(e.getMessage());
+			return INVALID;
+		}
+
+		for (Violation violation : violations) {
+			out.println(violation);
+		}
+		for (ImportGraph.Cycle cycle : foundCycles) {
+			out.println("Cycle of " + cycle.getMembers().size() + " " + (cycles.equals(STEREOTYPE_CYCLES)
+					? STEREOTYPE_CYCLES : CLASS_CYCLES) + ": " + cycle);
+		}
+		err.println("Checked " + files + " files with " + parallelism + " threads in "
+				+ (System.currentTimeMillis() - start) + " ms, found " + violations.size() + " violations"
+				+ (cycles != null ? " and " + foundCycles.size() + " cycles" : ""));
+		return violations.isEmpty() && foundCycles.isEmpty() ? OK : VIOLATIONS;
+	}
+
+	private static List<ImportGraph.Cycle> findCycles(ImportGraph graph, String cycles) {
+		if (cycles.equals(STEREOTYPE_CYCLES)) {
+			return graph.findStereotypeCycles();
+		}
+		if (cycles.equals(CLASS_CYCLES)) {
+			return graph.findClassCycles();
+		}
+		return graph.findClassCycles(cycles.substring(CLASS_CYCLES.length() + 1));
+	}
+
+	private static String value(String[] args, int index) {
+		if (index >= args.length) {
+			throw new IllegalArgumentException("Missing value of " + args[index - 1]);
+		}
+		return args[index];
+	}
+}
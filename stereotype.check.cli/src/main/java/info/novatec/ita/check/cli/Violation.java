@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.cli;
+
+/**
+ * A violation of the stereotype configuration found in a file.
+ * <p>
+ * Violations are ordered by file, line, column and message, so that the
+ * output of a parallel run does not depend on the order in which the files
+ * were processed.
+ */
+public final class Violation implements Comparable<Violation> {
+
+	private final String file;
+	private final int line;
+	private final int column;
+	private final String message;
+
+	/**
+	 * Creates a violation.
+	 *
+	 * @param file
+	 *            the path of the file.
+	 * @param line
+	 *            the line, 0 if the violation concerns the whole file.
+	 * @param column
+	 *            the column, 0 if there is none.
+	 * @param message
+	 *            the message.
+	 */
+	public Violation(String file, int line, int column, String message) {
+		this.file = file;
+		this.line = line;
+		this.column = column;
+		this.message = message;
+	}
+
+	/**
+	 * @return the path of the file.
+	 */
+	public String getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the line, 0 if the violation concerns the whole file.
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the column, 0 if there is none.
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return the message.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public int compareTo(Violation other) {
+		int compare = file.compareTo(other.file);
+		if (compare == 0) {
+			compare = Integer.compare(line, other.line);
+		}
+		if (compare == 0) {
+			compare = Integer.compare(column, other.column);
+		}
+		if (compare == 0) {
+			compare = message.compareTo(other.message);
+		}
+		return compare;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Violation)) {
+			return false;
+		}
+		return compareTo((Violation) obj) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		return (file.hashCode() * 31 + line) * 31 + message.hashCode();
+	}
+
+	/**
+	 * @return the violation in the format of the Checkstyle command line,
+	 *         <code>file:line:column: message</code>.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder(file);
+		if (line > 0) {
+			text.append(':').append(line);
+			if (column > 0) {
+				text.append(':').append(column);
+			}
+		}
+		return text.append(": ").append(message).toString();
+	}
+}
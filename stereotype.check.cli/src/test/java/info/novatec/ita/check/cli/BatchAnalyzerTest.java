@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.cli;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+import info.novatec.ita.check.StereotypeCheck;
+
+/**
+ * Tests for {@link BatchAnalyzer} and {@link StereotypeCheckCli}, using the
+ * sample classes and the configuration of the plugin tests.
+ */
+public class BatchAnalyzerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String SOURCES = "../stereotype.check.plugin.test/src/main/java";
+
+	private static final String CONFIG = "../stereotype.check.plugin.test/src/test/resources/stereotype.xml";
+
+	private static final String CLASS_FILE_CONFIG = "../stereotype.check.plugin.test/src/test/resources/stereotype-class-files.xml";
+
+	/**
+	 * The parallel run finds the same violations as Checkstyle.
+	 */
+	@Test
+	public void sameViolationsAsCheckstyle() throws Exception {
+		List<Path> sources = sources();
+
+		List<Violation> actual;
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(CONFIG, null, 4)) {
+			actual = analyzer.analyze(sources);
+		}
+
+		assertThat(actual).isNotEmpty();
+		assertThat(actual).isEqualTo(checkstyle(sources));
+	}
+
+	/**
+	 * The result does not depend on the number of threads.
+	 */
+	@Test
+	public void sameViolationsOnOneThread() throws Exception {
+		List<Path> sources = sources();
+
+		List<Violation> parallel;
+		List<Violation> sequential;
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(CONFIG, null, 4)) {
+			parallel = analyzer.analyze(sources);
+		}
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(CONFIG, null, 1)) {
+			sequential = analyzer.analyze(sources);
+		}
+
+		assertThat(parallel).isEqualTo(sequential);
+	}
+
+	/**
+	 * The files read by the header lexer have the same violations as the
+	 * parsed files.
+	 */
+	@Test
+	public void headerLexerFindsSameViolations() throws Exception {
+		List<Path> sources = sources();
+
+		List<Violation> actual;
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(CONFIG, null, 4)) {
+			analyzer.setHeaderLexer(true);
+			actual = analyzer.analyze(sources);
+		}
+
+		assertThat(actual).isEqualTo(checkstyle(sources));
+	}
+
+	/**
+	 * The second pass of the two-phase mode finds all violations of a single
+	 * pass, and the dependencies to classes whose stereotype is only known
+	 * from the index.
+	 */
+	@Test
+	public void twoPhaseFindsAllViolationsOfSinglePass() throws Exception {
+		List<Path> sources = sources();
+
+		List<Violation> twoPhase;
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(CONFIG, null, 4)) {
+			analyzer.setTwoPhase(true);
+			twoPhase = analyzer.analyze(sources);
+		}
+
+		List<Violation> singlePass = checkstyle(sources);
+		assertThat(twoPhase).containsAll(singlePass);
+		assertThat(twoPhase).filteredOn(violation -> !singlePass.contains(violation))
+				.extracting(Violation::getMessage).allMatch(message -> message.startsWith("Disallowed dependency"));
+	}
+
+	/**
+	 * The class files in a directory and in a jar have the same violations.
+	 * The class files of anonymous classes are checked with their class.
+	 */
+	@Test
+	public void classFilesAndJarFindSameViolations() throws Exception {
+		File sourceRoot = folder.newFolder("src");
+		File classes = folder.newFolder("classes");
+		File source = new File(sourceRoot, "info/bytecode/service/CustomerDto.java");
+		source.getParentFile().mkdirs();
+		Files.write(source.toPath(),
+				Arrays.asList("package info.bytecode.service;", "public class CustomerDto { Nested nested;",
+						"	Runnable printer = new Runnable() { public void run() { new OrderService(); } }; }",
+						"class Nested {}"),
+				StandardCharsets.UTF_8);
+		File serviceInterface = new File(sourceRoot, "info/bytecode/service/Service.java");
+		Files.write(serviceInterface.toPath(),
+				Arrays.asList("package info.bytecode.service;", "public interface Service {}"), StandardCharsets.UTF_8);
+		File service = new File(sourceRoot, "info/bytecode/service/OrderService.java");
+		Files.write(service.toPath(),
+				Arrays.asList("package info.bytecode.service;", "public class OrderService implements Service {}"),
+				StandardCharsets.UTF_8);
+		File api = folder.newFolder("api");
+		assertThat(ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", api.getPath(),
+				serviceInterface.getPath())).isZero();
+		assertThat(ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classes.getPath(), "-cp",
+				api.getPath(), source.getPath(), service.getPath())).isZero();
+		assertThat(new File(classes, "info/bytecode/service/CustomerDto$1.class")).exists();
+		File jar = new File(folder.getRoot(), "classes.jar");
+		try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+			for (Path classFile : BatchAnalyzer.findClasses(Collections.singletonList(classes.toPath()))) {
+				out.putNextEntry(new JarEntry(classes.toPath().relativize(classFile).toString().replace('\\', '/')));
+				Files.copy(classFile, out);
+				out.closeEntry();
+			}
+		}
+
+		List<Violation> inDirectory;
+		List<Violation> inJar;
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(CLASS_FILE_CONFIG, null, 2)) {
+			inDirectory = analyzer.analyze(BatchAnalyzer.findClasses(Collections.singletonList(classes.toPath())));
+			inJar = analyzer.analyze(Collections.singletonList(jar.toPath()));
+		}
+
+		assertThat(inDirectory).extracting(Violation::getMessage).containsExactlyInAnyOrder(
+				"Stereotype dto: is not in package ^info\\.bytecode\\.data$",
+				"Stereotype dto: missing annotation info.bytecode.data.Pojo",
+				"Disallowed dependency from stereotype dto to stereotype service: info.bytecode.service.OrderService");
+		assertThat(inJar).extracting(Violation::getMessage)
+				.containsExactlyElementsOf(inDirectory.stream().map(Violation::getMessage).collect(Collectors.toList()));
+		assertThat(inJar).extracting(Violation::getFile)
+				.containsOnly(jar.getPath() + "!/info/bytecode/service/CustomerDto.class");
+	}
+
+	/**
+	 * A second run answers the unchanged files from the cache with the same
+	 * violations.
+	 */
+	@Test
+	public void cachedRunFindsSameViolations() throws Exception {
+		List<Path> sources = sources();
+		String cacheFile = new File(folder.getRoot(), "results.cache").getPath();
+
+		List<Violation> first;
+		List<Violation> second;
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(CONFIG, null, cacheFile, 4)) {
+			first = analyzer.analyze(sources);
+		}
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(CONFIG, null, cacheFile, 4)) {
+			second = analyzer.analyze(sources);
+		}
+
+		assertThat(new File(cacheFile)).exists();
+		assertThat(second).isEqualTo(first);
+	}
+
+	/**
+	 * The command line prints one line per violation and fails.
+	 */
+	@Test
+	public void commandLinePrintsViolations() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+		int exitCode = StereotypeCheckCli.run(new String[] { "-t", "2", "-c", CONFIG, SOURCES },
+				new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+
+		List<Violation> expected;
+		try (BatchAnalyzer analyzer = new BatchAnalyzer(CONFIG, null, 1)) {
+			expected = analyzer.analyze(BatchAnalyzer.findSources(Collections.singletonList(new File(SOURCES).toPath())));
+		}
+		assertThat(exitCode).isEqualTo(StereotypeCheckCli.VIOLATIONS);
+		assertThat(out.toString("UTF-8").split(System.lineSeparator())).containsExactlyElementsOf(
+				expected.stream().map(Violation::toString).collect(Collectors.toList()));
+		assertThat(err.toString("UTF-8")).contains("with 2 threads");
+	}
+
+	/**
+	 * The command line prints the cycles between the classes after the
+	 * violations.
+	 */
+	@Test
+	public void commandLinePrintsCycles() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+		int exitCode = StereotypeCheckCli.run(new String[] { "-g", "classes", "-c", CONFIG, SOURCES },
+				new PrintStream(out, true, "UTF-8"), new PrintStream(err, true, "UTF-8"));
+
+		String util = "info.novatec.ita.check.testclasses.core.fwk.common.util.";
+		assertThat(exitCode).isEqualTo(StereotypeCheckCli.VIOLATIONS);
+		assertThat(out.toString("UTF-8").split(System.lineSeparator())).endsWith("Cycle of 2 classes: " + util
+				+ "DateUtil -> " + util + "copy.ObjectUtil -> " + util + "DateUtil");
+		assertThat(err.toString("UTF-8")).contains("and 1 cycles");
+	}
+
+	/**
+	 * The command line exports the same classes and counts of the
+	 * dependencies on one and on many threads.
+	 */
+	@Test
+	public void commandLineExportsGraph() throws Exception {
+		File sequential = new File(folder.getRoot(), "sequential.jsonl");
+		File parallel = new File(folder.getRoot(), "parallel.jsonl");
+		PrintStream ignored = new PrintStream(new ByteArrayOutputStream());
+
+		StereotypeCheckCli.run(new String[] { "-t", "1", "-x", sequential.getPath(), "-c", CONFIG, SOURCES }, ignored,
+				ignored);
+		StereotypeCheckCli.run(new String[] { "-t", "4", "-x", parallel.getPath(), "-c", CONFIG, SOURCES }, ignored,
+				ignored);
+
+		List<String> lines = Files.readAllLines(sequential.toPath(), StandardCharsets.UTF_8);
+		assertThat(lines).filteredOn(line -> line.startsWith("{\"class\":\"info.novatec.ita.check.testclasses."))
+				.isNotEmpty();
+		assertThat(lines).filteredOn(line -> line.startsWith("{\"from\":")).isNotEmpty();
+		// the classes are written in the order they are checked
+		assertThat(Files.readAllLines(parallel.toPath(), StandardCharsets.UTF_8)).containsOnlyElementsOf(lines)
+				.hasSameSizeAs(lines);
+	}
+
+	/**
+	 * Missing arguments are reported.
+	 */
+	@Test
+	public void commandLineRejectsMissingConfiguration() throws Exception {
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+		int exitCode = StereotypeCheckCli.run(new String[] { SOURCES }, new PrintStream(new ByteArrayOutputStream()),
+				new PrintStream(err, true, "UTF-8"));
+
+		assertThat(exitCode).isEqualTo(StereotypeCheckCli.INVALID);
+		assertThat(err.toString("UTF-8")).contains("Usage");
+	}
+
+	private static List<Path> sources() throws IOException {
+		return BatchAnalyzer.findSources(Collections.singletonList(new File(SOURCES).getCanonicalFile().toPath()));
+	}
+
+	private static List<Violation> checkstyle(List<Path> sources) throws Exception {
+		DefaultConfiguration checkConfig = new DefaultConfiguration(StereotypeCheck.class.getName());
+		checkConfig.addAttribute("file", CONFIG);
+		DefaultConfiguration treeWalkerConfig = new DefaultConfiguration(TreeWalker.class.getName());
+		treeWalkerConfig.addChild(checkConfig);
+		DefaultConfiguration checkerConfig = new DefaultConfiguration("configuration");
+		checkerConfig.addChild(treeWalkerConfig);
+
+		List<Violation> violations = Collections.synchronizedList(new ArrayList<>());
+		Checker checker = new Checker();
+		checker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+		checker.configure(checkerConfig);
+		checker.addListener(new AuditListener() {
+
+			@Override
+			public void addError(AuditEvent event) {
+				violations.add(new Violation(event.getFileName(), event.getLine(), event.getColumn(), event.getMessage()));
+			}
+
+			@Override
+			public void addException(AuditEvent event, Throwable throwable) {
+				violations.add(new Violation(event.getFileName(), 0, 0, "Got an exception - " + throwable.getMessage()));
+			}
+
+			@Override
+			public void auditStarted(AuditEvent event) {
+			}
+
+			@Override
+			public void auditFinished(AuditEvent event) {
+			}
+
+			@Override
+			public void fileStarted(AuditEvent event) {
+			}
+
+			@Override
+			public void fileFinished(AuditEvent event) {
+			}
+		});
+		checker.process(sources.stream().map(Path::toFile).collect(Collectors.toList()));
+		checker.destroy();
+
+		Collections.sort(violations);
+		return violations;
+	}
+}
@@ -0,0 +1,404 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Writes a synthetic layered source tree together with a matching stereotype
+ * configuration, to measure and test the stereotype check at the size of a
+ * large code base.
+ * <p>
+ * The stereotypes are spread evenly over the layers. Stereotype
+ * <code>s27</code> in layer 2 requires the postfix <code>Xab</code>, the
+ * annotation <code>gen.api.Stereotype27</code> and the package
+ * <code>gen.l2.s27</code> or one of its subpackages. A stereotype may depend on
+ * itself and on a few stereotypes of the layers below it.
+ * <p>
+ * Every class belongs to exactly one stereotype and has all its features, so
+ * the only violations are disallowed dependencies. The number of imports of a
+ * class is distributed exponentially, and a few classes of every stereotype
+ * are imported much more often than the others. The given share of the
+ * imports refers to a class of a stereotype the class may not depend on.
+ * <p>
+ * The same seed and settings always generate the same files.
+ */
+public final class CodebaseGenerator {
+
+	/** The application package of all generated classes. */
+	private static final String APPLICATION_PACKAGE = "gen";
+
+	/** The package of the annotations of the stereotypes. */
+	private static final String ANNOTATION_PACKAGE = APPLICATION_PACKAGE + ".api";
+
+	/** The number of classes of a stereotype in the same package. */
+	private static final int CLASSES_PER_PACKAGE = 200;
+
+	/** The number of imported classes a class has a field of. */
+	private static final int FIELDS = 3;
+
+	/** The number of attempts to find a stereotype a class may not depend on. */
+	private static final int DISALLOWED_ATTEMPTS = 16;
+
+	private final long seed;
+
+	private int classes = 1000;
+
+	private int stereotypes = 20;
+
+	private int layers = 5;
+
+	private int imports = 8;
+
+	private int dependencies = 4;
+
+	private double violationRate = 0.02;
+
+	/**
+	 * Creates a generator with the default settings.
+	 * 
+	 * @param seed
+	 *            the seed of the random numbers.
+	 */
+	public CodebaseGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @param classes
+	 *            the number of classes, 1000 by default.
+	 */
+	public void setClasses(int classes) {
+		if (classes < 0) {
+			throw new IllegalArgumentException("The number of classes may not be negative: " + classes);
+		}
+		this.classes = classes;
+	}
+
+	/**
+	 * @param stereotypes
+	 *            the number of stereotypes, 20 by default.
+	 */
+	public void setStereotypes(int stereotypes) {
+		if (stereotypes < 1) {
+			throw new IllegalArgumentException("At least one stereotype is required: " + stereotypes);
+		}
+		this.stereotypes = stereotypes;
+	}
+
+	/**
+	 * @param layers
+	 *            the number of layers the stereotypes are spread over, 5 by
+	 *            default.
+	 */
+	public void setLayers(int layers) {
+		if (layers < 1) {
+			throw new IllegalArgumentException("At least one layer is required: " + layers);
+		}
+		this.layers = layers;
+	}
+
+	/**
+	 * @param imports
+	 *            the average number of imports of a class, 8 by default.
+	 */
+	public void setImports(int imports) {
+		if (imports < 0) {
+			throw new IllegalArgumentException("The number of imports may not be negative: " + imports);
+		}
+		this.imports = imports;
+	}
+
+	/**
+	 * @param dependencies
+	 *            the number of stereotypes of the layers below a stereotype may
+	 *            depend on, 4 by default.
+	 */
+	public void setDependencies(int dependencies) {
+		if (dependencies < 0) {
+			throw new IllegalArgumentException("The number of dependencies may not be negative: " + dependencies);
+		}
+		this.dependencies = dependencies;
+	}
+
+	/**
+	 * @param violationRate
+	 *            the share of the imports of a stereotype the class may not
+	 *            depend on, 0.02 by default.
+	 */
+	public void setViolationRate(double violationRate) {
+		if (violationRate < 0 || violationRate > 1) {
+			throw new IllegalArgumentException("The violation rate has to be between 0 and 1: " + violationRate);
+		}
+		this.violationRate = violationRate;
+	}
+
+	/**
+	 * Writes the configuration <code>stereotype.xml</code> and the source root
+	 * <code>src</code> into the directory.
+	 * 
+	 * @param directory
+	 *            the directory, created if it does not exist.
+	 * @return the generated code base.
+	 * @throws IOException
+	 *             if a file can not be written.
+	 */
+	public GeneratedCodebase generate(File directory) throws IOException {
+		Random random = new Random(seed);
+		Files.createDirectories(directory.toPath());
+
+		BitSet[] allowed = allowedDependencies(random);
+		File configuration = new File(directory, "stereotype.xml");
+		writeConfiguration(configuration, allowed);
+
+		List<List<String>> classNames = new ArrayList<>(stereotypes);
+		for (int stereotype = 0; stereotype < stereotypes; stereotype++) {
+			classNames.add(new ArrayList<>());
+		}
+		int[] stereotypeOf = new int[classes];
+		for (int index = 0; index < classes; index++) {
+			// every stereotype gets a class before the others get a second one
+			int stereotype = index < stereotypes ? index : random.nextInt(stereotypes);
+			List<String> names = classNames.get(stereotype);
+			stereotypeOf[index] = stereotype;
+			names.add(packageName(stereotype, names.size()) + ".C" + index + postfix(stereotype));
+		}
+
+		File sourceRoot = new File(directory, "src");
+		List<GeneratedClass> generatedClasses = new ArrayList<>(classes);
+		List<File> sources = new ArrayList<>(classes);
+		int[] position = new int[stereotypes];
+		for (int index = 0; index < classes; index++) {
+			int stereotype = stereotypeOf[index];
+			String className = classNames.get(stereotype).get(position[stereotype]++);
+			Set<String> classImports = new LinkedHashSet<>();
+			List<String> disallowedImports = new ArrayList<>();
+			int count = fanOut(random);
+			for (int i = 0; i < count; i++) {
+				boolean disallowed = random.nextDouble() < violationRate;
+				int target = disallowed ? disallowedStereotype(random, allowed[stereotype], classNames)
+						: allowedStereotype(random, allowed[stereotype]);
+				if (target < 0) {
+					continue;
+				}
+				String importedClass = pick(random, classNames.get(target));
+				if (!importedClass.equals(className) && classImports.add(importedClass) && disallowed) {
+					disallowedImports.add(importedClass);
+				}
+			}
+			int lastDot = className.lastIndexOf('.');
+			GeneratedClass generatedClass = new GeneratedClass(className.substring(0, lastDot),
+					className.substring(lastDot + 1), id(stereotype), annotation(stereotype),
+					new ArrayList<>(classImports), disallowedImports);
+			generatedClasses.add(generatedClass);
+			sources.add(writeSource(sourceRoot, generatedClass));
+		}
+
+		List<String> ids = new ArrayList<>(stereotypes);
+		for (int stereotype = 0; stereotype < stereotypes; stereotype++) {
+			ids.add(id(stereotype));
+		}
+		return new GeneratedCodebase(directory, configuration, sourceRoot, ids, generatedClasses, sources);
+	}
+
+	/**
+	 * Chooses the stereotypes every stereotype may depend on: itself and some
+	 * of the stereotypes of the layers below it.
+	 */
+	private BitSet[] allowedDependencies(Random random) {
+		BitSet[] allowed = new BitSet[stereotypes];
+		for (int stereotype = 0; stereotype < stereotypes; stereotype++) {
+			allowed[stereotype] = new BitSet(stereotypes);
+			allowed[stereotype].set(stereotype);
+			int below = firstOfLayer(layer(stereotype));
+			if (below <= dependencies) {
+				allowed[stereotype].set(0, below);
+			} else {
+				int chosen = 0;
+				while (chosen < dependencies) {
+					int target = random.nextInt(below);
+					if (!allowed[stereotype].get(target)) {
+						allowed[stereotype].set(target);
+						chosen++;
+					}
+				}
+			}
+		}
+		return allowed;
+	}
+
+	private int allowedStereotype(Random random, BitSet allowed) {
+		int target = allowed.nextSetBit(0);
+		for (int skip = random.nextInt(allowed.cardinality()); skip > 0; skip--) {
+			target = allowed.nextSetBit(target + 1);
+		}
+		return target;
+	}
+
+	private int disallowedStereotype(Random random, BitSet allowed, List<List<String>> classNames) {
+		for (int attempt = 0; attempt < DISALLOWED_ATTEMPTS; attempt++) {
+			int target = random.nextInt(stereotypes);
+			if (!allowed.get(target) && !classNames.get(target).isEmpty()) {
+				return target;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Picks a class, the first classes of a stereotype are picked more often.
+	 */
+	private static String pick(Random random, List<String> classNames) {
+		double uniform = random.nextDouble();
+		return classNames.get((int) (classNames.size() * uniform * uniform));
+	}
+
+	/**
+	 * The number of imports of a class, exponentially distributed.
+	 */
+	private int fanOut(Random random) {
+		long count = Math.round(-imports * Math.log(1 - random.nextDouble()));
+		return (int) Math.min(count, 4L * imports);
+	}
+
+	private int layer(int stereotype) {
+		return (int) ((long) stereotype * layers / stereotypes);
+	}
+
+	private int firstOfLayer(int layer) {
+		return (int) (((long) layer * stereotypes + layers - 1) / layers);
+	}
+
+	/**
+	 * The id is also a segment of the package, so it can not be a keyword.
+	 */
+	private static String id(int stereotype) {
+		return "s" + stereotype;
+	}
+
+	/**
+	 * The postfix is an upper case X followed by the letters of the number:
+	 * a, b, ..., z, aa, ab, ... The only upper case letter is the first one, so
+	 * the postfix of a stereotype never ends the postfix of another one.
+	 */
+	private static String postfix(int stereotype) {
+		StringBuilder letters = new StringBuilder();
+		for (int number = stereotype + 1; number > 0; number = (number - 1) / 26) {
+			letters.append((char) ('a' + (number - 1) % 26));
+		}
+		return "X" + letters.reverse();
+	}
+
+	private static String annotation(int stereotype) {
+		return ANNOTATION_PACKAGE + ".Stereotype" + stereotype;
+	}
+
+	private String packageName(int stereotype) {
+		return APPLICATION_PACKAGE + ".l" + layer(stereotype) + "." + id(stereotype);
+	}
+
+	private String packageName(int stereotype, int position) {
+		return packageName(stereotype) + ".m" + position / CLASSES_PER_PACKAGE;
+	}
+
+	private void writeConfiguration(File file, BitSet[] allowed) throws IOException {
+		StringBuilder xml = new StringBuilder();
+		xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		xml.append("<sc:stereotypes xmlns:sc=\"http://www.novatec-gmbh.de/checkstyle-stereotype\">\n");
+		xml.append("\t<applicationpackage name=\"").append(APPLICATION_PACKAGE).append("\"/>\n");
+		xml.append("\t<excludedclasses regexp=\".*Test\"/>\n");
+		for (int from = 0; from < stereotypes; from++) {
+			for (int to = allowed[from].nextSetBit(0); to >= 0; to = allowed[from].nextSetBit(to + 1)) {
+				xml.append("\t<dependency from=\"").append(id(from)).append("\" to=\"").append(id(to))
+						.append("\"/>\n");
+			}
+		}
+		for (int stereotype = 0; stereotype < stereotypes; stereotype++) {
+			xml.append("\t<stereotype id=\"").append(id(stereotype)).append("\">\n");
+			xml.append("\t\t<postfix name=\"").append(postfix(stereotype)).append("\" condition=\"sufficient\"/>\n");
+			xml.append("\t\t<annotation name=\"").append(annotation(stereotype))
+					.append("\" condition=\"necessary\"/>\n");
+			xml.append("\t\t<package name=\"").append(packageName(stereotype).replace(".", "\\."))
+					.append("(\\..*)?\" condition=\"necessary\"/>\n");
+			xml.append("\t</stereotype>\n");
+		}
+		xml.append("</sc:stereotypes>\n");
+		Files.write(file.toPath(), xml.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static File writeSource(File sourceRoot, GeneratedClass generatedClass) throws IOException {
+		StringBuilder source = new StringBuilder();
+		source.append("package ").append(generatedClass.getPackageName()).append(";\n\n");
+		source.append("import ").append(generatedClass.getAnnotation()).append(";\n");
+		for (String importedClass : generatedClass.getImports()) {
+			source.append("import ").append(importedClass).append(";\n");
+		}
+		source.append("\n@").append(simpleName(generatedClass.getAnnotation())).append("\n");
+		source.append("public class ").append(generatedClass.getSimpleName()).append(" {\n");
+		List<String> classImports = generatedClass.getImports();
+		for (int i = 0; i < FIELDS && i < classImports.size(); i++) {
+			source.append("\n\tprivate ").append(simpleName(classImports.get(i))).append(" field").append(i)
+					.append(";\n");
+		}
+		source.append("\n\tpublic String getName() {\n\t\treturn \"").append(generatedClass.getSimpleName())
+				.append("\";\n\t}\n}\n");
+
+		File file = new File(sourceRoot, generatedClass.getName().replace('.', File.separatorChar) + ".java");
+		Files.createDirectories(file.getParentFile().toPath());
+		Files.write(file.toPath(), source.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static String simpleName(String className) {
+		return className.substring(className.lastIndexOf('.') + 1);
+	}
+
+	/**
+	 * Generates a code base from the command line.
+	 * 
+	 * @param args
+	 *            the directory, followed by the optional number of classes,
+	 *            number of stereotypes and seed.
+	 * @throws IOException
+	 *             if a file can not be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 4) {
+			System.err.println("Usage: CodebaseGenerator <directory> [<classes> [<stereotypes> [<seed>]]]");
+			System.exit(2);
+		}
+		CodebaseGenerator generator = new CodebaseGenerator(args.length > 3 ? Long.parseLong(args[3]) : 0);
+		if (args.length > 1) {
+			generator.setClasses(Integer.parseInt(args[1]));
+		}
+		if (args.length > 2) {
+			generator.setStereotypes(Integer.parseInt(args[2]));
+		}
+		GeneratedCodebase codebase = generator.generate(new File(args[0]));
+		System.out.println("Generated " + codebase.getClasses().size() + " classes of "
+				+ codebase.getStereotypes().size() + " stereotypes with " + codebase.getExpectedViolations().size()
+				+ " violations into " + codebase.getDirectory());
+	}
+}
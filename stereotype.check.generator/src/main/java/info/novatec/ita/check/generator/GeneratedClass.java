@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.generator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A class written by the {@link CodebaseGenerator}.
+ */
+public final class GeneratedClass {
+
+	private final String packageName;
+
+	private final String simpleName;
+
+	private final String stereotype;
+
+	private final String annotation;
+
+	private final List<String> imports;
+
+	private final List<String> disallowedImports;
+
+	GeneratedClass(String packageName, String simpleName, String stereotype, String annotation, List<String> imports,
+			List<String> disallowedImports) {
+		this.packageName = packageName;
+		this.simpleName = simpleName;
+		this.stereotype = stereotype;
+		this.annotation = annotation;
+		this.imports = Collections.unmodifiableList(imports);
+		this.disallowedImports = Collections.unmodifiableList(disallowedImports);
+	}
+
+	/**
+	 * @return the package of the class.
+	 */
+	public String getPackageName() {
+		return packageName;
+	}
+
+	/**
+	 * @return the class name without the package.
+	 */
+	public String getSimpleName() {
+		return simpleName;
+	}
+
+	/**
+	 * @return the full qualified class name.
+	 */
+	public String getName() {
+		return packageName + "." + simpleName;
+	}
+
+	/**
+	 * @return the id of the stereotype of the class.
+	 */
+	public String getStereotype() {
+		return stereotype;
+	}
+
+	/**
+	 * @return the full qualified name of the annotation of the class.
+	 */
+	public String getAnnotation() {
+		return annotation;
+	}
+
+	/**
+	 * @return the full qualified names of the imported classes, without the
+	 *         annotation.
+	 */
+	public List<String> getImports() {
+		return imports;
+	}
+
+	/**
+	 * @return the imported classes of stereotypes the stereotype of the class
+	 *         may not depend on.
+	 */
+	public List<String> getDisallowedImports() {
+		return disallowedImports;
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A source tree and its stereotype configuration written by the
+ * {@link CodebaseGenerator}.
+ */
+public final class GeneratedCodebase {
+
+	private final File directory;
+
+	private final File configuration;
+
+	private final File sourceRoot;
+
+	private final List<String> stereotypes;
+
+	private final List<GeneratedClass> classes;
+
+	private final List<File> sources;
+
+	GeneratedCodebase(File directory, File configuration, File sourceRoot, List<String> stereotypes,
+			List<GeneratedClass> classes, List<File> sources) {
+		this.directory = directory;
+		this.configuration = configuration;
+		this.sourceRoot = sourceRoot;
+		this.stereotypes = Collections.unmodifiableList(stereotypes);
+		this.classes = Collections.unmodifiableList(classes);
+		this.sources = Collections.unmodifiableList(sources);
+	}
+
+	/**
+	 * @return the directory containing the configuration and the source root.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return the stereotype configuration.
+	 */
+	public File getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @return the root directory of the source files.
+	 */
+	public File getSourceRoot() {
+		return sourceRoot;
+	}
+
+	/**
+	 * @return the ids of the stereotypes of the configuration.
+	 */
+	public List<String> getStereotypes() {
+		return stereotypes;
+	}
+
+	/**
+	 * @return the generated classes.
+	 */
+	public List<GeneratedClass> getClasses() {
+		return classes;
+	}
+
+	/**
+	 * @return the source files of the generated classes, in the same order.
+	 */
+	public List<File> getSources() {
+		return sources;
+	}
+
+	/**
+	 * The violations the stereotype check has to find: one disallowed
+	 * dependency per import of a class of a stereotype the class may not
+	 * depend on.
+	 * 
+	 * @return the messages of the violations, in the order of the classes and
+	 *         their imports.
+	 */
+	public List<String> getExpectedViolations() {
+		List<String> violations = new ArrayList<>();
+		for (GeneratedClass generatedClass : classes) {
+			for (String importedClass : generatedClass.getDisallowedImports()) {
+				violations.add("Disallowed dependency from stereotype " + generatedClass.getStereotype()
+						+ " to stereotype " + stereotypeOf(importedClass) + ": " + importedClass);
+			}
+		}
+		return violations;
+	}
+
+	/**
+	 * The id of the stereotype is the segment of the package after the layer.
+	 */
+	private static String stereotypeOf(String className) {
+		return className.split("\\.")[2];
+	}
+
+	/**
+	 * Deletes the directory with the configuration and all source files.
+	 * 
+	 * @throws IOException
+	 *             if a file can not be deleted.
+	 */
+	public void delete() throws IOException {
+		delete(directory);
+	}
+
+	private static void delete(File file) throws IOException {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(file.toPath());
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.generator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link CodebaseGenerator}.
+ */
+public class CodebaseGeneratorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * The same seed generates the same files.
+	 */
+	@Test
+	public void sameSeedGeneratesSameFiles() throws IOException {
+		GeneratedCodebase first = generator(42).generate(folder.newFolder("first"));
+		GeneratedCodebase second = generator(42).generate(folder.newFolder("second"));
+
+		assertThat(contents(second)).isEqualTo(contents(first));
+		assertThat(second.getExpectedViolations()).isEqualTo(first.getExpectedViolations());
+	}
+
+	/**
+	 * Another seed generates other files.
+	 */
+	@Test
+	public void otherSeedGeneratesOtherFiles() throws IOException {
+		GeneratedCodebase first = generator(42).generate(folder.newFolder("first"));
+		GeneratedCodebase second = generator(43).generate(folder.newFolder("second"));
+
+		assertThat(contents(second)).isNotEqualTo(contents(first));
+	}
+
+	/**
+	 * Every stereotype has a class and the share of the disallowed imports is
+	 * close to the violation rate.
+	 */
+	@Test
+	public void violationRateIsKept() throws IOException {
+		CodebaseGenerator generator = generator(7);
+		generator.setClasses(5000);
+		generator.setViolationRate(0.05);
+
+		GeneratedCodebase codebase = generator.generate(folder.getRoot());
+
+		int imports = 0;
+		int disallowedImports = 0;
+		for (GeneratedClass generatedClass : codebase.getClasses()) {
+			imports += generatedClass.getImports().size();
+			disallowedImports += generatedClass.getDisallowedImports().size();
+		}
+		assertThat(codebase.getClasses()).extracting(GeneratedClass::getStereotype)
+				.containsAll(codebase.getStereotypes());
+		assertThat(codebase.getExpectedViolations()).hasSize(disallowedImports);
+		assertThat((double) disallowedImports / imports).isBetween(0.04, 0.06);
+	}
+
+	/**
+	 * The settings are checked.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidViolationRateIsRejected() {
+		generator(1).setViolationRate(1.5);
+	}
+
+	private static CodebaseGenerator generator(long seed) {
+		CodebaseGenerator generator = new CodebaseGenerator(seed);
+		generator.setClasses(300);
+		generator.setStereotypes(30);
+		return generator;
+	}
+
+	private static List<String> contents(GeneratedCodebase codebase) throws IOException {
+		List<String> contents = new ArrayList<>();
+		contents.add(new String(Files.readAllBytes(codebase.getConfiguration().toPath()), "UTF-8"));
+		for (File source : codebase.getSources()) {
+			contents.add(codebase.getSourceRoot().toPath().relativize(source.toPath()).toString());
+			contents.add(new String(Files.readAllBytes(source.toPath()), "UTF-8"));
+		}
+		return contents;
+	}
+}
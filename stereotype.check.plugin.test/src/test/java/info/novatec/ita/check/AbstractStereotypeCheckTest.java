@@ -22,16 +22,34 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
 
 import com.puppycrawl.tools.checkstyle.BaseFileSetCheckTestSupport;
 import com.puppycrawl.tools.checkstyle.Checker;
 import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
 import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
 import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessage;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
 
 public class AbstractStereotypeCheckTest extends BaseFileSetCheckTestSupport {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	/**
 	 * Get the project relative path to the .java file of the given class
 	 * 
@@ -64,12 +82,123 @@ public class AbstractStereotypeCheckTest extends BaseFileSetCheckTestSupport {
 	 */
 	protected DefaultConfiguration createConfig(String configFilename) {
 		DefaultConfiguration main = createCheckConfig(TreeWalker.class);
-		final DefaultConfiguration checkConfig = createCheckConfig(StereotypeCheck.class);
-		checkConfig.addAttribute("file", configFilename);
-		main.addChild(checkConfig);
+		main.addChild(createStereotypeCheckConfig(configFilename));
 		return main;
 	}
 
+	/**
+	 * Create the configuration of the stereotype check itself.
+	 * 
+	 * @param configFilename
+	 *            The project relative path to the configuration file used by
+	 *            the stereotype check.
+	 * @return The configuration.
+	 */
+	protected DefaultConfiguration createStereotypeCheckConfig(String configFilename) {
+		DefaultConfiguration checkConfig = createCheckConfig(StereotypeCheck.class);
+		checkConfig.addAttribute("file", configFilename);
+		return checkConfig;
+	}
+
+	/**
+	 * Create a configured and initialized stereotype check, which is used
+	 * without a {@link Checker}.
+	 * 
+	 * @param configFilename
+	 *            The project relative path to the configuration file used by
+	 *            the stereotype check.
+	 * @return The check.
+	 */
+	protected StereotypeCheck createCheck(String configFilename) throws Exception {
+		return createCheck(createStereotypeCheckConfig(configFilename));
+	}
+
+	/**
+	 * Create a configured and initialized stereotype check, which is used
+	 * without a {@link Checker}.
+	 * 
+	 * @param checkConfig
+	 *            The configuration of the stereotype check.
+	 * @return The check.
+	 */
+	protected StereotypeCheck createCheck(DefaultConfiguration checkConfig) throws Exception {
+		StereotypeCheck check = new StereotypeCheck();
+		check.configure(checkConfig);
+		check.init();
+		return check;
+	}
+
+	/**
+	 * Write a file into the temporary folder of the test.
+	 * 
+	 * @param path
+	 *            The path of the file relative to the temporary folder.
+	 * @param lines
+	 *            The lines of the file.
+	 * @return The file.
+	 */
+	protected File write(String path, String... lines) throws IOException {
+		File file = new File(folder.getRoot(), path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+		return file;
+	}
+
+	/**
+	 * Walk the file with the check, without a {@link Checker}.
+	 * 
+	 * @param check
+	 *            The initialized check.
+	 * @param path
+	 *            The path to the .java file.
+	 * @return The errors found in the file.
+	 */
+	protected LocalizedMessages check(AbstractCheck check, String path) throws Exception {
+		return check(check, Collections.singletonList(new File(path)));
+	}
+
+	/**
+	 * Walk the files with the check, without a {@link Checker}.
+	 * 
+	 * @param check
+	 *            The initialized check.
+	 * @param files
+	 *            The .java files.
+	 * @return The errors found in all files.
+	 */
+	protected LocalizedMessages check(AbstractCheck check, Collection<File> files) throws Exception {
+		LocalizedMessages messages = new LocalizedMessages();
+		check.setMessages(messages);
+		for (File file : files) {
+			walk(check, file.getPath());
+		}
+		return messages;
+	}
+
+	/**
+	 * @return The errors as "line:column: message", in the order they were
+	 *         reported.
+	 */
+	protected static List<String> format(LocalizedMessages messages) {
+		List<String> errors = new ArrayList<>();
+		for (LocalizedMessage message : messages.getMessages()) {
+			errors.add(message.getLineNo() + ":" + message.getColumnNo() + ": " + message.getMessage());
+		}
+		return errors;
+	}
+
+	/**
+	 * @return The messages of the errors without their positions, in the
+	 *         order they were reported.
+	 */
+	protected static List<String> messages(LocalizedMessages messages) {
+		List<String> errors = new ArrayList<>();
+		for (LocalizedMessage message : messages.getMessages()) {
+			errors.add(message.getMessage());
+		}
+		return errors;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -115,4 +244,37 @@ public class AbstractStereotypeCheckTest extends BaseFileSetCheckTestSupport {
 		verify(c, processedFiles, messageFileName, expectedAsArray);
 	}
 
+	/**
+	 * Parses the file and passes the tokens to the check like the
+	 * {@link TreeWalker}, without a {@link Checker}.
+	 * 
+	 * @param check
+	 *            the initialized check
+	 * @param path
+	 *            the path to the .java file
+	 */
+	protected void walk(AbstractCheck check, String path) throws Exception {
+		FileContents contents = new FileContents(new FileText(new File(path), "UTF-8"));
+		DetailAST root = TreeWalker.parse(contents);
+		check.setFileContents(contents);
+		check.beginTree(root);
+		walk(check, root);
+		check.finishTree(root);
+	}
+
+	private void walk(AbstractCheck check, DetailAST ast) {
+		int[] tokens = check.getDefaultTokens();
+		for (DetailAST node = ast; node != null; node = node.getNextSibling()) {
+			int type = node.getType();
+			boolean isVisited = Arrays.stream(tokens).anyMatch(token -> token == type);
+			if (isVisited) {
+				check.visitToken(node);
+			}
+			walk(check, node.getFirstChild());
+			if (isVisited) {
+				check.leaveToken(node);
+			}
+		}
+	}
+
 }
@@ -17,8 +17,15 @@ package info.novatec.ita.check;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
+
 import org.junit.Test;
 
+import info.novatec.ita.check.config.StereotypeCheckReader;
+import info.novatec.ita.check.config.StereotypeRuleSet;
+
 /**
  * Tests for {@link ClassInfo}.
  */
@@ -46,4 +53,47 @@ public class ClassInfoTest {
 
 		assertThat(fullClassName).isEqualTo("Classname");
 	}
+
+	@Test
+	public void hasImportBySimpleName() {
+
+		ClassInfo classInfo = new ClassInfo();
+		classInfo.setPackageName("package1");
+		classInfo.addImport("package2.SampleDto", null);
+		classInfo.addImport("package3.*", null);
+
+		assertThat(classInfo.hasImport("SampleDto")).isTrue();
+		assertThat(classInfo.hasImport("Dto")).isFalse();
+		assertThat(classInfo.hasImport("*")).isFalse();
+		assertThat(classInfo.isJavaLangType("String")).isTrue();
+		assertThat(classInfo.isJavaLangType("SampleDto")).isFalse();
+	}
+
+	@Test
+	public void explicitImportHidesJavaLangType() {
+
+		ClassInfo classInfo = new ClassInfo();
+		classInfo.setPackageName("package1");
+		classInfo.addImport("package2.Override", null);
+
+		assertThat(classInfo.isJavaLangType("Override")).isFalse();
+		assertThat(classInfo.isJavaLangType("Deprecated")).isTrue();
+	}
+
+	@Test
+	public void annotationIsResolvedByWildcardImport() {
+		StereotypeRuleSet ruleSet = StereotypeCheckReader.read(new File("src/test/resources/stereotype.xml"))
+				.getRuleSet();
+		String annotation = "info.novatec.ita.check.testclasses.core.fwk.common.ul.ControllerStereotype";
+		BitSet annotationTypes = new BitSet();
+		ruleSet.resolveTypes(Arrays.asList(annotation), annotationTypes);
+
+		ClassInfo classInfo = new ClassInfo();
+		classInfo.setPackageName("package1");
+		classInfo.addImport("info.novatec.ita.check.testclasses.core.fwk.common.ul.*", null);
+		classInfo.addAnnotation("ControllerStereotype");
+		classInfo.resolveTypes(ruleSet);
+
+		assertThat(classInfo.hasAnnotation(annotationTypes)).isTrue();
+	}
 }
@@ -15,7 +15,12 @@
  *******************************************************************************/
 package info.novatec.ita.check;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -260,4 +265,79 @@ public class DependencyCheckTest extends AbstractStereotypeCheckTest {
 				+ "info.novatec.ita.check.testclasses.app1.main.bl.bo.SampleBo";
 		verify(main, getPath(SampleReferencingVarOtherPackageBo.class), expected);
 	}
+
+	/**
+	 * A generic type is imported without its type arguments, whether its name
+	 * is full qualified or in the package of the class.
+	 */
+	@Test
+	public void genericTypeIsImported() throws Exception {
+		File file = write("GenericIs.java", "package info.novatec.ita.check.testclasses.app1.main.bl.is;",
+				"public class GenericIs { a.b.Foo<String> foo; Bar<String> bar; }");
+		StereotypeCheck check = createCheck("src/test/resources/stereotype.xml");
+		List<String> facts = new ArrayList<>();
+		check.setTraceSink((event, value, line) -> facts.add(event + " " + value));
+
+		check(check, file.getPath());
+
+		assertThat(facts).contains("importName a.b.Foo",
+				"importName info.novatec.ita.check.testclasses.app1.main.bl.is.Bar");
+		assertThat(facts).filteredOn(fact -> fact.contains("TYPE_ARGUMENTS")).isEmpty();
+	}
+
+	/**
+	 * A class in the same package matches the same packages as the class
+	 * itself, so the package does not make it a disallowed dependency. A class
+	 * of the package in another package does.
+	 */
+	@Test
+	public void dependencyInSamePackageIsNotClassifiedByPackage() throws Exception {
+		File config = writePackageConfig();
+		File customer = write("a/model/Customer.java", "package a.model;", "public class Customer { Order order; }");
+		File service = write("a/service/OrderService.java", "package a.service;",
+				"public class OrderService { a.model.Order order; }");
+		StereotypeCheck check = createCheck(config.getPath());
+
+		assertThat(messages(check(check, customer.getPath()))).isEmpty();
+		assertThat(messages(check(check, service.getPath())))
+				.containsExactly("Disallowed dependency from stereotype service to stereotype model: a.model.Order");
+	}
+
+	/**
+	 * A nested class is in the package of its top level class. Its top level
+	 * class is no package.
+	 */
+	@Test
+	public void nestedClassIsInPackageOfTopLevelClass() throws Exception {
+		File config = writePackageConfig();
+		File service = write("a/service/LineService.java", "package a.service;",
+				"public class LineService { a.model.Order.Line line; }");
+		StereotypeCheck check = createCheck(config.getPath());
+
+		assertThat(messages(check(check, service.getPath()))).containsExactly(
+				"Disallowed dependency from stereotype service to stereotype model: a.model.Order.Line");
+	}
+
+	/**
+	 * Writes a configuration with a stereotype identified by its postfix and
+	 * two stereotypes identified by their package, one of them named like a
+	 * class.
+	 */
+	private File writePackageConfig() throws IOException {
+		return write("stereotype.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>",
+				"<sc:stereotypes xmlns:sc=\"http://www.novatec-gmbh.de/checkstyle-stereotype\"",
+				"	xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"",
+				"	xsi:schemaLocation=\"http://www.novatec-gmbh.de/checkstyle-stereotype checkstyle-stereotype.xsd \">",
+				"	<applicationpackage name=\"a\"/>", //
+				"	<stereotype id=\"service\">", //
+				"		<postfix name=\"Service\" condition=\"sufficient\"/>", //
+				"	</stereotype>", //
+				"	<stereotype id=\"model\">", //
+				"		<package name=\"^a\\.model$\" condition=\"sufficient\"/>", //
+				"	</stereotype>", //
+				"	<stereotype id=\"order\">", //
+				"		<package name=\"^a\\.model\\.Order$\" condition=\"sufficient\"/>", //
+				"	</stereotype>", //
+				"</sc:stereotypes>");
+	}
 }
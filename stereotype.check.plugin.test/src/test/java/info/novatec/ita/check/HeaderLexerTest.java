@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+
+import info.novatec.ita.check.generator.CodebaseGenerator;
+import info.novatec.ita.check.generator.GeneratedCodebase;
+
+/**
+ * Compares the facts and violations of the {@link HeaderLexer} with the ones
+ * the check collects from the syntax tree of Checkstyle.
+ */
+public class HeaderLexerTest extends AbstractStereotypeCheckTest {
+
+	private static final String ALL_PACKAGES = "src/test/resources/stereotype-all-packages.xml";
+
+	/**
+	 * The lexer reads the same facts from the sample classes as the check from
+	 * the syntax tree.
+	 */
+	@Test
+	public void sameFactsForSampleClasses() throws Exception {
+		assertSameFacts(ALL_PACKAGES, sources(new File("src/main/java")));
+	}
+
+	/**
+	 * The lexer reads the same facts from the sources of the check itself.
+	 */
+	@Test
+	public void sameFactsForPluginSources() throws Exception {
+		assertSameFacts(ALL_PACKAGES, sources(new File("../stereotype.check.plugin/src/main/java")));
+	}
+
+	/**
+	 * The lexer reads the same facts from a generated code base.
+	 */
+	@Test
+	public void sameFactsForGeneratedCodebase() throws Exception {
+		CodebaseGenerator generator = new CodebaseGenerator(20161224L);
+		generator.setClasses(500);
+		GeneratedCodebase codebase = generator.generate(folder.getRoot());
+
+		assertSameFacts(codebase.getConfiguration().getPath(), sources(codebase.getSourceRoot()));
+	}
+
+	/**
+	 * The lexer reads the same facts from constructs where the syntax tree has
+	 * peculiarities, like the type arguments of a cast, the brackets after a
+	 * <code>&gt;&gt;</code> or a nested interface.
+	 */
+	@Test
+	public void sameFactsForPeculiarConstructs() throws Exception {
+		File file = write("info/lexer/PeculiarDto.java", "package info.lexer;",
+				"import java.util.List;",
+				"import static java.util.Collections.emptyList;",
+				"@Deprecated public abstract class PeculiarDto<T extends Comparable<Key>>",
+				"		extends a.b.Base<Value> implements java.io.Serializable, Comparable<PeculiarDto<T>> {",
+				"	@Deprecated Field a, b[], c = (Cast<Argument, ? extends Bound<Inner>>) null;",
+				"	Generic<Array<Element>>[] elements;",
+				"	Outer.Nested<Type>.Inner qualified;",
+				"	interface NestedInterface extends Base {}",
+				"	enum NestedEnum implements EnumInterface { A { void m() {} }, B; }",
+				"	class Inner { Hidden hidden; class InnerInner {} Visible visible; }",
+				"	<M extends Map<K, V>> Result<M> method(final Parameter p, Old o[], Varargs... v) throws Failure {",
+				"		for (Local l : list) { if (l instanceof Checked<Nested>) { l = (First & Second) l; } }",
+				"		try (Resource<Generic> r = open()) { Runnable run = (Typed t) -> t.go(); }",
+				"		catch (One | Two e) {} catch (Three e) {}",
+				"		Object o = new Anonymous() { Member member; };",
+				"		class Local { Invisible invisible; }",
+				"		int[] numbers = { (int) +1, (x) - 1, (Minus) -1, (Plus) + 1 };",
+				"		return this.<Explicit>call(Method::new, x -> (Lambda) x, y -> { Block b; return b; });",
+				"	}",
+				"}");
+
+		assertSameFacts(ALL_PACKAGES, Arrays.asList(file));
+	}
+
+	/**
+	 * The violations are the same, the positions of the markers, too.
+	 */
+	@Test
+	public void sameViolationsForSampleClasses() throws Exception {
+		StereotypeCheck check = createCheck("src/test/resources/stereotype.xml");
+		int violations = 0;
+		for (File file : sources(new File("src/main/java"))) {
+			FileContents contents = new FileContents(new FileText(file, "UTF-8"));
+			LocalizedMessages parsed = check(check, file.getPath());
+			LocalizedMessages lexed = new LocalizedMessages();
+			check.setMessages(lexed);
+			check.setFileContents(contents);
+
+			assertThat(check.checkWithoutTree()).as(file.getPath()).isTrue();
+			assertThat(format(lexed)).as(file.getPath()).isEqualTo(format(parsed));
+			violations += parsed.size();
+		}
+		assertThat(violations).isGreaterThan(0);
+	}
+
+	/**
+	 * The lexer gives up on an annotated type argument, nothing is reported
+	 * or traced then.
+	 */
+	@Test
+	public void givesUpOnAnnotatedTypeArgument() throws Exception {
+		File file = write("info/lexer/AnnotatedDto.java", "package info.lexer;",
+				"public class AnnotatedDto { java.util.List<@Deprecated String> list; }");
+		StereotypeCheck check = createCheck(ALL_PACKAGES);
+		List<String> facts = new ArrayList<>();
+		check.setTraceSink((event, value, line) -> facts.add(event + " " + value));
+		LocalizedMessages messages = new LocalizedMessages();
+		check.setMessages(messages);
+		check.setFileContents(new FileContents(new FileText(file, "UTF-8")));
+
+		assertThat(check.checkWithoutTree()).isFalse();
+		assertThat(messages.size()).isZero();
+		assertThat(facts).isEmpty();
+		// the file is parsed instead, every fact is traced once
+		walk(check, file.getPath());
+		assertThat(facts).containsExactly("packageName info.lexer", "className AnnotatedDto",
+				"importName java.util.List", "annotation Deprecated");
+	}
+
+	private void assertSameFacts(String configFilename, List<File> files) throws Exception {
+		StereotypeCheck check = createCheck(configFilename);
+		assertThat(files).isNotEmpty();
+		for (File file : files) {
+			List<String> parsed = new ArrayList<>();
+			check.setTraceSink((event, value, line) -> parsed.add(event + " " + value + " @" + line));
+			check(check, file.getPath());
+
+			List<String> lexed = new ArrayList<>();
+			check.setTraceSink((event, value, line) -> lexed.add(event + " " + value + " @" + line));
+			check.setFileContents(new FileContents(new FileText(file, "UTF-8")));
+
+			assertThat(check.checkWithoutTree()).as(file.getPath()).isTrue();
+			assertThat(lexed).as(file.getPath()).isEqualTo(parsed);
+		}
+	}
+
+	private static List<File> sources(File root) throws IOException {
+		try (Stream<Path> files = Files.walk(root.toPath())) {
+			return files.filter(file -> file.toString().endsWith(".java")).sorted().map(Path::toFile)
+					.collect(Collectors.toList());
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+
+/**
+ * Tests for the {@link ImportGraph} collected by the {@link StereotypeCheck}.
+ */
+public class ImportGraphTest extends AbstractStereotypeCheckTest {
+
+	private static final String CONFIG = "src/test/resources/stereotype-type-index.xml";
+
+	private List<File> files = new ArrayList<>();
+
+	@Before
+	public void writeSources() throws IOException {
+		files.add(write("info/index/model/OrderEntity.java", "package info.index.model;", "import java.util.List;",
+				"import info.index.model.ItemEntity;", "import info.index.ui.OrderView;",
+				"public class OrderEntity { List<ItemEntity> items; OrderView view; }"));
+		files.add(write("info/index/model/ItemEntity.java", "package info.index.model;",
+				"import info.index.model.OrderEntity;", "public class ItemEntity { OrderEntity order; }"));
+		files.add(write("info/index/model/ItemTest.java", "package info.index.model;",
+				"import info.index.model.ItemEntity;", "public class ItemTest { ItemEntity item; }"));
+		files.add(write("info/index/model/CustomerEntity.java", "package info.index.model;",
+				"import info.index.model.ItemTest;",
+				"import info.index.model.*;", "public class CustomerEntity { ItemTest test; }"));
+		files.add(write("info/index/ui/OrderView.java", "package info.index.ui;",
+				"import info.index.model.OrderEntity;",
+				"import info.index.ui.ListView.Row;", "public class OrderView { OrderEntity order; Row row; }"));
+		files.add(write("info/index/ui/ListView.java", "package info.index.ui;", "import info.index.ui.OrderView;",
+				"public class ListView { OrderView view; public static class Row {} }"));
+	}
+
+	/**
+	 * The cycles between all classes are found. An import of a nested class
+	 * is an import of its class, the imports of excluded classes and classes
+	 * outside the application are ignored.
+	 */
+	@Test
+	public void findsCyclesBetweenClasses() throws Exception {
+		ImportGraph graph = collect(false);
+
+		assertThat(graph.size()).isEqualTo(5);
+		assertThat(graph.getImportCount()).isEqualTo(6);
+		List<ImportGraph.Cycle> cycles = graph.findClassCycles();
+		assertThat(cycles).hasSize(1);
+		assertThat(cycles.get(0).getMembers()).containsExactly("info.index.model.ItemEntity",
+				"info.index.model.OrderEntity", "info.index.ui.ListView", "info.index.ui.OrderView");
+		assertThat(cycles.get(0)).hasToString(
+				"info.index.model.ItemEntity -> info.index.model.OrderEntity -> info.index.model.ItemEntity");
+	}
+
+	/**
+	 * The cycles restricted to the classes of a stereotype ignore the imports
+	 * of the classes of other stereotypes.
+	 */
+	@Test
+	public void findsCyclesBetweenClassesOfStereotype() throws Exception {
+		ImportGraph graph = collect(false);
+
+		assertThat(members(graph.findClassCycles("entity"))).isEqualTo(Collections
+				.singletonList(Arrays.asList("info.index.model.ItemEntity", "info.index.model.OrderEntity")));
+		assertThat(paths(graph.findClassCycles("view"))).isEqualTo(
+				Collections.singletonList(Arrays.asList("info.index.ui.ListView", "info.index.ui.OrderView")));
+	}
+
+	/**
+	 * A class of a stereotype importing a class of another stereotype is a
+	 * dependency between the stereotypes.
+	 */
+	@Test
+	public void findsCyclesBetweenStereotypes() throws Exception {
+		List<ImportGraph.Cycle> cycles = collect(false).findStereotypeCycles();
+
+		assertThat(paths(cycles)).isEqualTo(Collections.singletonList(Arrays.asList("entity", "view")));
+	}
+
+	/**
+	 * The header lexer reads the same imports as the parser.
+	 */
+	@Test
+	public void lexedFilesHaveSameCycles() throws Exception {
+		ImportGraph parsed = collect(false);
+		ImportGraph lexed = collect(true);
+
+		assertThat(lexed.getImportCount()).isEqualTo(parsed.getImportCount());
+		assertThat(paths(lexed.findClassCycles())).isEqualTo(paths(parsed.findClassCycles()));
+	}
+
+	private static List<List<String>> members(List<ImportGraph.Cycle> cycles) {
+		return cycles.stream().map(ImportGraph.Cycle::getMembers).collect(Collectors.toList());
+	}
+
+	private static List<List<String>> paths(List<ImportGraph.Cycle> cycles) {
+		return cycles.stream().map(ImportGraph.Cycle::getPath).collect(Collectors.toList());
+	}
+
+	/**
+	 * An unknown stereotype is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownStereotype() throws Exception {
+		collect(false).findClassCycles("unknown");
+	}
+
+	/**
+	 * A component of many classes with a million imports does not overflow
+	 * the stack and a shortest cycle through it is found.
+	 */
+	@Test
+	public void findsLargeCycle() {
+		int classCount = 200000;
+		String[] stereotypeIds = { "entity" };
+		BitSet stereotypes = new BitSet();
+		stereotypes.set(0);
+		ImportGraph.Builder builder = new ImportGraph.Builder();
+		for (int i = 0; i < classCount; i++) {
+			List<String> imports = new ArrayList<>();
+			for (int step = 1; step <= 5; step++) {
+				imports.add(String.format("info.graph.Class%06d", (i + step) % classCount));
+			}
+			builder.add(String.format("info.graph.Class%06d", i), imports, stereotypes, stereotypeIds);
+		}
+
+		ImportGraph graph = builder.build();
+
+		assertThat(graph.getImportCount()).isEqualTo(5 * classCount);
+		List<ImportGraph.Cycle> cycles = graph.findClassCycles("entity");
+		assertThat(cycles).hasSize(1);
+		assertThat(cycles.get(0).getMembers()).hasSize(classCount);
+		assertThat(cycles.get(0).getPath()).hasSize(classCount / 5).startsWith("info.graph.Class000000");
+		assertThat(graph.findStereotypeCycles()).isEmpty();
+	}
+
+	private ImportGraph collect(boolean lex) throws Exception {
+		StereotypeCheck check = createCheck(CONFIG);
+		check.setMessages(new LocalizedMessages());
+		ImportGraph.Builder builder = new ImportGraph.Builder();
+		check.setImportGraphBuilder(builder);
+		for (File file : files) {
+			if (lex) {
+				check.setFileContents(new FileContents(new FileText(file, "UTF-8")));
+				assertThat(check.checkWithoutTree()).as(file.getPath()).isTrue();
+			} else {
+				walk(check, file.getPath());
+			}
+		}
+		return builder.build();
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+
+import info.novatec.ita.check.config.StereotypeCheckSnapshot;
+import info.novatec.ita.check.testclasses.app1.main.bl.is.SampleWithoutInterfaceIs;
+
+/**
+ * Tests for the {@link ResultCache} used by the {@link StereotypeCheck}.
+ */
+public class ResultCacheTest extends AbstractStereotypeCheckTest {
+
+	/**
+	 * An unchanged file is answered from the cache with the same errors.
+	 */
+	@Test
+	public void unchangedFileIsAnsweredFromCache() throws Exception {
+		File config = copy(new File("src/test/resources/stereotype.xml"));
+		File cacheFile = new File(folder.getRoot(), "results.cache");
+		String path = getPath(SampleWithoutInterfaceIs.class);
+
+		StereotypeCheck first = createCheck(config, cacheFile);
+		List<String> expected = format(check(first, path));
+		first.destroy();
+		StereotypeCheck second = createCheck(config, cacheFile);
+		List<String> actual = format(check(second, path));
+
+		assertThat(expected).hasSize(1);
+		assertThat(cacheFile).exists();
+		assertThat(actual).isEqualTo(expected);
+		assertThat(first.getStatistics().getCachedFiles()).isEqualTo(0);
+		assertThat(second.getStatistics().getCachedFiles()).isEqualTo(1);
+	}
+
+	/**
+	 * A changed file is checked again.
+	 */
+	@Test
+	public void changedFileIsCheckedAgain() throws Exception {
+		File config = copy(new File("src/test/resources/stereotype.xml"));
+		File cacheFile = new File(folder.getRoot(), "results.cache");
+		File source = copy(new File(getPath(SampleWithoutInterfaceIs.class)));
+
+		StereotypeCheck check = createCheck(config, cacheFile);
+		List<String> expected = format(check(check, source.getPath()));
+		Files.write(source.toPath(), "// changed\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		List<String> actual = format(check(check, source.getPath()));
+
+		assertThat(actual).isEqualTo(expected);
+		assertThat(check.getStatistics().getCachedFiles()).isEqualTo(0);
+	}
+
+	/**
+	 * All results are dropped, when the configuration changes.
+	 */
+	@Test
+	public void changedConfigurationDropsCache() throws Exception {
+		File config = copy(new File("src/test/resources/stereotype.xml"));
+		File cacheFile = new File(folder.getRoot(), "results.cache");
+		String path = getPath(SampleWithoutInterfaceIs.class);
+
+		StereotypeCheck first = createCheck(config, cacheFile);
+		check(first, path);
+		first.destroy();
+		Files.write(config.toPath(), "<!-- changed -->\n".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+		StereotypeCheck second = createCheck(config, cacheFile);
+		check(second, path);
+
+		assertThat(second.getStatistics().getCachedFiles()).isEqualTo(0);
+	}
+
+	/**
+	 * All results are dropped, when the cache was written by another version
+	 * of the plugin, e.g. a version hashing only the configuration.
+	 */
+	@Test
+	public void cacheOfAnotherPluginVersionIsDropped() throws Exception {
+		File config = copy(new File("src/test/resources/stereotype.xml"));
+		File cacheFile = new File(folder.getRoot(), "results.cache");
+		String path = getPath(SampleWithoutInterfaceIs.class);
+
+		StereotypeCheck first = createCheck(config, cacheFile);
+		check(first, path);
+		first.destroy();
+		// the hash follows the magic, the format version and its length; the
+		// open cache is shared by its path, so the changed one gets a new path
+		byte[] content = Files.readAllBytes(cacheFile.toPath());
+		byte[] configHash = StereotypeCheckSnapshot.sourceHash(config);
+		System.arraycopy(configHash, 0, content, 12, configHash.length);
+		File otherCacheFile = new File(folder.getRoot(), "other.cache");
+		Files.write(otherCacheFile.toPath(), content);
+		StereotypeCheck second = createCheck(config, otherCacheFile);
+		check(second, path);
+
+		assertThat(second.getStatistics().getCachedFiles()).isEqualTo(0);
+	}
+
+	private File copy(File file) throws Exception {
+		File copy = new File(folder.getRoot(), file.getName());
+		Files.copy(file.toPath(), copy.toPath());
+		return copy;
+	}
+
+	private StereotypeCheck createCheck(File config, File cacheFile) throws Exception {
+		DefaultConfiguration checkConfig = createStereotypeCheckConfig(config.getPath());
+		checkConfig.addAttribute("cacheFile", cacheFile.getPath());
+		return createCheck(checkConfig);
+	}
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+
+import info.novatec.ita.check.generator.CodebaseGenerator;
+import info.novatec.ita.check.generator.GeneratedCodebase;
+
+/**
+ * Runs the check over a generated code base, much larger than the sample
+ * classes, and compares the violations with the ones the generator put in.
+ */
+public class ScaleRegressionTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Exactly the disallowed dependencies of the generated code base are
+	 * found.
+	 */
+	@Test(timeout = 120000)
+	public void findsGeneratedViolations() throws Exception {
+		CodebaseGenerator generator = new CodebaseGenerator(20160101L);
+		generator.setClasses(3000);
+		generator.setStereotypes(200);
+		GeneratedCodebase codebase = generator.generate(folder.getRoot());
+
+		List<String> actual = check(codebase);
+
+		List<String> expected = new ArrayList<>(codebase.getExpectedViolations());
+		Collections.sort(expected);
+		assertThat(expected).isNotEmpty();
+		assertThat(actual).isEqualTo(expected);
+	}
+
+	private static List<String> check(GeneratedCodebase codebase) throws Exception {
+		DefaultConfiguration checkConfig = new DefaultConfiguration(StereotypeCheck.class.getName());
+		checkConfig.addAttribute("file", codebase.getConfiguration().getPath());
+		DefaultConfiguration treeWalkerConfig = new DefaultConfiguration(TreeWalker.class.getName());
+		treeWalkerConfig.addChild(checkConfig);
+		DefaultConfiguration checkerConfig = new DefaultConfiguration("configuration");
+		checkerConfig.addChild(treeWalkerConfig);
+
+		List<String> messages = new ArrayList<>();
+		Checker checker = new Checker();
+		checker.setModuleClassLoader(ScaleRegressionTest.class.getClassLoader());
+		checker.configure(checkerConfig);
+		checker.addListener(new AuditListener() {
+
+			@Override
+			public void auditStarted(AuditEvent event) {
+			}
+
+			@Override
+			public void auditFinished(AuditEvent event) {
+			}
+
+			@Override
+			public void fileStarted(AuditEvent event) {
+			}
+
+			@Override
+			public void fileFinished(AuditEvent event) {
+			}
+
+			@Override
+			public void addError(AuditEvent event) {
+				messages.add(event.getMessage());
+			}
+
+			@Override
+			public void addException(AuditEvent event, Throwable throwable) {
+				messages.add(throwable.toString());
+			}
+		});
+		try {
+			checker.process(codebase.getSources());
+		} finally {
+			checker.destroy();
+		}
+		Collections.sort(messages);
+		return messages;
+	}
+}
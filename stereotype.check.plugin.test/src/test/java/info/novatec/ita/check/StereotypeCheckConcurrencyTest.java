@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+
+/**
+ * Checks the sample classes on many threads against one configuration.
+ */
+public class StereotypeCheckConcurrencyTest extends AbstractStereotypeCheckTest {
+
+	private static final int THREADS = 16;
+
+	/** Every sample class is checked this often on the threads. */
+	private static final int ROUNDS = 40;
+
+	private final Queue<StereotypeCheck> checks = new ConcurrentLinkedQueue<>();
+
+	private final ThreadLocal<StereotypeCheck> threadCheck = ThreadLocal.withInitial(this::createCheck);
+
+	/**
+	 * The checks on many threads find the same errors as a single check
+	 * checking one file after the other.
+	 */
+	@Test
+	public void parallelChecksFindSameErrorsAsSequentialCheck() throws Exception {
+		List<String> paths = samplePaths();
+		StereotypeCheck sequentialCheck = createCheck();
+		Map<String, List<String>> expected = new HashMap<>();
+		for (String path : paths) {
+			expected.put(path, format(check(sequentialCheck, path)));
+		}
+		assertThat(expected.values().stream().mapToInt(List::size).sum()).isGreaterThan(0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Callable<List<String>>> tasks = new ArrayList<>();
+			List<String> taskPaths = new ArrayList<>();
+			for (int round = 0; round < ROUNDS; round++) {
+				for (String path : paths) {
+					tasks.add(() -> format(check(threadCheck.get(), path)));
+					taskPaths.add(path);
+				}
+			}
+			assertThat(tasks.size()).isGreaterThan(1000);
+
+			List<Future<List<String>>> results = executor.invokeAll(tasks);
+			for (int i = 0; i < results.size(); i++) {
+				assertThat(results.get(i).get()).as(taskPaths.get(i)).isEqualTo(expected.get(taskPaths.get(i)));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(checks.size()).isGreaterThan(1);
+		for (StereotypeCheck check : checks) {
+			assertThat(check.getConfig()).isSameAs(sequentialCheck.getConfig());
+		}
+	}
+
+	private StereotypeCheck createCheck() {
+		StereotypeCheck check;
+		try {
+			check = createCheck("src/test/resources/stereotype.xml");
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		checks.add(check);
+		return check;
+	}
+
+	private static List<String> samplePaths() throws IOException {
+		try (Stream<Path> files = Files.walk(Paths.get("src/main/java"))) {
+			return files.filter(file -> file.toString().endsWith(".java")).map(Path::toString).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+}
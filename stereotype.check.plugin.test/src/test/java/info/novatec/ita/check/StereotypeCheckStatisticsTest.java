@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.LocalizedMessages;
+
+import info.novatec.ita.check.testclasses.app1.main.bl.bs.SampleTest;
+import info.novatec.ita.check.testclasses.app1.main.bl.is.SampleIs;
+import info.novatec.ita.check.testoutsideapplication.util.NotToCheckUtil;
+
+/**
+ * Tests for the {@link StereotypeCheckStatistics} collected and the facts
+ * traced by the {@link StereotypeCheck}.
+ */
+public class StereotypeCheckStatisticsTest extends AbstractStereotypeCheckTest {
+
+	private final StereotypeCheck check = new StereotypeCheck();
+
+	@Before
+	public void initCheck() {
+		check.setFile("src/test/resources/stereotype.xml");
+		check.init();
+		check.setMessages(new LocalizedMessages());
+	}
+
+	/**
+	 * The tokens of a class outside the application packages are skipped once
+	 * its name is known.
+	 */
+	@Test
+	public void fileOutsideApplicationPackageIsSkipped() throws Exception {
+		walk(check, getPath(NotToCheckUtil.class));
+
+		assertThat(check.getStatistics().getExcludedFiles()).isEqualTo(0);
+		assertThat(check.getStatistics().getSkippedFiles()).isEqualTo(1);
+		assertThat(check.getStatistics().getSkippedTokens()).isGreaterThan(0);
+	}
+
+	/**
+	 * An excluded class is counted and skipped.
+	 */
+	@Test
+	public void excludedFileIsSkipped() throws Exception {
+		walk(check, getPath(SampleTest.class));
+
+		assertThat(check.getStatistics().getExcludedFiles()).isEqualTo(1);
+		assertThat(check.getStatistics().getSkippedFiles()).isEqualTo(1);
+	}
+
+	/**
+	 * The tokens of a checked class are not skipped.
+	 */
+	@Test
+	public void checkedFileIsNotSkipped() throws Exception {
+		walk(check, getPath(SampleIs.class));
+
+		assertThat(check.getStatistics().getExcludedFiles()).isEqualTo(0);
+		assertThat(check.getStatistics().getSkippedFiles()).isEqualTo(0);
+		assertThat(check.getStatistics().getSkippedTokens()).isEqualTo(0);
+	}
+
+	/**
+	 * The trace sink receives the collected facts.
+	 */
+	@Test
+	public void traceSinkReceivesFacts() throws Exception {
+		List<String> facts = new ArrayList<>();
+		check.setTraceSink((event, value, line) -> facts.add(event + " " + value));
+
+		walk(check, getPath(NotToCheckUtil.class));
+
+		assertThat(facts).containsExactly("packageName info.novatec.ita.check.testoutsideapplication.util",
+				"importName info.novatec.ita.check.testclasses.app1.main.data.entity.SampleEntity",
+				"className NotToCheckUtil",
+				"notInApplicationPackage info.novatec.ita.check.testoutsideapplication.util.NotToCheckUtil");
+	}
+}
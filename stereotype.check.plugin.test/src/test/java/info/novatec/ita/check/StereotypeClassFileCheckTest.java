@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StereotypeClassFileCheck}. The classes are compiled by the
+ * test, the errors are compared with the errors the {@link StereotypeCheck}
+ * finds in their sources.
+ */
+public class StereotypeClassFileCheckTest extends AbstractStereotypeCheckTest {
+
+	private static final String CONFIG = "src/test/resources/stereotype-class-files.xml";
+
+	private File sourceRoot;
+
+	private File classes;
+
+	@Before
+	public void compile() throws IOException {
+		sourceRoot = folder.newFolder("src");
+		classes = folder.newFolder("classes");
+		List<String> arguments = new ArrayList<>(Arrays.asList("-d", classes.getPath()));
+		arguments.add(write("src/info/bytecode/data/Pojo.java", "package info.bytecode.data;",
+				"public @interface Pojo {}").getPath());
+		arguments.add(write("src/info/bytecode/service/Service.java", "package info.bytecode.service;",
+				"public interface Service {}").getPath());
+		arguments.add(write("src/info/bytecode/data/OrderDto.java", "package info.bytecode.data;",
+				"@Pojo public class OrderDto {", //
+				"	private String id;", //
+				"	public String summary() { return info.bytecode.service.OrderService.describe(this); }",
+				"	static class Line { java.util.List<CustomerData> customers; }", //
+				"}").getPath());
+		arguments.add(write("src/info/bytecode/data/ReportDto.java", "package info.bytecode.data;",
+				"@Pojo public class ReportDto {", //
+				"	public Runnable printer() {", //
+				"		return new Runnable() {", //
+				"			public void run() { info.bytecode.service.OrderService.describe(null); }", //
+				"		};", //
+				"	}", //
+				"}").getPath());
+		arguments.add(write("src/info/bytecode/data/CustomerData.java", "package info.bytecode.data;",
+				"public class CustomerData {}").getPath());
+		arguments.add(write("src/info/bytecode/service/OrderService.java", "package info.bytecode.service;",
+				"import info.bytecode.data.OrderDto;", //
+				"public class OrderService implements Service {",
+				"	public static String describe(OrderDto order) { return order.toString(); }", //
+				"}").getPath());
+		arguments.add(write("src/info/bytecode/service/CustomerDto.java", "package info.bytecode.service;",
+				"public class CustomerDto {}").getPath());
+		arguments.add(write("src/info/bytecode/service/BrokenService.java", "package info.bytecode.service;",
+				"public abstract class BrokenService<T extends OrderService> implements Comparable<T> {}").getPath());
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertThat(compiler.run(null, null, null, arguments.toArray(new String[0]))).isZero();
+	}
+
+	/**
+	 * The errors of the class itself are the same as in the source.
+	 */
+	@Test
+	public void sameErrorsAsSource() throws Exception {
+		StereotypeClassFileCheck check = new StereotypeClassFileCheck(CONFIG, null);
+		int errors = 0;
+
+		for (String name : Arrays.asList("info/bytecode/service/CustomerDto", "info/bytecode/service/BrokenService",
+				"info/bytecode/service/OrderService", "info/bytecode/data/CustomerData")) {
+			List<String> actual = new ArrayList<>(check.check(new File(classes, name + ".class").toPath()));
+			Collections.sort(actual);
+			assertThat(actual).as(name).isEqualTo(checkSource(name));
+			errors += actual.size();
+		}
+		assertThat(errors).isEqualTo(3);
+	}
+
+	/**
+	 * The class file also contains the dependencies used only in the body of
+	 * a method, which the source does not show.
+	 */
+	@Test
+	public void findsDependencyOfMethodBody() throws Exception {
+		StereotypeClassFileCheck check = new StereotypeClassFileCheck(CONFIG, null);
+
+		List<String> actual = check.check(new File(classes, "info/bytecode/data/OrderDto.class").toPath());
+
+		assertThat(checkSource("info/bytecode/data/OrderDto")).isEmpty();
+		assertThat(actual).containsExactly(
+				"Disallowed dependency from stereotype dto to stereotype service: info.bytecode.service.OrderService");
+	}
+
+	/**
+	 * A nested class is checked with its top level class.
+	 */
+	@Test
+	public void ignoresNestedClass() throws Exception {
+		StereotypeClassFileCheck check = new StereotypeClassFileCheck(CONFIG, null);
+
+		assertThat(check.check(new File(classes, "info/bytecode/data/OrderDto$Line.class").toPath())).isEmpty();
+	}
+
+	/**
+	 * The dependencies of an anonymous class are dependencies of its top level
+	 * class, read from the class file of the anonymous class grouped with it.
+	 */
+	@Test
+	public void findsDependencyOfAnonymousClass() throws Exception {
+		StereotypeClassFileCheck check = new StereotypeClassFileCheck(CONFIG, null);
+		File classFile = new File(classes, "info/bytecode/data/ReportDto.class");
+		File anonymousClassFile = new File(classes, "info/bytecode/data/ReportDto$1.class");
+		String disallowed = "Disallowed dependency from stereotype dto to stereotype service: "
+				+ "info.bytecode.service.OrderService";
+
+		assertThat(anonymousClassFile).exists();
+		assertThat(checkSource("info/bytecode/data/ReportDto")).isEmpty();
+		Map<Path, List<Path>> classFiles = StereotypeClassFileCheck
+				.groupClassFiles(Arrays.asList(classFile.toPath(), anonymousClassFile.toPath()));
+		assertThat(classFiles).containsOnlyKeys(classFile.toPath());
+		assertThat(classFiles.get(classFile.toPath())).containsExactly(anonymousClassFile.toPath());
+		assertThat(check.check(classFile.toPath(), classFiles.get(classFile.toPath()))).containsExactly(disallowed);
+		assertThat(check.check(classFile.toPath())).isEmpty();
+		assertThat(check.check(read(classFile))).isEmpty();
+		assertThat(check.check(read(classFile), Collections.singletonList(read(anonymousClassFile))))
+				.containsExactly(disallowed);
+		assertThat(check.check(anonymousClassFile.toPath())).isEmpty();
+	}
+
+	/**
+	 * A class file, which does not contain a nested class of the class, adds
+	 * no dependencies to the class.
+	 */
+	@Test
+	public void ignoresClassNotNestedInTheClass() throws Exception {
+		StereotypeClassFileCheck check = new StereotypeClassFileCheck(CONFIG, null);
+		ByteBuffer classFile = read(new File(classes, "info/bytecode/service/CustomerDto.class"));
+		ByteBuffer otherClassFile = read(new File(classes, "info/bytecode/data/ReportDto$1.class"));
+
+		assertThat(check.check(classFile, Collections.singletonList(otherClassFile)))
+				.isEqualTo(check.check(classFile));
+	}
+
+	/**
+	 * The content must be a class file.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNoClassFile() {
+		StereotypeClassFileCheck check = new StereotypeClassFileCheck(CONFIG, null);
+
+		check.check(ByteBuffer.wrap("no class".getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static ByteBuffer read(File classFile) throws IOException {
+		return ByteBuffer.wrap(Files.readAllBytes(classFile.toPath()));
+	}
+
+	/**
+	 * @return the sorted messages of the check of the source of the class.
+	 */
+	private List<String> checkSource(String name) throws Exception {
+		List<String> errors = messages(check(createCheck(CONFIG), new File(sourceRoot, name + ".java").getPath()));
+		Collections.sort(errors);
+		return errors;
+	}
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+
+import info.novatec.ita.check.testclasses.app1.main.bl.bs.SampleTest;
+import info.novatec.ita.check.testclasses.app1.main.bl.is.SampleIs;
+import info.novatec.ita.check.testoutsideapplication.util.NotToCheckUtil;
+
+/**
+ * Tests for the {@link StereotypeFileFilter}.
+ */
+public class StereotypeFileFilterTest extends AbstractStereotypeCheckTest {
+
+	private final StereotypeFileFilter filter = new StereotypeFileFilter();
+
+	@Before
+	public void configureFilter() throws Exception {
+		DefaultConfiguration config = createCheckConfig(StereotypeFileFilter.class);
+		config.addAttribute("file", "src/test/resources/stereotype.xml");
+		filter.configure(config);
+	}
+
+	/**
+	 * Files in an application package are accepted.
+	 */
+	@Test
+	public void acceptsClassInApplicationPackage() throws Exception {
+		assertThat(filter.accept(getPath(SampleIs.class))).isTrue();
+		assertThat(filter.accept("src/test/resources/stereotype.xml")).isTrue();
+		assertThat(filter.getStatistics().getRejectedFiles()).isEqualTo(0);
+	}
+
+	/**
+	 * Files outside the application packages or excluded are rejected.
+	 */
+	@Test
+	public void rejectsClassOutOfScope() throws Exception {
+		assertThat(filter.accept(getPath(NotToCheckUtil.class))).isFalse();
+		assertThat(filter.accept(getPath(SampleTest.class))).isFalse();
+		assertThat(filter.getStatistics().getRejectedFiles()).isEqualTo(2);
+		assertThat(filter.getStatistics().getExcludedFiles()).isEqualTo(1);
+	}
+
+	/**
+	 * Comments and whitespace around the package declaration are skipped.
+	 */
+	@Test
+	public void scansPackageDeclaration() throws Exception {
+		assertThat(scan("package a.b.c;")).isEqualTo("a.b.c");
+		assertThat(scan("\uFEFF/* license */\n// comment\npackage a . /* x */ b\n.c ;\nimport d.E;"))
+				.isEqualTo("a.b.c");
+		assertThat(scan("package a.b;/** doc */ class C {}")).isEqualTo("a.b");
+		assertThat(scan("package a2.\u00e4b_$;")).isEqualTo("a2.\u00e4b_$");
+		assertThat(scan("import a.B;\nclass C {}")).isEmpty();
+		assertThat(scan("/* only a comment")).isEmpty();
+		assertThat(scan("")).isEmpty();
+		assertThat(scan("@Deprecated\npackage a.b;")).isNull();
+		assertThat(scan("package a.b")).isNull();
+		assertThat(scan("package ;")).isNull();
+		assertThat(scan("\u00e4package a.b;")).isNull();
+		assertThat(PackageDeclarationScanner
+				.scan(new ByteArrayInputStream("package a.b;".getBytes(StandardCharsets.UTF_16)))).isNull();
+	}
+
+	private static String scan(String content) throws IOException {
+		return PackageDeclarationScanner.scan(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Tests for the {@link StereotypeGraphExporter} and the counts of the
+ * {@link ConcurrentCountMap}.
+ */
+public class StereotypeGraphExporterTest extends AbstractStereotypeCheckTest {
+
+	private static final String CONFIG = "src/test/resources/stereotype-type-index.xml";
+
+	private List<File> files = new ArrayList<>();
+
+	@Before
+	public void writeSources() throws IOException {
+		files.add(write("info/index/model/Table.java", "package info.index.model;", "public @interface Table {}"));
+		files.add(write("info/index/model/Customer.java", "package info.index.model;", "import info.index.model.Table;",
+				"@Table public class Customer {}"));
+		files.add(write("info/index/model/OrderEntity.java", "package info.index.model;", "import java.util.List;",
+				"import info.index.model.Customer;", "import info.index.ui.OrderView;",
+				"public class OrderEntity { List<Customer> customers; OrderView view; }"));
+		files.add(write("info/index/model/OrderTest.java", "package info.index.model;",
+				"import info.index.model.OrderEntity;", "public class OrderTest { OrderEntity order; }"));
+		files.add(write("info/index/ui/OrderView.java", "package info.index.ui;",
+				"import info.index.model.OrderEntity;",
+				"import info.index.ui.CustomerView;", "public class OrderView { OrderEntity order; }"));
+		files.add(write("info/index/ui/CustomerView.java", "package info.index.ui;",
+				"import info.index.model.OrderEntity;", "public class CustomerView { OrderEntity order; }"));
+	}
+
+	/**
+	 * Every class of the application is written with its stereotypes, the
+	 * imports are counted as dependencies between the stereotypes. Excluded
+	 * classes and annotation types are not written, the dependencies to a
+	 * class known only by its annotation are not counted without an index.
+	 */
+	@Test
+	public void exportsJsonLines() throws Exception {
+		String output = export(StereotypeGraphExporter.Format.JSON_LINES);
+
+		assertThat(output.split("\n")).containsExactly(
+				"{\"class\":\"info.index.model.Customer\",\"stereotypes\":[\"entity\"]}",
+				"{\"class\":\"info.index.model.OrderEntity\",\"stereotypes\":[\"entity\"]}",
+				"{\"class\":\"info.index.ui.OrderView\",\"stereotypes\":[\"view\"]}",
+				"{\"class\":\"info.index.ui.CustomerView\",\"stereotypes\":[\"view\"]}",
+				"{\"from\":\"entity\",\"to\":\"view\",\"count\":1}",
+				"{\"from\":\"view\",\"to\":\"entity\",\"count\":2}",
+				"{\"from\":\"view\",\"to\":\"view\",\"count\":1}");
+	}
+
+	/**
+	 * The GraphML is well formed and has a node for every class and
+	 * stereotype.
+	 */
+	@Test
+	public void exportsGraphMl() throws Exception {
+		String output = export(StereotypeGraphExporter.Format.GRAPHML);
+
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)));
+		assertThat(document.getElementsByTagName("node").getLength()).isEqualTo(4 + 2);
+		// 4 classes belong to a stereotype, 3 dependencies between them
+		assertThat(document.getElementsByTagName("edge").getLength()).isEqualTo(4 + 3);
+		assertThat(output).contains("<edge source=\"stereotype:view\" target=\"stereotype:entity\">"
+				+ "<data key=\"count\">2</data></edge>");
+	}
+
+	/**
+	 * The Graphviz output is a digraph with the counts as labels.
+	 */
+	@Test
+	public void exportsDot() throws Exception {
+		String output = export(StereotypeGraphExporter.Format.DOT);
+
+		assertThat(output).startsWith("digraph stereotypes {\n").endsWith("}\n");
+		assertThat(output).contains("  \"info.index.ui.OrderView\" -> \"view\" [style=dotted];\n",
+				"  \"entity\" [shape=box];\n", "  \"view\" -> \"entity\" [label=\"2\", weight=2];\n");
+	}
+
+	/**
+	 * The format is found by the extension of the file.
+	 */
+	@Test
+	public void findsFormatByExtension() {
+		assertThat(StereotypeGraphExporter.Format.of("target/graph.graphml"))
+				.isEqualTo(StereotypeGraphExporter.Format.GRAPHML);
+		assertThat(StereotypeGraphExporter.Format.of("graph.gv")).isEqualTo(StereotypeGraphExporter.Format.DOT);
+		assertThat(StereotypeGraphExporter.Format.of("graph.jsonl"))
+				.isEqualTo(StereotypeGraphExporter.Format.JSON_LINES);
+	}
+
+	/**
+	 * An unknown extension is rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownExtension() {
+		StereotypeGraphExporter.Format.of("graph.txt");
+	}
+
+	/**
+	 * The counts of many threads are not lost.
+	 */
+	@Test
+	public void countsOnManyThreads() throws Exception {
+		ConcurrentCountMap counts = new ConcurrentCountMap();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < 8; thread++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 70000; i++) {
+						counts.add((long) (i % 1000) << Integer.SIZE | i % 7, 1);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(counts.size()).isEqualTo(7000);
+		long total = 0;
+		long previous = -1;
+		for (long key : counts.keys()) {
+			assertThat(key).isGreaterThan(previous);
+			total += counts.get(key);
+			previous = key;
+		}
+		assertThat(total).isEqualTo(8 * 70000);
+		assertThat(counts.get(999L << Integer.SIZE | 5)).isEqualTo(8 * 70000 / 7000);
+		assertThat(counts.get(1000L << Integer.SIZE)).isZero();
+	}
+
+	private String export(StereotypeGraphExporter.Format format) throws Exception {
+		StereotypeCheck check = createCheck(CONFIG);
+		StringWriter output = new StringWriter();
+		try (StereotypeGraphExporter exporter = new StereotypeGraphExporter(output, format)) {
+			check.setExporter(exporter);
+			check(check, files);
+		}
+		return output.toString();
+	}
+}
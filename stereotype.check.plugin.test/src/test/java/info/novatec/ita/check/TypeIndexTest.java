@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.api.FileContents;
+import com.puppycrawl.tools.checkstyle.api.FileText;
+
+import info.novatec.ita.check.config.StereotypeRuleSet;
+
+/**
+ * Tests for the {@link TypeIndex} and the two passes of the
+ * {@link StereotypeCheck}.
+ */
+public class TypeIndexTest extends AbstractStereotypeCheckTest {
+
+	private static final String CONFIG = "src/test/resources/stereotype-type-index.xml";
+
+	private List<File> files = new ArrayList<>();
+
+	@Before
+	public void writeSources() throws IOException {
+		files.add(write("info/index/model/Table.java", "package info.index.model;", "public @interface Table {}"));
+		files.add(write("info/index/model/Customer.java", "package info.index.model;",
+				"@Table public class Customer {}"));
+		files.add(write("info/index/model/CustomerTest.java", "package info.index.model;",
+				"@Table public class CustomerTest {}"));
+		files.add(write("info/index/model/OrderEntity.java", "package info.index.model;",
+				"import info.index.ui.Dialog;", "public class OrderEntity { Dialog dialog; }"));
+		files.add(write("info/index/ui/Screen.java", "package info.index.ui;", "public interface Screen {}"));
+		files.add(write("info/index/ui/Dialog.java", "package info.index.ui;",
+				"public class Dialog implements Screen { class Inner implements Runnable { public void run() {} } }"));
+		files.add(write("info/index/ui/CustomerView.java", "package info.index.ui;",
+				"import info.index.model.Customer;", "public class CustomerView { Customer customer; }"));
+	}
+
+	/**
+	 * The index contains the classes of the application belonging to a
+	 * stereotype by any sufficient condition.
+	 */
+	@Test
+	public void indexContainsStereotypesOfClasses() throws Exception {
+		StereotypeCheck check = createCheck(CONFIG);
+		TypeIndex index = firstPass(check, files, false);
+		StereotypeRuleSet ruleSet = check.getConfig().getRuleSet();
+		int entity = ordinal(ruleSet, "entity");
+		int view = ordinal(ruleSet, "view");
+
+		assertThat(index.size()).isEqualTo(4);
+		assertThat(index.isPartOfStereotype("info.index.model.Customer", entity)).isTrue();
+		assertThat(index.isPartOfStereotype("info.index.model.OrderEntity", entity)).isTrue();
+		assertThat(index.isPartOfStereotype("info.index.ui.Dialog", view)).isTrue();
+		assertThat(index.isPartOfStereotype("info.index.ui.CustomerView", view)).isTrue();
+		assertThat(index.isPartOfStereotype("info.index.ui.Dialog", entity)).isFalse();
+		// excluded
+		assertThat(index.getStereotypes("info.index.model.CustomerTest").isEmpty()).isTrue();
+		assertThat(index.getStereotypes("info.index.ui.Screen").isEmpty()).isTrue();
+	}
+
+	/**
+	 * The second pass finds the dependencies to classes, whose stereotype is
+	 * not known from their names.
+	 */
+	@Test
+	public void secondPassFindsDependenciesByIndex() throws Exception {
+		StereotypeCheck check = createCheck(CONFIG);
+		List<String> singlePass = messages(check(check, files));
+
+		check.setTypeIndex(firstPass(check, files, false));
+		List<String> secondPass = messages(check(check, files));
+
+		String toEntity = "Disallowed dependency from stereotype view to stereotype entity: info.index.model.Customer";
+		String toView = "Disallowed dependency from stereotype entity to stereotype view: info.index.ui.Dialog";
+		assertThat(singlePass).doesNotContain(toEntity, toView);
+		assertThat(secondPass).contains(toEntity, toView);
+		assertThat(secondPass).containsAll(singlePass);
+		assertThat(secondPass).hasSize(singlePass.size() + 2);
+	}
+
+	/**
+	 * The header read by the lexer contains the same stereotypes as the
+	 * parsed file.
+	 */
+	@Test
+	public void headerHasSameStereotypesAsParsedFile() throws Exception {
+		List<File> samples;
+		try (Stream<Path> paths = Files.walk(new File("src/main/java").toPath())) {
+			samples = paths.filter(path -> path.toString().endsWith(".java")).map(Path::toFile)
+					.collect(Collectors.toList());
+		}
+		StereotypeCheck check = createCheck("src/test/resources/stereotype.xml");
+
+		TypeIndex parsed = firstPass(check, samples, true);
+		TypeIndex lexed = firstPass(check, samples, false);
+
+		assertThat(lexed.size()).isEqualTo(parsed.size()).isGreaterThan(0);
+		for (File sample : samples) {
+			String className = new File("src/main/java").toPath().relativize(sample.toPath()).toString()
+					.replace(File.separatorChar, '.').replaceAll("\\.java$", "");
+			assertThat(lexed.getStereotypes(className)).as(className).isEqualTo(parsed.getStereotypes(className));
+		}
+	}
+
+	/**
+	 * Many classes and stereotypes in more than one word are found.
+	 */
+	@Test
+	public void findsManyClasses() {
+		TypeIndex.Builder builder = new TypeIndex.Builder();
+		for (int i = 0; i < 10000; i++) {
+			BitSet stereotypes = new BitSet();
+			stereotypes.set(i % 130);
+			stereotypes.set(i % 7);
+			builder.add("info.index.Class" + i, stereotypes);
+		}
+		builder.add("info.index.None", new BitSet());
+
+		TypeIndex index = builder.build();
+
+		assertThat(index.size()).isEqualTo(10000);
+		for (int i = 0; i < 10000; i++) {
+			assertThat(index.isPartOfStereotype("info.index.Class" + i, i % 130)).isTrue();
+			assertThat(index.isPartOfStereotype("info.index.Class" + i, i % 7)).isTrue();
+			assertThat(index.isPartOfStereotype("info.index.Class" + i, 7 + i % 7)).isEqualTo(i % 130 == 7 + i % 7);
+		}
+		assertThat(index.isPartOfStereotype("info.index.None", 0)).isFalse();
+		assertThat(index.isPartOfStereotype("info.index.Class1", 200)).isFalse();
+		assertThat(new TypeIndex.Builder().build().isPartOfStereotype("info.index.Class1", 1)).isFalse();
+	}
+
+	private TypeIndex firstPass(StereotypeCheck check, List<File> sources, boolean parse) throws Exception {
+		TypeIndex.Builder builder = new TypeIndex.Builder();
+		check.setTypeIndexBuilder(builder);
+		for (File file : sources) {
+			if (parse) {
+				walk(check, file.getPath());
+			} else {
+				check.setFileContents(new FileContents(new FileText(file, "UTF-8")));
+				assertThat(check.checkWithoutTree()).as(file.getPath()).isTrue();
+			}
+		}
+		check.setTypeIndexBuilder(null);
+		return builder.build();
+	}
+
+	private static int ordinal(StereotypeRuleSet ruleSet, String id) {
+		for (int ordinal = 0; ordinal < ruleSet.size(); ordinal++) {
+			if (ruleSet.getRule(ordinal).getId().toString().equals(id)) {
+				return ordinal;
+			}
+		}
+		throw new IllegalArgumentException(id);
+	}
+}
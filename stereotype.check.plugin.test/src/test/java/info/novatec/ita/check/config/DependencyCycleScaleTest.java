@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Guards the time to check the dependencies of a configuration with thousands
+ * of stereotypes and densely allowed dependencies.
+ */
+public class DependencyCycleScaleTest {
+
+	/** The number of generated stereotypes. */
+	private static final int STEREOTYPES = 3000;
+
+	/** Every stereotype may depend on this number of previous stereotypes. */
+	private static final int ALLOWED_PER_STEREOTYPE = 10;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * A configuration without cycles is read in linear time. The number of
+	 * paths through the dependencies grows exponentially with the number of
+	 * stereotypes.
+	 */
+	@Test(timeout = 30000)
+	public void manyStereotypesWithoutCycle() throws Exception {
+		File file = writeConfiguration();
+
+		StereotypeCheckConfiguration config = StereotypeCheckReader.read(file);
+
+		assertThat(config.getStereotypeConfig()).hasSize(STEREOTYPES);
+		assertThat(config.getDependencies()).hasSize(STEREOTYPES);
+	}
+
+	/**
+	 * All cycles of a configuration are reported at once.
+	 */
+	@Test(timeout = 30000)
+	public void allCyclesAreReported() throws Exception {
+		File file = writeConfiguration(10, 2000, 2990);
+
+		try {
+			StereotypeCheckReader.read(file);
+			fail("IllegalArgumentException should have been thrown");
+		} catch (IllegalArgumentException ex) {
+			assertThat(ex).hasMessageContaining("There is a cycle in dependency-configuration:")
+					.hasMessageContaining("s0000, s0010").hasMessageContaining("s1990, s2000")
+					.hasMessageContaining("s2980, s2990");
+		}
+	}
+
+	/**
+	 * Writes a configuration where every stereotype may depend on the
+	 * previous stereotypes.
+	 *
+	 * @param backwards
+	 *            The stereotypes that may depend on the stereotype ten
+	 *            positions ahead, closing a cycle.
+	 */
+	private File writeConfiguration(int... backwards) throws IOException {
+		File file = folder.newFile("stereotype.xml");
+		try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+			out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+			out.println("<sc:stereotypes xmlns:sc=\"http://www.novatec-gmbh.de/checkstyle-stereotype\">");
+			out.println("\t<applicationpackage name=\"info.novatec.ita.check.testclasses\"/>");
+			for (int from = 0; from < STEREOTYPES; from++) {
+				out.println(dependency(from, from));
+				for (int to = Math.max(0, from - ALLOWED_PER_STEREOTYPE); to < from; to++) {
+					out.println(dependency(from, to));
+				}
+			}
+			for (int from : backwards) {
+				out.println(dependency(from - ALLOWED_PER_STEREOTYPE, from));
+			}
+			for (int id = 0; id < STEREOTYPES; id++) {
+				out.println(String.format("\t<stereotype id=\"%s\">", id(id)));
+				out.println(String.format("\t\t<postfix name=\"S%d\" condition=\"sufficient\"/>", id));
+				out.println("\t</stereotype>");
+			}
+			out.println("</sc:stereotypes>");
+		}
+		return file;
+	}
+
+	private static String dependency(int from, int to) {
+		return String.format("\t<dependency from=\"%s\" to=\"%s\"/>", id(from), id(to));
+	}
+
+	private static String id(int id) {
+		return String.format("s%04d", id);
+	}
+}
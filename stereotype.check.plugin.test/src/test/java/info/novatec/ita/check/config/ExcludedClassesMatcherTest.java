@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ExcludedClassesMatcher}.
+ */
+public class ExcludedClassesMatcherTest {
+
+	private static final String[] CLASSES = { "info.novatec.SampleTest", "info.novatec.Sample", "info.novatec.gen.Sample",
+			"com.example.SampleTest", "com.example.gen.Generated", "com.example.Generated", "SampleTest", "" };
+
+	/**
+	 * The literal prefix ends before the first special character.
+	 */
+	@Test
+	public void literalPrefixEndsAtSpecialCharacter() {
+		assertThat(ExcludedClassesMatcher.literalPrefix("info\\.novatec\\.gen\\..*")).isEqualTo("info.novatec.gen.");
+		assertThat(ExcludedClassesMatcher.literalPrefix("^com\\.example\\.[A-Z].*")).isEqualTo("com.example.");
+		assertThat(ExcludedClassesMatcher.literalPrefix("com\\.examples?\\..*")).isEqualTo("com.example");
+		assertThat(ExcludedClassesMatcher.literalPrefix(".*Test")).isEmpty();
+		assertThat(ExcludedClassesMatcher.literalPrefix("info\\..*|com\\..*")).isEmpty();
+	}
+
+	/**
+	 * The combined regular expressions match the same classes as the single
+	 * regular expressions.
+	 */
+	@Test
+	public void sameResultAsSingleRegularExpressions() {
+		verify(pattern("info\\.novatec\\.gen\\..*"), pattern("com\\.example\\..*\\.Generated"));
+		verify(pattern(".*Test"), pattern("info\\.novatec\\.gen\\..*"));
+		verify(pattern("(?<name>info)\\..*"), pattern("(?<name>com)\\..*Test"));
+		verify(Pattern.compile("COM\\.EXAMPLE\\..*", Pattern.CASE_INSENSITIVE), pattern("info\\..*"));
+		verify(pattern("(com)\\.example\\.\\1?Sample.*"), pattern("info\\.novatec\\.Sample"));
+		verify();
+	}
+
+	private static void verify(Pattern... patterns) {
+		List<Pattern> excludedClasses = new ArrayList<>();
+		for (Pattern pattern : patterns) {
+			excludedClasses.add(pattern);
+		}
+		ExcludedClassesMatcher matcher = new ExcludedClassesMatcher(excludedClasses);
+		for (String className : CLASSES) {
+			boolean expected = false;
+			for (Pattern pattern : patterns) {
+				expected |= pattern.matcher(className).matches();
+			}
+			assertThat(matcher.matches(className)).as("%s excluded by %s", className, excludedClasses)
+					.isEqualTo(expected);
+		}
+	}
+
+	private static Pattern pattern(String regexp) {
+		return Pattern.compile(regexp);
+	}
+}
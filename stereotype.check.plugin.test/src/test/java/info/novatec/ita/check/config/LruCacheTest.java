@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LruCache} and the cached {@link ImportClassification}s.
+ */
+public class LruCacheTest {
+
+	/**
+	 * A value is computed once and then found in the cache.
+	 */
+	@Test
+	public void valueIsComputedOnce() {
+		AtomicInteger computed = new AtomicInteger();
+		Function<String, Integer> length = key -> {
+			computed.incrementAndGet();
+			return key.length();
+		};
+		LruCache<String, Integer> cache = new LruCache<>(64);
+
+		assertThat(cache.get("SampleDto", length)).isEqualTo(9);
+		assertThat(cache.get("SampleDto", length)).isEqualTo(9);
+		assertThat(cache.get("SampleBs", length)).isEqualTo(8);
+
+		assertThat(computed.get()).isEqualTo(2);
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getMisses()).isEqualTo(2);
+		assertThat(cache.size()).isEqualTo(2);
+	}
+
+	/**
+	 * The cache never holds more entries than its capacity.
+	 */
+	@Test
+	public void cacheIsBounded() {
+		LruCache<Integer, Integer> cache = new LruCache<>(64);
+		for (int i = 0; i < 10000; i++) {
+			cache.get(i, Function.identity());
+		}
+
+		assertThat(cache.size()).isLessThanOrEqualTo(cache.getCapacity());
+		assertThat(cache.getMisses()).isEqualTo(10000);
+	}
+
+	/**
+	 * The cached classification is the same as asking the rules.
+	 */
+	@Test
+	public void classificationIsTheSameAsTheRules() {
+		StereotypeCheckConfiguration config = StereotypeCheckReader
+				.read(new File("src/test/resources/stereotype.xml"));
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+		String[] importedClasses = { "info.novatec.ita.check.testclasses.app1.main.bl.bs.SampleBs",
+				"info.novatec.ita.check.testclasses.app1.main.data.dto.SampleDto", "java.util.List",
+				"org.springframework.stereotype.Service", "info.novatec.ita.check.testclassesx.SampleDto" };
+		for (String importedClass : importedClasses) {
+			ImportClassification classification = config.classifyImport(importedClass);
+			assertThat(config.classifyImport(importedClass)).isSameAs(classification);
+			assertThat(classification.isChecked()).as(importedClass).isEqualTo(
+					config.isInApplicationPackage(importedClass) || ruleSet.isPartOfAnyStereotype(importedClass));
+			for (int ordinal = 0; ordinal < ruleSet.size(); ordinal++) {
+				StereotypeRule rule = ruleSet.getRule(ordinal);
+				assertThat(classification.hasPostfix(ordinal))
+						.isEqualTo(rule.getPostfix() != null && importedClass.endsWith(rule.getPostfix()));
+				assertThat(classification.isPartOfStereotype(ordinal))
+						.isEqualTo(rule.isPartOfStereotype(importedClass));
+			}
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.BitSet;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+import info.novatec.ita.check.config.PackageMatcher.Kind;
+
+/**
+ * Tests for {@link PackageMatcher} and {@link PackageTrie}.
+ */
+public class PackageMatcherTest {
+
+	private static final String[] PACKAGE_NAMES = { "info\\.novatec\\.app\\.dto", "^info\\.novatec\\..*$",
+			"info\\.novatec(\\..*)?", ".*", "^([a-z]+[a-z0-9\\.]*)\\.main(\\.[a-z][a-z0-9]*)*\\.bl\\.is(\\.[a-z][a-z0-9]*)*$",
+			"info.novatec.app" };
+
+	private static final String[] PACKAGES = { "", "info", "info.novatec", "info.novatec.app", "info.novatec.app.dto",
+			"info.novatec.app.dto.sub", "info.novatecx", "com.example.main.bl.is", "com.example.main.x.bl.is.y",
+			"com.example.main.bl" };
+
+	/**
+	 * Package names without regular expressions are recognized.
+	 */
+	@Test
+	public void plainPackageNamesAreNoRegularExpressions() {
+		assertThat(PackageMatcher.compile(PACKAGE_NAMES[0]).getKind()).isEqualTo(Kind.literal);
+		assertThat(PackageMatcher.compile(PACKAGE_NAMES[1]).getKind()).isEqualTo(Kind.subpackages);
+		assertThat(PackageMatcher.compile(PACKAGE_NAMES[2]).getKind()).isEqualTo(Kind.packageAndSubpackages);
+		assertThat(PackageMatcher.compile(PACKAGE_NAMES[3]).getKind()).isEqualTo(Kind.packageAndSubpackages);
+		assertThat(PackageMatcher.compile(PACKAGE_NAMES[4]).getKind()).isEqualTo(Kind.regex);
+		assertThat(PackageMatcher.compile(PACKAGE_NAMES[5]).getKind()).isEqualTo(Kind.literal);
+	}
+
+	/**
+	 * The matcher matches the same packages as the regular expression.
+	 */
+	@Test
+	public void sameResultAsRegularExpression() {
+		for (String packageName : PACKAGE_NAMES) {
+			PackageMatcher matcher = PackageMatcher.compile(packageName);
+			for (String actualPackage : PACKAGES) {
+				assertThat(matcher.matches(actualPackage)).as("%s matches %s", packageName, actualPackage)
+						.isEqualTo(actualPackage.matches(packageName));
+			}
+		}
+	}
+
+	/**
+	 * The trie finds the same packages as the matchers.
+	 */
+	@Test
+	public void trieFindsSamePackagesAsMatcher() {
+		PackageTrie trie = new PackageTrie();
+		for (int ordinal = 0; ordinal < PACKAGE_NAMES.length; ordinal++) {
+			PackageMatcher.compile(PACKAGE_NAMES[ordinal]).addTo(trie, ordinal);
+		}
+		for (String actualPackage : PACKAGES) {
+			BitSet expected = new BitSet();
+			for (int ordinal = 0; ordinal < PACKAGE_NAMES.length; ordinal++) {
+				PackageMatcher matcher = PackageMatcher.compile(PACKAGE_NAMES[ordinal]);
+				if (matcher.getKind() != Kind.regex && matcher.matches(actualPackage)) {
+					expected.set(ordinal);
+				}
+			}
+			BitSet actual = new BitSet();
+			trie.match(actualPackage, actual);
+			assertThat(actual).as(actualPackage).isEqualTo(expected);
+		}
+	}
+
+	/**
+	 * The trie finds any package exactly if it finds an ordinal for it.
+	 */
+	@Test
+	public void trieMatchesAnyIfOrdinalIsFound() {
+		PackageTrie trie = new PackageTrie();
+		trie.add("info.novatec", 0, false, true);
+		trie.add("com.example.dto", 1, true, false);
+		for (String actualPackage : PACKAGES) {
+			BitSet found = new BitSet();
+			trie.match(actualPackage, found);
+			assertThat(trie.matchesAny(actualPackage)).as(actualPackage).isEqualTo(!found.isEmpty());
+		}
+		assertThat(trie.matchesAny("info.novatec.Sample")).isTrue();
+		assertThat(trie.matchesAny("info.novatecx.Sample")).isFalse();
+		assertThat(trie.matchesAny("com.example.dto")).isTrue();
+	}
+
+	/**
+	 * An invalid regular expression is reported when it is used.
+	 */
+	@Test(expected = PatternSyntaxException.class)
+	public void invalidRegularExpressionIsReportedWhenUsed() {
+		PackageMatcher matcher = PackageMatcher.compile("*.main.bl.is");
+
+		matcher.matches("info.novatec.main.bl.is");
+	}
+}
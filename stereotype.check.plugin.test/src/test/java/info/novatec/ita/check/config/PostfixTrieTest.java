@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.BitSet;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PostfixTrie}.
+ */
+public class PostfixTrieTest {
+
+	private static final String[] POSTFIXES = { "Dto", "Tf", null, "BsBean", "Bean", "Is", "Bs", "Dto" };
+
+	private final PostfixTrie trie = new PostfixTrie(POSTFIXES);
+
+	/**
+	 * All postfixes ending a name are found, including postfixes that end
+	 * other postfixes.
+	 */
+	@Test
+	public void findsAllMatchingPostfixes() {
+		assertThat(match("SampleBsBean")).isEqualTo(bits(3, 4));
+		assertThat(match("info.novatec.SampleDto")).isEqualTo(bits(0, 7));
+		assertThat(match("SampleIs")).isEqualTo(bits(5));
+		assertThat(match("Bs")).isEqualTo(bits(6));
+	}
+
+	/**
+	 * The trie finds the same stereotypes as comparing every postfix.
+	 */
+	@Test
+	public void sameResultAsEndsWith() {
+		String[] names = { "", "Tf", "SampleTf", "Sample", "Dtos", "Bean", "XBsBean", "sBsBean", "Is.Dto", null };
+		for (String name : names) {
+			BitSet expected = new BitSet();
+			for (int ordinal = 0; ordinal < POSTFIXES.length; ordinal++) {
+				if (name != null && POSTFIXES[ordinal] != null && name.endsWith(POSTFIXES[ordinal])) {
+					expected.set(ordinal);
+				}
+			}
+			assertThat(match(name)).as(String.valueOf(name)).isEqualTo(expected);
+		}
+	}
+
+	private BitSet match(String name) {
+		BitSet result = new BitSet();
+		trie.match(name, result);
+		return result;
+	}
+
+	private static BitSet bits(int... ordinals) {
+		BitSet bits = new BitSet();
+		for (int ordinal : ordinals) {
+			bits.set(ordinal);
+		}
+		return bits;
+	}
+}
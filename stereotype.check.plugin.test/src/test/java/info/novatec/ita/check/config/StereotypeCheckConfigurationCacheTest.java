@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link StereotypeCheckConfigurationCache}.
+ */
+public class StereotypeCheckConfigurationCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File file;
+
+	@Before
+	public void copyConfiguration() throws Exception {
+		file = new File(folder.getRoot(), "stereotype.xml");
+		Files.copy(new File("src/test/resources/stereotype.xml").toPath(), file.toPath());
+	}
+
+	/**
+	 * An unchanged file is read only once.
+	 */
+	@Test
+	public void unchangedFileIsReadOnce() {
+		StereotypeCheckConfiguration first = StereotypeCheckConfigurationCache.get(file);
+		StereotypeCheckConfiguration second = StereotypeCheckConfigurationCache
+				.get(new File(folder.getRoot(), "../" + folder.getRoot().getName() + "/stereotype.xml"));
+
+		assertThat(second).isSameAs(first);
+	}
+
+	/**
+	 * A modified file is read again.
+	 */
+	@Test
+	public void modifiedFileIsReadAgain() {
+		StereotypeCheckConfiguration first = StereotypeCheckConfigurationCache.get(file);
+		file.setLastModified(file.lastModified() - 10000);
+		StereotypeCheckConfiguration second = StereotypeCheckConfigurationCache.get(file);
+
+		assertThat(second).isNotSameAs(first);
+		assertThat(StereotypeCheckConfigurationCache.get(file)).isSameAs(second);
+	}
+
+	/**
+	 * Creating an override file invalidates the cached configuration.
+	 */
+	@Test
+	public void createdOverrideFileIsRead() throws Exception {
+		Files.copy(new File("src/test/resources/stereotype-allowoverride.xml").toPath(), file.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		StereotypeCheckConfiguration first = StereotypeCheckConfigurationCache.get(file);
+		assertThat(first.getStereotypeConfig().get(StereotypeIdentifier.of("view")).getAnnotationNamesAsString())
+				.isEqualTo("info.novatec.ita.check.testclasses.core.fwk.common.ul.ViewStereotype");
+
+		Files.copy(new File("src/test/resources/stereotype-allowoverride-override.xml").toPath(),
+				new File(folder.getRoot(), "stereotype-override.xml").toPath());
+		StereotypeCheckConfiguration second = StereotypeCheckConfigurationCache.get(file);
+
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.getStereotypeConfig().get(StereotypeIdentifier.of("view")).getAnnotationNamesAsString())
+				.isEqualTo("info.novatec.ita.check.testclasses.app1.main.ul.App1TypedViewStereotype");
+	}
+
+	/**
+	 * The shared configuration can not be changed.
+	 */
+	@Test(expected = UnsupportedOperationException.class)
+	public void configurationIsUnmodifiable() {
+		StereotypeCheckConfiguration config = StereotypeCheckConfigurationCache.get(file);
+		config.getStereotypeConfig().clear();
+	}
+}
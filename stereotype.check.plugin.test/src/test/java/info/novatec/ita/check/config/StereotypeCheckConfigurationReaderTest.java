@@ -120,6 +120,22 @@ public class StereotypeCheckConfigurationReaderTest extends AbstractStereotypeCh
 		verify(main, getPath(SampleIs.class), expected);
 	}
 
+	/**
+	 * An application package contains its classes and subpackages, but not
+	 * packages whose name only starts with the same text.
+	 */
+	@Test
+	public void applicationPackageEndsAtSegment() {
+		StereotypeCheckConfiguration config = StereotypeCheckReader
+				.read(new File("src/test/resources/stereotype.xml"));
+
+		assertThat(config.isInApplicationPackage(SampleIs.class.getName())).isTrue();
+		assertThat(config.isInApplicationPackage("info.novatec.ita.check.testclasses.Sample")).isTrue();
+		assertThat(config.isInApplicationPackage("info.novatec.ita.check.testclassesx.Sample")).isFalse();
+		assertThat(config.isInApplicationPackage("info.novatec.ita.check.testclasses")).isFalse();
+		assertThat(config.isInApplicationPackage(null)).isFalse();
+	}
+
 	/**
 	 * Read a file with a cycle in the dependency definition.
 	 * 
@@ -276,6 +292,33 @@ public class StereotypeCheckConfigurationReaderTest extends AbstractStereotypeCh
 				"info.novatec.ita.check.testclasses.app1.main.data.entity.CustomerConcern");
 	}
 
+	/**
+	 * Check that the sets of a read configuration can not be changed.
+	 *
+	 * @throws Exception
+	 *             in case of an unexpected test execution
+	 */
+	@Test
+	public void fileLoadIsUnmodifiable() throws Exception {
+		StereotypeCheckConfiguration config = StereotypeCheckReader.read(new File("src/test/resources/stereotype.xml"));
+		StereotypeConfiguration entity = config.getStereotypeConfig().get(StereotypeIdentifier.of("entity"));
+		StereotypeConfiguration view = config.getStereotypeConfig().get(StereotypeIdentifier.of("view"));
+
+		try {
+			entity.getBaseClassNames().add("foo.Bar");
+			fail("base classes must not be changeable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			view.getAnnotationConfigs().iterator().next().getAnnotationNames().clear();
+			fail("annotation names must not be changeable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		assertThat(entity.getBaseClassNames()).doesNotContain("foo.Bar");
+	}
+
 	/**
 	 * Checks that a class must be annotated with more than one annotation.
 	 * 
@@ -306,6 +349,44 @@ public class StereotypeCheckConfigurationReaderTest extends AbstractStereotypeCh
 
 	}
 
+	/**
+	 * Reading a file in one pass gives the same configuration as validating
+	 * and reading it separately.
+	 * 
+	 * @throws Exception
+	 *             in case of an unexpected test execution
+	 */
+	@Test
+	public void streamingAndSeparateValidationReadSameConfiguration() throws Exception {
+		File file = new File("src/test/resources/stereotype-allowoverride.xml");
+		StereotypeCheckConfiguration streaming = StereotypeCheckReader.read(file, ValidationMode.streaming);
+		StereotypeCheckConfiguration separate = StereotypeCheckReader.read(file, ValidationMode.separate);
+
+		assertThat(streaming.getStereotypeConfig().toString()).isEqualTo(separate.getStereotypeConfig().toString());
+		assertThat(streaming.getDependencies().toString()).isEqualTo(separate.getDependencies().toString());
+	}
+
+	/**
+	 * A file that is not valid against the XSD is rejected in both validation
+	 * modes.
+	 * 
+	 * @throws Exception
+	 *             in case of an unexpected test execution
+	 */
+	@Test
+	public void invalidXMLConfigurationFileIsRejectedInBothValidationModes() throws Exception {
+		File file = new File("src/test/resources/stereotype_invalidXML.xml");
+		for (ValidationMode mode : ValidationMode.values()) {
+			try {
+				StereotypeCheckReader.read(file, mode);
+				fail("IllegalArgumentException");
+			} catch (IllegalArgumentException ex) {
+				assertThat(ex).as(mode.name())
+						.hasMessageContaining("Attribute 'to' must appear on element 'dependency'");
+			}
+		}
+	}
+
 	@Test
 	public void checkEntityOverrideOk() throws Exception {
 		DefaultConfiguration main = createCheckConfig(TreeWalker.class);
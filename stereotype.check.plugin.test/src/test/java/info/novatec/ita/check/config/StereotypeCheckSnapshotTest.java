@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.puppycrawl.tools.checkstyle.DefaultConfiguration;
+import com.puppycrawl.tools.checkstyle.TreeWalker;
+
+import info.novatec.ita.check.AbstractStereotypeCheckTest;
+import info.novatec.ita.check.StereotypeCheck;
+import info.novatec.ita.check.testclasses.app1.main.bl.wrong.SampleWrongPackageIs;
+
+/**
+ * Tests for {@link StereotypeCheckSnapshot}.
+ */
+public class StereotypeCheckSnapshotTest extends AbstractStereotypeCheckTest {
+
+	private File file;
+
+	private File snapshotFile;
+
+	@Before
+	public void copyConfiguration() throws Exception {
+		file = new File(folder.getRoot(), "stereotype.xml");
+		Files.copy(new File("src/test/resources/stereotype-allowoverride.xml").toPath(), file.toPath());
+		Files.copy(new File("src/test/resources/stereotype-allowoverride-override.xml").toPath(),
+				new File(folder.getRoot(), "stereotype-override.xml").toPath());
+		snapshotFile = new File(folder.getRoot(), "snapshot/stereotype.bin");
+	}
+
+	/**
+	 * The configuration loaded from the snapshot is the same as the one read
+	 * from the configuration files.
+	 */
+	@Test
+	public void snapshotContainsMergedConfiguration() throws Exception {
+		StereotypeCheckSnapshot.compile(file, snapshotFile);
+		StereotypeCheckConfiguration loaded = StereotypeCheckSnapshot.load(file, snapshotFile);
+		StereotypeCheckConfiguration read = StereotypeCheckReader.read(file);
+
+		assertThat(loaded.getApplicationPackageNames()).isEqualTo(read.getApplicationPackageNames());
+		assertThat(patterns(loaded)).isEqualTo(patterns(read));
+		assertThat(loaded.getStereotypeConfig().keySet()).isEqualTo(read.getStereotypeConfig().keySet());
+		for (StereotypeConfiguration expected : read.getStereotypeConfig().values()) {
+			StereotypeConfiguration actual = loaded.getStereotypeConfig().get(expected.getId());
+			assertThat(actual.getPackageName()).isEqualTo(expected.getPackageName());
+			assertThat(actual.getPackageNameCondition()).isEqualTo(expected.getPackageNameCondition());
+			assertThat(actual.getPostfix()).isEqualTo(expected.getPostfix());
+			assertThat(actual.getPostfixCondition()).isEqualTo(expected.getPostfixCondition());
+			assertThat(actual.getAnnotationConfigs()).isEqualTo(expected.getAnnotationConfigs());
+			assertThat(actual.getInterfaceNames()).isEqualTo(expected.getInterfaceNames());
+			assertThat(actual.getInterfaceNameCondition()).isEqualTo(expected.getInterfaceNameCondition());
+			assertThat(actual.getBaseClassNames()).isEqualTo(expected.getBaseClassNames());
+			assertThat(actual.getBaseClassNameCondition()).isEqualTo(expected.getBaseClassNameCondition());
+		}
+		assertThat(loaded.getDependencies().keySet()).isEqualTo(read.getDependencies().keySet());
+		for (DependencyConfiguration expected : read.getDependencies().values()) {
+			assertThat(loaded.getDependencies().get(expected.getFrom()).getOutgoingDependencies())
+					.isEqualTo(expected.getOutgoingDependencies());
+		}
+	}
+
+	/**
+	 * A missing snapshot is compiled on the first load and used afterwards.
+	 */
+	@Test
+	public void missingSnapshotIsCompiled() {
+		StereotypeCheckSnapshot.load(file, snapshotFile);
+		assertThat(snapshotFile).exists();
+		snapshotFile.setLastModified(snapshotFile.lastModified() - 10000);
+		long lastModified = snapshotFile.lastModified();
+
+		StereotypeCheckSnapshot.load(file, snapshotFile);
+
+		assertThat(snapshotFile.lastModified()).isEqualTo(lastModified);
+	}
+
+	/**
+	 * A snapshot is only read once and its configuration is shared with all
+	 * other loads of the same file.
+	 */
+	@Test
+	public void snapshotIsReadOnce() throws Exception {
+		StereotypeCheckSnapshot.compile(file, snapshotFile);
+
+		StereotypeCheckConfiguration first = StereotypeCheckSnapshot.load(file, snapshotFile);
+		Files.delete(snapshotFile.toPath());
+		StereotypeCheckConfiguration second = StereotypeCheckSnapshot.load(file, snapshotFile);
+
+		assertThat(second).isSameAs(first);
+		assertThat(StereotypeCheckConfigurationCache.get(file)).isSameAs(first);
+		assertThat(snapshotFile).exists();
+	}
+
+	/**
+	 * A snapshot compiled before the override file was deleted is stale and
+	 * compiled again.
+	 */
+	@Test
+	public void staleSnapshotIsCompiledAgain() throws Exception {
+		StereotypeCheckSnapshot.compile(file, snapshotFile);
+		Files.delete(new File(folder.getRoot(), "stereotype-override.xml").toPath());
+
+		StereotypeCheckConfiguration loaded = StereotypeCheckSnapshot.load(file, snapshotFile);
+
+		assertThat(loaded.getStereotypeConfig().get(StereotypeIdentifier.of("view")).getAnnotationNamesAsString())
+				.isEqualTo("info.novatec.ita.check.testclasses.core.fwk.common.ul.ViewStereotype");
+	}
+
+	/**
+	 * A snapshot that is no snapshot at all is ignored and compiled again.
+	 */
+	@Test
+	public void corruptSnapshotIsCompiledAgain() throws Exception {
+		snapshotFile.getParentFile().mkdirs();
+		Files.write(snapshotFile.toPath(), new byte[] { 1, 2, 3 });
+
+		StereotypeCheckConfiguration loaded = StereotypeCheckSnapshot.load(file, snapshotFile);
+
+		assertThat(loaded.getStereotypeConfig()).isNotEmpty();
+		assertThat(snapshotFile.length()).isGreaterThan(3);
+	}
+
+	/**
+	 * The check reports the same errors with a compiled configuration.
+	 */
+	@Test
+	public void checkUsesCompiledConfiguration() throws Exception {
+		DefaultConfiguration main = createCheckConfig(TreeWalker.class);
+		DefaultConfiguration checkConfig = createCheckConfig(StereotypeCheck.class);
+		checkConfig.addAttribute("file", "src/test/resources/stereotype.xml");
+		checkConfig.addAttribute("compiledFile", snapshotFile.getPath());
+		main.addChild(checkConfig);
+
+		final String expected = "Stereotype integrationservice: is not in package ^([a-z]+[a-z0-9\\.]*)\\.main(\\.[a-z][a-z0-9]*)*\\.bl\\.is(\\.[a-z][a-z0-9]*)*$";
+		verify(main, getPath(SampleWrongPackageIs.class), expected);
+		assertThat(snapshotFile).exists();
+	}
+
+	private static Set<String> patterns(StereotypeCheckConfiguration config) {
+		Set<String> patterns = new HashSet<>();
+		for (Pattern pattern : config.getExcludedClasses()) {
+			patterns.add(pattern.pattern());
+		}
+		return patterns;
+	}
+}
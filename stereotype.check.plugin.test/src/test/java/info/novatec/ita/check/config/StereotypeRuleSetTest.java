@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link StereotypeRuleSet}.
+ */
+public class StereotypeRuleSetTest {
+
+	private final StereotypeCheckConfiguration config = StereotypeCheckReader
+			.read(new File("src/test/resources/stereotype.xml"));
+
+	/**
+	 * Every stereotype has a rule, the ordinal is the index of the rule.
+	 */
+	@Test
+	public void everyStereotypeHasARule() {
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+
+		assertThat(ruleSet.size()).isEqualTo(config.getStereotypeConfig().size());
+		for (int ordinal = 0; ordinal < ruleSet.size(); ordinal++) {
+			StereotypeRule rule = ruleSet.getRule(ordinal);
+			assertThat(rule.getOrdinal()).isEqualTo(ordinal);
+			StereotypeConfiguration stereotype = config.getStereotypeConfig().get(rule.getId());
+			assertThat(rule.getPostfix()).isEqualTo(stereotype.getPostfix());
+			assertThat(rule.getPackageName()).isEqualTo(stereotype.getPackageName());
+			assertThat(rule.getInterfaceNames()).containsOnly(stereotype.getInterfaceNames().toArray(new String[0]));
+			assertThat(rule.getBaseClassNames()).containsOnly(stereotype.getBaseClassNames().toArray(new String[0]));
+			assertThat(rule.getAnnotationConfigCount()).isEqualTo(stereotype.getAnnotationConfigs().size());
+		}
+	}
+
+	/**
+	 * The bit matrix contains exactly the allowed dependencies of the
+	 * configuration.
+	 */
+	@Test
+	public void allowedDependenciesAreTheConfiguredOnes() {
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+
+		for (int from = 0; from < ruleSet.size(); from++) {
+			DependencyConfiguration dependency = config.getDependencies().get(ruleSet.getRule(from).getId());
+			for (int to = 0; to < ruleSet.size(); to++) {
+				boolean allowed = dependency != null && dependency.isAllowed(ruleSet.getRule(to).getId());
+				assertThat(ruleSet.isAllowed(from, to)).as("%s -> %s", ruleSet.getRule(from).getId(),
+						ruleSet.getRule(to).getId()).isEqualTo(allowed);
+			}
+		}
+	}
+
+	/**
+	 * The type ids of a stereotype are the ids of exactly its annotations,
+	 * interfaces and base classes.
+	 */
+	@Test
+	public void typeIdsAreTheConfiguredTypes() {
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+
+		for (int ordinal = 0; ordinal < ruleSet.size(); ordinal++) {
+			StereotypeRule rule = ruleSet.getRule(ordinal);
+			assertThat(typeIds(ruleSet, rule.getInterfaceNames())).isEqualTo(rule.getInterfaceTypes());
+			assertThat(typeIds(ruleSet, rule.getBaseClassNames())).isEqualTo(rule.getBaseClassTypes());
+			for (int i = 0; i < rule.getAnnotationConfigCount(); i++) {
+				assertThat(typeIds(ruleSet, rule.getAnnotationNames(i))).isEqualTo(rule.getAnnotationTypes(i));
+			}
+		}
+		assertThat(typeIds(ruleSet, "java.lang.Object", "java.io.Serializable").isEmpty()).isTrue();
+	}
+
+	/**
+	 * Changing the names or type ids returned by a rule does not change the
+	 * shared rule.
+	 */
+	@Test
+	public void rulesCanNotBeChanged() {
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+
+		for (int ordinal = 0; ordinal < ruleSet.size(); ordinal++) {
+			StereotypeRule rule = ruleSet.getRule(ordinal);
+			BitSet interfaceTypes = rule.getInterfaceTypes();
+			rule.getInterfaceTypes().clear();
+			rule.getBaseClassTypes().set(0, 64);
+			String[] baseClassNames = rule.getBaseClassNames();
+			Arrays.fill(rule.getBaseClassNames(), null);
+
+			assertThat(rule.getInterfaceTypes()).isEqualTo(interfaceTypes);
+			assertThat(rule.intersectsInterfaceTypes(interfaceTypes)).isEqualTo(!interfaceTypes.isEmpty());
+			assertThat(rule.getBaseClassTypes().cardinality()).isEqualTo(rule.getBaseClassNames().length);
+			assertThat(rule.getBaseClassNames()).containsExactly(baseClassNames);
+		}
+	}
+
+	private static BitSet typeIds(StereotypeRuleSet ruleSet, String... typeNames) {
+		BitSet typeIds = new BitSet();
+		ruleSet.resolveTypes(Arrays.asList(typeNames), typeIds);
+		return typeIds;
+	}
+
+	/**
+	 * The messages are the same as the ones built from the configuration.
+	 */
+	@Test
+	public void messagesArePrecomputed() {
+		StereotypeRule rule = config.getRuleSet().getRule(0);
+		StereotypeConfiguration stereotype = config.getStereotypeConfig().get(rule.getId());
+
+		assertThat(rule.getMissingPostfixMessage())
+				.isEqualTo("Stereotype " + rule.getId() + ": missing postfix " + stereotype.getPostfix());
+		assertThat(rule.getMissingAnnotationMessage()).isEqualTo(
+				"Stereotype " + rule.getId() + ": missing annotation " + stereotype.getAnnotationNamesAsString());
+		assertThat(rule.getWrongPackageMessage())
+				.isEqualTo("Stereotype " + rule.getId() + ": is not in package " + stereotype.getPackageName());
+	}
+}
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+import info.novatec.ita.check.ResultCache.CachedError;
+import info.novatec.ita.check.config.ImportClassification;
+
+/**
+ * The state of the check of a single file. A context is created for every
+ * file and only used by the {@link StereotypeCheck} checking the file, so that
+ * the {@link StereotypeCheckValidator} holds no state of the actual file and
+ * can validate files on many threads.
+ */
+final class CheckContext {
+
+	/** Receives the errors found in a file. */
+	interface ErrorReporter {
+
+		/**
+		 * Reports an error.
+		 * 
+		 * @param ast
+		 *            the position of the error.
+		 * @param message
+		 *            the message.
+		 */
+		void addError(DetailAST ast, String message);
+	}
+
+	private final ErrorReporter errorReporter;
+
+	/** The counters of the check, shared by all files. */
+	private final StereotypeCheckStatistics statistics;
+
+	/** Information about the class in the file. */
+	private final ClassInfo currentClass;
+
+	/**
+	 * Inner classes are ignored. While the parser parses an inner class this
+	 * attribute is set to true.
+	 */
+	private boolean isInnerClass = false;
+
+	/**
+	 * Is the class outside the application packages or excluded. Once known,
+	 * all further tokens of the file are ignored.
+	 */
+	private boolean isOutOfScope = false;
+
+	/** The number of tokens ignored in the file. */
+	private int skippedTokens = 0;
+
+	/** The hash of the content of the file, null if there is no cache. */
+	private byte[] contentHash = null;
+
+	/** Is the result of the file taken from the {@link ResultCache}. */
+	private boolean isCached = false;
+
+	/** The errors found in the file, stored in the {@link ResultCache}. */
+	private final List<CachedError> errors = new ArrayList<>();
+
+	/** The stereotypes whose postfix ends the name of the class. */
+	private final BitSet classPostfixes = new BitSet();
+
+	/** The stereotypes whose package matches the package of the class. */
+	private final BitSet classPackages = new BitSet();
+
+	/** The imports of the class, null until a dependency is checked. */
+	private String[] imports;
+
+	/**
+	 * The classifications of the imports. The index is the index of the
+	 * import in {@link #imports}.
+	 */
+	private ImportClassification[] importClassifications;
+
+	/**
+	 * Are the imports in the package of the class. The index is the index of
+	 * the import in {@link #imports}.
+	 */
+	private boolean[] importInSamePackage;
+
+	/**
+	 * Creates the context of a file.
+	 * 
+	 * @param errorReporter
+	 *            receives the errors found in the file.
+	 * @param statistics
+	 *            the counters of the check.
+	 */
+	CheckContext(ErrorReporter errorReporter, StereotypeCheckStatistics statistics) {
+		this(errorReporter, statistics, new ClassInfo());
+	}
+
+	/**
+	 * Creates the context of a class whose facts are already collected.
+	 * 
+	 * @param errorReporter
+	 *            receives the errors found in the file.
+	 * @param statistics
+	 *            the counters of the check.
+	 * @param currentClass
+	 *            the facts about the class.
+	 */
+	CheckContext(ErrorReporter errorReporter, StereotypeCheckStatistics statistics, ClassInfo currentClass) {
+		this.errorReporter = errorReporter;
+		this.statistics = statistics;
+		this.currentClass = currentClass;
+	}
+
+	/**
+	 * @return information about the class in the file.
+	 */
+	ClassInfo getCurrentClass() {
+		return currentClass;
+	}
+
+	/**
+	 * @return the counters of the check.
+	 */
+	StereotypeCheckStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * @return is an inner class parsed.
+	 */
+	boolean isInnerClass() {
+		return isInnerClass;
+	}
+
+	/**
+	 * @param isInnerClass
+	 *            is an inner class parsed.
+	 */
+	void setInnerClass(boolean isInnerClass) {
+		this.isInnerClass = isInnerClass;
+	}
+
+	/**
+	 * @return are all further tokens of the file ignored.
+	 */
+	boolean isOutOfScope() {
+		return isOutOfScope;
+	}
+
+	/**
+	 * Ignores all further tokens of the file.
+	 */
+	void setOutOfScope() {
+		this.isOutOfScope = true;
+	}
+
+	/**
+	 * Counts an ignored token.
+	 */
+	void skipToken() {
+		skippedTokens++;
+	}
+
+	/**
+	 * @return the number of tokens ignored in the file.
+	 */
+	int getSkippedTokens() {
+		return skippedTokens;
+	}
+
+	/**
+	 * @return the hash of the content of the file, null if there is no cache.
+	 */
+	byte[] getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * @param contentHash
+	 *            the hash of the content of the file.
+	 */
+	void setContentHash(byte[] contentHash) {
+		this.contentHash = contentHash;
+	}
+
+	/**
+	 * @return is the result of the file taken from the {@link ResultCache}.
+	 */
+	boolean isCached() {
+		return isCached;
+	}
+
+	/**
+	 * Takes the result of the file from the {@link ResultCache}, all tokens of
+	 * the file are ignored.
+	 */
+	void setCached() {
+		this.isCached = true;
+		this.isOutOfScope = true;
+	}
+
+	/**
+	 * @return the errors found in the file.
+	 */
+	List<CachedError> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return the stereotypes whose postfix ends the name of the class.
+	 */
+	BitSet getClassPostfixes() {
+		return classPostfixes;
+	}
+
+	/**
+	 * @return the stereotypes whose package matches the package of the class.
+	 */
+	BitSet getClassPackages() {
+		return classPackages;
+	}
+
+	/**
+	 * @return the imports of the class, null until they are classified.
+	 */
+	String[] getImports() {
+		return imports;
+	}
+
+	/**
+	 * Sets the classified imports of the class.
+	 * 
+	 * @param imports
+	 *            the imports.
+	 * @param importClassifications
+	 *            the classifications of the imports.
+	 * @param importInSamePackage
+	 *            are the imports in the package of the class.
+	 */
+	void setImports(String[] imports, ImportClassification[] importClassifications, boolean[] importInSamePackage) {
+		this.imports = imports;
+		this.importClassifications = importClassifications;
+		this.importInSamePackage = importInSamePackage;
+	}
+
+	/**
+	 * @param index
+	 *            the index of the import.
+	 * @return the classification of the import.
+	 */
+	ImportClassification getImportClassification(int index) {
+		return importClassifications[index];
+	}
+
+	/**
+	 * @param index
+	 *            the index of the import.
+	 * @return is the import in the package of the class.
+	 */
+	boolean isImportInSamePackage(int index) {
+		return importInSamePackage[index];
+	}
+
+	/**
+	 * Reports an error found in the file.
+	 * 
+	 * @param ast
+	 *            the position of the error.
+	 * @param message
+	 *            the message.
+	 */
+	void addError(DetailAST ast, String message) {
+		errors.add(new CachedError(ast.getLineNo(), ast.getColumnNo(), message));
+		errorReporter.addError(ast, message);
+	}
+}
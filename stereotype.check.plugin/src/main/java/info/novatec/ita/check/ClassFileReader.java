@@ -0,0 +1,605 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+/**
+ * Reads the facts of a {@link ClassInfo} from a compiled class, instead of
+ * from the source of the class.
+ * <p>
+ * The name, the super class, the interfaces and the annotations of the class
+ * are read from the header and the attributes of the class file. The
+ * dependencies are all classes named in the constant pool and in the
+ * descriptors and generic signatures of the class, so the dependencies used
+ * only in the bodies of the methods are found, too. Unused imports and
+ * annotations with the retention <code>SOURCE</code> are not found, because
+ * they are not compiled into the class.
+ * <p>
+ * A nested class is part of its top level class. The compiler writes every
+ * nested, local and anonymous class into a class file of its own, e.g.
+ * <code>Outer$1.class</code>, so the dependencies of these class files are
+ * added to the top level class by {@link #readNested(ByteBuffer, ClassInfo,
+ * DetailAST)}. Nested classes are named with dots, like in the source.
+ */
+final class ClassFileReader {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	private static final int ACC_INTERFACE = 0x0200;
+	private static final int ACC_ABSTRACT = 0x0400;
+	private static final int ACC_ANNOTATION = 0x2000;
+	private static final int ACC_ENUM = 0x4000;
+	private static final int ACC_MODULE = 0x8000;
+
+	private static final String OBJECT = "java/lang/Object";
+	private static final String ENUM = "java/lang/Enum";
+	private static final String ANNOTATION = "java/lang/annotation/Annotation";
+	private static final String PACKAGE_INFO = "package-info";
+
+	private final ByteBuffer bytes;
+
+	/** The offsets of the constant pool entries behind their tags. */
+	private int[] offsets;
+
+	/** The tags of the constant pool entries. */
+	private byte[] tags;
+
+	/** The decoded strings of the constant pool, decoded on first use. */
+	private String[] strings;
+
+	/** The name of the class in the internal form, e.g. a/b/C. */
+	private String className;
+
+	/** Is the class nested in another class. */
+	private boolean isNested = false;
+
+	/** The access flags of the class. */
+	private int accessFlags;
+
+	/** The super class in the internal form, null for java/lang/Object. */
+	private String superClass;
+
+	/** The interfaces in the internal form. */
+	private String[] interfaces;
+
+	/** The position of the attributes of the class. */
+	private int classAttributes;
+
+	/** The classes the class depends on, in the internal form. */
+	private final Set<String> dependencies = new HashSet<>();
+
+	private ClassFileReader(ByteBuffer bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Reads the facts of a class file.
+	 * 
+	 * @param bytes
+	 *            the content of the class file, from the position to the
+	 *            limit of the buffer. The position of the buffer is not
+	 *            changed.
+	 * @param classInfo
+	 *            receives the facts about the class.
+	 * @param position
+	 *            the position reported for the class and its dependencies.
+	 *            A class file has no positions in the source.
+	 * @return false if the class file does not contain a top level class, but
+	 *         a nested class, a package-info or a module-info. Nothing is
+	 *         read then.
+	 * @throws IllegalArgumentException
+	 *             if the content is no class file.
+	 */
+	static boolean read(ByteBuffer bytes, ClassInfo classInfo, DetailAST position) {
+		ClassFileReader reader = new ClassFileReader(bytes.slice());
+		try {
+			return reader.read(classInfo, position);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated or corrupt class file", e);
+		}
+	}
+
+	/**
+	 * Adds the dependencies of a nested, local or anonymous class to the facts
+	 * of its top level class.
+	 * 
+	 * @param bytes
+	 *            the content of the class file of the nested class, from the
+	 *            position to the limit of the buffer. The position of the
+	 *            buffer is not changed.
+	 * @param classInfo
+	 *            the facts about the top level class, already read from its
+	 *            class file.
+	 * @param position
+	 *            the position reported for the dependencies.
+	 * @return false if the class file does not contain a class nested in the
+	 *         top level class. Nothing is added then.
+	 * @throws IllegalArgumentException
+	 *             if the content is no class file.
+	 */
+	static boolean readNested(ByteBuffer bytes, ClassInfo classInfo, DetailAST position) {
+		ClassFileReader reader = new ClassFileReader(bytes.slice());
+		try {
+			return reader.readNested(classInfo, position);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Truncated or corrupt class file", e);
+		}
+	}
+
+	private boolean read(ClassInfo classInfo, DetailAST position) {
+		if (!readHeader() || isNested) {
+			return false;
+		}
+
+		setClassName(classInfo, accessFlags, position);
+		if ((accessFlags & ACC_INTERFACE) != 0) {
+			for (String interfaceName : interfaces) {
+				if (!ANNOTATION.equals(interfaceName)) {
+					classInfo.addBaseClass(toClassName(interfaceName));
+				}
+			}
+		} else {
+			classInfo.setAbstract((accessFlags & ACC_ABSTRACT) != 0);
+			boolean isImplicit = OBJECT.equals(superClass)
+					|| ((accessFlags & ACC_ENUM) != 0 && ENUM.equals(superClass));
+			if (superClass != null && !isImplicit) {
+				classInfo.addBaseClass(toClassName(superClass));
+			}
+			for (String interfaceName : interfaces) {
+				classInfo.addInterface(toClassName(interfaceName));
+			}
+		}
+		// the annotations of the class itself are in the attributes of the
+		// class, read again now that the class is known to be top level
+		bytes.position(classAttributes);
+		readAttributes(classInfo);
+		addDependencies(classInfo, className, position);
+		return true;
+	}
+
+	private boolean readNested(ClassInfo classInfo, DetailAST position) {
+		String topLevelClassName = classInfo.getFullClassName().replace('.', '/');
+		if (!readHeader() || !isNested || !isOwnClass(className, topLevelClassName)) {
+			return false;
+		}
+		addDependencies(classInfo, topLevelClassName, position);
+		return true;
+	}
+
+	/**
+	 * Reads the class file up to the attributes of the class. The annotations
+	 * of the class are only read as dependencies.
+	 * 
+	 * @return false if the class file contains a package-info or a
+	 *         module-info.
+	 */
+	private boolean readHeader() {
+		if (bytes.getInt() != MAGIC) {
+			throw new IllegalArgumentException("No class file");
+		}
+		// the version
+		bytes.getInt();
+		readConstantPool();
+
+		accessFlags = u2();
+		className = classAt(u2());
+		if ((accessFlags & ACC_MODULE) != 0 || simpleName(className).equals(PACKAGE_INFO)) {
+			return false;
+		}
+		int superClassIndex = u2();
+		superClass = superClassIndex == 0 ? null : classAt(superClassIndex);
+		int interfaceCount = u2();
+		interfaces = new String[interfaceCount];
+		for (int i = 0; i < interfaceCount; i++) {
+			interfaces[i] = classAt(u2());
+		}
+		for (int member = 0, memberCount = u2(); member < memberCount; member++) {
+			readMember();
+		}
+		for (int member = 0, memberCount = u2(); member < memberCount; member++) {
+			readMember();
+		}
+		classAttributes = bytes.position();
+		readAttributes(null);
+		return true;
+	}
+
+	/**
+	 * Adds all classes named in the constant pool and in the signatures as
+	 * imports, except the top level class and its nested classes.
+	 */
+	private void addDependencies(ClassInfo classInfo, String topLevelClassName, DetailAST position) {
+		for (int i = 1; i < tags.length; i++) {
+			if (tags[i] == CONSTANT_CLASS) {
+				dependency(classAt(i));
+			} else if (tags[i] == CONSTANT_NAME_AND_TYPE) {
+				signature(stringAt(u2(offsets[i] + 2)));
+			} else if (tags[i] == CONSTANT_METHOD_TYPE) {
+				signature(stringAt(u2(offsets[i])));
+			}
+		}
+		for (String dependency : dependencies) {
+			if (!isOwnClass(dependency, topLevelClassName)) {
+				classInfo.addImport(toClassName(dependency), position);
+			}
+		}
+	}
+
+	private void setClassName(ClassInfo classInfo, int accessFlags, DetailAST position) {
+		int lastSlash = className.lastIndexOf('/');
+		if (lastSlash >= 0) {
+			classInfo.setPackageName(className.substring(0, lastSlash).replace('/', '.'));
+		}
+		String simpleName = className.substring(lastSlash + 1);
+		if ((accessFlags & ACC_INTERFACE) != 0 && (accessFlags & ACC_ANNOTATION) == 0) {
+			classInfo.setInterfaceName(simpleName, position);
+		} else {
+			classInfo.setClassName(simpleName, position);
+		}
+	}
+
+	/**
+	 * Records the offsets of the entries of the constant pool, the entries
+	 * themselves are only decoded when they are used.
+	 */
+	private void readConstantPool() {
+		int count = u2();
+		offsets = new int[count];
+		tags = new byte[count];
+		strings = new String[count];
+		for (int i = 1; i < count; i++) {
+			int tag = bytes.get();
+			tags[i] = (byte) tag;
+			offsets[i] = bytes.position();
+			switch (tag) {
+			case CONSTANT_UTF8:
+				skip(u2());
+				break;
+			case CONSTANT_CLASS:
+			case CONSTANT_STRING:
+			case CONSTANT_METHOD_TYPE:
+			case CONSTANT_MODULE:
+			case CONSTANT_PACKAGE:
+				skip(2);
+				break;
+			case CONSTANT_METHOD_HANDLE:
+				skip(3);
+				break;
+			case CONSTANT_INTEGER:
+			case CONSTANT_FLOAT:
+			case CONSTANT_FIELDREF:
+			case CONSTANT_METHODREF:
+			case CONSTANT_INTERFACE_METHODREF:
+			case CONSTANT_NAME_AND_TYPE:
+			case CONSTANT_DYNAMIC:
+			case CONSTANT_INVOKE_DYNAMIC:
+				skip(4);
+				break;
+			case CONSTANT_LONG:
+			case CONSTANT_DOUBLE:
+				skip(8);
+				// takes two entries
+				i++;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at entry " + i);
+			}
+		}
+	}
+
+	/** Reads a field or a method. */
+	private void readMember() {
+		// the access flags and the name
+		skip(4);
+		signature(stringAt(u2()));
+		readAttributes(null);
+	}
+
+	/**
+	 * Reads the attributes of the class, a field or a method.
+	 * 
+	 * @param classInfo
+	 *            receives the annotations of the class, null if the
+	 *            annotations are dependencies only.
+	 */
+	private void readAttributes(ClassInfo classInfo) {
+		for (int attribute = 0, attributeCount = u2(); attribute < attributeCount; attribute++) {
+			String name = stringAt(u2());
+			int length = bytes.getInt();
+			int end = bytes.position() + length;
+			switch (name) {
+			case "Signature":
+				signature(stringAt(u2()));
+				break;
+			case "RuntimeVisibleAnnotations":
+			case "RuntimeInvisibleAnnotations":
+				for (int annotation = 0, annotationCount = u2(); annotation < annotationCount; annotation++) {
+					String type = annotation();
+					if (classInfo != null) {
+						classInfo.addAnnotation(toClassName(type));
+					}
+				}
+				break;
+			case "RuntimeVisibleParameterAnnotations":
+			case "RuntimeInvisibleParameterAnnotations":
+				for (int parameter = 0, parameterCount = bytes.get() & 0xFF; parameter < parameterCount; parameter++) {
+					for (int annotation = 0, annotationCount = u2(); annotation < annotationCount; annotation++) {
+						annotation();
+					}
+				}
+				break;
+			case "InnerClasses":
+				for (int innerClass = 0, innerClassCount = u2(); innerClass < innerClassCount; innerClass++) {
+					int innerClassIndex = u2();
+					// the outer class, the simple name and the access flags
+					skip(6);
+					if (className.equals(classAt(innerClassIndex))) {
+						isNested = true;
+					}
+				}
+				break;
+			case "EnclosingMethod":
+				isNested = true;
+				break;
+			default:
+				break;
+			}
+			bytes.position(end);
+		}
+	}
+
+	/**
+	 * Reads an annotation and the classes named in its values.
+	 * 
+	 * @return the type of the annotation in the internal form.
+	 */
+	private String annotation() {
+		String descriptor = stringAt(u2());
+		signature(descriptor);
+		for (int pair = 0, pairCount = u2(); pair < pairCount; pair++) {
+			// the name of the element
+			skip(2);
+			elementValue();
+		}
+		return descriptor.substring(1, descriptor.length() - 1);
+	}
+
+	private void elementValue() {
+		int tag = bytes.get();
+		switch (tag) {
+		case 'e':
+			signature(stringAt(u2()));
+			// the name of the enum constant
+			skip(2);
+			break;
+		case 'c':
+			signature(stringAt(u2()));
+			break;
+		case '@':
+			annotation();
+			break;
+		case '[':
+			for (int value = 0, valueCount = u2(); value < valueCount; value++) {
+				elementValue();
+			}
+			break;
+		default:
+			// a constant
+			skip(2);
+			break;
+		}
+	}
+
+	/**
+	 * Adds the classes named in a descriptor or a generic signature of a
+	 * class, a field or a method.
+	 */
+	private void signature(String signature) {
+		int index = 0;
+		if (signature.startsWith("<")) {
+			index = typeParameters(signature, 1);
+		}
+		while (index < signature.length()) {
+			char c = signature.charAt(index);
+			if (c == '(' || c == ')' || c == '^') {
+				index++;
+			} else {
+				index = type(signature, index);
+			}
+		}
+	}
+
+	/**
+	 * Adds the bounds of the type parameters of a signature.
+	 * 
+	 * @return the index behind the type parameters.
+	 */
+	private int typeParameters(String signature, int start) {
+		int index = start;
+		while (signature.charAt(index) != '>') {
+			// the name of the type parameter
+			index = signature.indexOf(':', index);
+			while (signature.charAt(index) == ':') {
+				index++;
+				char c = signature.charAt(index);
+				// the class bound may be empty
+				if (c != ':' && c != '>') {
+					index = type(signature, index);
+				}
+			}
+		}
+		return index + 1;
+	}
+
+	/**
+	 * Adds the classes named in a type of a signature.
+	 * 
+	 * @return the index behind the type.
+	 */
+	private int type(String signature, int start) {
+		int index = start;
+		switch (signature.charAt(index)) {
+		case 'L':
+			index = identifier(signature, index + 1);
+			dependencies.add(signature.substring(start + 1, index));
+			while (signature.charAt(index) != ';') {
+				if (signature.charAt(index) == '<') {
+					index++;
+					while (signature.charAt(index) != '>') {
+						char c = signature.charAt(index);
+						if (c == '*') {
+							index++;
+						} else {
+							index = type(signature, c == '+' || c == '-' ? index + 1 : index);
+						}
+					}
+					index++;
+				} else {
+					// the simple name of a nested class
+					index = identifier(signature, index + 1);
+				}
+			}
+			return index + 1;
+		case 'T':
+			return signature.indexOf(';', index) + 1;
+		case '[':
+			return type(signature, index + 1);
+		default:
+			// a primitive type or void
+			return index + 1;
+		}
+	}
+
+	private static int identifier(String signature, int start) {
+		int index = start;
+		for (char c = signature.charAt(index); c != ';' && c != '<' && c != '.'; c = signature.charAt(++index)) {
+			// skips the identifier
+		}
+		return index;
+	}
+
+	/** Adds a class of the constant pool, which may also be an array. */
+	private void dependency(String name) {
+		if (name.startsWith("[")) {
+			type(name, 0);
+		} else {
+			dependencies.add(name);
+		}
+	}
+
+	private static boolean isOwnClass(String name, String topLevelClassName) {
+		return name.startsWith(topLevelClassName) && (name.length() == topLevelClassName.length()
+				|| name.charAt(topLevelClassName.length()) == '$');
+	}
+
+	/**
+	 * @return the name of a class in the internal form as a full qualified
+	 *         name, nested classes are separated by a dot like in the source.
+	 */
+	private static String toClassName(String name) {
+		String className = name.replace('/', '.');
+		int lastDot = className.lastIndexOf('.');
+		// a $ at the start of the simple name is not a nested class
+		if (className.indexOf('$', lastDot + 2) > 0) {
+			className = className.substring(0, lastDot + 2) + className.substring(lastDot + 2).replace('$', '.');
+		}
+		return className;
+	}
+
+	private static String simpleName(String name) {
+		return name.substring(name.lastIndexOf('/') + 1);
+	}
+
+	private String classAt(int index) {
+		checkTag(index, CONSTANT_CLASS);
+		return stringAt(u2(offsets[index]));
+	}
+
+	private String stringAt(int index) {
+		checkTag(index, CONSTANT_UTF8);
+		String string = strings[index];
+		if (string == null) {
+			string = decode(offsets[index] + 2, u2(offsets[index]));
+			strings[index] = string;
+		}
+		return string;
+	}
+
+	private void checkTag(int index, int tag) {
+		if (index <= 0 || index >= tags.length || tags[index] != tag) {
+			throw new IllegalArgumentException("Constant pool entry " + index + " is not of tag " + tag);
+		}
+	}
+
+	/**
+	 * Decodes the modified UTF-8 of the class file. The names of classes are
+	 * almost always ASCII, which is decoded without a decoder.
+	 */
+	private String decode(int offset, int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			byte b = bytes.get(offset + i);
+			if (b < 0) {
+				byte[] encoded = new byte[length];
+				for (int j = 0; j < length; j++) {
+					encoded[j] = bytes.get(offset + j);
+				}
+				// differs from the modified UTF-8 only in the encoding of
+				// the character 0 and of supplementary characters
+				return new String(encoded, StandardCharsets.UTF_8);
+			}
+			chars[i] = (char) b;
+		}
+		return new String(chars);
+	}
+
+	private int u2() {
+		return bytes.getShort() & 0xFFFF;
+	}
+
+	private int u2(int offset) {
+		return bytes.getShort(offset) & 0xFFFF;
+	}
+
+	private void skip(int length) {
+		bytes.position(bytes.position() + length);
+	}
+}
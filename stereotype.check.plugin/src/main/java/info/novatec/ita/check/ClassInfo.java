@@ -16,16 +16,20 @@
 package info.novatec.ita.check;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
 
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 
-import info.novatec.ita.check.config.StereotypeConfiguration;
+import info.novatec.ita.check.config.StereotypeRule;
+import info.novatec.ita.check.config.StereotypeRuleSet;
 
 /**
  * Contains Information about the parsed class, that is used by the
@@ -35,6 +39,33 @@ import info.novatec.ita.check.config.StereotypeConfiguration;
  */
 class ClassInfo {
 
+	/** The public types of the package java.lang, which are imported implicitly. */
+	private static final Set<String> JAVA_LANG_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"Appendable", "AutoCloseable", "CharSequence", "Cloneable", "Comparable", "Iterable", "Readable",
+			"Runnable", "Boolean", "Byte", "Character", "Class", "ClassLoader", "ClassValue", "Compiler", "Double",
+			"Enum", "Float", "InheritableThreadLocal", "Integer", "Long", "Math", "Number", "Object", "Package",
+			"Process", "ProcessBuilder", "Runtime", "RuntimePermission", "SecurityManager", "Short",
+			"StackTraceElement", "StrictMath", "String", "StringBuffer", "StringBuilder", "System", "Thread",
+			"ThreadGroup", "ThreadLocal", "Throwable", "Void", "ArithmeticException",
+			"ArrayIndexOutOfBoundsException", "ArrayStoreException", "ClassCastException", "ClassNotFoundException",
+			"CloneNotSupportedException", "EnumConstantNotPresentException", "Exception", "IllegalAccessException",
+			"IllegalArgumentException", "IllegalMonitorStateException", "IllegalStateException",
+			"IllegalThreadStateException", "IndexOutOfBoundsException", "InstantiationException",
+			"InterruptedException", "NegativeArraySizeException", "NoSuchFieldException", "NoSuchMethodException",
+			"NullPointerException", "NumberFormatException", "ReflectiveOperationException", "RuntimeException",
+			"SecurityException", "StringIndexOutOfBoundsException", "TypeNotPresentException",
+			"UnsupportedOperationException", "AbstractMethodError", "AssertionError", "BootstrapMethodError",
+			"ClassCircularityError", "ClassFormatError", "Error", "ExceptionInInitializerError",
+			"IllegalAccessError", "IncompatibleClassChangeError", "InstantiationError", "InternalError",
+			"LinkageError", "NoClassDefFoundError", "NoSuchFieldError", "NoSuchMethodError", "OutOfMemoryError",
+			"StackOverflowError", "ThreadDeath", "UnknownError", "UnsatisfiedLinkError",
+			"UnsupportedClassVersionError", "VerifyError", "VirtualMachineError", "Deprecated",
+			"FunctionalInterface", "Override", "SafeVarargs", "SuppressWarnings")));
+
+	private static final String JAVA_LANG = "java.lang.";
+
+	private static final String WILDCARD = ".*";
+
 	/** The name of the class (without package). */
 	private String className;
 
@@ -50,6 +81,16 @@ class ClassInfo {
 	 * the IDE.
 	 */
 	private Map<String, DetailAST> imports = new HashMap<String, DetailAST>();
+
+	/**
+	 * The explicit imports of {@link #imports} by their simple name.
+	 */
+	private Map<String, String> importsBySimpleName = new HashMap<String, String>();
+
+	/**
+	 * The packages imported on demand by a wildcard import.
+	 */
+	private List<String> wildcardPackages = new ArrayList<String>();
 	/**
 	 * The class level annotations as defined in the java-file. May or may not
 	 * contain packagenames.
@@ -84,6 +125,24 @@ class ClassInfo {
 	 */
 	private List<String> baseClassesWithPackage = null;
 
+	/**
+	 * The type ids of the annotations, resolved by
+	 * {@link #resolveTypes(StereotypeRuleSet)}.
+	 */
+	private final BitSet annotationTypes = new BitSet();
+
+	/**
+	 * The type ids of the interfaces, resolved by
+	 * {@link #resolveTypes(StereotypeRuleSet)}.
+	 */
+	private final BitSet interfaceTypes = new BitSet();
+
+	/**
+	 * The type ids of the base classes, resolved by
+	 * {@link #resolveTypes(StereotypeRuleSet)}.
+	 */
+	private final BitSet baseClassTypes = new BitSet();
+
 	/**
 	 * The position in the java-file for the class definition used for the error
 	 * marker in the IDE.
@@ -139,20 +198,16 @@ class ClassInfo {
 				// If the typename has a dot we assume, that it is full
 				// qualified.
 				typesWithPackage.add(name);
+			} else if (importsBySimpleName.containsKey(name)) {
+				typesWithPackage.add(importsBySimpleName.get(name));
+			} else if (JAVA_LANG_TYPES.contains(name)) {
+				typesWithPackage.add(JAVA_LANG + name);
 			} else {
-				// search for the Class in the imports
-				boolean hasImport = false;
-				for (String importedClass : imports.keySet()) {
-					if (importedClass.endsWith("." + name)) {
-						typesWithPackage.add(importedClass);
-						hasImport = true;
-						break;
-					}
-				}
-				if (!hasImport) {
-					// If the import is missing, the class must be in the
-					// same package
-					typesWithPackage.add(packageName + "." + name);
+				// If the import is missing, the class must be in the
+				// same package or in a package imported on demand
+				typesWithPackage.add(packageName + "." + name);
+				for (int i = 0; i < wildcardPackages.size(); i++) {
+					typesWithPackage.add(wildcardPackages.get(i) + "." + name);
 				}
 			}
 		}
@@ -174,98 +229,121 @@ class ClassInfo {
 	}
 
 	/**
-	 * Is the class annotated with the given annotation
+	 * Resolves the annotations, interfaces and base classes to the type ids of
+	 * the rule set. Must be called before the types are compared with the
+	 * types of a stereotype.
 	 * 
-	 * @param annotationNames
-	 *            the annotation
+	 * @param ruleSet
+	 *            the rule set
+	 */
+	public void resolveTypes(StereotypeRuleSet ruleSet) {
+		annotationTypes.clear();
+		ruleSet.resolveTypes(getAnnotationsWithPackage(), annotationTypes);
+		interfaceTypes.clear();
+		ruleSet.resolveTypes(getInterfacesWithPackage(), interfaceTypes);
+		baseClassTypes.clear();
+		ruleSet.resolveTypes(getBaseClassesWithPackage(), baseClassTypes);
+	}
+
+	/**
+	 * Is the class annotated with one of the given annotations
+	 * 
+	 * @param annotationTypes
+	 *            the type ids of the annotations
 	 * @return true if annotated
 	 */
-	public boolean hasAnnotation(Set<String> annotationNames) {
-		boolean result = false;
-		for (String annotationName : annotationNames) {
-			result |= this.getAnnotationsWithPackage().contains(annotationName);
-		}
-		return result;
+	public boolean hasAnnotation(BitSet annotationTypes) {
+		return this.annotationTypes.intersects(annotationTypes);
 	}
 
 	/**
 	 * Does the class directly implements one of the interfaces
 	 * 
-	 * @param interfaceNames
-	 *            the interfaces
+	 * @param interfaceTypes
+	 *            the type ids of the interfaces
 	 * @return true if one of the given interfaces is implemented by this class
 	 *         directly
 	 */
-	public boolean hasInterface(Set<String> interfaceNames) {
-		boolean result = false;
-		for (String interfaceName : interfaceNames) {
-			result |= this.getInterfacesWithPackage().contains(interfaceName);
-		}
-		return result;
+	public boolean hasInterface(BitSet interfaceTypes) {
+		return this.interfaceTypes.intersects(interfaceTypes);
 	}
 
 	/**
 	 * Does the class directly extend one of the baseclasses
 	 * 
-	 * @param baseclassNames
-	 *            the baseclasses
+	 * @param baseClassTypes
+	 *            the type ids of the baseclasses
 	 * @return true if one of the given baseclasses is subclassed by this class
 	 *         directly
 	 */
-	public boolean hasBaseClass(Set<String> baseclassNames) {
-		boolean result = false;
-		for (String baseclassName : baseclassNames) {
-			result |= this.getBaseClassesWithPackage().contains(baseclassName);
-		}
-		return result;
+	public boolean hasBaseClass(BitSet baseClassTypes) {
+		return this.baseClassTypes.intersects(baseClassTypes);
 	}
 
 	/**
-	 * Check by postfix comparision if the baseclass is from the same stereotype
-	 * of this class. This can only be checked if the condition of the postfix
-	 * is sufficient.
+	 * Is the class annotated with one of the annotations of an annotation
+	 * configuration of the stereotype
 	 * 
-	 * @param config
-	 *            the stereotype configuration to check
-	 * @return true if class and baseClass has the same stereotype
+	 * @param rule
+	 *            the stereotype
+	 * @param index
+	 *            the index of the annotation configuration
+	 * @return true if annotated
 	 */
-	public boolean extendsSameStereotype(StereotypeConfiguration config) {
-		boolean result = false;
-		if (config.getPostfix() != null && config.isPostfixConditionSufficent(true)) {
-			for (String baseclassName : getBaseClasses()) {
-				if (baseclassName != null) {
-					result |= baseclassName.endsWith(config.getPostfix());
-				}
-			}
-		}
-		return result;
+	public boolean hasAnnotation(StereotypeRule rule, int index) {
+		return rule.intersectsAnnotationTypes(index, annotationTypes);
 	}
-	
 
 	/**
-	 * Checks if the class matches one of the regular expressions of the excluded classes.
-	 * @param excludedClasses regular expressions of the excluded classes.
-	 * @return true if it matches
+	 * Does the class directly implements one of the interfaces of the
+	 * stereotype
+	 * 
+	 * @param rule
+	 *            the stereotype
+	 * @return true if one of the interfaces is implemented by this class
+	 *         directly
 	 */
-	public boolean isExcluded(Set<Pattern> excludedClasses) {
-		for (Pattern pattern : excludedClasses) {
-			if (pattern.matcher(packageName+"."+className).matches()){
-				return true;
-			}
+	public boolean hasInterface(StereotypeRule rule) {
+		return rule.intersectsInterfaceTypes(interfaceTypes);
+	}
+
+	/**
+	 * Does the class directly extend one of the baseclasses of the stereotype.
+	 * An interface extends the interfaces of the stereotype instead.
+	 * 
+	 * @param rule
+	 *            the stereotype
+	 * @return true if one of the baseclasses is subclassed by this class
+	 *         directly
+	 */
+	public boolean hasBaseClass(StereotypeRule rule) {
+		if (isInterface()) {
+			return rule.intersectsInterfaceTypes(baseClassTypes);
 		}
-		return false;
+		return rule.intersectsBaseClassTypes(baseClassTypes);
 	}
 
 	/**
-	 * Is the class in the given package.
+	 * Check by postfix comparision if the baseclass is from the same stereotype
+	 * of this class. This can only be checked if the condition of the postfix
+	 * is sufficient.
 	 * 
-	 * @param packageName
-	 *            the package
-	 * @return true if the class in the given package.
+	 * @param rule
+	 *            the stereotype to check
+	 * @return true if class and baseClass has the same stereotype
 	 */
-	public boolean isInPackage(String packageName) {
-		return packageName != null && this.packageName.matches(packageName);
+	public boolean extendsSameStereotype(StereotypeRule rule) {
+		if (rule.getPostfix() != null && rule.isPostfixSufficient()) {
+			for (int i = 0; i < baseClasses.size(); i++) {
+				String baseclassName = baseClasses.get(i);
+				if (baseclassName != null && baseclassName.endsWith(rule.getPostfix())) {
+					return true;
+				}
+			}
+		}
+		return false;
 	}
+	
 
 	/**
 	 * Add base class
@@ -297,6 +375,15 @@ class ClassInfo {
 	 */
 	public void addImport(String currentImport, DetailAST ast) {
 		imports.put(currentImport, ast);
+		if (currentImport.endsWith(WILDCARD)) {
+			wildcardPackages.add(currentImport.substring(0, currentImport.length() - WILDCARD.length()));
+		} else if (!importsBySimpleName.containsKey(simpleName(currentImport))) {
+			importsBySimpleName.put(simpleName(currentImport), currentImport);
+		}
+	}
+
+	private static String simpleName(String typeName) {
+		return typeName.substring(typeName.lastIndexOf('.') + 1);
 	}
 
 	/**
@@ -317,13 +404,21 @@ class ClassInfo {
 	 * @return true, if the class has a import for the type.
 	 */
 	public boolean hasImport(String typeName) {
-		String toCheck = "." + typeName;
-		for (String importClass : imports.keySet()) {
-			if (importClass.endsWith(toCheck)) {
-				return true;
-			}
-		}
-		return false;
+		return importsBySimpleName.containsKey(typeName);
+	}
+
+	/**
+	 * Check if the type is a type of the package java.lang, which is imported
+	 * implicitly. A type of the same name in the package of the class is not
+	 * recognized.
+	 * 
+	 * @param typeName
+	 *            Type without package.
+	 * @return true, if the type is not imported explicitly and a type of the
+	 *         package java.lang.
+	 */
+	public boolean isJavaLangType(String typeName) {
+		return JAVA_LANG_TYPES.contains(typeName) && !importsBySimpleName.containsKey(typeName);
 	}
 
 	/**
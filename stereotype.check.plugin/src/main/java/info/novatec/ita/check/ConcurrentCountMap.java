@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.util.Arrays;
+
+/**
+ * Counts by long keys, updated by many threads. The keys and counts are kept
+ * in primitive arrays, nothing is allocated to count a key that was seen
+ * before.
+ * <p>
+ * The keys are split between segments by their hash. Each segment is an open
+ * addressing hash table guarded by its own lock, so threads counting
+ * different keys rarely wait for each other.
+ */
+final class ConcurrentCountMap {
+
+	private static final int SEGMENT_BITS = 4;
+
+	private static final int SEGMENT_COUNT = 1 << SEGMENT_BITS;
+
+	/** Spreads the bits of a key, the golden ratio of 2^64. */
+	private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+	private final Segment[] segments = new Segment[SEGMENT_COUNT];
+
+	/** A hash table of the keys of one segment. */
+	private static final class Segment {
+
+		private long[] keys = new long[16];
+
+		/** The counts, 0 for an empty slot. */
+		private long[] counts = new long[16];
+
+		private int size = 0;
+
+		private synchronized void add(long key, int hash, long delta) {
+			if (size * 2 >= keys.length) {
+				grow();
+			}
+			int slot = insert(keys, counts, key, hash);
+			if (counts[slot] == 0) {
+				size++;
+			}
+			counts[slot] += delta;
+		}
+
+		private synchronized long get(long key, int hash) {
+			int slot = find(keys, counts, key, hash);
+			return counts[slot];
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			long[] oldCounts = counts;
+			keys = new long[oldKeys.length * 2];
+			counts = new long[oldCounts.length * 2];
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldCounts[i] != 0) {
+					int slot = insert(keys, counts, oldKeys[i], hash(oldKeys[i]));
+					counts[slot] = oldCounts[i];
+				}
+			}
+		}
+
+		/**
+		 * @return the slot of the key, or the empty slot it belongs to.
+		 */
+		private static int insert(long[] keys, long[] counts, long key, int hash) {
+			int slot = find(keys, counts, key, hash);
+			keys[slot] = key;
+			return slot;
+		}
+
+		private static int find(long[] keys, long[] counts, long key, int hash) {
+			int mask = keys.length - 1;
+			int slot = hash & mask;
+			while (counts[slot] != 0 && keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private synchronized int copyKeys(long[] target, int start) {
+			int index = start;
+			for (int i = 0; i < keys.length && index < target.length; i++) {
+				if (counts[i] != 0) {
+					target[index++] = keys[i];
+				}
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Creates an empty map.
+	 */
+	ConcurrentCountMap() {
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new Segment();
+		}
+	}
+
+	private static int hash(long key) {
+		return (int) (key * SPREAD >>> Integer.SIZE);
+	}
+
+	/**
+	 * Adds to the count of a key.
+	 * 
+	 * @param key
+	 *            the key.
+	 * @param delta
+	 *            the positive amount to add.
+	 */
+	void add(long key, long delta) {
+		if (delta <= 0) {
+			throw new IllegalArgumentException("The delta must be positive, but is " + delta);
+		}
+		int hash = hash(key);
+		// the low bits select the slot, the high bits the segment
+		segments[hash >>> (Integer.SIZE - SEGMENT_BITS)].add(key, hash, delta);
+	}
+
+	/**
+	 * @param key
+	 *            the key.
+	 * @return the count of the key, 0 if it was never counted.
+	 */
+	long get(long key) {
+		int hash = hash(key);
+		return segments[hash >>> (Integer.SIZE - SEGMENT_BITS)].get(key, hash);
+	}
+
+	/**
+	 * @return the number of keys counted.
+	 */
+	int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return all keys counted, sorted. Keys counted while the keys are
+	 *         copied may be missing.
+	 */
+	long[] keys() {
+		long[] keys = new long[size()];
+		int count = 0;
+		for (Segment segment : segments) {
+			count = segment.copyKeys(keys, count);
+		}
+		long[] copied = Arrays.copyOf(keys, count);
+		Arrays.sort(copied);
+		return copied;
+	}
+}
@@ -0,0 +1,1609 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+/**
+ * Reads the facts of the {@link StereotypeCheck} directly from the text of a
+ * java-file, without building the syntax tree of Checkstyle.
+ * <p>
+ * The text is split into tokens, comments and whitespace are skipped and
+ * literals are single tokens. Declarations, statements and expressions are
+ * only skimmed for the places where the tree of Checkstyle has the tokens the
+ * check visits. Method bodies can not be skipped by counting braces, the types
+ * of local variables, casts and <code>instanceof</code> are dependencies of the
+ * class, too. The facts are reported in the order the check visits the tokens,
+ * including its handling of inner classes and nested interfaces, so the check
+ * reports the same violations at the same positions.
+ * <p>
+ * The lexer gives up on constructs it does not understand, e.g. unicode
+ * escapes outside of literals or annotations of type arguments. The file must
+ * then be parsed by Checkstyle. A file Checkstyle can not parse may still be
+ * read by the lexer.
+ * <p>
+ * For the {@link TypeIndex} only the header of the file is needed, the lexer
+ * then stops at the body of the first class.
+ */
+final class HeaderLexer {
+
+	// the kinds of the tokens, a single character is its own kind
+	private static final int EOF = 0;
+	private static final int IDENT = 256;
+	private static final int LITERAL = 257;
+	private static final int ARROW = 258;
+	private static final int DOUBLE_COLON = 259;
+	private static final int ELLIPSIS = 260;
+	private static final int INC_DEC = 261;
+	private static final int OPERATOR = 262;
+	private static final int PRIMITIVE = 263;
+	private static final int MODIFIER = 264;
+	private static final int ABSTRACT = 265;
+	private static final int FINAL = 266;
+	private static final int STATIC = 267;
+	private static final int SYNCHRONIZED = 268;
+	private static final int DEFAULT = 269;
+	private static final int PACKAGE = 270;
+	private static final int IMPORT = 271;
+	private static final int CLASS = 272;
+	private static final int INTERFACE = 273;
+	private static final int ENUM = 274;
+	private static final int EXTENDS = 275;
+	private static final int IMPLEMENTS = 276;
+	private static final int THROWS = 277;
+	private static final int VOID = 278;
+	private static final int THIS = 279;
+	private static final int SUPER = 280;
+	private static final int NEW = 281;
+	private static final int INSTANCEOF = 282;
+	private static final int IF = 283;
+	private static final int ELSE = 284;
+	private static final int FOR = 285;
+	private static final int WHILE = 286;
+	private static final int DO = 287;
+	private static final int TRY = 288;
+	private static final int CATCH = 289;
+	private static final int FINALLY = 290;
+	private static final int SWITCH = 291;
+	private static final int CASE = 292;
+	private static final int RETURN = 293;
+	private static final int THROW = 294;
+	private static final int BREAK = 295;
+	private static final int CONTINUE = 296;
+	private static final int ASSERT = 297;
+	private static final int RESERVED = 298;
+
+	/** The initial number of tokens of a header. */
+	private static final int HEADER_CAPACITY = 256;
+
+	private static final Map<String, Integer> KEYWORDS = new HashMap<>();
+
+	static {
+		for (String primitive : new String[] { "boolean", "byte", "char", "short", "int", "long", "float",
+				"double" }) {
+			KEYWORDS.put(primitive, PRIMITIVE);
+		}
+		for (String modifier : new String[] { "public", "protected", "private", "native", "transient", "volatile",
+				"strictfp" }) {
+			KEYWORDS.put(modifier, MODIFIER);
+		}
+		for (String literal : new String[] { "true", "false", "null" }) {
+			KEYWORDS.put(literal, LITERAL);
+		}
+		KEYWORDS.put("goto", RESERVED);
+		KEYWORDS.put("const", RESERVED);
+		KEYWORDS.put("abstract", ABSTRACT);
+		KEYWORDS.put("final", FINAL);
+		KEYWORDS.put("static", STATIC);
+		KEYWORDS.put("synchronized", SYNCHRONIZED);
+		KEYWORDS.put("default", DEFAULT);
+		KEYWORDS.put("package", PACKAGE);
+		KEYWORDS.put("import", IMPORT);
+		KEYWORDS.put("class", CLASS);
+		KEYWORDS.put("interface", INTERFACE);
+		KEYWORDS.put("enum", ENUM);
+		KEYWORDS.put("extends", EXTENDS);
+		KEYWORDS.put("implements", IMPLEMENTS);
+		KEYWORDS.put("throws", THROWS);
+		KEYWORDS.put("void", VOID);
+		KEYWORDS.put("this", THIS);
+		KEYWORDS.put("super", SUPER);
+		KEYWORDS.put("new", NEW);
+		KEYWORDS.put("instanceof", INSTANCEOF);
+		KEYWORDS.put("if", IF);
+		KEYWORDS.put("else", ELSE);
+		KEYWORDS.put("for", FOR);
+		KEYWORDS.put("while", WHILE);
+		KEYWORDS.put("do", DO);
+		KEYWORDS.put("try", TRY);
+		KEYWORDS.put("catch", CATCH);
+		KEYWORDS.put("finally", FINALLY);
+		KEYWORDS.put("switch", SWITCH);
+		KEYWORDS.put("case", CASE);
+		KEYWORDS.put("return", RETURN);
+		KEYWORDS.put("throw", THROW);
+		KEYWORDS.put("break", BREAK);
+		KEYWORDS.put("continue", CONTINUE);
+		KEYWORDS.put("assert", ASSERT);
+	}
+
+	/** Thrown to stop reading the file. */
+	private static final class Stop extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private Stop() {
+			super(null, null, false, false);
+		}
+	}
+
+	/** The file contains a construct the lexer does not understand. */
+	private static final Stop UNSUPPORTED = new Stop();
+
+	/** The class is not validated, the rest of the file is not needed. */
+	private static final Stop OUT_OF_SCOPE = new Stop();
+
+	/** The header is read and only the header is needed. */
+	private static final Stop HEADER_READ = new Stop();
+
+	private final CharSequence text;
+
+	private final ClassInfo currentClass;
+
+	private final TraceSink traceSink;
+
+	private final BooleanSupplier inScope;
+
+	/** Is only the header up to the body of the first class read. */
+	private final boolean headerOnly;
+
+	// the tokens, the last one is EOF
+	private int[] kinds;
+	private int[] starts;
+	private int[] ends;
+	private int[] lines;
+	private int[] columns;
+	/** The index of the matching closing parenthesis of an opening one. */
+	private int[] closings;
+	private int size;
+
+	/** The index of the actual token. */
+	private int p;
+
+	/** Is the actual token inside of an inner class, which is ignored. */
+	private boolean inner;
+
+	/** The modifiers and annotations of a declaration, reported after it. */
+	private static final class Modifiers {
+
+		/** The index of the first token, -1 if there are no modifiers. */
+		private int first = -1;
+
+		/** The indices of the annotations and abstract modifiers. */
+		private int[] events = new int[4];
+
+		private int count;
+
+		private void add(int token) {
+			if (first < 0) {
+				first = token;
+			}
+			if (count == events.length) {
+				int[] grown = new int[count * 2];
+				System.arraycopy(events, 0, grown, 0, count);
+				events = grown;
+			}
+			events[count++] = token;
+		}
+	}
+
+	private HeaderLexer(CharSequence text, ClassInfo currentClass, TraceSink traceSink, BooleanSupplier inScope,
+			boolean headerOnly) {
+		this.text = text;
+		this.currentClass = currentClass;
+		this.traceSink = traceSink;
+		this.inScope = inScope;
+		this.headerOnly = headerOnly;
+	}
+
+	/**
+	 * Reads the facts of a java-file.
+	 *
+	 * @param text
+	 *            the content of the file.
+	 * @param currentClass
+	 *            receives the facts.
+	 * @param traceSink
+	 *            receives the facts in the order the check visits them.
+	 * @param inScope
+	 *            asked once the name of the class is known, false stops
+	 *            reading the file.
+	 * @param headerOnly
+	 *            stop at the body of the first class, the facts of the body
+	 *            are not read then.
+	 * @return false if the file contains a construct the lexer does not
+	 *         understand, the facts are incomplete then.
+	 */
+	static boolean lex(CharSequence text, ClassInfo currentClass, TraceSink traceSink, BooleanSupplier inScope,
+			boolean headerOnly) {
+		HeaderLexer lexer = new HeaderLexer(text, currentClass, traceSink, inScope, headerOnly);
+		try {
+			lexer.tokenize();
+			lexer.compilationUnit();
+			return true;
+		} catch (Stop stop) {
+			return stop != UNSUPPORTED;
+		}
+	}
+
+	// --- tokens
+
+	private void tokenize() {
+		int length = text.length();
+		// the header is short, the arrays grow if it is not
+		int capacity = headerOnly ? HEADER_CAPACITY : length / 4 + 16;
+		kinds = new int[capacity];
+		starts = new int[capacity];
+		ends = new int[capacity];
+		lines = new int[capacity];
+		columns = new int[capacity];
+		closings = new int[capacity];
+		int[] openings = new int[16];
+		int depth = 0;
+		int line = 1;
+		int lineStart = 0;
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			int start = i;
+			int kind;
+			if (c == '\n' || c == '\r') {
+				i++;
+				if (c == '\r' && i < length && text.charAt(i) == '\n') {
+					i++;
+				}
+				line++;
+				lineStart = i;
+				continue;
+			} else if (c == ' ' || c == '\t' || c == '\f' || c == '\uFEFF') {
+				i++;
+				continue;
+			} else if (c == '/' && i + 1 < length && text.charAt(i + 1) == '/') {
+				while (i < length && text.charAt(i) != '\n' && text.charAt(i) != '\r') {
+					i++;
+				}
+				continue;
+			} else if (c == '/' && i + 1 < length && text.charAt(i + 1) == '*') {
+				i += 2;
+				while (i < length && !(text.charAt(i) == '*' && i + 1 < length && text.charAt(i + 1) == '/')) {
+					char commented = text.charAt(i++);
+					if (commented == '\n' || commented == '\r' && (i == length || text.charAt(i) != '\n')) {
+						line++;
+						lineStart = i;
+					}
+				}
+				if (i == length) {
+					throw UNSUPPORTED;
+				}
+				i += 2;
+				continue;
+			} else if (c == '"' || c == '\'') {
+				i = skipLiteral(i, c);
+				kind = LITERAL;
+			} else if (c >= '0' && c <= '9' || c == '.' && i + 1 < length && isDigit(text.charAt(i + 1))) {
+				i = skipNumber(i);
+				kind = LITERAL;
+			} else if (Character.isJavaIdentifierStart(c)) {
+				i++;
+				while (i < length && Character.isJavaIdentifierPart(text.charAt(i))) {
+					i++;
+				}
+				kind = IDENT;
+				if (c >= 'a' && c <= 'z') {
+					Integer keyword = KEYWORDS.get(text.subSequence(start, i).toString());
+					if (keyword != null) {
+						kind = keyword;
+					}
+				}
+			} else if (c == '\\') {
+				throw UNSUPPORTED;
+			} else {
+				char next = i + 1 < length ? text.charAt(i + 1) : 0;
+				if (c == '-' && next == '>') {
+					kind = ARROW;
+				} else if (c == ':' && next == ':') {
+					kind = DOUBLE_COLON;
+				} else if ((c == '+' || c == '-') && next == c) {
+					kind = INC_DEC;
+				} else if ((c == '!' || c == '=') && next == '=' || (c == '&' || c == '|') && next == c) {
+					// not the start of an unary expression or an intersection
+					kind = OPERATOR;
+				} else if (c == '.' && next == '.' && i + 2 < length && text.charAt(i + 2) == '.') {
+					kind = ELLIPSIS;
+					i++;
+				} else {
+					kind = c;
+					i--;
+				}
+				i += 2;
+			}
+			if (kind == '(') {
+				if (depth == openings.length) {
+					int[] grown = new int[depth * 2];
+					System.arraycopy(openings, 0, grown, 0, depth);
+					openings = grown;
+				}
+				openings[depth++] = size;
+			} else if (kind == ')') {
+				if (depth == 0) {
+					throw UNSUPPORTED;
+				}
+				depth--;
+			}
+			addToken(kind, start, i, line, start - lineStart);
+			if (kind == ')') {
+				closings[openings[depth]] = size - 1;
+			} else if (kind == '{' && depth == 0 && headerOnly) {
+				// the body of the first class, the braces of annotations
+				// are inside of their parentheses
+				break;
+			}
+		}
+		if (depth != 0) {
+			throw UNSUPPORTED;
+		}
+		addToken(EOF, length, length, line, length - lineStart);
+	}
+
+	private void addToken(int kind, int start, int end, int line, int column) {
+		if (size == kinds.length) {
+			int capacity = size * 2;
+			kinds = grow(kinds, capacity);
+			starts = grow(starts, capacity);
+			ends = grow(ends, capacity);
+			lines = grow(lines, capacity);
+			columns = grow(columns, capacity);
+			closings = grow(closings, capacity);
+		}
+		kinds[size] = kind;
+		starts[size] = start;
+		ends[size] = end;
+		lines[size] = line;
+		columns[size] = column;
+		size++;
+	}
+
+	private static int[] grow(int[] array, int capacity) {
+		int[] grown = new int[capacity];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	/** Skips a string or character literal, which must end on its line. */
+	private int skipLiteral(int start, char quote) {
+		int i = start + 1;
+		while (i < text.length()) {
+			char c = text.charAt(i++);
+			if (c == quote) {
+				return i;
+			}
+			if (c == '\\') {
+				i++;
+			} else if (c == '\n' || c == '\r') {
+				break;
+			}
+		}
+		throw UNSUPPORTED;
+	}
+
+	private int skipNumber(int start) {
+		int i = start;
+		boolean hex = text.charAt(i) == '0' && i + 1 < text.length()
+				&& (text.charAt(i + 1) == 'x' || text.charAt(i + 1) == 'X');
+		while (i < text.length()) {
+			char c = text.charAt(i);
+			if (c == '+' || c == '-') {
+				char previous = text.charAt(i - 1);
+				if (!(hex ? previous == 'p' || previous == 'P' : previous == 'e' || previous == 'E')) {
+					break;
+				}
+			} else if (!(c == '.' || c == '_' || isDigit(c) || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private int kind(int index) {
+		return kinds[index < size ? index : size - 1];
+	}
+
+	private boolean at(int kind) {
+		return kinds[p] == kind;
+	}
+
+	private void expect(int kind) {
+		if (kinds[p] != kind) {
+			throw UNSUPPORTED;
+		}
+		p++;
+	}
+
+	private int expectIdent() {
+		expect(IDENT);
+		return p - 1;
+	}
+
+	private String text(int index) {
+		return text.subSequence(starts[index], ends[index]).toString();
+	}
+
+	/**
+	 * @return the dotted name starting at the token, like the text of a
+	 *         {@link com.puppycrawl.tools.checkstyle.api.FullIdent}.
+	 */
+	private String name(int index) {
+		StringBuilder name = new StringBuilder(text(index));
+		for (int part = index + 1; kind(part) == '.' && kind(part + 1) == IDENT; part += 2) {
+			name.append('.').append(text(part + 1));
+		}
+		return name.toString();
+	}
+
+	private DetailAST ast(int index) {
+		DetailAST ast = new DetailAST();
+		ast.setLineNo(lines[index]);
+		ast.setColumnNo(columns[index]);
+		return ast;
+	}
+
+	private void trace(TraceEvent event, String value, int index) {
+		traceSink.trace(event, value, lines[index]);
+	}
+
+	// --- declarations
+
+	private void compilationUnit() {
+		Modifiers modifiers = modifiers(false);
+		if (at(PACKAGE)) {
+			int packageToken = p++;
+			int nameToken = expectIdent();
+			skipName();
+			expect(';');
+			String packageName = name(nameToken);
+			currentClass.setPackageName(packageName);
+			trace(TraceEvent.packageName, packageName, packageToken);
+			report(modifiers, false);
+			modifiers = new Modifiers();
+		}
+		if (modifiers.first < 0) {
+			while (at(IMPORT) || at(';')) {
+				if (at(IMPORT)) {
+					importDeclaration();
+				} else {
+					p++;
+				}
+			}
+			modifiers = modifiers(false);
+		}
+		while (!at(EOF)) {
+			if (at(';') && modifiers.first < 0) {
+				p++;
+			} else {
+				typeDeclaration(modifiers);
+			}
+			modifiers = modifiers(false);
+		}
+	}
+
+	private void importDeclaration() {
+		int importToken = p++;
+		if (at(STATIC)) {
+			while (!at(';')) {
+				if (at(EOF)) {
+					throw UNSUPPORTED;
+				}
+				p++;
+			}
+			p++;
+			return;
+		}
+		int nameToken = expectIdent();
+		skipName();
+		String importName = name(nameToken);
+		if (at('.') && kind(p + 1) == '*') {
+			p += 2;
+			importName += ".*";
+		}
+		expect(';');
+		currentClass.addImport(importName, ast(importToken));
+		trace(TraceEvent.importName, importName, importToken);
+	}
+
+	private void skipName() {
+		while (at('.') && kind(p + 1) == IDENT) {
+			p += 2;
+		}
+	}
+
+	/**
+	 * Reads the modifiers and annotations in front of a declaration.
+	 *
+	 * @param isLocal
+	 *            is the declaration inside of a block.
+	 */
+	private Modifiers modifiers(boolean isLocal) {
+		Modifiers modifiers = new Modifiers();
+		while (true) {
+			int kind = kinds[p];
+			if (kind == '@' && kind(p + 1) != INTERFACE) {
+				annotation(modifiers);
+			} else if (kind == ABSTRACT) {
+				modifiers.add(p++);
+			} else if (kind == FINAL || kind == MODIFIER
+					|| !isLocal && (kind == STATIC || kind == SYNCHRONIZED || kind == DEFAULT)) {
+				if (modifiers.first < 0) {
+					modifiers.first = p;
+				}
+				p++;
+			} else {
+				return modifiers;
+			}
+		}
+	}
+
+	/** Reads an annotation including the annotations in its arguments. */
+	private void annotation(Modifiers modifiers) {
+		modifiers.add(p++);
+		expectIdent();
+		skipName();
+		if (!at('(')) {
+			return;
+		}
+		int closing = closings[p];
+		for (p++; p < closing; p++) {
+			if (at('@') && kind(p + 1) == IDENT) {
+				modifiers.add(p);
+			}
+		}
+		p++;
+	}
+
+	/**
+	 * Reports the annotations and the abstract modifier of a declaration,
+	 * after the declaration itself like the check visits them.
+	 *
+	 * @param isClass
+	 *            is it the declaration of a class.
+	 */
+	private void report(Modifiers modifiers, boolean isClass) {
+		if (inner) {
+			return;
+		}
+		for (int i = 0; i < modifiers.count; i++) {
+			int token = modifiers.events[i];
+			if (kinds[token] == ABSTRACT) {
+				if (isClass) {
+					currentClass.setAbstract(true);
+					trace(TraceEvent.abstractClass, null, token);
+				}
+			} else {
+				String annotation = name(token + 1);
+				currentClass.addAnnotation(annotation);
+				trace(TraceEvent.annotation, annotation, token);
+			}
+		}
+	}
+
+	private int declarationToken(Modifiers modifiers, int keyword) {
+		return modifiers.first < 0 ? keyword : modifiers.first;
+	}
+
+	private void typeDeclaration(Modifiers modifiers) {
+		switch (kinds[p]) {
+		case CLASS:
+			classDeclaration(modifiers);
+			break;
+		case INTERFACE:
+			interfaceDeclaration(modifiers);
+			break;
+		case ENUM:
+			enumDeclaration(modifiers);
+			break;
+		case '@':
+			annotationTypeDeclaration(modifiers);
+			break;
+		default:
+			throw UNSUPPORTED;
+		}
+	}
+
+	private void classDeclaration(Modifiers modifiers) {
+		int declaration = declarationToken(modifiers, p++);
+		int name = expectIdent();
+		if (!inner) {
+			if (currentClass.getClassName() != null) {
+				inner = true;
+			} else {
+				currentClass.setClassName(text(name), ast(declaration));
+				trace(TraceEvent.className, text(name), declaration);
+				checkScope();
+			}
+		}
+		report(modifiers, true);
+		typeParameters();
+		if (at(EXTENDS)) {
+			clause(TraceEvent.extendsName);
+		}
+		if (at(IMPLEMENTS)) {
+			clause(TraceEvent.implementsName);
+		}
+		classBody();
+		// the check leaves every class, also the ones inside of inner classes
+		inner = false;
+	}
+
+	private void interfaceDeclaration(Modifiers modifiers) {
+		int declaration = declarationToken(modifiers, p++);
+		int name = expectIdent();
+		if (!inner) {
+			boolean isTopLevel = currentClass.getClassName() == null;
+			currentClass.setInterfaceName(text(name), ast(declaration));
+			trace(TraceEvent.interfaceName, text(name), declaration);
+			if (isTopLevel) {
+				checkScope();
+			}
+		}
+		report(modifiers, false);
+		typeParameters();
+		if (at(EXTENDS)) {
+			clause(TraceEvent.extendsName);
+		}
+		classBody();
+	}
+
+	private void enumDeclaration(Modifiers modifiers) {
+		p++;
+		expectIdent();
+		report(modifiers, false);
+		if (at(IMPLEMENTS)) {
+			clause(TraceEvent.implementsName);
+		}
+		expect('{');
+		stopAtBody();
+		while (!at(';') && !at('}')) {
+			Modifiers constantModifiers = modifiers(false);
+			expectIdent();
+			report(constantModifiers, false);
+			if (at('(')) {
+				arguments();
+			}
+			if (at('{')) {
+				classBody();
+			}
+			if (!at(',')) {
+				break;
+			}
+			p++;
+		}
+		if (at(';')) {
+			p++;
+			members();
+		}
+		expect('}');
+	}
+
+	private void annotationTypeDeclaration(Modifiers modifiers) {
+		p += 2;
+		expectIdent();
+		report(modifiers, false);
+		classBody();
+	}
+
+	private void stopAtBody() {
+		if (headerOnly) {
+			throw HEADER_READ;
+		}
+	}
+
+	private void checkScope() {
+		if (!inScope.getAsBoolean()) {
+			throw OUT_OF_SCOPE;
+		}
+	}
+
+	/** Reads an extends or implements clause. */
+	private void clause(TraceEvent event) {
+		int keyword = p++;
+		while (true) {
+			if (!at(IDENT)) {
+				throw UNSUPPORTED;
+			}
+			String typeName = typeName(p);
+			int end = scanType(p, false);
+			if (end < 0) {
+				throw UNSUPPORTED;
+			}
+			p = end;
+			if (!inner) {
+				if (event == TraceEvent.extendsName) {
+					currentClass.addBaseClass(typeName);
+				} else {
+					currentClass.addInterface(typeName);
+				}
+				trace(event, typeName, keyword);
+			}
+			if (!at(',')) {
+				return;
+			}
+			p++;
+		}
+	}
+
+	/**
+	 * Reads the type parameters of a declaration, the type arguments of their
+	 * bounds are types of their own.
+	 */
+	private void typeParameters() {
+		if (!at('<')) {
+			return;
+		}
+		p++;
+		while (true) {
+			expectIdent();
+			if (at(EXTENDS)) {
+				do {
+					p++;
+					type(p, true, false);
+					p = requireType(p);
+				} while (at('&'));
+			}
+			if (at('>')) {
+				p++;
+				return;
+			}
+			expect(',');
+		}
+	}
+
+	private void classBody() {
+		expect('{');
+		stopAtBody();
+		members();
+		expect('}');
+	}
+
+	private void members() {
+		while (!at('}')) {
+			member();
+		}
+	}
+
+	private void member() {
+		if (at(';')) {
+			p++;
+			return;
+		}
+		if (at('{') || at(STATIC) && kind(p + 1) == '{') {
+			if (at(STATIC)) {
+				p++;
+			}
+			block();
+			return;
+		}
+		Modifiers modifiers = modifiers(false);
+		switch (kinds[p]) {
+		case CLASS:
+		case INTERFACE:
+		case ENUM:
+		case '@':
+			typeDeclaration(modifiers);
+			return;
+		case EOF:
+			throw UNSUPPORTED;
+		default:
+			break;
+		}
+		typeParameters();
+		if (at(IDENT) && kind(p + 1) == '(') {
+			// constructor
+			p++;
+			report(modifiers, false);
+			methodRest();
+			return;
+		}
+		int typeStart = p;
+		if (at(VOID)) {
+			p++;
+		} else {
+			p = requireType(p);
+		}
+		int name = expectIdent();
+		if (at('(')) {
+			report(modifiers, false);
+			if (kinds[typeStart] != VOID) {
+				type(typeStart, false, true);
+			}
+			methodRest();
+		} else {
+			variableDeclarators(modifiers, typeStart, name);
+			expect(';');
+		}
+	}
+
+	private void methodRest() {
+		parameters();
+		if (at(THROWS)) {
+			do {
+				p++;
+				p = requireType(p);
+			} while (at(','));
+		}
+		if (at('{')) {
+			block();
+		} else if (at(DEFAULT)) {
+			p++;
+			Modifiers annotations = new Modifiers();
+			while (!at(';')) {
+				if (at('@') && kind(p + 1) == IDENT) {
+					annotations.add(p);
+				} else if (at(EOF)) {
+					throw UNSUPPORTED;
+				}
+				p++;
+			}
+			report(annotations, false);
+			p++;
+		} else {
+			expect(';');
+		}
+	}
+
+	private void parameters() {
+		int closing = closings[p];
+		p++;
+		while (p < closing) {
+			parameter();
+			if (at(',')) {
+				p++;
+			}
+		}
+		expect(')');
+	}
+
+	private void parameter() {
+		Modifiers modifiers = modifiers(true);
+		int typeStart = p;
+		p = requireType(p);
+		if (at(ELLIPSIS)) {
+			p++;
+		}
+		expectIdent();
+		boolean isArray = skipDimensions();
+		report(modifiers, false);
+		if (!isArray) {
+			type(typeStart, false, true);
+		}
+	}
+
+	/**
+	 * Reads the declarators of variables, the check gets the modifiers and
+	 * the type once for every variable.
+	 */
+	private void variableDeclarators(Modifiers modifiers, int typeStart, int name) {
+		while (true) {
+			boolean isArray = skipDimensions();
+			report(modifiers, false);
+			if (!isArray) {
+				type(typeStart, false, true);
+			}
+			if (at('=')) {
+				p++;
+				variableInitializer();
+			}
+			if (!at(',')) {
+				return;
+			}
+			p++;
+			expectIdent();
+		}
+	}
+
+	private boolean skipDimensions() {
+		boolean isArray = false;
+		while (at('[') && kind(p + 1) == ']') {
+			p += 2;
+			isArray = true;
+		}
+		return isArray;
+	}
+
+	private void variableInitializer() {
+		if (at('{')) {
+			arrayInitializer();
+		} else {
+			expression();
+		}
+	}
+
+	private void arrayInitializer() {
+		expect('{');
+		while (!at('}')) {
+			variableInitializer();
+			if (!at(',')) {
+				break;
+			}
+			p++;
+		}
+		expect('}');
+	}
+
+	// --- types
+
+	/**
+	 * Skips a type.
+	 *
+	 * @param start
+	 *            the index of the first token of the type.
+	 * @param withDimensions
+	 *            are the brackets of an array part of the type.
+	 * @return the index of the token after the type, -1 if there is no type.
+	 */
+	private int scanType(int start, boolean withDimensions) {
+		int index = start;
+		if (kind(index) == PRIMITIVE) {
+			index++;
+		} else if (kind(index) == IDENT) {
+			index++;
+			while (true) {
+				if (kind(index) == '<') {
+					index = scanTypeArguments(index);
+					if (index < 0) {
+						return -1;
+					}
+				}
+				if (kind(index) != '.' || kind(index + 1) != IDENT) {
+					break;
+				}
+				index += 2;
+			}
+		} else {
+			return -1;
+		}
+		while (withDimensions && kind(index) == '[' && kind(index + 1) == ']') {
+			index += 2;
+		}
+		return index;
+	}
+
+	/**
+	 * @return the index of the token after the closing bracket, -1 if there
+	 *         are no type arguments.
+	 */
+	private int scanTypeArguments(int start) {
+		int index = start + 1;
+		if (kind(index) == '>') {
+			// diamond
+			return index + 1;
+		}
+		while (true) {
+			if (kind(index) == '@') {
+				throw UNSUPPORTED;
+			}
+			if (kind(index) == '?') {
+				index++;
+				if (kind(index) == EXTENDS || kind(index) == SUPER) {
+					index = scanType(index + 1, true);
+				}
+			} else {
+				index = scanType(index, true);
+			}
+			if (index < 0) {
+				return -1;
+			}
+			if (kind(index) == '>') {
+				return index + 1;
+			}
+			if (kind(index) != ',') {
+				return -1;
+			}
+			index++;
+		}
+	}
+
+	private int requireType(int start) {
+		int end = scanType(start, true);
+		if (end < 0) {
+			throw UNSUPPORTED;
+		}
+		return end;
+	}
+
+	/** @return the name of the type, without the type arguments. */
+	private String typeName(int start) {
+		StringBuilder typeName = new StringBuilder(text(start));
+		int index = start + 1;
+		while (true) {
+			if (kind(index) == '<') {
+				index = scanTypeArguments(index);
+			}
+			if (index < 0 || kind(index) != '.' || kind(index + 1) != IDENT) {
+				return typeName.toString();
+			}
+			typeName.append('.').append(text(index + 1));
+			index += 2;
+		}
+	}
+
+	/**
+	 * Reports a type like the check visits it. A class type is a dependency,
+	 * an array or a primitive type is not.
+	 *
+	 * @param start
+	 *            the index of the first token of the type.
+	 * @param withArguments
+	 *            are the type arguments types of their own, like in a cast.
+	 * @param isType
+	 *            is the type itself reported, false for the bound of a
+	 *            wildcard.
+	 */
+	private void type(int start, boolean withArguments, boolean isType) {
+		if (inner) {
+			return;
+		}
+		if (isType && kind(start) == IDENT) {
+			// the check sees a qualified type at its last dot
+			int position = start;
+			int index = start + 1;
+			while (true) {
+				if (kind(index) == '<') {
+					index = scanTypeArguments(index);
+				}
+				if (kind(index) != '.' || kind(index + 1) != IDENT) {
+					break;
+				}
+				position = index;
+				index += 2;
+			}
+			if (!isArray(index)) {
+				addType(typeName(start), position);
+			}
+		}
+		if (withArguments) {
+			typeArguments(start);
+		}
+	}
+
+	/**
+	 * Is the type an array. Like in the tree of Checkstyle, the brackets after
+	 * a type closed by <code>&gt;&gt;</code> belong to the innermost type
+	 * closed.
+	 * 
+	 * @param end
+	 *            the index of the token after the name and the type arguments
+	 *            of the type.
+	 */
+	private boolean isArray(int end) {
+		if (kind(end) == '[' && kind(end + 1) == ']') {
+			return !isJoined(end - 2, end - 1);
+		}
+		int closing = end - 1;
+		if (!isJoined(closing, end) || isJoined(closing - 1, closing)) {
+			return false;
+		}
+		while (isJoined(closing, closing + 1)) {
+			closing++;
+		}
+		return kind(closing + 1) == '[' && kind(closing + 2) == ']';
+	}
+
+	/** Are both tokens a single operator of two closing brackets. */
+	private boolean isJoined(int first, int second) {
+		return first >= 0 && kind(first) == '>' && kind(second) == '>' && ends[first] == starts[second];
+	}
+
+	/** Reports the type arguments of a type as types of their own. */
+	private void typeArguments(int start) {
+		int end = scanType(start, true);
+		for (int index = start; index < end; index++) {
+			if (kind(index) != '<' || kind(index + 1) == '>') {
+				continue;
+			}
+			index++;
+			while (true) {
+				int argumentEnd;
+				if (kind(index) == '?') {
+					index++;
+					if (kind(index) != EXTENDS && kind(index) != SUPER) {
+						argumentEnd = index;
+					} else {
+						index++;
+						type(index, true, false);
+						argumentEnd = scanType(index, true);
+					}
+				} else {
+					type(index, true, true);
+					argumentEnd = scanType(index, true);
+				}
+				index = argumentEnd;
+				if (kind(index) != ',') {
+					break;
+				}
+				index++;
+			}
+		}
+	}
+
+	/** Adds a dependency like the check. */
+	private void addType(String typeName, int position) {
+		String dependency = typeName;
+		if (typeName.indexOf('.') == -1) {
+			if (currentClass.hasImport(typeName) || currentClass.isJavaLangType(typeName)) {
+				return;
+			}
+			dependency = currentClass.getPackageName() + "." + typeName;
+		}
+		currentClass.addImport(dependency, ast(position));
+		trace(TraceEvent.importName, dependency, position);
+	}
+
+	// --- statements
+
+	private void block() {
+		expect('{');
+		while (!at('}')) {
+			blockStatement();
+		}
+		p++;
+	}
+
+	private void blockStatement() {
+		int kind = kinds[p];
+		if (kind == '@' || kind == FINAL || kind == ABSTRACT || kind == MODIFIER) {
+			Modifiers modifiers = modifiers(true);
+			if (at(CLASS)) {
+				classDeclaration(modifiers);
+			} else {
+				localVariable(modifiers);
+				expect(';');
+			}
+		} else if (kind == CLASS) {
+			classDeclaration(new Modifiers());
+		} else if (kind == INTERFACE || kind == ENUM || kind == EOF) {
+			throw UNSUPPORTED;
+		} else if (isLocalVariable()) {
+			localVariable(new Modifiers());
+			expect(';');
+		} else {
+			statement();
+		}
+	}
+
+	private boolean isLocalVariable() {
+		int end = scanType(p, true);
+		return end >= 0 && kind(end) == IDENT;
+	}
+
+	private void localVariable(Modifiers modifiers) {
+		int typeStart = p;
+		p = requireType(p);
+		int name = expectIdent();
+		variableDeclarators(modifiers, typeStart, name);
+	}
+
+	private void statement() {
+		switch (kinds[p]) {
+		case '{':
+			block();
+			break;
+		case ';':
+			p++;
+			break;
+		case IF:
+			p++;
+			parenthesizedExpression();
+			statement();
+			if (at(ELSE)) {
+				p++;
+				statement();
+			}
+			break;
+		case WHILE:
+			p++;
+			parenthesizedExpression();
+			statement();
+			break;
+		case DO:
+			p++;
+			statement();
+			expect(WHILE);
+			parenthesizedExpression();
+			expect(';');
+			break;
+		case FOR:
+			forStatement();
+			break;
+		case TRY:
+			tryStatement();
+			break;
+		case SWITCH:
+			p++;
+			parenthesizedExpression();
+			switchBlock();
+			break;
+		case SYNCHRONIZED:
+			p++;
+			parenthesizedExpression();
+			block();
+			break;
+		case RETURN:
+		case THROW:
+			p++;
+			if (!at(';')) {
+				expression();
+			}
+			expect(';');
+			break;
+		case BREAK:
+		case CONTINUE:
+			p++;
+			if (at(IDENT)) {
+				p++;
+			}
+			expect(';');
+			break;
+		case ASSERT:
+			p++;
+			expression();
+			if (at(':')) {
+				p++;
+				expression();
+			}
+			expect(';');
+			break;
+		case IDENT:
+			if (kind(p + 1) == ':') {
+				// label
+				p += 2;
+				statement();
+				break;
+			}
+			expression();
+			expect(';');
+			break;
+		default:
+			expression();
+			expect(';');
+			break;
+		}
+	}
+
+	private void parenthesizedExpression() {
+		expect('(');
+		expression();
+		expect(')');
+	}
+
+	private void switchBlock() {
+		expect('{');
+		while (!at('}')) {
+			if (at(CASE)) {
+				p++;
+				expression();
+				expect(':');
+			} else if (at(DEFAULT)) {
+				p++;
+				expect(':');
+			} else {
+				blockStatement();
+			}
+		}
+		p++;
+	}
+
+	private void forStatement() {
+		p++;
+		expect('(');
+		if (!at(';')) {
+			int kind = kinds[p];
+			if (kind == '@' || kind == FINAL || isLocalVariable()) {
+				Modifiers modifiers = modifiers(true);
+				int typeStart = p;
+				p = requireType(p);
+				int name = expectIdent();
+				if (at(':')) {
+					report(modifiers, false);
+					type(typeStart, false, true);
+					p++;
+					expression();
+					expect(')');
+					statement();
+					return;
+				}
+				variableDeclarators(modifiers, typeStart, name);
+			} else {
+				expressionList();
+			}
+		}
+		expect(';');
+		if (!at(';')) {
+			expression();
+		}
+		expect(';');
+		if (!at(')')) {
+			expressionList();
+		}
+		expect(')');
+		statement();
+	}
+
+	private void tryStatement() {
+		p++;
+		if (at('(')) {
+			p++;
+			while (!at(')')) {
+				Modifiers modifiers = modifiers(true);
+				int typeStart = p;
+				p = requireType(p);
+				expectIdent();
+				expect('=');
+				report(modifiers, false);
+				type(typeStart, true, true);
+				expression();
+				if (!at(';')) {
+					break;
+				}
+				p++;
+			}
+			expect(')');
+		}
+		block();
+		while (at(CATCH)) {
+			p++;
+			expect('(');
+			Modifiers modifiers = modifiers(true);
+			int typeStart = p;
+			p = requireType(p);
+			boolean isMultiCatch = false;
+			while (at('|')) {
+				p = requireType(p + 1);
+				isMultiCatch = true;
+			}
+			expectIdent();
+			expect(')');
+			report(modifiers, false);
+			if (!isMultiCatch) {
+				type(typeStart, false, true);
+			}
+			block();
+		}
+		if (at(FINALLY)) {
+			p++;
+			block();
+		}
+	}
+
+	// --- expressions
+
+	private void expressionList() {
+		expression();
+		while (at(',')) {
+			p++;
+			expression();
+		}
+	}
+
+	/**
+	 * Skims an expression up to the token ending it, which is not consumed.
+	 */
+	private void expression() {
+		while (true) {
+			switch (kinds[p]) {
+			case ';':
+			case ',':
+			case ')':
+			case ']':
+			case '}':
+			case ':':
+			case EOF:
+				return;
+			case '(':
+				parenthesis();
+				break;
+			case '[':
+				p++;
+				if (!at(']')) {
+					expression();
+				}
+				expect(']');
+				break;
+			case '?':
+				p++;
+				expression();
+				expect(':');
+				break;
+			case NEW:
+				if (kinds[p - 1] == DOUBLE_COLON) {
+					// constructor reference
+					p++;
+				} else {
+					creator();
+				}
+				break;
+			case INSTANCEOF:
+				p++;
+				type(p, true, true);
+				p = requireType(p);
+				break;
+			case ARROW:
+				p++;
+				if (at('{')) {
+					block();
+				}
+				break;
+			case '.':
+				p++;
+				if (at('<')) {
+					p = scanTypeArguments(p);
+					if (p < 0) {
+						throw UNSUPPORTED;
+					}
+				}
+				break;
+			case '{':
+			case '@':
+				throw UNSUPPORTED;
+			default:
+				p++;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reads the arguments of a call, the parameters of a lambda, a cast or a
+	 * parenthesized expression.
+	 */
+	private void parenthesis() {
+		int opening = p;
+		int previous = opening > 0 ? kinds[opening - 1] : EOF;
+		if (previous == IDENT || previous == THIS || previous == SUPER) {
+			arguments();
+			return;
+		}
+		int closing = closings[opening];
+		if (kind(closing + 1) == ARROW) {
+			lambdaParameters(opening, closing);
+			return;
+		}
+		if (isCast(opening, closing)) {
+			// every type of an intersection is a type of its own
+			int typeStart = opening + 1;
+			while (typeStart < closing) {
+				type(typeStart, true, true);
+				typeStart = scanType(typeStart, true) + 1;
+			}
+			p = closing + 1;
+			return;
+		}
+		p++;
+		expression();
+		expect(')');
+	}
+
+	private boolean isCast(int opening, int closing) {
+		int end = scanType(opening + 1, true);
+		if (end < 0) {
+			return false;
+		}
+		if (kind(opening + 1) == PRIMITIVE) {
+			return end == closing;
+		}
+		while (kind(end) == '&') {
+			end = scanType(end + 1, true);
+			if (end < 0) {
+				return false;
+			}
+		}
+		if (end != closing) {
+			return false;
+		}
+		// a cast to a class type is followed by an unary expression, which
+		// does not start with plus or minus
+		switch (kind(closing + 1)) {
+		case '~':
+		case '!':
+		case '(':
+		case IDENT:
+		case LITERAL:
+		case THIS:
+		case SUPER:
+		case NEW:
+		case PRIMITIVE:
+		case VOID:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private void lambdaParameters(int opening, int closing) {
+		boolean isInferred = true;
+		for (int index = opening + 1; index < closing; index += 2) {
+			if (kind(index) != IDENT || kind(index + 1) != ',' && index + 1 != closing) {
+				isInferred = false;
+			}
+		}
+		if (isInferred) {
+			p = closing + 1;
+		} else {
+			parameters();
+		}
+	}
+
+	private void arguments() {
+		expect('(');
+		if (!at(')')) {
+			expressionList();
+		}
+		expect(')');
+	}
+
+	private void creator() {
+		p++;
+		if (at('<')) {
+			p = scanTypeArguments(p);
+			if (p < 0) {
+				throw UNSUPPORTED;
+			}
+		}
+		int end = scanType(p, false);
+		if (end < 0) {
+			throw UNSUPPORTED;
+		}
+		p = end;
+		if (at('(')) {
+			arguments();
+			if (at('{')) {
+				// the members of an anonymous class are members of the class
+				classBody();
+			}
+			return;
+		}
+		if (!at('[')) {
+			throw UNSUPPORTED;
+		}
+		while (at('[')) {
+			p++;
+			if (!at(']')) {
+				expression();
+			}
+			expect(']');
+		}
+		if (at('{')) {
+			arrayInitializer();
+		}
+	}
+}
@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import info.novatec.ita.check.config.StronglyConnectedComponents;
+
+/**
+ * The imports between the classes of a project, to find the cycles between
+ * classes and between stereotypes. The checks of the configuration only
+ * forbid the cycles between the allowed dependencies of the stereotypes.
+ * <p>
+ * The classes are the nodes of the graph, numbered by their sorted names. The
+ * imports are stored as compact adjacency arrays: the imports of class n are
+ * <code>targets[offsets[n]]</code> to <code>targets[offsets[n + 1] - 1]</code>,
+ * so an import takes four bytes. Only the imports between classes of the
+ * project are stored, an import of a nested class is an import of its top
+ * level class. The stereotypes of a class are a row of {@link #wordsPerRow}
+ * bit words, like in the {@link TypeIndex}.
+ * <p>
+ * A graph can not be changed once it is built and can be shared between
+ * threads.
+ */
+public final class ImportGraph {
+
+	private static final int BITS_PER_WORD = Long.SIZE;
+
+	/** The names of the classes, sorted. The index is the node. */
+	private final String[] names;
+
+	/** The start of the imports of every node in {@link #targets}. */
+	private final int[] offsets;
+
+	/** The imported nodes of all nodes. */
+	private final int[] targets;
+
+	/**
+	 * The stereotypes of the classes. The bit of the stereotype s of node c is
+	 * bit s of the row c.
+	 */
+	private final long[] stereotypes;
+
+	private final int wordsPerRow;
+
+	/** The ids of the stereotypes, the index is the ordinal. */
+	private final String[] stereotypeIds;
+
+	/**
+	 * Collects the imports and stereotypes of the classes. The files can be
+	 * read on many threads.
+	 * <p>
+	 * Every name is stored once and numbered when it is seen first. An import
+	 * is stored as one long of the numbers of both classes, so the builder
+	 * takes eight bytes per import and the names.
+	 */
+	public static final class Builder {
+
+		private final ConcurrentMap<String, Node> nodes = new ConcurrentHashMap<>();
+
+		private final AtomicInteger nodeCount = new AtomicInteger();
+
+		/** The imports, the number of the importing class in the high bits. */
+		private long[] edges = new long[1024];
+
+		private int edgeCount = 0;
+
+		private volatile String[] stereotypeIds = new String[0];
+
+		/**
+		 * Adds a class.
+		 * 
+		 * @param className
+		 *            the full qualified name of the class.
+		 * @param imports
+		 *            the full qualified names of the imported classes.
+		 * @param stereotypes
+		 *            the ordinals of the stereotypes of the class.
+		 * @param stereotypeIds
+		 *            the ids of all stereotypes, the index is the ordinal.
+		 */
+		void add(String className, Collection<String> imports, BitSet stereotypes, String[] stereotypeIds) {
+			Node node = node(className);
+			node.stereotypes = (BitSet) stereotypes.clone();
+			long[] classEdges = new long[imports.size()];
+			int classEdgeCount = 0;
+			for (String imported : imports) {
+				if (!imported.equals(className)) {
+					classEdges[classEdgeCount++] = (long) node.number << Integer.SIZE | node(imported).number;
+				}
+			}
+			synchronized (this) {
+				if (edgeCount + classEdgeCount > edges.length) {
+					edges = Arrays.copyOf(edges, Math.max(edges.length * 2, edgeCount + classEdgeCount));
+				}
+				System.arraycopy(classEdges, 0, edges, edgeCount, classEdgeCount);
+				edgeCount += classEdgeCount;
+			}
+			this.stereotypeIds = stereotypeIds;
+		}
+
+		private Node node(String name) {
+			return nodes.computeIfAbsent(name, key -> new Node(nodeCount.getAndIncrement()));
+		}
+
+		/**
+		 * @return the graph of all classes added.
+		 */
+		public synchronized ImportGraph build() {
+			return new ImportGraph(nodes, nodeCount.get(), edges, edgeCount, stereotypeIds);
+		}
+	}
+
+	/** A name seen by the {@link Builder}. */
+	private static final class Node {
+
+		private final int number;
+
+		/** The stereotypes, null if the class itself was not added. */
+		private volatile BitSet stereotypes;
+
+		private Node(int number) {
+			this.number = number;
+		}
+	}
+
+	/**
+	 * A cycle of imports.
+	 */
+	public static final class Cycle {
+
+		private final List<String> members;
+
+		private final List<String> path;
+
+		private Cycle(List<String> members, List<String> path) {
+			this.members = Collections.unmodifiableList(members);
+			this.path = Collections.unmodifiableList(path);
+		}
+
+		/**
+		 * @return all classes or stereotypes of the strongly connected
+		 *         component, sorted. Each of them is part of a cycle.
+		 */
+		public List<String> getMembers() {
+			return members;
+		}
+
+		/**
+		 * @return a shortest cycle through the first member. The first member
+		 *         is not repeated at the end.
+		 */
+		public List<String> getPath() {
+			return path;
+		}
+
+		@Override
+		public String toString() {
+			return String.join(" -> ", path) + " -> " + path.get(0);
+		}
+	}
+
+	private ImportGraph(Map<String, Node> nodes, int nodeCount, long[] edges, int edgeCount,
+			String[] stereotypeIds) {
+		this.stereotypeIds = stereotypeIds;
+		List<String> added = new ArrayList<>();
+		int maxOrdinal = -1;
+		for (Map.Entry<String, Node> entry : nodes.entrySet()) {
+			BitSet ordinals = entry.getValue().stereotypes;
+			if (ordinals != null) {
+				added.add(entry.getKey());
+				maxOrdinal = Math.max(maxOrdinal, ordinals.length() - 1);
+			}
+		}
+		Collections.sort(added);
+		this.names = added.toArray(new String[added.size()]);
+		this.wordsPerRow = maxOrdinal / BITS_PER_WORD + 1;
+		this.stereotypes = new long[names.length * wordsPerRow];
+
+		// the numbers of the builder to the nodes, -1 for a name not added
+		int[] nodeOf = new int[nodeCount];
+		Arrays.fill(nodeOf, -1);
+		for (int node = 0; node < names.length; node++) {
+			Node seen = nodes.get(names[node]);
+			nodeOf[seen.number] = node;
+			BitSet ordinals = seen.stereotypes;
+			for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+				stereotypes[node * wordsPerRow + ordinal / BITS_PER_WORD] |= 1L << ordinal;
+			}
+		}
+		for (Map.Entry<String, Node> entry : nodes.entrySet()) {
+			if (nodeOf[entry.getValue().number] == -1) {
+				nodeOf[entry.getValue().number] = topLevelClass(nodes, entry.getKey());
+			}
+		}
+
+		// the imports are renumbered in place and sorted by the importing
+		// class, an import of a class outside the project is dropped
+		long[] sorted = Arrays.copyOf(edges, edgeCount);
+		int count = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			int from = nodeOf[(int) (sorted[i] >>> Integer.SIZE)];
+			int to = nodeOf[(int) sorted[i]];
+			if (to >= 0 && to != from) {
+				sorted[count++] = (long) from << Integer.SIZE | to;
+			}
+		}
+		Arrays.sort(sorted, 0, count);
+		this.offsets = new int[names.length + 1];
+		int[] compact = new int[count];
+		int targetCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (i > 0 && sorted[i] == sorted[i - 1]) {
+				continue;
+			}
+			offsets[(int) (sorted[i] >>> Integer.SIZE) + 1]++;
+			compact[targetCount++] = (int) sorted[i];
+		}
+		for (int node = 0; node < names.length; node++) {
+			offsets[node + 1] += offsets[node];
+		}
+		this.targets = Arrays.copyOf(compact, targetCount);
+	}
+
+	/**
+	 * @return the node of the class containing the nested class, -1 if the
+	 *         name is no class of the project.
+	 */
+	private int topLevelClass(Map<String, Node> nodes, String name) {
+		for (int dot = name.lastIndexOf('.'); dot > 0; dot = name.lastIndexOf('.', dot - 1)) {
+			Node outer = nodes.get(name.substring(0, dot));
+			if (outer != null && outer.stereotypes != null) {
+				return Arrays.binarySearch(names, name.substring(0, dot));
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the cycles between all classes.
+	 * 
+	 * @return one cycle of every strongly connected component, sorted.
+	 */
+	public List<Cycle> findClassCycles() {
+		return cycles(offsets, targets, names);
+	}
+
+	/**
+	 * Finds the cycles between the classes of one stereotype.
+	 * 
+	 * @param stereotypeId
+	 *            the id of the stereotype.
+	 * @return one cycle of every strongly connected component of the classes
+	 *         of the stereotype, sorted.
+	 * @throws IllegalArgumentException
+	 *             if there is no stereotype with the id.
+	 */
+	public List<Cycle> findClassCycles(String stereotypeId) {
+		int ordinal = Arrays.asList(stereotypeIds).indexOf(stereotypeId);
+		if (ordinal < 0) {
+			throw new IllegalArgumentException("There is no stereotype " + stereotypeId);
+		}
+		if (ordinal >= wordsPerRow * BITS_PER_WORD) {
+			return Collections.emptyList();
+		}
+		// the classes of the stereotype are renumbered, the imports of other
+		// classes are dropped
+		int[] local = new int[names.length];
+		List<String> members = new ArrayList<>();
+		for (int node = 0; node < names.length; node++) {
+			local[node] = isPartOfStereotype(node, ordinal) ? members.size() : -1;
+			if (local[node] >= 0) {
+				members.add(names[node]);
+			}
+		}
+		int[] subOffsets = new int[members.size() + 1];
+		int[] subTargets = new int[targets.length];
+		int count = 0;
+		for (int node = 0; node < names.length; node++) {
+			if (local[node] < 0) {
+				continue;
+			}
+			for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+				if (local[targets[edge]] >= 0) {
+					subTargets[count++] = local[targets[edge]];
+				}
+			}
+			subOffsets[local[node] + 1] = count;
+		}
+		return cycles(subOffsets, Arrays.copyOf(subTargets, count), members.toArray(new String[members.size()]));
+	}
+
+	/**
+	 * Finds the cycles between the stereotypes. A stereotype depends on
+	 * another one, if one of its classes imports a class of the other
+	 * stereotype.
+	 * 
+	 * @return one cycle of every strongly connected component of the
+	 *         stereotypes, sorted.
+	 */
+	public List<Cycle> findStereotypeCycles() {
+		int stereotypeCount = stereotypeIds.length;
+		// the stereotypes are numbered by their sorted ids, so a cycle
+		// starts with the first member of its component
+		String[] sortedIds = stereotypeIds.clone();
+		Arrays.sort(sortedIds);
+		int[] rank = new int[stereotypeCount];
+		for (int ordinal = 0; ordinal < stereotypeCount; ordinal++) {
+			rank[ordinal] = Arrays.binarySearch(sortedIds, stereotypeIds[ordinal]);
+		}
+		BitSet dependencies = new BitSet(stereotypeCount * stereotypeCount);
+		for (int node = 0; node < names.length; node++) {
+			for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+				for (int from = nextStereotype(node, 0); from >= 0; from = nextStereotype(node, from + 1)) {
+					for (int to = nextStereotype(targets[edge], 0); to >= 0; to = nextStereotype(targets[edge],
+							to + 1)) {
+						if (from != to) {
+							dependencies.set(rank[from] * stereotypeCount + rank[to]);
+						}
+					}
+				}
+			}
+		}
+		int[] stereotypeOffsets = new int[stereotypeCount + 1];
+		int[] stereotypeTargets = new int[dependencies.cardinality()];
+		int count = 0;
+		for (int dependency = dependencies.nextSetBit(0); dependency >= 0; dependency = dependencies
+				.nextSetBit(dependency + 1)) {
+			stereotypeTargets[count++] = dependency % stereotypeCount;
+			stereotypeOffsets[dependency / stereotypeCount + 1] = count;
+		}
+		for (int ordinal = 0; ordinal < stereotypeCount; ordinal++) {
+			stereotypeOffsets[ordinal + 1] = Math.max(stereotypeOffsets[ordinal + 1], stereotypeOffsets[ordinal]);
+		}
+		return cycles(stereotypeOffsets, stereotypeTargets, sortedIds);
+	}
+
+	/**
+	 * @param labels
+	 *            the names of the nodes, sorted. The shortest cycle through
+	 *            the smallest node starts with the first member then.
+	 */
+	private static List<Cycle> cycles(int[] offsets, int[] targets, String[] labels) {
+		List<Cycle> cycles = new ArrayList<>();
+		for (int[] component : StronglyConnectedComponents.of(offsets, targets)) {
+			int[] nodes = StronglyConnectedComponents.cycle(offsets, targets, component);
+			Arrays.sort(component);
+			List<String> members = new ArrayList<>(component.length);
+			for (int node : component) {
+				members.add(labels[node]);
+			}
+			List<String> path = new ArrayList<>(nodes.length);
+			for (int node : nodes) {
+				path.add(labels[node]);
+			}
+			cycles.add(new Cycle(members, path));
+		}
+		cycles.sort((cycle1, cycle2) -> cycle1.getMembers().get(0).compareTo(cycle2.getMembers().get(0)));
+		return cycles;
+	}
+
+	private boolean isPartOfStereotype(int node, int ordinal) {
+		return (stereotypes[node * wordsPerRow + ordinal / BITS_PER_WORD] & 1L << ordinal) != 0;
+	}
+
+	/**
+	 * @return the next ordinal of a stereotype of the node, starting at the
+	 *         given ordinal, -1 if there is none.
+	 */
+	private int nextStereotype(int node, int ordinal) {
+		int word = ordinal / BITS_PER_WORD;
+		if (word >= wordsPerRow) {
+			return -1;
+		}
+		long bits = stereotypes[node * wordsPerRow + word] & -1L << ordinal;
+		while (bits == 0) {
+			if (++word == wordsPerRow) {
+				return -1;
+			}
+			bits = stereotypes[node * wordsPerRow + word];
+		}
+		return word * BITS_PER_WORD + Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * @return the number of classes.
+	 */
+	public int size() {
+		return names.length;
+	}
+
+	/**
+	 * @return the number of imports between the classes.
+	 */
+	public int getImportCount() {
+		return targets.length;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportGraph [size=" + names.length + ", imports=" + targets.length + ", wordsPerRow=" + wordsPerRow
+				+ "]";
+	}
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the package declaration at the beginning of a java-file without
+ * parsing the file. Only the bytes up to the end of the package declaration
+ * are read. Whitespace and comments before and inside the declaration are
+ * skipped. The file is expected to be encoded in UTF-8 or a compatible
+ * encoding.
+ */
+final class PackageDeclarationScanner {
+
+	private static final int NONE = -2;
+
+	private static final String PACKAGE = "package";
+
+	private final InputStream in;
+
+	/** The byte read ahead, {@link #NONE} if there is none. */
+	private int pushedBack = NONE;
+
+	private PackageDeclarationScanner(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Reads the package declaration.
+	 * 
+	 * @param in
+	 *            the content of the java-file, should be buffered.
+	 * @return the package name, the empty string for the default package or
+	 *         null if the beginning of the file is not understood, e.g. an
+	 *         annotated package in a package-info.java or a file which does
+	 *         not start with an ASCII character in another encoding.
+	 * @throws IOException
+	 *             if the file can not be read.
+	 */
+	static String scan(InputStream in) throws IOException {
+		return new PackageDeclarationScanner(in).scan();
+	}
+
+	private String scan() throws IOException {
+		skipByteOrderMark();
+		int c = nextSignificant();
+		if (c >= 0x80) {
+			// a keyword starts with ASCII, the file is in another encoding
+			return null;
+		}
+		if (!isIdentifierStart(c)) {
+			return c == '@' ? null : "";
+		}
+		if (!PACKAGE.equals(readIdentifier(c))) {
+			return "";
+		}
+		ByteArrayOutputStream packageName = new ByteArrayOutputStream();
+		while (true) {
+			c = nextSignificant();
+			if (!isIdentifierStart(c)) {
+				return null;
+			}
+			byte[] identifier = readIdentifierBytes(c);
+			packageName.write(identifier, 0, identifier.length);
+			c = nextSignificant();
+			if (c == ';') {
+				return new String(packageName.toByteArray(), StandardCharsets.UTF_8);
+			}
+			if (c != '.') {
+				return null;
+			}
+			packageName.write('.');
+		}
+	}
+
+	private void skipByteOrderMark() throws IOException {
+		int c = next();
+		if (c == 0xEF) {
+			next();
+			next();
+		} else {
+			pushedBack = c;
+		}
+	}
+
+	/**
+	 * @return the next byte, which is no whitespace and not part of a
+	 *         comment, -1 at the end of the file.
+	 */
+	private int nextSignificant() throws IOException {
+		while (true) {
+			int c = next();
+			if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+				continue;
+			}
+			if (c != '/') {
+				return c;
+			}
+			int following = next();
+			if (following == '/') {
+				skipLineComment();
+			} else if (following == '*') {
+				skipBlockComment();
+			} else {
+				pushedBack = following;
+				return c;
+			}
+		}
+	}
+
+	private void skipLineComment() throws IOException {
+		int c;
+		do {
+			c = next();
+		} while (c != '\n' && c != '\r' && c != -1);
+	}
+
+	private void skipBlockComment() throws IOException {
+		int previous = 0;
+		int c = next();
+		while (c != -1 && !(previous == '*' && c == '/')) {
+			previous = c;
+			c = next();
+		}
+	}
+
+	private String readIdentifier(int first) throws IOException {
+		return new String(readIdentifierBytes(first), StandardCharsets.UTF_8);
+	}
+
+	private byte[] readIdentifierBytes(int first) throws IOException {
+		ByteArrayOutputStream identifier = new ByteArrayOutputStream();
+		int c = first;
+		while (isIdentifierStart(c) || c >= '0' && c <= '9') {
+			identifier.write(c);
+			c = next();
+		}
+		pushedBack = c;
+		return identifier.toByteArray();
+	}
+
+	/**
+	 * Bytes of multi-byte characters are treated as part of an identifier.
+	 */
+	private static boolean isIdentifierStart(int c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == '$' || c >= 0x80;
+	}
+
+	private int next() throws IOException {
+		if (pushedBack != NONE) {
+			int c = pushedBack;
+			pushedBack = NONE;
+			return c;
+		}
+		return in.read();
+	}
+}
@@ -0,0 +1,497 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.Manifest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.puppycrawl.tools.checkstyle.api.FileText;
+
+import info.novatec.ita.check.config.StereotypeCheckSnapshot;
+
+/**
+ * A persistent cache of the results of the {@link StereotypeCheck}. The result
+ * of a file only depends on its content and the configuration, so a file with
+ * the same content is answered from the cache without visiting its tokens and
+ * without validating it.
+ * <p>
+ * Every entry holds the hash of the content of the file, the facts collected
+ * about its class and the errors found. The cache file starts with a format
+ * version and a hash of the configuration files and the version of the
+ * plugin, because another version of the check may find other errors. If the
+ * format version or the hash does not match, all entries are dropped.
+ * <p>
+ * All checks using the same cache file share one instance, which can be used
+ * on many threads.
+ */
+public final class ResultCache {
+
+	private static final Logger logger = Logger.getLogger(ResultCache.class.getCanonicalName());
+
+	/** Marks a file as a result cache of the stereotype check. */
+	private static final int MAGIC = 0x53545243;
+
+	/** The version of the format. Must be increased on every change. */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The Bundle-Version of the plugin, the results of another version are
+	 * dropped.
+	 */
+	private static final String PLUGIN_VERSION = pluginVersion();
+
+	/** Marks a string that is not set. */
+	private static final int NULL = -1;
+
+	/** The open caches, the key is the canonical path of the cache file. */
+	private static final ConcurrentMap<String, ResultCache> caches = new ConcurrentHashMap<>();
+
+	private final File cacheFile;
+
+	/** The hash of the configuration files and the version of the plugin. */
+	private final byte[] headerHash;
+
+	/** The entries, the key is the path of the checked file. */
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/** Has an entry changed since the cache was read or written. */
+	private volatile boolean isModified = false;
+
+	/** An error found in a file. */
+	public static final class CachedError {
+
+		private final int line;
+		private final int column;
+		private final String message;
+
+		/**
+		 * Creates an error.
+		 * 
+		 * @param line
+		 *            the line of the error.
+		 * @param column
+		 *            the column of the error, tabs are not expanded.
+		 * @param message
+		 *            the message.
+		 */
+		CachedError(int line, int column, String message) {
+			this.line = line;
+			this.column = column;
+			this.message = message;
+		}
+
+		/**
+		 * @return the line of the error.
+		 */
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * @return the column of the error, tabs are not expanded.
+		 */
+		public int getColumn() {
+			return column;
+		}
+
+		/**
+		 * @return the message.
+		 */
+		public String getMessage() {
+			return message;
+		}
+	}
+
+	/** The result of a file. */
+	public static final class Entry {
+
+		private final byte[] contentHash;
+		private final String packageName;
+		private final String className;
+		private final List<String> imports;
+		private final List<String> annotations;
+		private final List<String> interfaces;
+		private final List<String> baseClasses;
+		private final List<CachedError> errors;
+
+		private Entry(byte[] contentHash, String packageName, String className, List<String> imports,
+				List<String> annotations, List<String> interfaces, List<String> baseClasses,
+				List<CachedError> errors) {
+			this.contentHash = contentHash;
+			this.packageName = packageName;
+			this.className = className;
+			this.imports = Collections.unmodifiableList(imports);
+			this.annotations = Collections.unmodifiableList(annotations);
+			this.interfaces = Collections.unmodifiableList(interfaces);
+			this.baseClasses = Collections.unmodifiableList(baseClasses);
+			this.errors = Collections.unmodifiableList(errors);
+		}
+
+		/**
+		 * @return the package of the class, null if there is no package
+		 *         declaration.
+		 */
+		public String getPackageName() {
+			return packageName;
+		}
+
+		/**
+		 * @return the name of the class, null if the file has no class.
+		 */
+		public String getClassName() {
+			return className;
+		}
+
+		/**
+		 * @return the imported classes.
+		 */
+		public List<String> getImports() {
+			return imports;
+		}
+
+		/**
+		 * @return the annotations of the class.
+		 */
+		public List<String> getAnnotations() {
+			return annotations;
+		}
+
+		/**
+		 * @return the implemented interfaces.
+		 */
+		public List<String> getInterfaces() {
+			return interfaces;
+		}
+
+		/**
+		 * @return the base classes.
+		 */
+		public List<String> getBaseClasses() {
+			return baseClasses;
+		}
+
+		/**
+		 * @return the errors found in the file.
+		 */
+		public List<CachedError> getErrors() {
+			return errors;
+		}
+	}
+
+	private ResultCache(File cacheFile, byte[] headerHash) {
+		this.cacheFile = cacheFile;
+		this.headerHash = headerHash;
+	}
+
+	/**
+	 * Opens the cache for a configuration. The cache is read only once and
+	 * shared by all checks using the same cache file.
+	 * 
+	 * @param cacheFile
+	 *            the cache file, need not exist.
+	 * @param configFile
+	 *            the central configuration file.
+	 * @return the cache.
+	 */
+	public static ResultCache open(File cacheFile, File configFile) {
+		byte[] headerHash = headerHash(configFile);
+		File canonicalFile = canonicalFile(cacheFile);
+		return caches.compute(canonicalFile.getPath(), (path, cached) -> {
+			if (cached != null && Arrays.equals(cached.headerHash, headerHash)) {
+				return cached;
+			}
+			ResultCache cache = new ResultCache(canonicalFile, headerHash);
+			cache.read();
+			return cache;
+		});
+	}
+
+	private static byte[] headerHash(File configFile) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(StereotypeCheckSnapshot.sourceHash(configFile));
+			digest.update(PLUGIN_VERSION.getBytes(StandardCharsets.UTF_8));
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads the Bundle-Version from the manifest next to the package root of
+	 * this class, which is the root of the jar or of the bundle.
+	 * 
+	 * @return the version or an empty string if there is no manifest.
+	 */
+	static String pluginVersion() {
+		URL classUrl = ResultCache.class.getResource(ResultCache.class.getSimpleName() + ".class");
+		String classPath = ResultCache.class.getName().replace('.', '/') + ".class";
+		if (classUrl == null || !classUrl.toString().endsWith(classPath)) {
+			return "";
+		}
+		String root = classUrl.toString().substring(0, classUrl.toString().length() - classPath.length());
+		try (InputStream in = new URL(root + "META-INF/MANIFEST.MF").openStream()) {
+			String version = new Manifest(in).getMainAttributes().getValue("Bundle-Version");
+			return version != null ? version : "";
+		} catch (IOException e) {
+			logger.fine("No manifest found for " + classUrl + ": " + e.getMessage());
+			return "";
+		}
+	}
+
+	private static File canonicalFile(File file) {
+		try {
+			return file.getCanonicalFile();
+		} catch (IOException e) {
+			return file.getAbsoluteFile();
+		}
+	}
+
+	/**
+	 * Calculates the hash of the content of a file.
+	 * 
+	 * @param text
+	 *            the content of the file.
+	 * @return the hash.
+	 */
+	public static byte[] contentHash(FileText text) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return digest.digest(text.getFullText().toString().getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Finds the result of a file.
+	 * 
+	 * @param path
+	 *            the path of the file.
+	 * @param contentHash
+	 *            the hash of the actual content of the file.
+	 * @return the result, null if the file is not cached or has changed.
+	 */
+	public Entry get(String path, byte[] contentHash) {
+		Entry entry = entries.get(path);
+		if (entry == null || !Arrays.equals(entry.contentHash, contentHash)) {
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores the result of a file.
+	 * 
+	 * @param path
+	 *            the path of the file.
+	 * @param contentHash
+	 *            the hash of the content of the file.
+	 * @param classInfo
+	 *            the facts collected about the class of the file.
+	 * @param errors
+	 *            the errors found in the file.
+	 */
+	void put(String path, byte[] contentHash, ClassInfo classInfo, List<CachedError> errors) {
+		entries.put(path,
+				new Entry(contentHash, classInfo.getPackageName(), classInfo.getClassName(),
+						new ArrayList<>(classInfo.getImports()), new ArrayList<>(classInfo.getAnnotations()),
+						new ArrayList<>(classInfo.getInterfaces()), new ArrayList<>(classInfo.getBaseClasses()),
+						new ArrayList<>(errors)));
+		isModified = true;
+	}
+
+	/**
+	 * @return the number of cached files.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private void read() {
+		if (!cacheFile.exists()) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				logger.info("Result cache " + cacheFile + " has another format and is dropped");
+				return;
+			}
+			byte[] hash = new byte[in.readInt()];
+			in.readFully(hash);
+			if (!Arrays.equals(hash, headerHash)) {
+				logger.info("Configuration or plugin has changed, result cache " + cacheFile + " is dropped");
+				return;
+			}
+			for (int i = in.readInt(); i > 0; i--) {
+				String path = readString(in);
+				entries.put(path, readEntry(in));
+			}
+			logger.fine("Result cache " + cacheFile + " read with " + entries.size() + " files");
+		} catch (EOFException e) {
+			entries.clear();
+			logger.warning("Unexpected end of result cache " + cacheFile + ", the cache is dropped");
+		} catch (IOException | RuntimeException e) {
+			entries.clear();
+			logger.log(Level.WARNING, "Result cache " + cacheFile + " can not be read: " + e.getMessage(), e);
+		}
+	}
+
+	private static Entry readEntry(DataInputStream in) throws IOException {
+		byte[] contentHash = new byte[in.readInt()];
+		in.readFully(contentHash);
+		String packageName = readString(in);
+		String className = readString(in);
+		List<String> imports = readStrings(in);
+		List<String> annotations = readStrings(in);
+		List<String> interfaces = readStrings(in);
+		List<String> baseClasses = readStrings(in);
+		List<CachedError> errors = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--) {
+			errors.add(new CachedError(in.readInt(), in.readInt(), readString(in)));
+		}
+		return new Entry(contentHash, packageName, className, imports, annotations, interfaces, baseClasses,
+				errors);
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		List<String> strings = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			strings.add(readString(in));
+		}
+		return strings;
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length == NULL) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the cache, if an entry has changed. The cache is written to a
+	 * temporary file first, so that a concurrent reader never sees an
+	 * incomplete cache.
+	 */
+	public synchronized void write() {
+		if (!isModified) {
+			return;
+		}
+		isModified = false;
+		try {
+			File directory = cacheFile.getParentFile();
+			if (directory != null) {
+				Files.createDirectories(directory.toPath());
+			}
+			File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", directory);
+			try {
+				try (DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+					out.writeInt(MAGIC);
+					out.writeInt(FORMAT_VERSION);
+					out.writeInt(headerHash.length);
+					out.write(headerHash);
+					List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+					out.writeInt(snapshot.size());
+					for (Map.Entry<String, Entry> entry : snapshot) {
+						writeString(entry.getKey(), out);
+						writeEntry(entry.getValue(), out);
+					}
+				}
+				try {
+					Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+				logger.fine("Result cache " + cacheFile + " written with " + entries.size() + " files");
+			} finally {
+				Files.deleteIfExists(tempFile.toPath());
+			}
+		} catch (IOException e) {
+			isModified = true;
+			logger.log(Level.WARNING, "Result cache " + cacheFile + " can not be written: " + e.getMessage(), e);
+		}
+	}
+
+	private static void writeEntry(Entry entry, DataOutputStream out) throws IOException {
+		out.writeInt(entry.contentHash.length);
+		out.write(entry.contentHash);
+		writeString(entry.packageName, out);
+		writeString(entry.className, out);
+		writeStrings(entry.imports, out);
+		writeStrings(entry.annotations, out);
+		writeStrings(entry.interfaces, out);
+		writeStrings(entry.baseClasses, out);
+		out.writeInt(entry.errors.size());
+		for (CachedError error : entry.errors) {
+			out.writeInt(error.line);
+			out.writeInt(error.column);
+			writeString(error.message, out);
+		}
+	}
+
+	private static void writeStrings(List<String> strings, DataOutputStream out) throws IOException {
+		out.writeInt(strings.size());
+		for (String string : strings) {
+			writeString(string, out);
+		}
+	}
+
+	private static void writeString(String string, DataOutputStream out) throws IOException {
+		if (string == null) {
+			out.writeInt(NULL);
+		} else {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "result cache " + cacheFile + ": " + entries.size() + " files";
+	}
+}
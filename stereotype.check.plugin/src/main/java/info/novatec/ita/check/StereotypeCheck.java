@@ -16,20 +16,39 @@
 package info.novatec.ita.check;
 
 import java.io.File;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.puppycrawl.tools.checkstyle.api.AbstractCheck;
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
+import com.puppycrawl.tools.checkstyle.api.FileContents;
 import com.puppycrawl.tools.checkstyle.api.FullIdent;
 import com.puppycrawl.tools.checkstyle.api.TokenTypes;
 import com.puppycrawl.tools.checkstyle.utils.TokenUtils;
 
 import info.novatec.ita.check.config.StereotypeCheckConfiguration;
-import info.novatec.ita.check.config.StereotypeCheckReader;
+import info.novatec.ita.check.config.StereotypeCheckConfigurationCache;
+import info.novatec.ita.check.config.StereotypeCheckSnapshot;
 
 /**
  * Checks if the class conforms to a stereotype. If it is a stereotype it
  * checks, if the class has dependencies to other stereotypes, that are allowed.
+ * <p>
+ * The state of the actual file is kept in a {@link CheckContext} of this
+ * check, the configuration and the validator are shared. Neither can be
+ * changed once it is created, so they need no locking. Checkstyle itself
+ * keeps the file contents and the messages of the actual file in the
+ * {@link AbstractCheck}, so every thread checking files needs its own
+ * instance of this check.
+ * <p>
+ * In the first pass of a two-phase run, the check only reads the header of
+ * every file and adds the stereotypes of its class to a {@link TypeIndex}. In
+ * the second pass the dependencies are also checked against the index. The
+ * result of a file depends on the other files then, so the
+ * {@link ResultCache} is not used in both passes.
  * 
  * @author Volker Koch (volker.koch@novatec-gmbh.de)
  */
@@ -37,22 +56,113 @@ public class StereotypeCheck extends AbstractCheck {
 
 	private static final Logger logger = Logger.getLogger(StereotypeCheck.class.getCanonicalName());
 
-	/** Information about the class actually checked by this class. */
-	private ClassInfo currentClass;
+	/** The state of the file actually checked, null between two files. */
+	private CheckContext context = null;
+
+	/**
+	 * The file not found in the cache by {@link #checkFromCache()} and the
+	 * hash of its content, which is not calculated again when it is checked.
+	 * Null if there is no such file.
+	 */
+	private Map.Entry<FileContents, byte[]> uncachedContent = null;
 
 	/** The filename of the the central configuration file. */
 	private String filename = null;
 
-	/** The central configuration read from {@link #filename}. */
+	/**
+	 * The filename of the compiled snapshot of the central configuration
+	 * file. Optional.
+	 */
+	private String compiledFilename = null;
+
+	/** The filename of the {@link ResultCache}. Optional. */
+	private String cacheFilename = null;
+
+	/** The results of unchanged files, null if there is no cache. */
+	private ResultCache resultCache;
+
+	/**
+	 * The central configuration read from {@link #filename}. Shared with all
+	 * other checks using the same file.
+	 */
 	private StereotypeCheckConfiguration stereotypeCheckConfig;
 
-	private StereotypeCheckValidator validator = new StereotypeCheckValidator(this);
+	/** Validates the checked files, created with the configuration. */
+	private StereotypeCheckValidator validator;
+
+	/**
+	 * The counters of this check.
+	 */
+	private final StereotypeCheckStatistics statistics = new StereotypeCheckStatistics();
+
+	/** Receives the collected facts, null if there is no sink. */
+	private TraceSink traceSink = null;
+
+	/** The stereotypes of all classes of the project, null if there is none. */
+	private TypeIndex typeIndex = null;
+
+	/**
+	 * Receives the stereotypes of the classes in the first pass, null if the
+	 * files are validated.
+	 */
+	private TypeIndex.Builder typeIndexBuilder = null;
+
+	/**
+	 * Receives the imports of the validated classes, null if the imports are
+	 * not collected.
+	 */
+	private ImportGraph.Builder importGraphBuilder = null;
+
+	/**
+	 * Receives the stereotypes and dependencies of the validated classes,
+	 * null if nothing is exported.
+	 */
+	private StereotypeGraphExporter exporter = null;
 
 	/**
-	 * Inner classes are ignored. While the parser parses an inner class this
-	 * attribute is set to true.
+	 * Holds back the facts found by the {@link HeaderLexer}, until it has read
+	 * the whole file. If it gives up, the file is walked and the facts are
+	 * found again.
 	 */
-	private boolean isInnerClass = false;
+	private final TraceBuffer traceBuffer = new TraceBuffer();
+
+	/** Are the facts held back in the {@link #traceBuffer}. */
+	private boolean isTraceBuffered = false;
+
+	/** Facts held back until they are known to be complete. */
+	private static final class TraceBuffer implements TraceSink {
+
+		private TraceEvent[] events = new TraceEvent[16];
+		private String[] values = new String[16];
+		private int[] lines = new int[16];
+		private int count;
+
+		@Override
+		public void trace(TraceEvent event, String value, int line) {
+			if (count == events.length) {
+				events = Arrays.copyOf(events, count * 2);
+				values = Arrays.copyOf(values, count * 2);
+				lines = Arrays.copyOf(lines, count * 2);
+			}
+			events[count] = event;
+			values[count] = value;
+			lines[count] = line;
+			count++;
+		}
+
+		/** Passes the facts to the given sink and forgets them. */
+		private void flush(TraceSink sink) {
+			for (int i = 0; i < count; i++) {
+				sink.trace(events[i], values[i], lines[i]);
+			}
+			clear();
+		}
+
+		private void clear() {
+			Arrays.fill(values, 0, count, null);
+			count = 0;
+		}
+	}
 
 	/**
 	 * @return the tokens that are delivered from the parser to this class.
@@ -85,189 +195,414 @@ public class StereotypeCheck extends AbstractCheck {
 		this.filename = filename;
 	}
 
+	/**
+	 * Set the filename of the compiled snapshot of the configuration. If the
+	 * snapshot does not exist or is stale, it is compiled from the
+	 * configuration.
+	 * 
+	 * @param compiledFilename
+	 *            the filename of the compiled snapshot.
+	 */
+	public void setCompiledFile(String compiledFilename) {
+		this.compiledFilename = compiledFilename;
+	}
+
+	/**
+	 * Set the filename of the cache of the results. Files whose content has
+	 * not changed since they were checked with the same configuration are
+	 * answered from the cache.
+	 * 
+	 * @param cacheFilename
+	 *            the filename of the cache.
+	 */
+	public void setCacheFile(String cacheFilename) {
+		this.cacheFilename = cacheFilename;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void init() {
 		super.init();
 
-		if (this.filename == null) {
-			throw new IllegalArgumentException("No Property 'file' defined for Check " + getClass().getName());
+		this.stereotypeCheckConfig = loadConfiguration(getClass(), this.filename, this.compiledFilename);
+		this.validator = new StereotypeCheckValidator(this.stereotypeCheckConfig, this.typeIndex);
+		if (this.cacheFilename != null) {
+			this.resultCache = ResultCache.open(new File(this.cacheFilename), new File(this.filename));
+		}
+	}
+
+	/**
+	 * Loads the configuration of a module of this plugin.
+	 * 
+	 * @param module
+	 *            the module, used in the error messages.
+	 * @param filename
+	 *            the filename of the configuration.
+	 * @param compiledFilename
+	 *            the filename of the compiled snapshot of the configuration,
+	 *            null if there is no snapshot.
+	 * @return the configuration
+	 */
+	static StereotypeCheckConfiguration loadConfiguration(Class<?> module, String filename,
+			String compiledFilename) {
+		if (filename == null) {
+			throw new IllegalArgumentException("No Property 'file' defined for Check " + module.getName());
 		}
 
-		File file = new File(this.filename);
+		File file = new File(filename);
 		if (!file.exists()) {
-			throw new IllegalArgumentException("File defined in property 'file' of Check " + getClass().getName()
+			throw new IllegalArgumentException("File defined in property 'file' of Check " + module.getName()
 					+ " does not exist " + file.getAbsolutePath());
 		}
-		this.stereotypeCheckConfig = StereotypeCheckReader.read(file);
+		if (compiledFilename != null) {
+			return StereotypeCheckSnapshot.load(file, new File(compiledFilename));
+		}
+		return StereotypeCheckConfigurationCache.get(file);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void destroy() {
+		logger.fine("statistics: " + statistics);
+		if (stereotypeCheckConfig != null) {
+			logger.fine("import classifications: " + stereotypeCheckConfig.getImportClassifications());
+		}
+		if (resultCache != null) {
+			resultCache.write();
+		}
+		super.destroy();
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void beginTree(DetailAST aRootAST) {
 		super.beginTree(aRootAST);
-		this.currentClass = new ClassInfo();
+		CheckContext fileContext = new CheckContext(this::addError, statistics);
+		this.context = fileContext;
+		if (isResultCacheUsed()) {
+			replayCachedResult(fileContext);
+		}
+		uncachedContent = null;
+	}
+
+	/**
+	 * The facts of a file are needed, while the stereotypes or imports of the
+	 * classes are collected. The result of a file depends on the other files,
+	 * while it is checked against a {@link TypeIndex}. The
+	 * {@link ResultCache} can not be used then.
+	 */
+	private boolean isResultCacheUsed() {
+		return resultCache != null && typeIndex == null && typeIndexBuilder == null && importGraphBuilder == null
+				&& exporter == null;
+	}
+
+	/**
+	 * Reports the cached errors of the actual file instead of checking it, if
+	 * the file has not changed since it was checked. Replaces
+	 * {@link #beginTree(DetailAST)}, the visits of the tokens and
+	 * {@link #finishTree(DetailAST)}, so that a cached file need not be
+	 * parsed.
+	 * 
+	 * @return false if the result of the file is not cached, the file must be
+	 *         checked then. The hash of its content is kept for the check.
+	 */
+	public boolean checkFromCache() {
+		if (!isResultCacheUsed()) {
+			return false;
+		}
+		beginTree(null);
+		CheckContext fileContext = this.context;
+		if (fileContext.isCached()) {
+			finishTree(null);
+			return true;
+		}
+		this.context = null;
+		uncachedContent = new SimpleImmutableEntry<>(getFileContents(), fileContext.getContentHash());
+		return false;
+	}
+
+	/**
+	 * Reports the cached errors of the file, if the file has not changed
+	 * since it was checked.
+	 */
+	private void replayCachedResult(CheckContext fileContext) {
+		FileContents contents = getFileContents();
+		Map.Entry<FileContents, byte[]> uncached = uncachedContent;
+		if (uncached != null && uncached.getKey() == contents) {
+			// already looked up by checkFromCache()
+			fileContext.setContentHash(uncached.getValue());
+			return;
+		}
+		byte[] contentHash = ResultCache.contentHash(contents.getText());
+		ResultCache.Entry entry = resultCache.get(contents.getFileName(), contentHash);
+		if (entry == null) {
+			fileContext.setContentHash(contentHash);
+			return;
+		}
+		for (ResultCache.CachedError error : entry.getErrors()) {
+			log(error.getLine(), error.getColumn(), error.getMessage());
+		}
+		fileContext.setCached();
+	}
+
+	/**
+	 * Checks the actual file with the facts read by the {@link HeaderLexer},
+	 * without a syntax tree. Replaces {@link #beginTree(DetailAST)}, the
+	 * visits of the tokens and {@link #finishTree(DetailAST)}. In the first
+	 * pass only the header of the file up to the body of the class is read.
+	 * 
+	 * @return false if the lexer does not understand the file, nothing is
+	 *         reported or traced then and the file must be parsed and walked.
+	 */
+	public boolean checkWithoutTree() {
+		beginTree(null);
+		CheckContext fileContext = this.context;
+		if (!fileContext.isCached()) {
+			boolean isRead;
+			isTraceBuffered = isTraced();
+			try {
+				isRead = HeaderLexer.lex(getFileContents().getText().getFullText(), fileContext.getCurrentClass(),
+						this::trace, () -> {
+							checkScope(fileContext, true, fileContext.getCurrentClass().getClassAst());
+							return !fileContext.isOutOfScope();
+						}, typeIndexBuilder != null);
+			} finally {
+				isTraceBuffered = false;
+			}
+			if (!isRead) {
+				traceBuffer.clear();
+				this.context = null;
+				return false;
+			}
+			traceBuffer.flush(this::trace);
+		}
+		finishTree(null);
+		return true;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void finishTree(DetailAST ast) {
 		super.finishTree(ast);
-		validator.validate(ast, currentClass);
+		CheckContext fileContext = this.context;
+		this.context = null;
+		if (fileContext.isCached()) {
+			statistics.cachedFile();
+			return;
+		}
+		if (typeIndexBuilder != null) {
+			if (!fileContext.isOutOfScope()) {
+				validator.index(fileContext, typeIndexBuilder);
+			}
+			return;
+		}
+		if (fileContext.isOutOfScope()) {
+			statistics.skippedFile(fileContext.getSkippedTokens());
+		} else {
+			if (importGraphBuilder != null) {
+				validator.addToGraph(fileContext, importGraphBuilder);
+			}
+			validator.validate(fileContext);
+			if (exporter != null) {
+				validator.export(fileContext, exporter);
+			}
+		}
+		if (fileContext.getContentHash() != null) {
+			resultCache.put(getFileContents().getFileName(), fileContext.getContentHash(),
+					fileContext.getCurrentClass(), fileContext.getErrors());
+		}
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void visitToken(DetailAST ast) {
+		CheckContext fileContext = this.context;
+		if (fileContext.isOutOfScope()) {
+			fileContext.skipToken();
+			return;
+		}
 		logAstDetails(ast);
-		if (this.isInnerClass) {
+		if (fileContext.isInnerClass()) {
 			// ignore Inner classes
 			return;
 		}
+		ClassInfo currentClass = fileContext.getCurrentClass();
 		int tokenType = ast.getType();
 
 		switch (tokenType) {
 		case TokenTypes.PACKAGE_DEF:
-			addPackagename(ast);
+			addPackagename(currentClass, ast);
 			break;
 		case TokenTypes.IMPORT:
-			addImport(ast);
+			addImport(currentClass, ast);
 			break;
 		case TokenTypes.ABSTRACT:
-			setAbstractType(ast);
+			setAbstractType(currentClass, ast);
 			break;
 		case TokenTypes.CLASS_DEF:
-			if (this.currentClass.getClassName() != null) {
-				this.isInnerClass = true;
+			if (currentClass.getClassName() != null) {
+				fileContext.setInnerClass(true);
 				return;
 			}
-			setClassType(ast);
+			setClassType(currentClass, ast);
+			checkScope(fileContext, true, ast);
 			break;
 		case TokenTypes.ANNOTATION_DEF:
-			setAnnotationType(ast);
+			checkScope(fileContext, setAnnotationType(currentClass, ast), ast);
 			break;
 		case TokenTypes.INTERFACE_DEF:
-			setInterfaceType(ast);
+			checkScope(fileContext, setInterfaceType(currentClass, ast), ast);
 			break;
 		case TokenTypes.ANNOTATION:
-			addAnnotation(ast);
+			addAnnotation(currentClass, ast);
 			break;
 		case TokenTypes.EXTENDS_CLAUSE:
-			addBaseClass(ast);
+			addBaseClass(currentClass, ast);
 			break;
 		case TokenTypes.IMPLEMENTS_CLAUSE:
-			addInterface(ast);
+			addInterface(currentClass, ast);
 			break;
 		case TokenTypes.TYPE:
-			addImportFromFullQualifiedType(ast);
+			addImportFromFullQualifiedType(currentClass, ast);
 			break;
 		default:
 			break;
 		}
 	}
 
-	private void addImportFromFullQualifiedType(DetailAST ast) {
+	/**
+	 * Ignores the rest of the file, if the package and name of the class show
+	 * that the class is not validated.
+	 * 
+	 * @param fileContext
+	 *            the state of the actual file
+	 * @param isTopLevel
+	 *            is the name of the class just set by the top level type
+	 * @param ast
+	 *            the definition of the type
+	 */
+	private void checkScope(CheckContext fileContext, boolean isTopLevel, DetailAST ast) {
+		if (!isTopLevel) {
+			return;
+		}
+		String fullClassName = fileContext.getCurrentClass().getFullClassName();
+		if (!getConfig().isInApplicationPackage(fullClassName)) {
+			trace(TraceEvent.notInApplicationPackage, fullClassName, ast);
+			fileContext.setOutOfScope();
+		} else if (getConfig().isExcluded(fullClassName)) {
+			trace(TraceEvent.excluded, fullClassName, ast);
+			statistics.excludedFile();
+			fileContext.setOutOfScope();
+		}
+	}
+
+	private void addImportFromFullQualifiedType(ClassInfo currentClass, DetailAST ast) {
 		if (isClassType(ast)) {
-			String typeName = FullIdent.createFullIdent(ast.getLastChild()).getText();
+			// the first child is the name, the type arguments of a generic type
+			// follow as last child
+			String typeName = FullIdent.createFullIdent(ast.getFirstChild()).getText();
 			if (typeName.indexOf(".") == -1) {
-				if (!this.currentClass.hasImport(typeName)) {
-					String currentImport = this.currentClass.getPackageName() + "." + typeName;
-					this.currentClass.addImport(currentImport, ast);
-					logger.fine("import: " + currentImport);
+				if (!currentClass.hasImport(typeName) && !currentClass.isJavaLangType(typeName)) {
+					String currentImport = currentClass.getPackageName() + "." + typeName;
+					currentClass.addImport(currentImport, ast);
+					trace(TraceEvent.importName, currentImport, ast);
 				}
 			} else {
-				this.currentClass.addImport(typeName, ast);
-				logger.fine("import: " + typeName);
+				currentClass.addImport(typeName, ast);
+				trace(TraceEvent.importName, typeName, ast);
 			}
 		}
 	}
 
-	private void addInterface(DetailAST ast) {
+	private void addInterface(ClassInfo currentClass, DetailAST ast) {
 		DetailAST interfaceChild = ast.getFirstChild();
 		while (interfaceChild != null) {
-			logger.fine("interfaceChild.getType(): " + interfaceChild.getType());
 			if (interfaceChild.getType() == TokenTypes.IDENT) {
 				String interfacename = interfaceChild.getText();
-				this.currentClass.addInterface(interfacename);
-				logger.fine("implements: " + interfacename);
+				currentClass.addInterface(interfacename);
+				trace(TraceEvent.implementsName, interfacename, ast);
 			} else if (interfaceChild.getType() == TokenTypes.DOT) {
 				String interfacename = FullIdent.createFullIdent(interfaceChild).getText();
-				this.currentClass.addInterface(interfacename);
-				logger.fine("implements: " + interfacename);
+				currentClass.addInterface(interfacename);
+				trace(TraceEvent.implementsName, interfacename, ast);
 			}
 			interfaceChild = interfaceChild.getNextSibling();
 		}
 	}
 
-	private void addBaseClass(DetailAST ast) {
+	private void addBaseClass(ClassInfo currentClass, DetailAST ast) {
 		DetailAST baseClassChild = ast.getFirstChild();
 		while (baseClassChild != null) {
 			if (baseClassChild.getType() == TokenTypes.IDENT) {
 				String baseClassName = baseClassChild.getText();
-				this.currentClass.addBaseClass(baseClassName);
-				logger.fine("extends: " + baseClassName);
+				currentClass.addBaseClass(baseClassName);
+				trace(TraceEvent.extendsName, baseClassName, ast);
 			} else if (baseClassChild.getType() == TokenTypes.DOT) {
 				String baseClassName = FullIdent.createFullIdent(baseClassChild).getText();
-				this.currentClass.addBaseClass(baseClassName);
-				logger.fine("extends: " + baseClassName);
+				currentClass.addBaseClass(baseClassName);
+				trace(TraceEvent.extendsName, baseClassName, ast);
 			}
 			baseClassChild = baseClassChild.getNextSibling();
 		}
 	}
 
-	private void addImport(DetailAST ast) {
+	private void addImport(ClassInfo currentClass, DetailAST ast) {
 		DetailAST nameAST;
 		FullIdent full;
 		nameAST = ast.getLastChild().getPreviousSibling();
 		full = FullIdent.createFullIdent(nameAST);
 		String currentImport = full.getText();
-		this.currentClass.addImport(currentImport, ast);
-		logger.fine("import: " + currentImport);
+		currentClass.addImport(currentImport, ast);
+		trace(TraceEvent.importName, currentImport, ast);
 	}
 
-	private void addAnnotation(DetailAST ast) {
+	private void addAnnotation(ClassInfo currentClass, DetailAST ast) {
 		DetailAST annotationCild = ast.getFirstChild().getNextSibling();
 		String annotation = FullIdent.createFullIdent(annotationCild).getText();
-		this.currentClass.addAnnotation(annotation);
-		logger.fine("annotation: " + annotation);
+		currentClass.addAnnotation(annotation);
+		trace(TraceEvent.annotation, annotation, ast);
 	}
 
-	private void setClassType(DetailAST ast) {
+	private void setClassType(ClassInfo currentClass, DetailAST ast) {
 		DetailAST classToken = ast.findFirstToken(TokenTypes.IDENT);
 		String className = classToken.getText();
-		this.currentClass.setClassName(className, ast);
-		logger.fine("class name: " + className);
+		currentClass.setClassName(className, ast);
+		trace(TraceEvent.className, className, ast);
 	}
 
-	private void setAbstractType(DetailAST ast) {
+	private void setAbstractType(ClassInfo currentClass, DetailAST ast) {
 		if (ast.getParent().getParent().getType() == TokenTypes.CLASS_DEF) {
-			this.currentClass.setAbstract(true);
-			logger.fine("abstract class");
+			currentClass.setAbstract(true);
+			trace(TraceEvent.abstractClass, null, ast);
 		}
 	}
 
-	private void setInterfaceType(DetailAST ast) {
+	private boolean setInterfaceType(ClassInfo currentClass, DetailAST ast) {
+		boolean isTopLevel = currentClass.getClassName() == null;
 		DetailAST intToken = ast.findFirstToken(TokenTypes.IDENT);
 		String interfaceName = intToken.getText();
-		this.currentClass.setInterfaceName(interfaceName, ast);
-		logger.fine("interface name: " + interfaceName);
+		currentClass.setInterfaceName(interfaceName, ast);
+		trace(TraceEvent.interfaceName, interfaceName, ast);
+		return isTopLevel;
 	}
 
-	private void setAnnotationType(DetailAST ast) {
+	private boolean setAnnotationType(ClassInfo currentClass, DetailAST ast) {
+		boolean isTopLevel = currentClass.getClassName() == null;
 		DetailAST annToken = ast.findFirstToken(TokenTypes.IDENT);
 		String annotationName = annToken.getText();
-		this.currentClass.setClassName(annotationName, ast);
-		logger.fine("annotation name: " + annotationName);
+		currentClass.setClassName(annotationName, ast);
+		trace(TraceEvent.annotationName, annotationName, ast);
+		return isTopLevel;
 	}
 
-	private void addPackagename(DetailAST ast) {
+	private void addPackagename(ClassInfo currentClass, DetailAST ast) {
 		DetailAST nameAST;
 		FullIdent full;
 		nameAST = ast.getLastChild().getPreviousSibling();
 		full = FullIdent.createFullIdent(nameAST);
 		String packageName = full.getText();
-		this.currentClass.setPackageName(packageName);
-		logger.fine("package name: " + packageName);
+		currentClass.setPackageName(packageName);
+		trace(TraceEvent.packageName, packageName, ast);
 	}
 
 	/** {@inheritDoc} */
@@ -275,11 +610,14 @@ public class StereotypeCheck extends AbstractCheck {
 	public void leaveToken(DetailAST ast) {
 		int tokenType = ast.getType();
 		if (tokenType == TokenTypes.CLASS_DEF) {
-			this.isInnerClass = false;
+			this.context.setInnerClass(false);
 		}
 	}
 
 	private void logAstDetails(DetailAST ast) {
+		if (!logger.isLoggable(Level.FINEST)) {
+			return;
+		}
 		logger.finest("=================================== visiting " + ast);
 		logger.finest("ast.getText() " + ast.getText());
 		logger.finest("ast.getType() " + TokenUtils.getTokenName(ast.getType()));
@@ -305,11 +643,113 @@ public class StereotypeCheck extends AbstractCheck {
 		return stereotypeCheckConfig;
 	}
 
+	/**
+	 * Set a sink receiving the facts collected by this check.
+	 * 
+	 * @param traceSink
+	 *            the sink, null if the facts are only logged.
+	 */
+	public void setTraceSink(TraceSink traceSink) {
+		this.traceSink = traceSink;
+	}
+
+	/**
+	 * Reports a collected fact to the sink and the log. Nothing is allocated,
+	 * if there is no sink and the log level is above {@link Level#FINE}.
+	 */
+	private void trace(TraceEvent event, String value, DetailAST ast) {
+		trace(event, value, ast.getLineNo());
+	}
+
+	private void trace(TraceEvent event, String value, int line) {
+		if (isTraceBuffered) {
+			traceBuffer.trace(event, value, line);
+			return;
+		}
+		if (traceSink != null) {
+			traceSink.trace(event, value, line);
+		}
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine(value == null ? event.getLabel() : event.getLabel() + ": " + value);
+		}
+	}
+
+	/**
+	 * @return true if the collected facts are passed to a sink or logged.
+	 */
+	private boolean isTraced() {
+		return traceSink != null || logger.isLoggable(Level.FINE);
+	}
+
+	/**
+	 * Set the stereotypes of all classes of the project for the second pass of
+	 * a two-phase run. The dependencies to classes, that belong to a
+	 * stereotype by their annotations, interfaces or base classes, are
+	 * checked, too.
+	 * 
+	 * @param typeIndex
+	 *            the index built by the first pass, null to check every file
+	 *            on its own.
+	 */
+	public void setTypeIndex(TypeIndex typeIndex) {
+		if (this.typeIndex == typeIndex) {
+			return;
+		}
+		this.typeIndex = typeIndex;
+		if (this.stereotypeCheckConfig != null) {
+			this.validator = new StereotypeCheckValidator(this.stereotypeCheckConfig, typeIndex);
+		}
+	}
+
+	/**
+	 * Set the builder of the index for the first pass of a two-phase run.
+	 * While a builder is set, the check adds the stereotypes of the classes
+	 * to the builder instead of validating them and reports nothing.
+	 * 
+	 * @param typeIndexBuilder
+	 *            the builder, null to validate the files.
+	 */
+	public void setTypeIndexBuilder(TypeIndex.Builder typeIndexBuilder) {
+		this.typeIndexBuilder = typeIndexBuilder;
+	}
+
+	/**
+	 * Set the builder of the graph of the imports between the classes. While
+	 * a builder is set, the check adds the imports of every validated class
+	 * to the builder. The facts of a file are needed, so the
+	 * {@link ResultCache} is not used.
+	 * 
+	 * @param importGraphBuilder
+	 *            the builder, null to collect no imports.
+	 */
+	public void setImportGraphBuilder(ImportGraph.Builder importGraphBuilder) {
+		this.importGraphBuilder = importGraphBuilder;
+	}
+
+	/**
+	 * Set the exporter of the stereotypes and dependencies of the validated
+	 * classes. The facts of a file are needed, so the {@link ResultCache} is
+	 * not used while an exporter is set.
+	 * 
+	 * @param exporter
+	 *            the exporter, null to export nothing.
+	 */
+	public void setExporter(StereotypeGraphExporter exporter) {
+		this.exporter = exporter;
+	}
+
+	/**
+	 * @return the counters of this check
+	 */
+	public StereotypeCheckStatistics getStatistics() {
+		return statistics;
+	}
+
 	/**
 	 * @see StereotypeCheck#log(DetailAST, String, Object...)
 	 */
-	void addError(DetailAST ast, String message, Object[] parameters) {
-		log(ast, message, parameters);
+	private void addError(DetailAST ast, String message) {
+		log(ast, message);
 	}
 
 
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters collected by a {@link StereotypeCheck} or
+ * {@link StereotypeFileFilter} while it checks files.
+ */
+public final class StereotypeCheckStatistics {
+
+	private final AtomicLong excludedFiles = new AtomicLong();
+
+	private final AtomicLong skippedFiles = new AtomicLong();
+
+	private final AtomicLong skippedTokens = new AtomicLong();
+
+	private final AtomicLong rejectedFiles = new AtomicLong();
+
+	private final AtomicLong cachedFiles = new AtomicLong();
+
+	/**
+	 * Counts a file whose class is excluded by the configuration.
+	 */
+	void excludedFile() {
+		excludedFiles.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of files whose class is excluded by the
+	 *         configuration.
+	 */
+	public long getExcludedFiles() {
+		return excludedFiles.get();
+	}
+
+	/**
+	 * Counts a file, whose tokens are ignored once its class is known to be
+	 * outside the application packages or excluded.
+	 *
+	 * @param tokens
+	 *            the number of ignored tokens of the file.
+	 */
+	void skippedFile(int tokens) {
+		skippedFiles.incrementAndGet();
+		skippedTokens.addAndGet(tokens);
+	}
+
+	/**
+	 * @return the number of files, whose tokens are ignored once the class is
+	 *         known to be outside the application packages or excluded.
+	 */
+	public long getSkippedFiles() {
+		return skippedFiles.get();
+	}
+
+	/**
+	 * @return the number of tokens ignored in the skipped files.
+	 */
+	public long getSkippedTokens() {
+		return skippedTokens.get();
+	}
+
+	/**
+	 * Counts a file rejected before it is parsed.
+	 */
+	void rejectedFile() {
+		rejectedFiles.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of files rejected by the {@link StereotypeFileFilter}
+	 *         before they are parsed.
+	 */
+	public long getRejectedFiles() {
+		return rejectedFiles.get();
+	}
+
+	/**
+	 * Counts a file answered from the {@link ResultCache}.
+	 */
+	void cachedFile() {
+		cachedFiles.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of files answered from the {@link ResultCache}
+	 *         without visiting their tokens.
+	 */
+	public long getCachedFiles() {
+		return cachedFiles.get();
+	}
+
+	@Override
+	public String toString() {
+		return "excluded files: " + excludedFiles.get() + ", skipped files: " + skippedFiles.get()
+				+ ", skipped tokens: " + skippedTokens.get() + ", rejected files: " + rejectedFiles.get()
+				+ ", cached files: " + cachedFiles.get();
+	}
+}
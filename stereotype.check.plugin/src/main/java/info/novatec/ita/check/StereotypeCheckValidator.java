@@ -16,168 +16,378 @@
 package info.novatec.ita.check;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.apache.commons.lang3.StringUtils;
-
 import com.puppycrawl.tools.checkstyle.api.DetailAST;
 
-import info.novatec.ita.check.config.AnnotationConfiguration;
-import info.novatec.ita.check.config.StereotypeCondition;
-import info.novatec.ita.check.config.StereotypeConfiguration;
-import info.novatec.ita.check.config.StereotypeIdentifier;
+import info.novatec.ita.check.config.ImportClassification;
+import info.novatec.ita.check.config.StereotypeCheckConfiguration;
+import info.novatec.ita.check.config.StereotypeRule;
+import info.novatec.ita.check.config.StereotypeRuleSet;
 
 /**
- * Validates the parsed information against the configuration
+ * Validates the parsed information against the configuration.
+ * <p>
+ * A validator can not be changed once it is created, neither can the
+ * configuration, its {@link StereotypeRuleSet} and the {@link TypeIndex} it
+ * reads. The state of the validation of a file is kept in its
+ * {@link CheckContext}, so a validator can validate files on many threads.
  * 
  * @author Volker Koch (volker.koch@novatec-gmbh.de)
  */
-public class StereotypeCheckValidator {
+public final class StereotypeCheckValidator {
 
 	private static final Logger logger = Logger.getLogger(StereotypeCheckValidator.class.getCanonicalName());
-	private StereotypeCheck check;
+
+	private final StereotypeCheckConfiguration config;
+
+	/** The stereotypes of all classes of the project, null if there is none. */
+	private final TypeIndex typeIndex;
+
+	/** The ids of the stereotypes, the index is the ordinal. */
+	private final String[] stereotypeIds;
 
 	/**
-	 * Creates a validator belonging to the actual instance of the checker.
+	 * Creates a validator.
+	 * 
+	 * @param config
+	 *            the configuration to validate against.
 	 */
-	StereotypeCheckValidator(StereotypeCheck check) {
-		this.check = check;
+	StereotypeCheckValidator(StereotypeCheckConfiguration config) {
+		this(config, null);
+	}
+
+	/**
+	 * Creates a validator, which also checks the dependencies to classes
+	 * belonging to a stereotype by their annotations, interfaces or base
+	 * classes.
+	 * 
+	 * @param config
+	 *            the configuration to validate against.
+	 * @param typeIndex
+	 *            the stereotypes of all classes of the project, null if
+	 *            there is none.
+	 */
+	StereotypeCheckValidator(StereotypeCheckConfiguration config, TypeIndex typeIndex) {
+		this.config = config;
+		this.typeIndex = typeIndex;
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+		this.stereotypeIds = new String[ruleSet.size()];
+		for (int ordinal = 0; ordinal < ruleSet.size(); ordinal++) {
+			stereotypeIds[ordinal] = ruleSet.getRule(ordinal).getId().toString();
+		}
 	}
 
 	/**
 	 * Validates the parsed information against the configuration.
 	 * 
-	 * @param ast
-	 *            the actual position in the parsing.
-	 * @param classToCheck
-	 *            the parsed information.
+	 * @param context
+	 *            the parsed information of the file, receives the errors.
 	 */
-	void validate(DetailAST ast, ClassInfo classToCheck) {
-		logger.fine("ClassInfo " + classToCheck);
-		if (!check.getConfig().isInApplicationPackage(classToCheck.getFullClassName())){
-			logger.fine("Class is not part of an application package "+classToCheck.getFullClassName());
+	void validate(CheckContext context) {
+		ClassInfo classToCheck = context.getCurrentClass();
+		if (logger.isLoggable(Level.FINE)) {
+			logger.fine("ClassInfo " + classToCheck);
+		}
+		String fullClassName = classToCheck.getFullClassName();
+		if (!config.isInApplicationPackage(fullClassName)) {
+			logger.log(Level.FINE, "Class is not part of an application package {0}", fullClassName);
 			return;
 		}
-		if (classToCheck.isExcluded(check.getConfig().getExcludedClasses())) {
-			logger.fine("Class is a excluded by configuration: "+classToCheck.getFullClassName());
+		if (config.isExcluded(fullClassName)) {
+			context.getStatistics().excludedFile();
+			logger.log(Level.FINE, "Class is excluded by configuration: {0}", fullClassName);
 			return;
 		}
 		// check
-		for (StereotypeConfiguration config : check.getConfig().getStereotypeConfig().values()) {
-			boolean hasPostfix = classToCheck.hasPostfix(config.getPostfix());
-			boolean hasInterface;
-			boolean hasBaseClass;
-			Set<String> interfaceNames = config.getInterfaceNames();
-			if (classToCheck.isInterface()) {
-				hasInterface = false;
-				hasBaseClass = classToCheck.hasBaseClass(interfaceNames);
-			} else {
-				hasInterface = classToCheck.hasInterface(config.getInterfaceNames())
-						|| classToCheck.extendsSameStereotype(config);
-				hasBaseClass = classToCheck.hasBaseClass(config.getBaseClassNames())
-						|| classToCheck.extendsSameStereotype(config);
-			}
-			boolean isInPackage = classToCheck.isInPackage(config.getPackageName());
-
-			if (config.isPostfixConditionSufficent(hasPostfix)
-					|| hasMinimumOneSufficientAnnotation(classToCheck, config)
-					|| config.isInterfaceNameSufficent(hasInterface) || config.isBaseClassnameSufficent(hasBaseClass)
-					|| config.isPackageNameSufficent(isInPackage)) {
-				if (config.getPostfix() != null && !hasPostfix) {
-					addError(classToCheck.getClassAst(),
-							"Stereotype " + config.getId() + ": missing postfix " + config.getPostfix());
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+		matchClass(context, ruleSet);
+		BitSet classPostfixes = context.getClassPostfixes();
+		BitSet classPackages = context.getClassPackages();
+		for (int ordinal = 0; ordinal < ruleSet.size(); ordinal++) {
+			StereotypeRule rule = ruleSet.getRule(ordinal);
+			boolean hasPostfix = classPostfixes.get(ordinal);
+			boolean hasInterface = hasInterface(classToCheck, rule);
+			boolean hasBaseClass = hasBaseClass(classToCheck, rule);
+			boolean hasInterfaceNames = rule.hasInterfaceNames();
+			boolean isInPackage = classPackages.get(ordinal);
+
+			if (isPartOfStereotype(classToCheck, rule, hasPostfix, hasInterface, hasBaseClass, isInPackage)) {
+				if (rule.getPostfix() != null && !hasPostfix) {
+					context.addError(classToCheck.getClassAst(), rule.getMissingPostfixMessage());
 				}
-				if (config.getAnnotationConfigs().size() > 0 && !hasAllAnnotations(classToCheck, config)) {
-					addError(classToCheck.getClassAst(), "Stereotype " + config.getId() + ": missing annotation "
-							+ config.getAnnotationNamesAsString());
+				if (rule.getAnnotationConfigCount() > 0 && !hasAllAnnotations(classToCheck, rule)) {
+					context.addError(classToCheck.getClassAst(), rule.getMissingAnnotationMessage());
 				}
-				if (!classToCheck.isInterface() && interfaceNames.size() > 0 && !hasInterface) {
-					addError(classToCheck.getClassAst(),
-							"Stereotype " + config.getId() + ": does not implement " + concatSorted(interfaceNames));
+				if (!classToCheck.isInterface() && hasInterfaceNames && !hasInterface) {
+					context.addError(classToCheck.getClassAst(), rule.getMissingInterfaceMessage());
 				}
-				if (classToCheck.isInterface() && interfaceNames.size() > 0 && !hasBaseClass) {
-					addError(classToCheck.getClassAst(),
-							"Stereotype " + config.getId() + ": does not extend " + concatSorted(interfaceNames));
+				if (classToCheck.isInterface() && hasInterfaceNames && !hasBaseClass) {
+					context.addError(classToCheck.getClassAst(), rule.getMissingBaseInterfaceMessage());
 				}
-				if (config.getBaseClassNames().size() > 0 && !hasBaseClass) {
-					addError(classToCheck.getClassAst(), "Stereotype " + config.getId() + ": does not extend "
-							+ concatSorted(config.getBaseClassNames()));
+				if (rule.hasBaseClassNames() && !hasBaseClass) {
+					context.addError(classToCheck.getClassAst(), rule.getMissingBaseClassMessage());
 				}
-				if (config.getPackageName() != null && !isInPackage) {
-					addError(classToCheck.getClassAst(),
-							"Stereotype " + config.getId() + ": is not in package " + config.getPackageName());
+				if (rule.getPackageName() != null && !isInPackage) {
+					context.addError(classToCheck.getClassAst(), rule.getWrongPackageMessage());
 				}
-				checkDependency(ast, classToCheck, config);
+				checkDependency(context, ruleSet, rule);
 			}
 		}
 	}
 
-	private boolean hasMinimumOneSufficientAnnotation(ClassInfo classToCheck, StereotypeConfiguration config) {
-		boolean hasAllSufficientAnnotations = false;
-		for (AnnotationConfiguration anConfig : config.getAnnotationConfigs()) {
-			boolean hasSingleAnnotation = classToCheck.hasAnnotation(anConfig.getAnnotationNames());
-			// you can have different annotations that can have different
-			// conditions,
-			// therefore you have to check if the class has minimum one
-			// sufficient annotation
-			hasAllSufficientAnnotations |= anConfig.isAnnotationNameSufficent(hasSingleAnnotation);
+	/**
+	 * Adds the class to the index of the first pass with all stereotypes it
+	 * belongs to. Nothing is reported.
+	 * 
+	 * @param context
+	 *            the parsed information of the file.
+	 * @param builder
+	 *            receives the stereotypes of the class.
+	 */
+	void index(CheckContext context, TypeIndex.Builder builder) {
+		String fullClassName = context.getCurrentClass().getFullClassName();
+		if (config.isInApplicationPackage(fullClassName) && !config.isExcluded(fullClassName)) {
+			builder.add(fullClassName, stereotypesOf(context));
 		}
-		return hasAllSufficientAnnotations;
 	}
 
-	private boolean hasAllAnnotations(ClassInfo classToCheck, StereotypeConfiguration config) {
-		boolean hasAllAnnotations = true;
-		for (AnnotationConfiguration anConfig : config.getAnnotationConfigs()) {
-			hasAllAnnotations &= classToCheck.hasAnnotation(anConfig.getAnnotationNames());
+	/**
+	 * Adds the class to the graph of the imports with all stereotypes it
+	 * belongs to. Only the imports of the application packages are added.
+	 * Nothing is reported.
+	 * 
+	 * @param context
+	 *            the parsed information of the file.
+	 * @param builder
+	 *            receives the imports and stereotypes of the class.
+	 */
+	void addToGraph(CheckContext context, ImportGraph.Builder builder) {
+		ClassInfo classToAdd = context.getCurrentClass();
+		String fullClassName = classToAdd.getFullClassName();
+		if (!isExported(classToAdd, fullClassName)) {
+			return;
 		}
+		List<String> imports = new ArrayList<>();
+		for (String imported : classToAdd.getImports()) {
+			// a wildcard import does not tell which classes are used
+			if (!imported.endsWith(".*") && config.isInApplicationPackage(imported)) {
+				imports.add(imported);
+			}
+		}
+		builder.add(fullClassName, imports, stereotypesOf(context), stereotypeIds);
+	}
 
+	/**
+	 * Exports the class with all stereotypes it belongs to and the
+	 * dependencies of its imports. An import is a dependency to the same
+	 * stereotypes, which {@link #validate(CheckContext)} checks it against.
+	 * Nothing is reported.
+	 * 
+	 * @param context
+	 *            the parsed information of the file.
+	 * @param exporter
+	 *            receives the class and its dependencies.
+	 */
+	void export(CheckContext context, StereotypeGraphExporter exporter) {
+		String fullClassName = context.getCurrentClass().getFullClassName();
+		if (!isExported(context.getCurrentClass(), fullClassName)) {
+			return;
+		}
+		BitSet stereotypes = stereotypesOf(context);
+		exporter.addClass(fullClassName, stereotypes, stereotypeIds);
+		if (stereotypes.isEmpty()) {
+			return;
+		}
+		if (context.getImports() == null) {
+			classifyImports(context);
+		}
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+		BitSet importStereotypes = new BitSet(ruleSet.size());
+		for (int i = 0; i < context.getImports().length; i++) {
+			if (!context.getImportClassification(i).isChecked()) {
+				continue;
+			}
+			importStereotypes.clear();
+			for (int to = 0; to < ruleSet.size(); to++) {
+				if (isImportOfStereotype(context, i, ruleSet.getRule(to))) {
+					importStereotypes.set(to);
+				}
+			}
+			exporter.addDependency(stereotypes, importStereotypes);
+		}
+	}
+
+	/**
+	 * Is the class part of the graph of the application. An annotation type
+	 * has no class name and is not part of it.
+	 */
+	private boolean isExported(ClassInfo classInfo, String fullClassName) {
+		return classInfo.getClassName() != null && config.isInApplicationPackage(fullClassName)
+				&& !config.isExcluded(fullClassName);
+	}
+
+	/**
+	 * Is the import a dependency to the stereotype, by the same conditions
+	 * as in {@link #checkDependency(CheckContext, StereotypeRuleSet, StereotypeRule)}.
+	 */
+	private boolean isImportOfStereotype(CheckContext context, int i, StereotypeRule toRule) {
+		int to = toRule.getOrdinal();
+		ImportClassification importClassification = context.getImportClassification(i);
+		if (importClassification.isPartOfStereotype(to)) {
+			return false;
+		}
+		return (toRule.isPostfixSufficient() && importClassification.hasPostfix(to))
+				|| (toRule.isPackageNameSufficient() && !context.isImportInSamePackage(i)
+						&& importClassification.isInPackage(to))
+				|| (typeIndex != null && typeIndex.isPartOfStereotype(context.getImports()[i], to));
+	}
+
+	/**
+	 * @return the ordinals of all stereotypes the class belongs to.
+	 */
+	private BitSet stereotypesOf(CheckContext context) {
+		ClassInfo classInfo = context.getCurrentClass();
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+		matchClass(context, ruleSet);
+		BitSet stereotypes = new BitSet(ruleSet.size());
+		for (int ordinal = 0; ordinal < ruleSet.size(); ordinal++) {
+			StereotypeRule rule = ruleSet.getRule(ordinal);
+			if (isPartOfStereotype(classInfo, rule, context.getClassPostfixes().get(ordinal),
+					hasInterface(classInfo, rule), hasBaseClass(classInfo, rule),
+					context.getClassPackages().get(ordinal))) {
+				stereotypes.set(ordinal);
+			}
+		}
+		return stereotypes;
+	}
+
+	/**
+	 * Matches the name and package of the class and resolves its types.
+	 */
+	private static void matchClass(CheckContext context, StereotypeRuleSet ruleSet) {
+		ClassInfo classToCheck = context.getCurrentClass();
+		ruleSet.matchPostfixes(classToCheck.getClassName(), context.getClassPostfixes());
+		if (classToCheck.getPackageName() != null) {
+			ruleSet.matchPackages(classToCheck.getPackageName(), context.getClassPackages());
+		}
+		classToCheck.resolveTypes(ruleSet);
+	}
+
+	/**
+	 * Does the class belong to the stereotype, because it fulfills one of
+	 * its sufficient conditions.
+	 */
+	private boolean isPartOfStereotype(ClassInfo classToCheck, StereotypeRule rule, boolean hasPostfix,
+			boolean hasInterface, boolean hasBaseClass, boolean isInPackage) {
+		return (rule.isPostfixSufficient() && hasPostfix) || hasMinimumOneSufficientAnnotation(classToCheck, rule)
+				|| (rule.isInterfaceNameSufficient() && hasInterface)
+				|| (rule.isBaseClassNameSufficient() && hasBaseClass)
+				|| (rule.isPackageNameSufficient() && isInPackage);
+	}
+
+	private static boolean hasInterface(ClassInfo classToCheck, StereotypeRule rule) {
+		if (classToCheck.isInterface()) {
+			return false;
+		}
+		return classToCheck.hasInterface(rule) || classToCheck.extendsSameStereotype(rule);
+	}
+
+	private static boolean hasBaseClass(ClassInfo classToCheck, StereotypeRule rule) {
+		if (classToCheck.isInterface()) {
+			// an interface extends the interfaces of the stereotype
+			return classToCheck.hasBaseClass(rule);
+		}
+		return classToCheck.hasBaseClass(rule) || classToCheck.extendsSameStereotype(rule);
+	}
+
+	private boolean hasMinimumOneSufficientAnnotation(ClassInfo classToCheck, StereotypeRule rule) {
+		// you can have different annotations that can have different
+		// conditions, therefore you have to check if the class has minimum one
+		// sufficient annotation
+		for (int i = 0; i < rule.getAnnotationConfigCount(); i++) {
+			if (rule.isAnnotationSufficient(i) && classToCheck.hasAnnotation(rule, i)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean hasAllAnnotations(ClassInfo classToCheck, StereotypeRule rule) {
 		if (classToCheck.isAbstract()) {
 			// annotations on abstract classes can be ignored
-			hasAllAnnotations = true;
-		}
-		return hasAllAnnotations;
-	}
-
-	private String concatSorted(Set<String> strings) {
-		List<String> sortedStrings = new ArrayList<>(strings);
-		Collections.sort(sortedStrings);
-		return StringUtils.join(sortedStrings, " or ");
-	}
-
-	private void checkDependency(DetailAST ast, ClassInfo classToCheck, StereotypeConfiguration config) {
-		Set<StereotypeIdentifier> allowedDependencies = check.getConfig().getDependencies().get(config.getId()).getAllowedToDependencies();
-		Set<StereotypeIdentifier> disallowedDependencies = new HashSet<StereotypeIdentifier>(
-				check.getConfig().getStereotypeConfig().keySet());
-		if (allowedDependencies != null) {
-			disallowedDependencies.removeAll(allowedDependencies);
-		}
-		for (StereotypeIdentifier to : disallowedDependencies) {
-			StereotypeConfiguration toConfig = check.getConfig().getStereotypeConfig().get(to);
-			for (String importedClass : classToCheck.getImports()) {
-				if ((check.getConfig().isInApplicationPackage(importedClass)
-						|| check.getConfig().isPartOfAnyStereotype(importedClass)) && !toConfig.isPartOfStereotype(importedClass)) {
-					if (toConfig.getPostfixCondition() == StereotypeCondition.sufficient
-							&& importedClass.endsWith(toConfig.getPostfix())) {
-						DetailAST importAst = classToCheck.getImportAst(importedClass);
-						addError(importAst, "Disallowed dependency from stereotype " + config.getId()
-								+ " to stereotype " + toConfig.getId() + ": " + importedClass);
+			return true;
+		}
+		for (int i = 0; i < rule.getAnnotationConfigCount(); i++) {
+			if (!classToCheck.hasAnnotation(rule, i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void checkDependency(CheckContext context, StereotypeRuleSet ruleSet, StereotypeRule rule) {
+		if (context.getImports() == null) {
+			classifyImports(context);
+		}
+		String[] imports = context.getImports();
+		for (int to = 0; to < ruleSet.size(); to++) {
+			if (ruleSet.isAllowed(rule.getOrdinal(), to)) {
+				continue;
+			}
+			StereotypeRule toRule = ruleSet.getRule(to);
+			for (int i = 0; i < imports.length; i++) {
+				ImportClassification importClassification = context.getImportClassification(i);
+				if (importClassification.isChecked() && !importClassification.isPartOfStereotype(to)) {
+					boolean isReported = false;
+					if (toRule.isPostfixSufficient() && importClassification.hasPostfix(to)) {
+						addDependencyError(context, rule, toRule, imports[i]);
+						isReported = true;
+					}
+					// a class in the same package matches the same packages as
+					// the class itself, so the package does not tell anything
+					// about the dependency
+					if (toRule.isPackageNameSufficient() && !context.isImportInSamePackage(i)
+							&& importClassification.isInPackage(to)) {
+						addDependencyError(context, rule, toRule, imports[i]);
+						isReported = true;
 					}
-					if (toConfig.getPackageNameCondition() == StereotypeCondition.sufficient
-							&& importedClass.startsWith(toConfig.getPackageName())) {
-						DetailAST importAst = classToCheck.getImportAst(importedClass);
-						addError(importAst, "Disallowed dependency from stereotype " + config.getId()
-								+ " to stereotype " + toConfig.getId() + ": " + importedClass);
+					// the annotations, interfaces and base classes of the
+					// imported class are only known from the index
+					if (!isReported && typeIndex != null && typeIndex.isPartOfStereotype(imports[i], to)) {
+						addDependencyError(context, rule, toRule, imports[i]);
 					}
 				}
 			}
 		}
 	}
 
-	private void addError(DetailAST ast, String message, Object... parameters) {
-		check.addError(ast, message, parameters);
+	/**
+	 * Classifies the imports of the class once, the first time a dependency
+	 * is checked.
+	 */
+	private void classifyImports(CheckContext context) {
+		ClassInfo classToCheck = context.getCurrentClass();
+		String[] imports = classToCheck.getImports().toArray(new String[0]);
+		ImportClassification[] importClassifications = new ImportClassification[imports.length];
+		boolean[] importInSamePackage = new boolean[imports.length];
+		String packageName = classToCheck.getPackageName();
+		for (int i = 0; i < imports.length; i++) {
+			importClassifications[i] = config.classifyImport(imports[i]);
+			importInSamePackage[i] = packageName != null
+					&& ImportClassification.packageLength(imports[i]) == packageName.length()
+					&& imports[i].startsWith(packageName);
+		}
+		context.setImports(imports, importClassifications, importInSamePackage);
+	}
+
+	private void addDependencyError(CheckContext context, StereotypeRule rule, StereotypeRule toRule,
+			String importedClass) {
+		DetailAST importAst = context.getCurrentClass().getImportAst(importedClass);
+		context.addError(importAst, "Disallowed dependency from stereotype " + rule.getId() + " to stereotype "
+				+ toRule.getId() + ": " + importedClass);
 	}
 }
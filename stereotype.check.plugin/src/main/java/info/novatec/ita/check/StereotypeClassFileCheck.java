@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.puppycrawl.tools.checkstyle.api.DetailAST;
+
+import info.novatec.ita.check.config.StereotypeCheckConfiguration;
+
+/**
+ * Checks compiled classes against the stereotypes, like the
+ * {@link StereotypeCheck} checks the sources. The facts about a class are read
+ * from its class file by the {@link ClassFileReader} and validated by the same
+ * {@link StereotypeCheckValidator}.
+ * <p>
+ * A class file has no positions in the source, so all errors are reported for
+ * the whole class. The class files of the nested, local and anonymous classes
+ * are checked with their top level class, see
+ * {@link #groupClassFiles(Collection)}. A check holds no state of a class, so
+ * it can check classes on many threads.
+ */
+public final class StereotypeClassFileCheck {
+
+	private final StereotypeCheckValidator validator;
+
+	/**
+	 * The counters of this check.
+	 */
+	private final StereotypeCheckStatistics statistics = new StereotypeCheckStatistics();
+
+	/**
+	 * Creates a check and loads the configuration.
+	 * 
+	 * @param filename
+	 *            the filename of the configuration.
+	 * @param compiledFilename
+	 *            the filename of the compiled snapshot of the configuration,
+	 *            null if there is no snapshot.
+	 */
+	public StereotypeClassFileCheck(String filename, String compiledFilename) {
+		StereotypeCheckConfiguration config = StereotypeCheck.loadConfiguration(getClass(), filename,
+				compiledFilename);
+		this.validator = new StereotypeCheckValidator(config);
+	}
+
+	/**
+	 * Groups class files by their top level class. The class files of the
+	 * nested classes, e.g. <code>Outer$1.class</code> for
+	 * <code>Outer.class</code>, are checked with the class file of their top
+	 * level class in the same directory. The files are grouped by their names
+	 * only, so no directory is listed again.
+	 * 
+	 * @param classFiles
+	 *            the class files.
+	 * @return the nested class files of every class file to be checked, in
+	 *         the order of the class files. A class file, whose top level
+	 *         class file is not given, is checked on its own.
+	 * @see #check(Path, Collection)
+	 */
+	public static Map<Path, List<Path>> groupClassFiles(Collection<Path> classFiles) {
+		Set<Path> givenFiles = new HashSet<>(classFiles);
+		Map<Path, List<Path>> groups = new LinkedHashMap<>();
+		List<Path> nestedFiles = new ArrayList<>();
+		for (Path classFile : classFiles) {
+			String topLevelName = topLevelClassFileName(classFile.getFileName().toString());
+			if (topLevelName != null && givenFiles.contains(classFile.resolveSibling(topLevelName))) {
+				nestedFiles.add(classFile);
+			} else {
+				groups.put(classFile, new ArrayList<>());
+			}
+		}
+		for (Path nestedFile : nestedFiles) {
+			String topLevelName = topLevelClassFileName(nestedFile.getFileName().toString());
+			groups.get(nestedFile.resolveSibling(topLevelName)).add(nestedFile);
+		}
+		return groups;
+	}
+
+	/**
+	 * @param name
+	 *            the name of a class file, may start with the path of its
+	 *            package separated by slashes, like an entry of a jar.
+	 * @return the name of the class file of the top level class of a nested
+	 *         class, null if the name of the class contains no $. A $ at the
+	 *         start of the simple name does not separate a nested class.
+	 */
+	public static String topLevelClassFileName(String name) {
+		int nestedStart = name.indexOf('$', name.lastIndexOf('/') + 2);
+		return nestedStart < 0 ? null : name.substring(0, nestedStart) + ".class";
+	}
+
+	/**
+	 * Checks a class file without its nested classes. The file is mapped into
+	 * memory while it is read.
+	 * 
+	 * @param classFile
+	 *            the class file.
+	 * @return the messages of the errors found in the class. Empty if the file
+	 *         contains a nested class, which is checked with its top level
+	 *         class.
+	 * @throws IOException
+	 *             if the file can not be read.
+	 * @see #check(Path, Collection)
+	 */
+	public List<String> check(Path classFile) throws IOException {
+		return check(classFile, Collections.emptyList());
+	}
+
+	/**
+	 * Checks a class file together with the class files of its nested classes.
+	 * The files are mapped into memory while they are read.
+	 * 
+	 * @param classFile
+	 *            the class file.
+	 * @param nestedClassFiles
+	 *            the class files of the nested classes, as grouped by
+	 *            {@link #groupClassFiles(Collection)}.
+	 * @return the messages of the errors found in the class.
+	 * @throws IOException
+	 *             if a file can not be read.
+	 * @see #check(ByteBuffer, Collection)
+	 */
+	public List<String> check(Path classFile, Collection<Path> nestedClassFiles) throws IOException {
+		List<ByteBuffer> nestedClasses = new ArrayList<>(nestedClassFiles.size());
+		for (Path nestedClassFile : nestedClassFiles) {
+			nestedClasses.add(map(nestedClassFile));
+		}
+		return check(map(classFile), nestedClasses);
+	}
+
+	private static MappedByteBuffer map(Path classFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(classFile, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/**
+	 * Checks the content of a class file without its nested classes.
+	 * 
+	 * @param bytes
+	 *            the content of the class file, from the position to the
+	 *            limit of the buffer.
+	 * @return the messages of the errors found in the class. Empty if the file
+	 *         contains a nested class, which is checked with its top level
+	 *         class.
+	 * @throws IllegalArgumentException
+	 *             if the content is no class file.
+	 * @see #check(ByteBuffer, Collection)
+	 */
+	public List<String> check(ByteBuffer bytes) {
+		return check(bytes, Collections.emptyList());
+	}
+
+	/**
+	 * Checks the content of a class file. The dependencies of its nested,
+	 * local and anonymous classes are dependencies of the class, like in the
+	 * source.
+	 * 
+	 * @param bytes
+	 *            the content of the class file, from the position to the
+	 *            limit of the buffer.
+	 * @param nestedClasses
+	 *            the contents of the class files of the nested classes. A
+	 *            content of a class not nested in the class is ignored.
+	 * @return the messages of the errors found in the class. Empty if the file
+	 *         contains a nested class, which is checked with its top level
+	 *         class.
+	 * @throws IllegalArgumentException
+	 *             if a content is no class file.
+	 */
+	public List<String> check(ByteBuffer bytes, Collection<ByteBuffer> nestedClasses) {
+		List<String> messages = new ArrayList<>();
+		CheckContext context = new CheckContext((ast, message) -> messages.add(message), statistics);
+		DetailAST position = new DetailAST();
+		position.setLineNo(0);
+		position.setColumnNo(0);
+		if (!ClassFileReader.read(bytes, context.getCurrentClass(), position)) {
+			return Collections.emptyList();
+		}
+		for (ByteBuffer nestedClass : nestedClasses) {
+			ClassFileReader.readNested(nestedClass, context.getCurrentClass(), position);
+		}
+		validator.validate(context);
+		return messages;
+	}
+
+	/**
+	 * @return the counters of this check
+	 */
+	public StereotypeCheckStatistics getStatistics() {
+		return statistics;
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.puppycrawl.tools.checkstyle.api.AutomaticBean;
+import com.puppycrawl.tools.checkstyle.api.BeforeExecutionFileFilter;
+
+import info.novatec.ita.check.config.StereotypeCheckConfiguration;
+
+/**
+ * Rejects java-files, whose class is outside the application packages or is
+ * excluded by the configuration of the {@link StereotypeCheck}, before
+ * Checkstyle parses them. Only the package declaration at the beginning of a
+ * file is read, the name of the class is the name of the file.
+ * <p>
+ * The filter rejects files for all checks, so it should only be used in a
+ * Checkstyle configuration that contains no other checks than the
+ * {@link StereotypeCheck}.
+ */
+public class StereotypeFileFilter extends AutomaticBean implements BeforeExecutionFileFilter {
+
+	private static final Logger logger = Logger.getLogger(StereotypeFileFilter.class.getCanonicalName());
+
+	private static final String JAVA_EXTENSION = ".java";
+
+	/** The filename of the the central configuration file. */
+	private String filename = null;
+
+	/**
+	 * The filename of the compiled snapshot of the central configuration
+	 * file. Optional.
+	 */
+	private String compiledFilename = null;
+
+	/** The configuration read from {@link #filename}. */
+	private StereotypeCheckConfiguration stereotypeCheckConfig;
+
+	/** The counters of this filter. */
+	private final StereotypeCheckStatistics statistics = new StereotypeCheckStatistics();
+
+	/**
+	 * Set the filename of the configuration.
+	 * 
+	 * @param filename
+	 *            the filename of the configuration.
+	 */
+	public void setFile(String filename) {
+		this.filename = filename;
+	}
+
+	/**
+	 * Set the filename of the compiled snapshot of the configuration.
+	 * 
+	 * @param compiledFilename
+	 *            the filename of the compiled snapshot.
+	 * @see StereotypeCheck#setCompiledFile(String)
+	 */
+	public void setCompiledFile(String compiledFilename) {
+		this.compiledFilename = compiledFilename;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void finishLocalSetup() {
+		this.stereotypeCheckConfig = StereotypeCheck.loadConfiguration(getClass(), this.filename,
+				this.compiledFilename);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public boolean accept(String uri) {
+		if (!uri.endsWith(JAVA_EXTENSION)) {
+			return true;
+		}
+		String fileName = Paths.get(uri).getFileName().toString();
+		String className = fileName.substring(0, fileName.length() - JAVA_EXTENSION.length());
+		if (className.indexOf('-') >= 0) {
+			// package-info.java and module-info.java
+			return true;
+		}
+		String packageName;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(uri), 512)) {
+			packageName = PackageDeclarationScanner.scan(in);
+		} catch (IOException e) {
+			// Checkstyle reports the file, if it can not be read
+			return true;
+		}
+		if (packageName == null) {
+			return true;
+		}
+		String fullClassName = packageName.isEmpty() ? className : packageName + "." + className;
+		if (!stereotypeCheckConfig.isInApplicationPackage(fullClassName)) {
+			logger.log(Level.FINE, "Class is not part of an application package {0}", fullClassName);
+			statistics.rejectedFile();
+			return false;
+		}
+		if (stereotypeCheckConfig.isExcluded(fullClassName)) {
+			logger.log(Level.FINE, "Class is excluded by configuration: {0}", fullClassName);
+			statistics.excludedFile();
+			statistics.rejectedFile();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the counters of this filter
+	 */
+	public StereotypeCheckStatistics getStatistics() {
+		return statistics;
+	}
+}
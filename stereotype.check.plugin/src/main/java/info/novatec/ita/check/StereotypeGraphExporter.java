@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Writes the stereotypes of the validated classes and the dependencies
+ * between the stereotypes, to visualize and compare the actual architecture.
+ * <p>
+ * Every class is written as soon as it is validated, with the stereotypes it
+ * belongs to. The imports of the class are counted as dependencies from each
+ * of its stereotypes to each stereotype of the imported class. Only the
+ * counts are kept in memory, in a {@link ConcurrentCountMap}, and written
+ * when the exporter is closed. So the memory does not grow with the number of
+ * classes, and the classes can be validated on many threads.
+ * <p>
+ * An error while writing is kept and thrown by {@link #close()}, nothing is
+ * written after an error.
+ */
+public final class StereotypeGraphExporter implements Closeable {
+
+	/** The formats of the output. */
+	public enum Format {
+		/** GraphML, e.g. for yEd or Gephi. */
+		GRAPHML,
+		/** A digraph of Graphviz. */
+		DOT,
+		/** One JSON object per line, for scripts. */
+		JSON_LINES;
+
+		/**
+		 * Finds the format by the extension of a filename: .graphml, .dot or
+		 * .gv, .jsonl.
+		 * 
+		 * @param filename
+		 *            the filename of the output.
+		 * @return the format.
+		 * @throws IllegalArgumentException
+		 *             if the extension is unknown.
+		 */
+		public static Format of(String filename) {
+			if (filename.endsWith(".graphml")) {
+				return GRAPHML;
+			}
+			if (filename.endsWith(".dot") || filename.endsWith(".gv")) {
+				return DOT;
+			}
+			if (filename.endsWith(".jsonl")) {
+				return JSON_LINES;
+			}
+			throw new IllegalArgumentException(
+					"Unknown format of " + filename + ", use .graphml, .dot, .gv or .jsonl");
+		}
+	}
+
+	private static final String CLASS_ID = "class:";
+
+	private static final String STEREOTYPE_ID = "stereotype:";
+
+	private final Writer writer;
+
+	private final Format format;
+
+	/**
+	 * The number of dependencies between two stereotypes. The key is the
+	 * ordinal of the depending stereotype in the high bits and the ordinal of
+	 * the other stereotype in the low bits.
+	 */
+	private final ConcurrentCountMap dependencies = new ConcurrentCountMap();
+
+	/** The ids of the stereotypes, the index is the ordinal. */
+	private volatile String[] stereotypeIds = new String[0];
+
+	/** The first error while writing, guarded by the writer. */
+	private IOException failure;
+
+	/**
+	 * Creates an exporter and writes the header of the format.
+	 * 
+	 * @param writer
+	 *            receives the output, closed by {@link #close()}.
+	 * @param format
+	 *            the format of the output.
+	 */
+	public StereotypeGraphExporter(Writer writer, Format format) {
+		this.writer = writer;
+		this.format = format;
+		switch (format) {
+		case GRAPHML:
+			write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+					+ "<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n"
+					+ "  <key id=\"kind\" for=\"node\" attr.name=\"kind\" attr.type=\"string\"/>\n"
+					+ "  <key id=\"count\" for=\"edge\" attr.name=\"count\" attr.type=\"long\"/>\n"
+					+ "  <graph id=\"stereotypes\" edgedefault=\"directed\">\n");
+			break;
+		case DOT:
+			write("digraph stereotypes {\n");
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Writes a class with its stereotypes.
+	 * 
+	 * @param className
+	 *            the full qualified name of the class.
+	 * @param stereotypes
+	 *            the ordinals of the stereotypes of the class.
+	 * @param stereotypeIds
+	 *            the ids of all stereotypes, the index is the ordinal.
+	 */
+	void addClass(String className, BitSet stereotypes, String[] stereotypeIds) {
+		this.stereotypeIds = stereotypeIds;
+		StringBuilder out = new StringBuilder();
+		switch (format) {
+		case GRAPHML:
+			out.append("    <node id=\"").append(xml(CLASS_ID + className))
+					.append("\"><data key=\"kind\">class</data></node>\n");
+			for (int ordinal = stereotypes.nextSetBit(0); ordinal >= 0; ordinal = stereotypes
+					.nextSetBit(ordinal + 1)) {
+				out.append("    <edge source=\"").append(xml(CLASS_ID + className)).append("\" target=\"")
+						.append(xml(STEREOTYPE_ID + stereotypeIds[ordinal])).append("\"/>\n");
+			}
+			break;
+		case DOT:
+			out.append("  ").append(dot(className)).append(";\n");
+			for (int ordinal = stereotypes.nextSetBit(0); ordinal >= 0; ordinal = stereotypes
+					.nextSetBit(ordinal + 1)) {
+				out.append("  ").append(dot(className)).append(" -> ").append(dot(stereotypeIds[ordinal]))
+						.append(" [style=dotted];\n");
+			}
+			break;
+		default:
+			out.append("{\"class\":").append(json(className)).append(",\"stereotypes\":[");
+			for (int ordinal = stereotypes.nextSetBit(0); ordinal >= 0; ordinal = stereotypes
+					.nextSetBit(ordinal + 1)) {
+				out.append(json(stereotypeIds[ordinal])).append(',');
+			}
+			if (!stereotypes.isEmpty()) {
+				out.setLength(out.length() - 1);
+			}
+			out.append("]}\n");
+			break;
+		}
+		write(out.toString());
+	}
+
+	/**
+	 * Counts a dependency from each of the stereotypes of a class to each of
+	 * the stereotypes of an imported class.
+	 * 
+	 * @param from
+	 *            the ordinals of the stereotypes of the class.
+	 * @param to
+	 *            the ordinals of the stereotypes of the imported class.
+	 */
+	void addDependency(BitSet from, BitSet to) {
+		for (int fromOrdinal = from.nextSetBit(0); fromOrdinal >= 0; fromOrdinal = from.nextSetBit(fromOrdinal + 1)) {
+			for (int toOrdinal = to.nextSetBit(0); toOrdinal >= 0; toOrdinal = to.nextSetBit(toOrdinal + 1)) {
+				dependencies.add((long) fromOrdinal << Integer.SIZE | toOrdinal, 1);
+			}
+		}
+	}
+
+	/**
+	 * @param fromId
+	 *            the id of the depending stereotype.
+	 * @param toId
+	 *            the id of the other stereotype.
+	 * @return the number of imports from classes of one stereotype to
+	 *         classes of the other stereotype counted so far.
+	 */
+	public long getDependencyCount(String fromId, String toId) {
+		List<String> ids = Arrays.asList(stereotypeIds);
+		int from = ids.indexOf(fromId);
+		int to = ids.indexOf(toId);
+		return from >= 0 && to >= 0 ? dependencies.get((long) from << Integer.SIZE | to) : 0;
+	}
+
+	/**
+	 * Writes the stereotypes and the counted dependencies between them and
+	 * closes the writer.
+	 * 
+	 * @throws IOException
+	 *             if the output could not be written.
+	 */
+	@Override
+	public void close() throws IOException {
+		String[] ids = stereotypeIds;
+		StringBuilder out = new StringBuilder();
+		if (format == Format.GRAPHML) {
+			for (String id : ids) {
+				out.append("    <node id=\"").append(xml(STEREOTYPE_ID + id))
+						.append("\"><data key=\"kind\">stereotype</data></node>\n");
+			}
+		} else if (format == Format.DOT) {
+			for (String id : ids) {
+				out.append("  ").append(dot(id)).append(" [shape=box];\n");
+			}
+		}
+		for (long key : sortedById(dependencies.keys(), ids)) {
+			String from = ids[(int) (key >>> Integer.SIZE)];
+			String to = ids[(int) key];
+			long count = dependencies.get(key);
+			switch (format) {
+			case GRAPHML:
+				out.append("    <edge source=\"").append(xml(STEREOTYPE_ID + from)).append("\" target=\"")
+						.append(xml(STEREOTYPE_ID + to)).append("\"><data key=\"count\">").append(count)
+						.append("</data></edge>\n");
+				break;
+			case DOT:
+				out.append("  ").append(dot(from)).append(" -> ").append(dot(to)).append(" [label=\"").append(count)
+						.append("\", weight=").append(count).append("];\n");
+				break;
+			default:
+				out.append("{\"from\":").append(json(from)).append(",\"to\":").append(json(to))
+						.append(",\"count\":").append(count).append("}\n");
+				break;
+			}
+		}
+		if (format == Format.GRAPHML) {
+			out.append("  </graph>\n</graphml>\n");
+		} else if (format == Format.DOT) {
+			out.append("}\n");
+		}
+		write(out.toString());
+		synchronized (writer) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * @return the keys of the dependencies sorted by the ids of the
+	 *         stereotypes instead of their ordinals.
+	 */
+	private static long[] sortedById(long[] keys, String[] ids) {
+		String[] sortedIds = ids.clone();
+		Arrays.sort(sortedIds);
+		int[] rank = new int[ids.length];
+		int[] ordinalOfRank = new int[ids.length];
+		for (int ordinal = 0; ordinal < ids.length; ordinal++) {
+			rank[ordinal] = Arrays.binarySearch(sortedIds, ids[ordinal]);
+			ordinalOfRank[rank[ordinal]] = ordinal;
+		}
+		long[] sorted = new long[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			sorted[i] = (long) rank[(int) (keys[i] >>> Integer.SIZE)] << Integer.SIZE | rank[(int) keys[i]];
+		}
+		Arrays.sort(sorted);
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = (long) ordinalOfRank[(int) (sorted[i] >>> Integer.SIZE)] << Integer.SIZE
+					| ordinalOfRank[(int) sorted[i]];
+		}
+		return sorted;
+	}
+
+	private void write(String text) {
+		synchronized (writer) {
+			if (failure != null) {
+				return;
+			}
+			try {
+				writer.write(text);
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+	}
+
+	private static String xml(String text) {
+		StringBuilder escaped = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '&':
+				escaped.append("&amp;");
+				break;
+			case '<':
+				escaped.append("&lt;");
+				break;
+			case '>':
+				escaped.append("&gt;");
+				break;
+			case '"':
+				escaped.append("&quot;");
+				break;
+			default:
+				escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+
+	/** A quoted id of Graphviz. */
+	private static String dot(String text) {
+		return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+	}
+
+	private static String json(String text) {
+		StringBuilder escaped = new StringBuilder(text.length() + 2).append('"');
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				escaped.append('\\').append(c);
+			} else if (c < ' ') {
+				escaped.append(String.format("\\u%04x", (int) c));
+			} else {
+				escaped.append(c);
+			}
+		}
+		return escaped.append('"').toString();
+	}
+}
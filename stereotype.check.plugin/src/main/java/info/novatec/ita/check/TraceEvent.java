@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+/**
+ * The facts the {@link StereotypeCheck} collects about a class, reported to
+ * a {@link TraceSink} and the log.
+ */
+public enum TraceEvent {
+
+	/** The package of the class. */
+	packageName("package name"),
+	/** The name of a class. */
+	className("class name"),
+	/** The name of an interface. */
+	interfaceName("interface name"),
+	/** The name of an annotation type. */
+	annotationName("annotation name"),
+	/** The class is abstract. */
+	abstractClass("abstract class"),
+	/** An import or a full qualified type used in the class. */
+	importName("import"),
+	/** An annotation of the class. */
+	annotation("annotation"),
+	/** An interface implemented by the class. */
+	implementsName("implements"),
+	/** A class or interface extended by the class. */
+	extendsName("extends"),
+	/** The class is outside the application packages, the file is skipped. */
+	notInApplicationPackage("Class is not part of an application package"),
+	/** The class is excluded by the configuration, the file is skipped. */
+	excluded("Class is excluded by configuration");
+
+	private final String label;
+
+	private TraceEvent(String label) {
+		this.label = label;
+	}
+
+	/**
+	 * @return the text logged in front of the value of the event.
+	 */
+	public String getLabel() {
+		return label;
+	}
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+/**
+ * Receives the facts the {@link StereotypeCheck} collects, e.g. to record
+ * them for a tool or a test. A sink is only called if it is set with
+ * {@link StereotypeCheck#setTraceSink(TraceSink)}.
+ */
+public interface TraceSink {
+
+	/**
+	 * Receives a fact.
+	 * 
+	 * @param event
+	 *            the kind of the fact.
+	 * @param value
+	 *            the value of the fact, e.g. the name of an import. Null if
+	 *            the fact has no value.
+	 * @param line
+	 *            the line of the fact in the java-file.
+	 */
+	void trace(TraceEvent event, String value, int line);
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The stereotypes of all classes of a project, collected by a first pass over
+ * all files. With the index the {@link StereotypeCheckValidator} also finds
+ * dependencies to classes that belong to a stereotype by a sufficient
+ * annotation, interface or base class, which can not be seen from the name of
+ * the imported class.
+ * <p>
+ * The index is an open addressing hash table. The slots are compared by the
+ * hash code of the class name first, every name is stored once and the
+ * stereotypes of a slot are a row of {@link #wordsPerRow} bit words, like the
+ * allowed dependencies of the {@link info.novatec.ita.check.config.StereotypeRuleSet}.
+ * Only classes that belong to a stereotype are stored.
+ * <p>
+ * An index can not be changed once it is built and can be shared between
+ * threads.
+ */
+public final class TypeIndex {
+
+	private static final int BITS_PER_WORD = Long.SIZE;
+
+	/** The names of the classes, null for an empty slot. */
+	private final String[] names;
+
+	/** The hash codes of the names, the index is the slot. */
+	private final int[] hashes;
+
+	/**
+	 * The stereotypes of the classes. The bit of the stereotype s of the class
+	 * in slot c is bit s of the row c.
+	 */
+	private final long[] stereotypes;
+
+	private final int wordsPerRow;
+
+	private final int size;
+
+	/**
+	 * Collects the stereotypes of the classes of the first pass. The files can
+	 * be read on many threads.
+	 */
+	public static final class Builder {
+
+		private final ConcurrentMap<String, BitSet> classes = new ConcurrentHashMap<>();
+
+		/**
+		 * Adds a class.
+		 * 
+		 * @param className
+		 *            the full qualified name of the class.
+		 * @param stereotypes
+		 *            the ordinals of the stereotypes of the class. Not stored
+		 *            if empty.
+		 */
+		void add(String className, BitSet stereotypes) {
+			if (!stereotypes.isEmpty()) {
+				classes.put(className, (BitSet) stereotypes.clone());
+			}
+		}
+
+		/**
+		 * @return the index of all classes added.
+		 */
+		public TypeIndex build() {
+			return new TypeIndex(classes);
+		}
+	}
+
+	private TypeIndex(Map<String, BitSet> classes) {
+		int maxOrdinal = -1;
+		for (BitSet ordinals : classes.values()) {
+			maxOrdinal = Math.max(maxOrdinal, ordinals.length() - 1);
+		}
+		this.wordsPerRow = maxOrdinal / BITS_PER_WORD + 1;
+		// at most half of the slots are used, so a search ends soon at an
+		// empty slot
+		int capacity = Integer.highestOneBit(Math.max(classes.size(), 1) * 2 - 1) << 1;
+		this.names = new String[capacity];
+		this.hashes = new int[capacity];
+		this.stereotypes = new long[capacity * wordsPerRow];
+		this.size = classes.size();
+		for (Map.Entry<String, BitSet> entry : classes.entrySet()) {
+			int hash = hash(entry.getKey());
+			int slot = hash & (capacity - 1);
+			while (names[slot] != null) {
+				slot = (slot + 1) & (capacity - 1);
+			}
+			names[slot] = entry.getKey();
+			hashes[slot] = hash;
+			BitSet ordinals = entry.getValue();
+			for (int ordinal = ordinals.nextSetBit(0); ordinal >= 0; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+				stereotypes[slot * wordsPerRow + ordinal / BITS_PER_WORD] |= 1L << ordinal;
+			}
+		}
+	}
+
+	/** Spreads the bits of the hash code, the slot is taken from the low bits. */
+	private static int hash(String className) {
+		int hash = className.hashCode();
+		return hash ^ (hash >>> 16);
+	}
+
+	private int slot(String className) {
+		int hash = hash(className);
+		int mask = names.length - 1;
+		for (int slot = hash & mask; names[slot] != null; slot = (slot + 1) & mask) {
+			if (hashes[slot] == hash && names[slot].equals(className)) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Does the class belong to the stereotype.
+	 * 
+	 * @param className
+	 *            the full qualified name of the class.
+	 * @param ordinal
+	 *            the ordinal of the stereotype.
+	 * @return true if the class is in the index and belongs to the stereotype.
+	 */
+	public boolean isPartOfStereotype(String className, int ordinal) {
+		if (ordinal >= wordsPerRow * BITS_PER_WORD) {
+			return false;
+		}
+		int slot = slot(className);
+		return slot >= 0 && (stereotypes[slot * wordsPerRow + ordinal / BITS_PER_WORD] & 1L << ordinal) != 0;
+	}
+
+	/**
+	 * @param className
+	 *            the full qualified name of the class.
+	 * @return the ordinals of the stereotypes of the class, empty if the class
+	 *         is not in the index.
+	 */
+	public BitSet getStereotypes(String className) {
+		BitSet ordinals = new BitSet();
+		int slot = slot(className);
+		if (slot >= 0) {
+			for (int ordinal = 0; ordinal < wordsPerRow * BITS_PER_WORD; ordinal++) {
+				if ((stereotypes[slot * wordsPerRow + ordinal / BITS_PER_WORD] & 1L << ordinal) != 0) {
+					ordinals.set(ordinal);
+				}
+			}
+		}
+		return ordinals;
+	}
+
+	/**
+	 * @return the number of classes in the index.
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return "TypeIndex [size=" + size + ", capacity=" + names.length + ", wordsPerRow=" + wordsPerRow + "]";
+	}
+}
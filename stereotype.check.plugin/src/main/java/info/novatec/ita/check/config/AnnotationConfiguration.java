@@ -15,6 +15,8 @@
  *******************************************************************************/
 package info.novatec.ita.check.config;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -28,17 +30,17 @@ import java.util.Set;
 public class AnnotationConfiguration {
 
 	/** The full qualified names of the annotations a stereotype must have. */
-	private Set<String> annotationNames = new HashSet<>();
+	private final Set<String> annotationNames = new HashSet<>();
 
 	/** Are the annotations sufficient or necessary for the stereotype. */
 	private StereotypeCondition annotationNameCondition;
 
 	/**
 	 * @return The full qualified names of the annotations a stereotype must
-	 *         have.
+	 *         have. The set can not be changed.
 	 */
 	public Set<String> getAnnotationNames() {
-		return annotationNames;
+		return Collections.unmodifiableSet(annotationNames);
 	}
 
 	/**
@@ -54,6 +56,16 @@ public class AnnotationConfiguration {
 		}
 	}
 
+	/**
+	 * Add the full qualified names of annotations a stereotype must have.
+	 * 
+	 * @param annotationNames
+	 *            full qualified names of annotations.
+	 */
+	void addAnnotationNames(Collection<String> annotationNames) {
+		this.annotationNames.addAll(annotationNames);
+	}
+
 	/**
 	 * @return the condition for the annotations.
 	 */
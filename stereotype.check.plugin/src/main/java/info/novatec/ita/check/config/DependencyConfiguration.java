@@ -15,6 +15,7 @@
  *******************************************************************************/
 package info.novatec.ita.check.config;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -65,7 +66,7 @@ public class DependencyConfiguration {
 	 * @param isAllowed
 	 *            if the dependency is not allowed provide the string "false". In all other cases it is true.
 	 */
-	public void addTo(StereotypeIdentifier to, String isAllowed) {
+	void addTo(StereotypeIdentifier to, String isAllowed) {
 		boolean allowed = !"false".equalsIgnoreCase(isAllowed);
 		outgoingDependencies.put(to, allowed);
 	}
@@ -96,6 +97,14 @@ public class DependencyConfiguration {
 		return allowed;
 	}
 
+	/**
+	 * @return all outgoing dependencies. The value is true if the dependency
+	 *         is allowed and false if it is explicitly disallowed.
+	 */
+	Map<StereotypeIdentifier, Boolean> getOutgoingDependencies() {
+		return Collections.unmodifiableMap(outgoingDependencies);
+	}
+
 	/**
 	 * Merges this {@link DependencyConfiguration} with the given.
 	 * <p>
@@ -109,7 +118,7 @@ public class DependencyConfiguration {
 	 * @param dependencyConfigurationAdditional
 	 *            the {@link DependencyConfiguration} to merge.
 	 */
-	public void merge(DependencyConfiguration dependencyConfigurationAdditional) {
+	void merge(DependencyConfiguration dependencyConfigurationAdditional) {
 		if (!from.equals(dependencyConfigurationAdditional.getFrom())) {
 			throw new IllegalArgumentException("The merge of the central Dependency-Configuration " + from
 					+ " with the additional Dependency-Configuration " + dependencyConfigurationAdditional.getFrom()
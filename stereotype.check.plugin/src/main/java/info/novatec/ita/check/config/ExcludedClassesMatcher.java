@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Matches a class name against all regular expressions of the excluded
+ * classes at once.
+ * <p>
+ * The regular expressions are combined into a single alternation, which is
+ * evaluated once per class instead of once per regular expression. Before the
+ * alternation is evaluated, the literal prefixes of the regular expressions
+ * are compared with the class name, so that most classes are not matched
+ * against any regular expression at all. Regular expressions with flags or
+ * back references can not be part of the alternation and are evaluated one
+ * by one.
+ */
+final class ExcludedClassesMatcher {
+
+	/** The characters with a special meaning in a regular expression. */
+	private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+	/** A back reference to a group, which would refer to another group in the alternation. */
+	private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\(\\d|k<)");
+
+	/** All regular expressions combined, null if there are none. */
+	private final Pattern combined;
+
+	/**
+	 * The literal prefixes of all regular expressions in {@link #combined}, a
+	 * class name must start with one of them to be matched by
+	 * {@link #combined}. Null if one of the regular expressions has no
+	 * literal prefix.
+	 */
+	private final String[] prefixes;
+
+	/** The regular expressions evaluated one by one. */
+	private final Pattern[] separate;
+
+	/**
+	 * Combines the regular expressions.
+	 *
+	 * @param excludedClasses
+	 *            the regular expressions of the excluded classes.
+	 */
+	ExcludedClassesMatcher(Collection<Pattern> excludedClasses) {
+		List<String> alternatives = new ArrayList<>();
+		List<String> prefixes = new ArrayList<>();
+		List<Pattern> separate = new ArrayList<>();
+		boolean allHavePrefix = true;
+		for (Pattern pattern : excludedClasses) {
+			if (pattern.flags() != 0 || BACK_REFERENCE.matcher(pattern.pattern()).find()) {
+				separate.add(pattern);
+				continue;
+			}
+			alternatives.add("(?:" + pattern.pattern() + ")");
+			String prefix = literalPrefix(pattern.pattern());
+			allHavePrefix &= !prefix.isEmpty();
+			prefixes.add(prefix);
+		}
+
+		Pattern combined = null;
+		if (!alternatives.isEmpty()) {
+			try {
+				combined = Pattern.compile(StringUtils.join(alternatives, "|"));
+			} catch (PatternSyntaxException e) {
+				// e.g. the same named group in two regular expressions
+				for (Pattern pattern : excludedClasses) {
+					if (!separate.contains(pattern)) {
+						separate.add(pattern);
+					}
+				}
+			}
+		}
+		this.combined = combined;
+		this.prefixes = combined != null && allHavePrefix ? shortestPrefixes(prefixes) : null;
+		this.separate = separate.toArray(new Pattern[separate.size()]);
+	}
+
+	/**
+	 * Removes all prefixes starting with another prefix, a class name starting
+	 * with them starts with the other prefix too.
+	 */
+	private static String[] shortestPrefixes(List<String> prefixes) {
+		List<String> sorted = new ArrayList<>(prefixes);
+		Collections.sort(sorted);
+		List<String> shortest = new ArrayList<>();
+		for (String prefix : sorted) {
+			if (shortest.isEmpty() || !prefix.startsWith(shortest.get(shortest.size() - 1))) {
+				shortest.add(prefix);
+			}
+		}
+		return shortest.toArray(new String[shortest.size()]);
+	}
+
+	/**
+	 * The literal text every match of the regular expression starts with.
+	 *
+	 * @return the prefix, empty if there is none.
+	 */
+	static String literalPrefix(String regexp) {
+		if (regexp.indexOf('|') >= 0) {
+			// an alternative may start with another text
+			return "";
+		}
+		StringBuilder prefix = new StringBuilder();
+		int start = regexp.startsWith("^") ? 1 : 0;
+		for (int i = start; i < regexp.length(); i++) {
+			char c = regexp.charAt(i);
+			if (c == '\\' && i + 1 < regexp.length() && METACHARACTERS.indexOf(regexp.charAt(i + 1)) >= 0) {
+				c = regexp.charAt(++i);
+			} else if (METACHARACTERS.indexOf(c) >= 0) {
+				break;
+			}
+			// a quantifier after the character makes the character optional
+			if (i + 1 < regexp.length() && "?*{".indexOf(regexp.charAt(i + 1)) >= 0) {
+				break;
+			}
+			prefix.append(c);
+		}
+		return prefix.toString();
+	}
+
+	/**
+	 * Is the class excluded.
+	 *
+	 * @param className
+	 *            the full qualified class name.
+	 * @return true if one of the regular expressions matches the class name.
+	 */
+	boolean matches(String className) {
+		if (combined != null && hasPrefix(className) && combined.matcher(className).matches()) {
+			return true;
+		}
+		for (int i = 0; i < separate.length; i++) {
+			if (separate[i].matcher(className).matches()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean hasPrefix(String className) {
+		if (prefixes == null) {
+			return true;
+		}
+		for (int i = 0; i < prefixes.length; i++) {
+			if (className.startsWith(prefixes[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.util.BitSet;
+
+/**
+ * The stereotypes an imported class belongs to. The classification depends
+ * only on the full qualified name of the class and the configuration, so it is
+ * computed once and shared by all files importing the class (see
+ * {@link StereotypeCheckConfiguration#classifyImport(String)}).
+ * <p>
+ * A classification can not be changed once it is created.
+ */
+public final class ImportClassification {
+
+	private static final BitSet NONE = new BitSet();
+
+	/** The stereotypes whose postfix ends the class name. */
+	private final BitSet postfixes;
+
+	/** The stereotypes whose package matches the package of the class. */
+	private final BitSet packages;
+
+	/** The stereotypes the class is an annotation, interface or base class of. */
+	private final BitSet partOfStereotypes;
+
+	/** Is the class in an application package or part of any stereotype. */
+	private final boolean checked;
+
+	/**
+	 * Classifies an imported class.
+	 *
+	 * @param importedClass
+	 *            the full qualified class name.
+	 * @param config
+	 *            the configuration.
+	 */
+	ImportClassification(String importedClass, StereotypeCheckConfiguration config) {
+		StereotypeRuleSet ruleSet = config.getRuleSet();
+		BitSet postfixes = new BitSet(ruleSet.size());
+		ruleSet.matchPostfixes(importedClass, postfixes);
+		BitSet packages = new BitSet(ruleSet.size());
+		ruleSet.matchPackages(importedClass.substring(0, packageLength(importedClass)), packages);
+		BitSet partOfStereotypes = NONE;
+		boolean partOfAnyStereotype = ruleSet.isPartOfAnyStereotype(importedClass);
+		if (partOfAnyStereotype) {
+			partOfStereotypes = new BitSet(ruleSet.size());
+			for (int ordinal = 0; ordinal < ruleSet.size(); ordinal++) {
+				if (ruleSet.getRule(ordinal).isPartOfStereotype(importedClass)) {
+					partOfStereotypes.set(ordinal);
+				}
+			}
+		}
+		this.postfixes = postfixes.isEmpty() ? NONE : postfixes;
+		this.packages = packages.isEmpty() ? NONE : packages;
+		this.partOfStereotypes = partOfStereotypes;
+		this.checked = partOfAnyStereotype || config.isInApplicationPackage(importedClass);
+	}
+
+	/**
+	 * @param ordinal
+	 *            the ordinal of the stereotype.
+	 * @return true if the postfix of the stereotype ends the class name.
+	 */
+	public boolean hasPostfix(int ordinal) {
+		return postfixes.get(ordinal);
+	}
+
+	/**
+	 * @param ordinal
+	 *            the ordinal of the stereotype.
+	 * @return true if the package of the stereotype matches the package of the
+	 *         class.
+	 */
+	public boolean isInPackage(int ordinal) {
+		return packages.get(ordinal);
+	}
+
+	/**
+	 * @param ordinal
+	 *            the ordinal of the stereotype.
+	 * @return true if the class is an annotation, interface or base class of
+	 *         the stereotype.
+	 */
+	public boolean isPartOfStereotype(int ordinal) {
+		return partOfStereotypes.get(ordinal);
+	}
+
+	/**
+	 * @return true if dependencies to the class are checked, because it is in
+	 *         an application package or part of any stereotype.
+	 */
+	public boolean isChecked() {
+		return checked;
+	}
+
+	/**
+	 * Get the length of the package of a full qualified class name. By the
+	 * naming conventions the package ends before the first name starting with
+	 * an upper case letter, so that a nested class, e.g.
+	 * <code>a.b.Outer.Inner</code>, is in the package of its top level class.
+	 * Without such a name the package ends before the last name.
+	 * 
+	 * @param className
+	 *            the full qualified class name.
+	 * @return the length of the package, 0 if the class is in the default
+	 *         package.
+	 */
+	public static int packageLength(String className) {
+		int start = 0;
+		int dot;
+		while ((dot = className.indexOf('.', start)) >= 0 && !Character.isUpperCase(className.charAt(start))) {
+			start = dot + 1;
+		}
+		return start == 0 ? 0 : start - 1;
+	}
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * A bounded cache, which evicts the least recently used entries. The cache is
+ * split into segments by the hash of the key, every segment has its own lock,
+ * so that threads using different keys rarely wait for each other.
+ *
+ * @param <K>
+ *            the type of the keys.
+ * @param <V>
+ *            the type of the values.
+ */
+public final class LruCache<K, V> {
+
+	private static final int SEGMENTS = 16;
+
+	/** A part of the cache in access order, guarded by itself. */
+	private static final class Segment<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int capacity;
+
+		private Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	private final Segment<K, V>[] segments;
+
+	private final int capacity;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param capacity
+	 *            the maximum number of entries.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	LruCache(int capacity) {
+		if (capacity < SEGMENTS) {
+			throw new IllegalArgumentException("The capacity of a cache must be at least " + SEGMENTS);
+		}
+		this.capacity = capacity;
+		this.segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment<>(capacity / SEGMENTS);
+		}
+	}
+
+	/**
+	 * Returns the cached value of the key, computes and caches it if it is not
+	 * cached yet. The value is computed without holding a lock, so it may be
+	 * computed twice if two threads ask for the same key at the same time.
+	 *
+	 * @param key
+	 *            the key.
+	 * @param compute
+	 *            computes the value of a key.
+	 * @return the value.
+	 */
+	V get(K key, Function<? super K, ? extends V> compute) {
+		Segment<K, V> segment = segmentOf(key);
+		V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		if (value != null) {
+			hits.incrementAndGet();
+			return value;
+		}
+		misses.incrementAndGet();
+		value = compute.apply(key);
+		synchronized (segment) {
+			V cached = segment.putIfAbsent(key, value);
+			return cached != null ? cached : value;
+		}
+	}
+
+	private Segment<K, V> segmentOf(K key) {
+		int hash = key.hashCode();
+		hash ^= hash >>> 16;
+		return segments[hash & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * @return the maximum number of entries.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of cached entries.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of values found in the cache.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of values computed, because they were not in the
+	 *         cache.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public String toString() {
+		return "size: " + size() + "/" + capacity + ", hits: " + hits.get() + ", misses: " + misses.get();
+	}
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The compiled package name of a stereotype. The package name is a regular
+ * expression, which is compiled only once.
+ * <p>
+ * Most package names are no real regular expressions, but a literal package
+ * (<code>com\.example\.dto</code>), all subpackages of a literal package
+ * (<code>com\.example\..*</code>) or a literal package with all its
+ * subpackages (<code>com\.example(\..*)?</code>). These are recognized and
+ * matched without a regular expression. In a literal package an unescaped dot
+ * only matches a dot.
+ */
+public final class PackageMatcher {
+
+	/** The kind of a package name. */
+	enum Kind {
+		/** Only the literal package. */
+		literal,
+		/** All subpackages of the literal package. */
+		subpackages,
+		/** The literal package and all its subpackages. */
+		packageAndSubpackages,
+		/** A regular expression. */
+		regex
+	}
+
+	private static final String ANY = ".*";
+	private static final String ANY_SUBPACKAGE = "\\..*";
+	private static final String OPTIONAL_SUBPACKAGES = "(\\..*)?";
+
+	private final String packageName;
+
+	private final Kind kind;
+
+	/** The literal package, if the kind is not {@link Kind#regex}. */
+	private final String literal;
+
+	/** The compiled regular expression, if the kind is {@link Kind#regex}. */
+	private final Pattern pattern;
+
+	/** The error of an invalid regular expression. */
+	private final PatternSyntaxException syntaxException;
+
+	private PackageMatcher(String packageName, Kind kind, String literal, Pattern pattern,
+			PatternSyntaxException syntaxException) {
+		this.packageName = packageName;
+		this.kind = kind;
+		this.literal = literal;
+		this.pattern = pattern;
+		this.syntaxException = syntaxException;
+	}
+
+	/**
+	 * Compiles a package name.
+	 *
+	 * @param packageName
+	 *            the package name as regular expression.
+	 * @return the matcher.
+	 */
+	public static PackageMatcher compile(String packageName) {
+		String expression = packageName;
+		if (expression.startsWith("^")) {
+			expression = expression.substring(1);
+		}
+		if (expression.endsWith("$") && !expression.endsWith("\\$")) {
+			expression = expression.substring(0, expression.length() - 1);
+		}
+
+		if (expression.equals(ANY)) {
+			return new PackageMatcher(packageName, Kind.packageAndSubpackages, "", null, null);
+		}
+		String literal = literal(expression);
+		if (literal != null) {
+			return new PackageMatcher(packageName, Kind.literal, literal, null, null);
+		}
+		if (expression.endsWith(OPTIONAL_SUBPACKAGES)) {
+			literal = literal(expression.substring(0, expression.length() - OPTIONAL_SUBPACKAGES.length()));
+			if (literal != null && !literal.isEmpty()) {
+				return new PackageMatcher(packageName, Kind.packageAndSubpackages, literal, null, null);
+			}
+		}
+		if (expression.endsWith(ANY_SUBPACKAGE)) {
+			literal = literal(expression.substring(0, expression.length() - ANY_SUBPACKAGE.length()));
+			if (literal != null && !literal.isEmpty()) {
+				return new PackageMatcher(packageName, Kind.subpackages, literal, null, null);
+			}
+		}
+
+		try {
+			return new PackageMatcher(packageName, Kind.regex, null, Pattern.compile(packageName), null);
+		} catch (PatternSyntaxException e) {
+			// reported when the package name is used, like before it was
+			// compiled in advance
+			return new PackageMatcher(packageName, Kind.regex, null, null, e);
+		}
+	}
+
+	/**
+	 * Converts the expression to a literal package name.
+	 *
+	 * @return the package name or null if the expression is not literal.
+	 */
+	private static String literal(String expression) {
+		StringBuilder literal = new StringBuilder(expression.length());
+		for (int i = 0; i < expression.length(); i++) {
+			char c = expression.charAt(i);
+			if (c == '\\' && i + 1 < expression.length() && expression.charAt(i + 1) == '.') {
+				literal.append('.');
+				i++;
+			} else if (c == '.' || Character.isJavaIdentifierPart(c) && c != '$') {
+				literal.append(c);
+			} else {
+				return null;
+			}
+		}
+		return literal.toString();
+	}
+
+	/**
+	 * Is the package matched.
+	 *
+	 * @param actualPackageName
+	 *            the package, the empty string is the default package.
+	 * @return true if the package is matched.
+	 */
+	public boolean matches(String actualPackageName) {
+		switch (kind) {
+		case literal:
+			return actualPackageName.equals(literal);
+		case subpackages:
+			return isSubpackage(actualPackageName);
+		case packageAndSubpackages:
+			return literal.isEmpty() || actualPackageName.equals(literal) || isSubpackage(actualPackageName);
+		default:
+			if (syntaxException != null) {
+				throw syntaxException;
+			}
+			return pattern.matcher(actualPackageName).matches();
+		}
+	}
+
+	private boolean isSubpackage(String actualPackageName) {
+		return actualPackageName.length() > literal.length() + 1 && actualPackageName.startsWith(literal)
+				&& actualPackageName.charAt(literal.length()) == '.';
+	}
+
+	/**
+	 * Add the matcher to the trie, if it can be matched without a regular
+	 * expression.
+	 *
+	 * @param trie
+	 *            the trie.
+	 * @param ordinal
+	 *            the ordinal found for matching packages.
+	 * @return true if the matcher was added, false if it is a regular
+	 *         expression.
+	 */
+	boolean addTo(PackageTrie trie, int ordinal) {
+		switch (kind) {
+		case literal:
+			trie.add(literal, ordinal, true, false);
+			return true;
+		case subpackages:
+			trie.add(literal, ordinal, false, true);
+			return true;
+		case packageAndSubpackages:
+			trie.add(literal, ordinal, true, true);
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return the kind of the package name.
+	 */
+	Kind getKind() {
+		return kind;
+	}
+
+	@Override
+	public String toString() {
+		return packageName;
+	}
+}
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A trie of package names, one node per segment of a package name. Every
+ * package added to the trie carries an ordinal, which is found for the package
+ * itself or for its subpackages. All ordinals for a package are found with a
+ * single scan of the package name.
+ * <p>
+ * The trie can not be changed once it is built and can be shared between
+ * threads.
+ */
+final class PackageTrie {
+
+	private static final String[] NO_KEYS = new String[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+	private static final int[] NO_ORDINALS = new int[0];
+
+	/** A node of the trie, reached by the segments of a package name. */
+	private static final class Node {
+
+		/** The sorted segments leading to the children. */
+		private String[] keys = NO_KEYS;
+
+		/** The children, the index is the index of the segment in {@link #keys}. */
+		private Node[] children = NO_CHILDREN;
+
+		/** The ordinals found for the package of this node. */
+		private int[] ordinals = NO_ORDINALS;
+
+		/** The ordinals found for all subpackages of the package of this node. */
+		private int[] subpackageOrdinals = NO_ORDINALS;
+
+		private Node child(String packageName, int start, int end) {
+			int low = 0;
+			int high = keys.length - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int compare = compare(keys[middle], packageName, start, end);
+				if (compare < 0) {
+					low = middle + 1;
+				} else if (compare > 0) {
+					high = middle - 1;
+				} else {
+					return children[middle];
+				}
+			}
+			return null;
+		}
+
+		private Node addChild(String key) {
+			int index = Arrays.binarySearch(keys, key);
+			if (index >= 0) {
+				return children[index];
+			}
+			int insert = -index - 1;
+			Node child = new Node();
+			String[] newKeys = new String[keys.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insert);
+			System.arraycopy(children, 0, newChildren, 0, insert);
+			newKeys[insert] = key;
+			newChildren[insert] = child;
+			System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+			System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+			keys = newKeys;
+			children = newChildren;
+			return child;
+		}
+
+		/**
+		 * Compares the key with the region of the package name like
+		 * {@link String#compareTo(String)} without creating a substring.
+		 */
+		private static int compare(String key, String packageName, int start, int end) {
+			int length = Math.min(key.length(), end - start);
+			for (int i = 0; i < length; i++) {
+				int difference = key.charAt(i) - packageName.charAt(start + i);
+				if (difference != 0) {
+					return difference;
+				}
+			}
+			return key.length() - (end - start);
+		}
+	}
+
+	private final Node root = new Node();
+
+	/**
+	 * Adds a package.
+	 *
+	 * @param packageName
+	 *            The package name, the empty string is the default package.
+	 * @param ordinal
+	 *            The ordinal found for the package.
+	 * @param includePackage
+	 *            Is the ordinal found for the package itself.
+	 * @param includeSubpackages
+	 *            Is the ordinal found for all subpackages of the package.
+	 */
+	void add(String packageName, int ordinal, boolean includePackage, boolean includeSubpackages) {
+		Node node = root;
+		if (!packageName.isEmpty()) {
+			for (String segment : packageName.split("\\.")) {
+				node = node.addChild(segment);
+			}
+		}
+		if (includePackage) {
+			node.ordinals = append(node.ordinals, ordinal);
+		}
+		if (includeSubpackages) {
+			node.subpackageOrdinals = append(node.subpackageOrdinals, ordinal);
+		}
+	}
+
+	/**
+	 * Finds the ordinals of the given package.
+	 *
+	 * @param packageName
+	 *            the package name, the empty string is the default package.
+	 * @param result
+	 *            The ordinals found for the package are set in this set. Other
+	 *            bits are left unchanged.
+	 */
+	void match(String packageName, BitSet result) {
+		Node node = root;
+		int start = 0;
+		int length = packageName.length();
+		while (start < length) {
+			setAll(node.subpackageOrdinals, result);
+			int end = packageName.indexOf('.', start);
+			if (end < 0) {
+				end = length;
+			}
+			node = node.child(packageName, start, end);
+			if (node == null) {
+				return;
+			}
+			start = end + 1;
+		}
+		setAll(node.ordinals, result);
+	}
+
+	/**
+	 * Is any ordinal found for the given package.
+	 *
+	 * @param packageName
+	 *            the package name, the empty string is the default package.
+	 * @return true if {@link #match(String, BitSet)} would find an ordinal.
+	 */
+	boolean matchesAny(String packageName) {
+		Node node = root;
+		int start = 0;
+		int length = packageName.length();
+		while (start < length) {
+			if (node.subpackageOrdinals.length > 0) {
+				return true;
+			}
+			int end = packageName.indexOf('.', start);
+			if (end < 0) {
+				end = length;
+			}
+			node = node.child(packageName, start, end);
+			if (node == null) {
+				return false;
+			}
+			start = end + 1;
+		}
+		return node.ordinals.length > 0;
+	}
+
+	private static int[] append(int[] ordinals, int ordinal) {
+		int[] appended = Arrays.copyOf(ordinals, ordinals.length + 1);
+		appended[ordinals.length] = ordinal;
+		return appended;
+	}
+
+	private static void setAll(int[] ordinals, BitSet result) {
+		for (int i = 0; i < ordinals.length; i++) {
+			result.set(ordinals[i]);
+		}
+	}
+}
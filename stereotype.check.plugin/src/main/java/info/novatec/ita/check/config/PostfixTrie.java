@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A trie of the reversed postfixes of all stereotypes. It finds all
+ * stereotypes whose postfix ends a name with a single scan of the name from
+ * its end, instead of comparing the name with the postfix of every
+ * stereotype.
+ * <p>
+ * The trie can not be changed once it is built and can be shared between
+ * threads.
+ */
+public final class PostfixTrie {
+
+	private static final char[] NO_KEYS = new char[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+	private static final int[] NO_ORDINALS = new int[0];
+
+	/** A node of the trie, reached by the reversed characters of a postfix. */
+	private static final class Node {
+
+		/** The sorted characters leading to the children. */
+		private char[] keys = NO_KEYS;
+
+		/** The children, the index is the index of the character in {@link #keys}. */
+		private Node[] children = NO_CHILDREN;
+
+		/** The ordinals of the stereotypes whose postfix ends at this node. */
+		private int[] ordinals = NO_ORDINALS;
+
+		private Node child(char key) {
+			int index = Arrays.binarySearch(keys, key);
+			return index >= 0 ? children[index] : null;
+		}
+
+		private Node addChild(char key) {
+			int index = Arrays.binarySearch(keys, key);
+			if (index >= 0) {
+				return children[index];
+			}
+			int insert = -index - 1;
+			Node child = new Node();
+			char[] newKeys = new char[keys.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(keys, 0, newKeys, 0, insert);
+			System.arraycopy(children, 0, newChildren, 0, insert);
+			newKeys[insert] = key;
+			newChildren[insert] = child;
+			System.arraycopy(keys, insert, newKeys, insert + 1, keys.length - insert);
+			System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+			keys = newKeys;
+			children = newChildren;
+			return child;
+		}
+
+		private void addOrdinal(int ordinal) {
+			ordinals = Arrays.copyOf(ordinals, ordinals.length + 1);
+			ordinals[ordinals.length - 1] = ordinal;
+		}
+	}
+
+	private final Node root = new Node();
+
+	/**
+	 * Builds the trie.
+	 *
+	 * @param postfixes
+	 *            The postfixes, the index is the ordinal of the stereotype. A
+	 *            stereotype without postfix has null.
+	 */
+	PostfixTrie(String[] postfixes) {
+		for (int ordinal = 0; ordinal < postfixes.length; ordinal++) {
+			String postfix = postfixes[ordinal];
+			if (postfix == null) {
+				continue;
+			}
+			Node node = root;
+			for (int i = postfix.length() - 1; i >= 0; i--) {
+				node = node.addChild(postfix.charAt(i));
+			}
+			node.addOrdinal(ordinal);
+		}
+	}
+
+	/**
+	 * Finds all stereotypes whose postfix ends the given name.
+	 *
+	 * @param name
+	 *            the class name or full qualified class name.
+	 * @param result
+	 *            The ordinals of the matching stereotypes are set in this
+	 *            set. Other bits are left unchanged.
+	 */
+	public void match(String name, BitSet result) {
+		if (name == null) {
+			return;
+		}
+		Node node = root;
+		setAll(node.ordinals, result);
+		for (int i = name.length() - 1; i >= 0; i--) {
+			node = node.child(name.charAt(i));
+			if (node == null) {
+				return;
+			}
+			setAll(node.ordinals, result);
+		}
+	}
+
+	private static void setAll(int[] ordinals, BitSet result) {
+		for (int i = 0; i < ordinals.length; i++) {
+			result.set(ordinals[i]);
+		}
+	}
+}
@@ -15,18 +15,26 @@
  *******************************************************************************/
 package info.novatec.ita.check.config;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 
+import org.apache.commons.lang3.StringUtils;
+
 /**
  * This class holds all configuration informations from the stereotype check
- * configuration file.
+ * configuration file. Once read, a configuration can not be changed, so that
+ * it can be shared between all checks using the same configuration file (see
+ * {@link StereotypeCheckConfigurationCache}).
  * 
  * @author Volker Koch (volker.koch@novatec-gmbh.de)
  *
  */
-public class StereotypeCheckConfiguration {
+public final class StereotypeCheckConfiguration {
+
+	/** The maximum number of cached {@link ImportClassification}s. */
+	private static final int IMPORT_CACHE_CAPACITY = 32768;
 
 	/**
 	 * The package names checked by the stereotype check. Classes outside this
@@ -34,12 +42,25 @@ public class StereotypeCheckConfiguration {
 	 */
 	private final Set<String> applicationPackageNames;
 
+	/**
+	 * The {@link #applicationPackageNames}, null if there are none and all
+	 * classes are checked.
+	 */
+	private final PackageTrie applicationPackages;
+
+	/** The classifications of the imported classes. */
+	private final LruCache<String, ImportClassification> importClassifications = new LruCache<>(
+			IMPORT_CACHE_CAPACITY);
+
 	/**
 	 * The set of regular expressions of classes that are excluded from the
 	 * check.
 	 */
 	private final Set<Pattern> excludedClasses;
 
+	/** All {@link #excludedClasses} combined. */
+	private final ExcludedClassesMatcher excludedClassesMatcher;
+
 	/**
 	 * The map of all allowed dependencies. Maps from a stereotype-name to list
 	 * of allowed stereotypes. All strings in the map must match a key of the
@@ -52,11 +73,16 @@ public class StereotypeCheckConfiguration {
 	 */
 	private final Map<StereotypeIdentifier, StereotypeConfiguration> stereotypeConfig;
 
+	/** The compiled stereotypes and dependencies used for the validation. */
+	private final StereotypeRuleSet ruleSet;
+
 	/**
 	 * Constructor
 	 * 
 	 * @param applicationPackageNames
 	 *            he package names checked by the stereotype check.
+	 * @param excludedClasses
+	 *            The regular expressions of classes that are excluded.
 	 * @param dependencies
 	 *            The map of all dependencies.
 	 * @param stereotypeConfig
@@ -65,34 +91,78 @@ public class StereotypeCheckConfiguration {
 	StereotypeCheckConfiguration(Set<String> applicationPackageNames, Set<Pattern> excludedClasses,
 			Map<StereotypeIdentifier, DependencyConfiguration> dependencies,
 			Map<StereotypeIdentifier, StereotypeConfiguration> stereotypeConfig) {
-		this.applicationPackageNames = applicationPackageNames;
-		this.excludedClasses = excludedClasses;
-		this.dependencies = dependencies;
-		this.stereotypeConfig = stereotypeConfig;
+		this.applicationPackageNames = Collections.unmodifiableSet(applicationPackageNames);
+		this.applicationPackages = applicationPackageNames.isEmpty() ? null
+				: createApplicationPackages(applicationPackageNames);
+		this.excludedClasses = Collections.unmodifiableSet(excludedClasses);
+		this.excludedClassesMatcher = new ExcludedClassesMatcher(excludedClasses);
+		this.dependencies = Collections.unmodifiableMap(dependencies);
+		this.stereotypeConfig = Collections.unmodifiableMap(stereotypeConfig);
+		this.ruleSet = new StereotypeRuleSet(stereotypeConfig, dependencies);
+	}
+
+	private static PackageTrie createApplicationPackages(Set<String> applicationPackageNames) {
+		PackageTrie trie = new PackageTrie();
+		for (String packageName : applicationPackageNames) {
+			// a class of the package is a subpackage in the trie, because the
+			// class name is the last segment of the full qualified classname
+			trie.add(StringUtils.stripEnd(packageName, "."), 0, false, true);
+		}
+		return trie;
 	}
 
 	/**
-	 * Checks if the given full qualified classname starts with one of the
-	 * {@link #applicationPackageNames}.
+	 * Checks if the given full qualified classname is part of one of the
+	 * {@link #applicationPackageNames} or their subpackages.
 	 * 
 	 * @param classNameWithPackage
 	 *            the full qualified classname
-	 * @return true if the classname starts with one of the
+	 * @return true if the class is in one of the
 	 *         {@link #applicationPackageNames}.
 	 */
 	public boolean isInApplicationPackage(String classNameWithPackage) {
 		if (classNameWithPackage == null) {
 			return false;
 		}
-		if (applicationPackageNames.size() == 0) {
+		if (applicationPackages == null) {
 			return true;
 		}
-		for (String packageName : applicationPackageNames) {
-			if (classNameWithPackage.startsWith(packageName)) {
-				return true;
-			}
-		}
-		return false;
+		return applicationPackages.matchesAny(classNameWithPackage);
+	}
+
+	/**
+	 * Classifies an imported class. The classification is cached, so that a
+	 * class imported by many files is classified only once.
+	 * 
+	 * @param importedClass
+	 *            the full qualified classname
+	 * @return the classification
+	 */
+	public ImportClassification classifyImport(String importedClass) {
+		return importClassifications.get(importedClass, this::newImportClassification);
+	}
+
+	private ImportClassification newImportClassification(String importedClass) {
+		return new ImportClassification(importedClass, this);
+	}
+
+	/**
+	 * @return the cache of the import classifications
+	 */
+	public LruCache<String, ImportClassification> getImportClassifications() {
+		return importClassifications;
+	}
+
+	/**
+	 * Checks if the class matches one of the regular expressions of the
+	 * excluded classes.
+	 * 
+	 * @param classNameWithPackage
+	 *            the full qualified classname
+	 * @return true if it matches
+	 */
+	public boolean isExcluded(String classNameWithPackage) {
+		return excludedClassesMatcher.matches(classNameWithPackage);
 	}
 
 	/**
@@ -105,14 +175,16 @@ public class StereotypeCheckConfiguration {
 	 *         referenced in a stereotype.
 	 */
 	public boolean isPartOfAnyStereotype(String classNameWithPackage) {
-		for (StereotypeConfiguration config : stereotypeConfig.values()) {
-			if (config.isPartOfStereotype(classNameWithPackage)){
-				return true;
-			}
-		}
-		return false;
+		return ruleSet.isPartOfAnyStereotype(classNameWithPackage);
+	}
+
+	/**
+	 * @return The compiled stereotypes and dependencies.
+	 */
+	public StereotypeRuleSet getRuleSet() {
+		return ruleSet;
 	}
-	
+
 	/**
 	 * @return The map of all allowed dependencies. Maps from a stereotype-name
 	 *         to list of allowed stereotypes. All strings in the map must match
@@ -129,6 +201,13 @@ public class StereotypeCheckConfiguration {
 		return stereotypeConfig;
 	}
 
+	/**
+	 * @return The package names checked by the stereotype check.
+	 */
+	Set<String> getApplicationPackageNames() {
+		return applicationPackageNames;
+	}
+
 	/**
 	 * @return the excludedClasses
 	 */
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+/**
+ * JVM wide cache of the configurations read by the
+ * {@link StereotypeCheckReader}. Many checks (e.g. one per TreeWalker, eclipse
+ * project or maven module) usually refer to the same configuration file. The
+ * file and its override file are only parsed again, if one of them has
+ * changed.
+ * <p>
+ * A configuration is identified by the canonical path of the central
+ * configuration file. It is up to date as long as the modification time and
+ * the size of the central configuration file and of the override file are the
+ * same as when the configuration was read.
+ */
+public final class StereotypeCheckConfigurationCache {
+
+	private static final Logger logger = Logger.getLogger(StereotypeCheckConfigurationCache.class.getCanonicalName());
+
+	/** The cached configurations. The key is the canonical path of the central file. */
+	private static final ConcurrentMap<String, CacheEntry> configurations = new ConcurrentHashMap<>();
+
+	/**
+	 * A configuration together with the state of the files it was read from.
+	 */
+	private static final class CacheEntry {
+
+		private final FileStamp file;
+		private final FileStamp overrideFile;
+		private final StereotypeCheckConfiguration configuration;
+
+		private CacheEntry(FileStamp file, FileStamp overrideFile, StereotypeCheckConfiguration configuration) {
+			this.file = file;
+			this.overrideFile = overrideFile;
+			this.configuration = configuration;
+		}
+
+		private boolean isUpToDate(FileStamp actualFile, FileStamp actualOverrideFile) {
+			return file.equals(actualFile) && overrideFile.equals(actualOverrideFile);
+		}
+	}
+
+	/**
+	 * Modification time and size of a file at a given moment. A missing file
+	 * has a stamp too, so that creating or deleting an override file
+	 * invalidates the cached configuration.
+	 */
+	private static final class FileStamp {
+
+		private final boolean exists;
+		private final long lastModified;
+		private final long length;
+
+		private FileStamp(File file) {
+			this.exists = file.exists();
+			this.lastModified = exists ? file.lastModified() : 0L;
+			this.length = exists ? file.length() : 0L;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FileStamp)) {
+				return false;
+			}
+			FileStamp other = (FileStamp) obj;
+			return exists == other.exists && lastModified == other.lastModified && length == other.length;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (lastModified ^ (lastModified >>> 32) ^ length);
+		}
+	}
+
+	private StereotypeCheckConfigurationCache() {
+	}
+
+	/**
+	 * Get the configuration for the given central configuration file. The
+	 * file is only read by the {@link StereotypeCheckReader}, if it has not
+	 * been read before or if the file or its override file has changed since.
+	 * Concurrent calls for the same file read the file only once.
+	 *
+	 * @param file
+	 *            The central configuration file.
+	 * @return the configuration, shared with all other callers for the same
+	 *         file.
+	 */
+	public static StereotypeCheckConfiguration get(File file) {
+		return get(file, StereotypeCheckReader::read);
+	}
+
+	/**
+	 * Get the configuration for the given central configuration file. The
+	 * configuration is only loaded, if it has not been loaded before or if the
+	 * file or its override file has changed since.
+	 *
+	 * @param file
+	 *            The central configuration file.
+	 * @param loader
+	 *            Loads the configuration of the canonical central
+	 *            configuration file, e.g. from a snapshot.
+	 * @return the configuration, shared with all other callers for the same
+	 *         file.
+	 */
+	static StereotypeCheckConfiguration get(final File file,
+			final Function<File, StereotypeCheckConfiguration> loader) {
+		final File canonicalFile = canonicalFile(file);
+		final FileStamp actualFile = new FileStamp(canonicalFile);
+		final FileStamp actualOverrideFile = new FileStamp(StereotypeCheckReader.getOverrideFile(canonicalFile));
+
+		CacheEntry entry = configurations.compute(canonicalFile.getPath(), (path, cached) -> {
+			if (cached != null && cached.isUpToDate(actualFile, actualOverrideFile)) {
+				logger.fine("Using cached configuration for " + path);
+				return cached;
+			}
+			return new CacheEntry(actualFile, actualOverrideFile, loader.apply(canonicalFile));
+		});
+		return entry.configuration;
+	}
+
+	/**
+	 * Removes all cached configurations.
+	 */
+	public static void clear() {
+		configurations.clear();
+	}
+
+	private static File canonicalFile(File file) {
+		try {
+			return file.getCanonicalFile();
+		} catch (IOException e) {
+			return file.getAbsoluteFile();
+		}
+	}
+}
@@ -19,12 +19,15 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
@@ -58,6 +61,9 @@ public class StereotypeCheckReader {
 	private static final String CHECKSTYLE_STEREOTYPE_OVERRIDE_XSD = "checkstyle-stereotype-override.xsd";
 	private static final Logger logger = Logger.getLogger(StereotypeCheckReader.class.getCanonicalName());
 
+	/** The compiled schemas. The key is the name of the XSD. */
+	private static final ConcurrentMap<String, Schema> schemas = new ConcurrentHashMap<>();
+
 	/**
 	 * This delegate reader is used to do validation and reading the
 	 * configuration in one step.
@@ -191,7 +197,7 @@ public class StereotypeCheckReader {
 			}
 			if (additionCfg != null && cfgIsOverridable) {
 				config.setBaseClassNameCondition(additionCfg.getBaseClassNameCondition());
-				config.getBaseClassNames().addAll(additionCfg.getBaseClassNames());
+				config.addBaseClassNames(additionCfg.getBaseClassNames());
 				if (additionCfg.getOverrideMode(ConfigurationName.baseclass) == OverrideMode.extend) {
 					config.addBaseClassName(getAttributeValue("name"));
 				}
@@ -216,7 +222,7 @@ public class StereotypeCheckReader {
 			}
 			if (additionCfg != null && cfgIsOverridable) {
 				config.setInterfaceNameCondition(additionCfg.getInterfaceNameCondition());
-				config.getInterfaceNames().addAll(additionCfg.getInterfaceNames());
+				config.addInterfaceNames(additionCfg.getInterfaceNames());
 				if (additionCfg.getOverrideMode(ConfigurationName.INTERFACE) == OverrideMode.extend) {
 					config.addInterfaceName(getAttributeValue("name"));
 				}
@@ -238,7 +244,7 @@ public class StereotypeCheckReader {
 			if (additionCfg != null && cfgIsOverridable) {
 				for (AnnotationConfiguration annotationCfg : additionCfg.getAnnotationConfigs()) {
 					annotationConfig.setAnnotationnameCondition(annotationCfg.getAnnotationNameCondition());
-					annotationConfig.getAnnotationNames().addAll(annotationCfg.getAnnotationNames());
+					annotationConfig.addAnnotationNames(annotationCfg.getAnnotationNames());
 				}
 			} else {
 				annotationConfig.addAnnotationName(getAttributeValue("name"));
@@ -308,31 +314,59 @@ public class StereotypeCheckReader {
 			excludedClasses.add(Pattern.compile(regexp));
 		}
 
-		/** Checks that there is no cycle over all depenencies. */
+		/**
+		 * Checks that there is no cycle over all depenencies. All cycles are
+		 * reported at once.
+		 */
 		private void checkDependencyCycle() {
-			for (StereotypeIdentifier from : dependencies.keySet()) {
-				List<StereotypeIdentifier> cycle = new ArrayList<>();
-				checkDependencyCycleRecursive(cycle, from);
+			Set<StereotypeIdentifier> nodes = new HashSet<>();
+			Map<StereotypeIdentifier, Integer> idIndex = new HashMap<>();
+			Map<StereotypeIdentifier, Set<StereotypeIdentifier>> allowed = new HashMap<>();
+			int dependencyCount = 0;
+			for (DependencyConfiguration dependencyConfiguration : dependencies.values()) {
+				Set<StereotypeIdentifier> allowedTo = dependencyConfiguration.getAllowedToDependencies();
+				allowed.put(dependencyConfiguration.getFrom(), allowedTo);
+				dependencyCount += allowedTo.size();
+				nodes.add(dependencyConfiguration.getFrom());
+				nodes.addAll(allowedTo);
+			}
+			// sorted, so that the cycles are reported in a stable order
+			List<StereotypeIdentifier> ids = new ArrayList<>(nodes);
+			ids.sort((id1, id2) -> id1.toString().compareTo(id2.toString()));
+			for (int i = 0; i < ids.size(); i++) {
+				idIndex.put(ids.get(i), i);
 			}
 
-		}
-
-		/** Helper method to check if there is a dependency cycle. */
-		private void checkDependencyCycleRecursive(List<StereotypeIdentifier> cycle, StereotypeIdentifier from) {
-			DependencyConfiguration dependencyConfiguration = dependencies.get(from);
-			if (dependencyConfiguration != null) {
-				for (StereotypeIdentifier toDependency : dependencyConfiguration.getAllowedToDependencies()) {
-					if (!toDependency.equals(from)) {
-						List<StereotypeIdentifier> cycleInternal = new ArrayList<>(cycle);
-						cycleInternal.add(from);
-						if (cycle.contains(toDependency)) {
-							throw new IllegalArgumentException("There is a cycle in dependency-configuration: "
-									+ StringUtils.join(cycleInternal, ", "));
-						}
-						checkDependencyCycleRecursive(cycleInternal, toDependency);
+			// compact adjacency arrays, so that the graph is built only once
+			// for finding the components and all of their cycles
+			int[] offsets = new int[ids.size() + 1];
+			int[] targets = new int[dependencyCount];
+			int edgeCount = 0;
+			for (int i = 0; i < ids.size(); i++) {
+				offsets[i] = edgeCount;
+				Set<StereotypeIdentifier> allowedTo = allowed.get(ids.get(i));
+				if (allowedTo != null) {
+					for (StereotypeIdentifier to : allowedTo) {
+						targets[edgeCount++] = idIndex.get(to);
 					}
 				}
 			}
+			offsets[ids.size()] = edgeCount;
+
+			List<int[]> components = StronglyConnectedComponents.of(offsets, targets);
+			if (!components.isEmpty()) {
+				List<String> cycles = new ArrayList<>();
+				for (int[] component : components) {
+					List<StereotypeIdentifier> cycle = new ArrayList<>();
+					for (int node : StronglyConnectedComponents.cycle(offsets, targets, component)) {
+						cycle.add(ids.get(node));
+					}
+					cycles.add(StringUtils.join(cycle, ", "));
+				}
+				cycles.sort(null);
+				throw new IllegalArgumentException(
+						"There is a cycle in dependency-configuration: " + StringUtils.join(cycles, "; "));
+			}
 		}
 
 		/**
@@ -379,16 +413,44 @@ public class StereotypeCheckReader {
 		}
 	}
 
+	/**
+	 * Get the compiled schema for the given XSD. The schemas are compiled only
+	 * once and shared by all readers, because a {@link Schema} is immutable
+	 * and thread safe.
+	 * 
+	 * @param xsd
+	 *            The name of the XSD resource.
+	 * @return the compiled schema.
+	 * @throws SAXException
+	 *             if the XSD can not be compiled.
+	 */
+	private static Schema getSchema(String xsd) throws SAXException {
+		Schema schema = schemas.get(xsd);
+		if (schema == null) {
+			SchemaFactory schemafactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+			schema = schemafactory.newSchema(StereotypeCheckReader.class.getClassLoader().getResource(xsd));
+			Schema previous = schemas.putIfAbsent(xsd, schema);
+			if (previous != null) {
+				schema = previous;
+			}
+		}
+		return schema;
+	}
+
 	/**
 	 * Read and validate the given file to a configuration for stereotype check.
 	 * 
 	 * @param file
 	 *            The file to read.
+	 * @param checkstyleStereotypeXsd
+	 *            The XSD used to validate the file.
 	 * @param additionalCheckCfg
 	 *            a previously read configuration which may override parts of
 	 *            the configuration read by the file.
 	 * @param readingAdditionalCfg
 	 *            Are we reading the additionalCfg.
+	 * @param validationMode
+	 *            How the file is validated.
 	 * @return the configuration.
 	 * @throws XMLStreamException
 	 * @throws IllegalArgumentException
@@ -396,29 +458,37 @@ public class StereotypeCheckReader {
 	 * @throws IOException
 	 */
 	private static StereotypeCheckConfiguration read(File file, String checkstyleStereotypeXsd,
-			StereotypeCheckConfiguration additionalCheckCfg, boolean readingAdditionalCfg)
+			StereotypeCheckConfiguration additionalCheckCfg, boolean readingAdditionalCfg,
+			ValidationMode validationMode)
 					throws XMLStreamException, IllegalArgumentException, SAXException, IOException {
+		Schema schema = getSchema(checkstyleStereotypeXsd);
 
-		// Validate with StreamSource because Stax Validation is not provided
-		// with every implementation of JAXP
-		SchemaFactory schemafactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-		Schema schema = schemafactory
-				.newSchema(StereotypeCheckReader.class.getClassLoader().getResource(checkstyleStereotypeXsd));
-
-		Validator validator = schema.newValidator();
-		validator.validate(new StreamSource(file));
+		if (validationMode == ValidationMode.separate) {
+			// Validate with StreamSource because Stax Validation is not provided
+			// with every implementation of JAXP
+			Validator validator = schema.newValidator();
+			validator.validate(new StreamSource(file));
+		}
 
 		// Parse with Stax
-		XMLStreamReader reader = XMLInputFactory.newInstance()
-				.createXMLStreamReader(new BufferedInputStream(new FileInputStream(file)));
-		StereotypeCheckConfigurationReader delegate = new StereotypeCheckConfigurationReader(reader,
-				additionalCheckCfg, readingAdditionalCfg);
+		try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+			XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(input);
+			try {
+				if (validationMode == ValidationMode.streaming) {
+					reader = new ValidatingStreamReader(reader, schema);
+				}
+				StereotypeCheckConfigurationReader delegate = new StereotypeCheckConfigurationReader(reader,
+						additionalCheckCfg, readingAdditionalCfg);
 
-		while (delegate.hasNext()) {
-			delegate.next();
-		}
+				while (delegate.hasNext()) {
+					delegate.next();
+				}
 
-		return delegate.getConfig();
+				return delegate.getConfig();
+			} finally {
+				reader.close();
+			}
+		}
 	}
 
 	/**
@@ -431,15 +501,29 @@ public class StereotypeCheckReader {
 	 * @return the configuration.
 	 */
 	public static StereotypeCheckConfiguration read(File file) {
+		return read(file, ValidationMode.streaming);
+	}
+
+	/**
+	 * Read and validate the given file to a configuration for stereotype check.
+	 * If there is a project specific file, that overrides the central
+	 * configuration given by the file, a merged configuration is created.
+	 * 
+	 * @param file
+	 *            The central configuration file.
+	 * @param validationMode
+	 *            How the files are validated.
+	 * @return the configuration.
+	 */
+	public static StereotypeCheckConfiguration read(File file, ValidationMode validationMode) {
 		StereotypeCheckConfiguration additionalCheckCfg = null;
-		String filenameOverride = file.getAbsolutePath().replaceAll("(.*)(\\.xml)$", "$1-override$2");
-		if (filenameOverride != null && new File(filenameOverride).exists()) {
-			File stOverrideFile = new File(filenameOverride);
+		File stOverrideFile = getOverrideFile(file);
+		if (stOverrideFile.exists()) {
 			try {
 				logger.info("File to override the default checkstyle-stereotype.xml found: "
 						+ stOverrideFile.getAbsolutePath());
 				additionalCheckCfg = StereotypeCheckReader.read(stOverrideFile, CHECKSTYLE_STEREOTYPE_OVERRIDE_XSD,
-						null, true);
+						null, true, validationMode);
 				logger.info("A file to override the default checkstyle-stereotype.xml found and loaded");
 
 			} catch (XMLStreamException | IllegalArgumentException | SAXException | IOException e) {
@@ -448,7 +532,7 @@ public class StereotypeCheckReader {
 			}
 		}
 		try {
-			return read(file, CHECKSTYLE_STEREOTYPE_XSD, additionalCheckCfg, false);
+			return read(file, CHECKSTYLE_STEREOTYPE_XSD, additionalCheckCfg, false, validationMode);
 		} catch (XMLStreamException | SAXException | IOException e) {
 			throw new IllegalArgumentException("File " + file.getAbsolutePath() + " is not valid: " + e.getMessage(),
 					e);
@@ -456,4 +540,17 @@ public class StereotypeCheckReader {
 
 	}
 
+	/**
+	 * Get the project specific file that overrides the central configuration
+	 * file. The override file is located in the same directory and has the
+	 * postfix -override (e.g. stereotype-override.xml).
+	 * 
+	 * @param file
+	 *            The central configuration file.
+	 * @return the override file, which may not exist.
+	 */
+	static File getOverrideFile(File file) {
+		return new File(file.getAbsolutePath().replaceAll("(.*)(\\.xml)$", "$1-override$2"));
+	}
+
 }
@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Reads and writes a compiled binary snapshot of a
+ * {@link StereotypeCheckConfiguration}. Loading a snapshot avoids compiling
+ * the XSD and parsing the XML of the configuration, which dominates the start
+ * of a short running check.
+ * <p>
+ * The snapshot contains the already merged configuration of the central
+ * configuration file and its override file. The information which parts of
+ * the configuration may be overridden is only needed while merging and is not
+ * part of the snapshot.
+ * <p>
+ * Every snapshot starts with a format version and a hash of the files it was
+ * compiled from. If the version or the hash does not match, the snapshot is
+ * stale and compiled again from the configuration files.
+ */
+public final class StereotypeCheckSnapshot {
+
+	private static final Logger logger = Logger.getLogger(StereotypeCheckSnapshot.class.getCanonicalName());
+
+	/** Marks a file as a snapshot of a stereotype configuration. */
+	private static final int MAGIC = 0x53544350;
+
+	/** The version of the format. Must be increased on every change. */
+	private static final int FORMAT_VERSION = 1;
+
+	/** Marks a condition or string that is not set. */
+	private static final int NULL = -1;
+
+	private StereotypeCheckSnapshot() {
+	}
+
+	/**
+	 * Load the configuration from the snapshot. If the snapshot does not exist
+	 * or was compiled from other files, the configuration is read from the
+	 * configuration files and the snapshot is compiled again.
+	 * <p>
+	 * The configuration is shared JVM wide by the
+	 * {@link StereotypeCheckConfigurationCache}, so that a snapshot is only
+	 * read again if the configuration files have changed.
+	 *
+	 * @param file
+	 *            The central configuration file.
+	 * @param snapshotFile
+	 *            The snapshot compiled from the central configuration file.
+	 * @return the configuration, shared with all other callers for the same
+	 *         file.
+	 */
+	public static StereotypeCheckConfiguration load(File file, final File snapshotFile) {
+		StereotypeCheckConfiguration config = StereotypeCheckConfigurationCache.get(file,
+				canonicalFile -> loadSnapshot(canonicalFile, snapshotFile));
+		if (!snapshotFile.exists()) {
+			// the configuration was cached before, e.g. by a check without a
+			// snapshot
+			writeSnapshot(config, sourceHash(file), snapshotFile);
+		}
+		return config;
+	}
+
+	private static StereotypeCheckConfiguration loadSnapshot(File file, File snapshotFile) {
+		byte[] sourceHash = sourceHash(file);
+		if (snapshotFile.exists()) {
+			try {
+				StereotypeCheckConfiguration config = read(snapshotFile, sourceHash);
+				if (config != null) {
+					logger.fine("Configuration loaded from snapshot " + snapshotFile.getAbsolutePath());
+					return config;
+				}
+				logger.info("Snapshot " + snapshotFile.getAbsolutePath() + " is stale and is compiled again");
+			} catch (IOException | RuntimeException e) {
+				logger.log(Level.WARNING, "Snapshot " + snapshotFile.getAbsolutePath()
+						+ " can not be read and is compiled again: " + e.getMessage(), e);
+			}
+		}
+		StereotypeCheckConfiguration config = StereotypeCheckReader.read(file);
+		writeSnapshot(config, sourceHash, snapshotFile);
+		return config;
+	}
+
+	private static void writeSnapshot(StereotypeCheckConfiguration config, byte[] sourceHash, File snapshotFile) {
+		try {
+			write(config, sourceHash, snapshotFile);
+		} catch (IOException e) {
+			logger.log(Level.WARNING,
+					"Snapshot " + snapshotFile.getAbsolutePath() + " can not be written: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Read the given configuration file and compile it to a snapshot.
+	 *
+	 * @param file
+	 *            The central configuration file.
+	 * @param snapshotFile
+	 *            The snapshot to write.
+	 * @throws IOException
+	 *             if the snapshot can not be written.
+	 */
+	public static void compile(File file, File snapshotFile) throws IOException {
+		byte[] sourceHash = sourceHash(file);
+		write(StereotypeCheckReader.read(file), sourceHash, snapshotFile);
+	}
+
+	/**
+	 * Calculates the hash of the central configuration file and its override
+	 * file.
+	 *
+	 * @param file
+	 *            The central configuration file.
+	 * @return the hash.
+	 */
+	public static byte[] sourceHash(File file) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(Files.readAllBytes(file.toPath()));
+			File overrideFile = StereotypeCheckReader.getOverrideFile(file);
+			if (overrideFile.exists()) {
+				// separates the content of the files, so that moving content
+				// between them changes the hash
+				digest.update((byte) 0);
+				digest.update(Files.readAllBytes(overrideFile.toPath()));
+			}
+			return digest.digest();
+		} catch (NoSuchAlgorithmException | IOException e) {
+			throw new IllegalArgumentException(
+					"File " + file.getAbsolutePath() + " can not be read: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Read the snapshot. The snapshot is small, so it is read at once instead
+	 * of memory mapped: a mapping is only released by the garbage collector,
+	 * and while it exists the snapshot can not be replaced on Windows.
+	 *
+	 * @return the configuration or null if the snapshot is stale.
+	 */
+	private static StereotypeCheckConfiguration read(File snapshotFile, byte[] sourceHash) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile.toPath()));
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+				return null;
+			}
+			byte[] hash = new byte[buffer.getInt()];
+			buffer.get(hash);
+			if (!Arrays.equals(hash, sourceHash)) {
+				return null;
+			}
+			return readConfiguration(buffer);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Unexpected end of snapshot", e);
+		}
+	}
+
+	private static StereotypeCheckConfiguration readConfiguration(ByteBuffer buffer) {
+		Set<String> applicationPackageNames = new HashSet<>();
+		for (int i = buffer.getInt(); i > 0; i--) {
+			applicationPackageNames.add(readString(buffer));
+		}
+
+		Set<Pattern> excludedClasses = new HashSet<>();
+		for (int i = buffer.getInt(); i > 0; i--) {
+			String regexp = readString(buffer);
+			excludedClasses.add(Pattern.compile(regexp, buffer.getInt()));
+		}
+
+		Map<StereotypeIdentifier, StereotypeConfiguration> stereotypeConfig = new HashMap<>();
+		for (int i = buffer.getInt(); i > 0; i--) {
+			StereotypeConfiguration config = readStereotype(buffer);
+			stereotypeConfig.put(config.getId(), config);
+		}
+
+		Map<StereotypeIdentifier, DependencyConfiguration> dependencies = new HashMap<>();
+		for (int i = buffer.getInt(); i > 0; i--) {
+			DependencyConfiguration dependency = new DependencyConfiguration(
+					StereotypeIdentifier.of(readString(buffer)));
+			for (int j = buffer.getInt(); j > 0; j--) {
+				StereotypeIdentifier to = StereotypeIdentifier.of(readString(buffer));
+				dependency.addTo(to, Boolean.toString(buffer.get() != 0));
+			}
+			dependencies.put(dependency.getFrom(), dependency);
+		}
+		return new StereotypeCheckConfiguration(applicationPackageNames, excludedClasses, dependencies,
+				stereotypeConfig);
+	}
+
+	private static StereotypeConfiguration readStereotype(ByteBuffer buffer) {
+		StereotypeConfiguration config = new StereotypeConfiguration();
+		config.setId(StereotypeIdentifier.of(readString(buffer)));
+		config.setPackageName(readString(buffer));
+		config.setPackageNameCondition(readCondition(buffer));
+		config.setPostfix(readString(buffer));
+		config.setPostfixCondition(readCondition(buffer));
+		for (int i = buffer.getInt(); i > 0; i--) {
+			AnnotationConfiguration annotationConfig = new AnnotationConfiguration();
+			annotationConfig.setAnnotationnameCondition(readCondition(buffer));
+			for (int j = buffer.getInt(); j > 0; j--) {
+				annotationConfig.addAnnotationName(readString(buffer));
+			}
+			config.addAnnotationConfig(annotationConfig);
+		}
+		config.setInterfaceNameCondition(readCondition(buffer));
+		for (int i = buffer.getInt(); i > 0; i--) {
+			config.addInterfaceName(readString(buffer));
+		}
+		config.setBaseClassNameCondition(readCondition(buffer));
+		for (int i = buffer.getInt(); i > 0; i--) {
+			config.addBaseClassName(readString(buffer));
+		}
+		return config;
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == NULL) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static StereotypeCondition readCondition(ByteBuffer buffer) {
+		byte ordinal = buffer.get();
+		return ordinal == NULL ? null : StereotypeCondition.values()[ordinal];
+	}
+
+	/**
+	 * Write the snapshot. The snapshot is written to a temporary file first,
+	 * so that a concurrent reader never sees an incomplete snapshot.
+	 */
+	private static void write(StereotypeCheckConfiguration config, byte[] sourceHash, File snapshotFile)
+			throws IOException {
+		File directory = snapshotFile.getAbsoluteFile().getParentFile();
+		if (directory != null) {
+			Files.createDirectories(directory.toPath());
+		}
+		File tempFile = File.createTempFile(snapshotFile.getName(), ".tmp", directory);
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(sourceHash.length);
+				out.write(sourceHash);
+				writeConfiguration(config, out);
+			}
+			try {
+				Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			logger.info("Snapshot " + snapshotFile.getAbsolutePath() + " written");
+		} finally {
+			Files.deleteIfExists(tempFile.toPath());
+		}
+	}
+
+	private static void writeConfiguration(StereotypeCheckConfiguration config, DataOutputStream out)
+			throws IOException {
+		writeStrings(config.getApplicationPackageNames(), out);
+
+		out.writeInt(config.getExcludedClasses().size());
+		for (Pattern pattern : config.getExcludedClasses()) {
+			writeString(pattern.pattern(), out);
+			out.writeInt(pattern.flags());
+		}
+
+		out.writeInt(config.getStereotypeConfig().size());
+		for (StereotypeConfiguration stereotype : config.getStereotypeConfig().values()) {
+			writeStereotype(stereotype, out);
+		}
+
+		out.writeInt(config.getDependencies().size());
+		for (DependencyConfiguration dependency : config.getDependencies().values()) {
+			writeString(dependency.getFrom().toString(), out);
+			Map<StereotypeIdentifier, Boolean> outgoingDependencies = dependency.getOutgoingDependencies();
+			out.writeInt(outgoingDependencies.size());
+			for (Map.Entry<StereotypeIdentifier, Boolean> to : outgoingDependencies.entrySet()) {
+				writeString(to.getKey().toString(), out);
+				out.writeBoolean(to.getValue());
+			}
+		}
+	}
+
+	private static void writeStereotype(StereotypeConfiguration config, DataOutputStream out) throws IOException {
+		writeString(config.getId().toString(), out);
+		writeString(config.getPackageName(), out);
+		writeCondition(config.getPackageNameCondition(), out);
+		writeString(config.getPostfix(), out);
+		writeCondition(config.getPostfixCondition(), out);
+		out.writeInt(config.getAnnotationConfigs().size());
+		for (AnnotationConfiguration annotationConfig : config.getAnnotationConfigs()) {
+			writeCondition(annotationConfig.getAnnotationNameCondition(), out);
+			writeStrings(annotationConfig.getAnnotationNames(), out);
+		}
+		writeCondition(config.getInterfaceNameCondition(), out);
+		writeStrings(config.getInterfaceNames(), out);
+		writeCondition(config.getBaseClassNameCondition(), out);
+		writeStrings(config.getBaseClassNames(), out);
+	}
+
+	private static void writeStrings(Collection<String> strings, DataOutputStream out) throws IOException {
+		out.writeInt(strings.size());
+		for (String string : strings) {
+			writeString(string, out);
+		}
+	}
+
+	private static void writeString(String string, DataOutputStream out) throws IOException {
+		if (string == null) {
+			out.writeInt(NULL);
+		} else {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static void writeCondition(StereotypeCondition condition, DataOutputStream out) throws IOException {
+		out.writeByte(condition == null ? NULL : condition.ordinal());
+	}
+}
@@ -16,6 +16,7 @@
 package info.novatec.ita.check.config;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -104,7 +105,7 @@ public class StereotypeConfiguration {
 	 *            new annotation config.
 	 */
 	void addAnnotationConfig(AnnotationConfiguration config) {
-		getAnnotationConfigs().add(config);
+		annotationConfigs.add(config);
 	}
 
 	/**
@@ -115,7 +116,7 @@ public class StereotypeConfiguration {
 	 */
 	void addInterfaceName(String interfaceName) {
 		if (interfaceName != null) {
-			this.getInterfaceNames().add(interfaceName);
+			this.interfaceNames.add(interfaceName);
 		}
 	}
 
@@ -131,6 +132,27 @@ public class StereotypeConfiguration {
 		}
 	}
 
+	/**
+	 * Add full qualified interface names, e.g. of an overridden configuration.
+	 * 
+	 * @param interfaceNames
+	 *            the interface names.
+	 */
+	void addInterfaceNames(Collection<String> interfaceNames) {
+		this.interfaceNames.addAll(interfaceNames);
+	}
+
+	/**
+	 * Add full qualified base class names, e.g. of an overridden
+	 * configuration.
+	 * 
+	 * @param baseClassNames
+	 *            the base class names.
+	 */
+	void addBaseClassNames(Collection<String> baseClassNames) {
+		this.baseClassNames.addAll(baseClassNames);
+	}
+
 	/**
 	 * Check if any of the conditions is sufficient.
 	 * 
@@ -375,17 +397,17 @@ public class StereotypeConfiguration {
 	}
 
 	/**
-	 * @return the annotationConfigs
+	 * @return the annotationConfigs, the set can not be changed.
 	 */
 	public Set<AnnotationConfiguration> getAnnotationConfigs() {
-		return annotationConfigs;
+		return Collections.unmodifiableSet(annotationConfigs);
 	}
 
 	/**
-	 * @return the interfaceNames
+	 * @return the interfaceNames, the set can not be changed.
 	 */
 	public Set<String> getInterfaceNames() {
-		return interfaceNames;
+		return Collections.unmodifiableSet(interfaceNames);
 	}
 
 	/**
@@ -404,10 +426,10 @@ public class StereotypeConfiguration {
 	}
 
 	/**
-	 * @return the baseClassNames
+	 * @return the baseClassNames, the set can not be changed.
 	 */
 	public Set<String> getBaseClassNames() {
-		return baseClassNames;
+		return Collections.unmodifiableSet(baseClassNames);
 	}
 
 	/**
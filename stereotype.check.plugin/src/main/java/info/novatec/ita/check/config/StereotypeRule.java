@@ -0,0 +1,396 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The compiled and immutable form of a {@link StereotypeConfiguration}. All
+ * information the validation needs for a stereotype is derived once when the
+ * {@link StereotypeRuleSet} is built, so that validating a class neither
+ * allocates nor hashes stereotype identifiers.
+ * <p>
+ * The getters return copies of the names and type ids. The validation checks
+ * the type ids of a class with the {@code intersects} methods, which read the
+ * shared bit sets without copying them.
+ */
+public final class StereotypeRule {
+
+	/** The position of the rule in the {@link StereotypeRuleSet}. */
+	private final int ordinal;
+
+	private final StereotypeIdentifier id;
+
+	private final String postfix;
+
+	private final boolean postfixSufficient;
+
+	/** The regular expression of the package. */
+	private final String packageName;
+
+	/** The compiled package name, null if the stereotype has no package. */
+	private final PackageMatcher packageMatcher;
+
+	private final boolean packageNameSufficient;
+
+	/** The full qualified names of the annotations of every annotation configuration. */
+	private final String[][] annotationNames;
+
+	/**
+	 * The type ids of the annotations of every annotation configuration (see
+	 * {@link StereotypeRuleSet#resolveTypes(java.util.Collection, BitSet)}).
+	 */
+	private final BitSet[] annotationTypes;
+
+	/** Is the annotation configuration with the same index sufficient. */
+	private final boolean[] annotationSufficient;
+
+	private final String[] interfaceNames;
+
+	/** The type ids of the interfaces. */
+	private final BitSet interfaceTypes;
+
+	private final boolean interfaceNameSufficient;
+
+	private final String[] baseClassNames;
+
+	/** The type ids of the base classes. */
+	private final BitSet baseClassTypes;
+
+	private final boolean baseClassNameSufficient;
+
+	/** The names of all annotations, interfaces and base classes. */
+	private final Set<String> partOfStereotype;
+
+	private final String missingPostfixMessage;
+
+	private final String missingAnnotationMessage;
+
+	private final String missingInterfaceMessage;
+
+	private final String missingBaseInterfaceMessage;
+
+	private final String missingBaseClassMessage;
+
+	private final String wrongPackageMessage;
+
+	/**
+	 * Compiles the configuration of a stereotype.
+	 *
+	 * @param ordinal
+	 *            The position of the rule in the rule set.
+	 * @param config
+	 *            The configuration of the stereotype.
+	 * @param typeIds
+	 *            The type ids of all annotations, interfaces and base classes
+	 *            of all stereotypes.
+	 */
+	StereotypeRule(int ordinal, StereotypeConfiguration config, Map<String, Integer> typeIds) {
+		this.ordinal = ordinal;
+		this.id = config.getId();
+		this.postfix = config.getPostfix();
+		this.postfixSufficient = config.isPostfixConditionSufficent(true);
+		this.packageName = config.getPackageName();
+		this.packageMatcher = packageName != null ? PackageMatcher.compile(packageName) : null;
+		this.packageNameSufficient = config.isPackageNameSufficent(true);
+
+		List<AnnotationConfiguration> annotationConfigs = new ArrayList<>(config.getAnnotationConfigs());
+		this.annotationNames = new String[annotationConfigs.size()][];
+		this.annotationTypes = new BitSet[annotationConfigs.size()];
+		this.annotationSufficient = new boolean[annotationConfigs.size()];
+		Set<String> partOfStereotype = new HashSet<>();
+		for (int i = 0; i < annotationConfigs.size(); i++) {
+			AnnotationConfiguration annotationConfig = annotationConfigs.get(i);
+			annotationNames[i] = sorted(annotationConfig.getAnnotationNames());
+			annotationTypes[i] = typeIdsOf(annotationNames[i], typeIds);
+			annotationSufficient[i] = annotationConfig.isAnnotationNameSufficent(true);
+			partOfStereotype.addAll(annotationConfig.getAnnotationNames());
+		}
+		this.interfaceNames = sorted(config.getInterfaceNames());
+		this.interfaceTypes = typeIdsOf(interfaceNames, typeIds);
+		this.interfaceNameSufficient = config.isInterfaceNameSufficent(true);
+		this.baseClassNames = sorted(config.getBaseClassNames());
+		this.baseClassTypes = typeIdsOf(baseClassNames, typeIds);
+		this.baseClassNameSufficient = config.isBaseClassnameSufficent(true);
+		partOfStereotype.addAll(config.getInterfaceNames());
+		partOfStereotype.addAll(config.getBaseClassNames());
+		this.partOfStereotype = Collections.unmodifiableSet(partOfStereotype);
+
+		String prefix = "Stereotype " + id + ": ";
+		this.missingPostfixMessage = prefix + "missing postfix " + postfix;
+		this.missingAnnotationMessage = prefix + "missing annotation " + config.getAnnotationNamesAsString();
+		this.missingInterfaceMessage = prefix + "does not implement " + StringUtils.join(interfaceNames, " or ");
+		this.missingBaseInterfaceMessage = prefix + "does not extend " + StringUtils.join(interfaceNames, " or ");
+		this.missingBaseClassMessage = prefix + "does not extend " + StringUtils.join(baseClassNames, " or ");
+		this.wrongPackageMessage = prefix + "is not in package " + packageName;
+	}
+
+	private static BitSet typeIdsOf(String[] names, Map<String, Integer> typeIds) {
+		BitSet types = new BitSet(typeIds.size());
+		for (String name : names) {
+			types.set(typeIds.get(name));
+		}
+		return types;
+	}
+
+	private static String[] sorted(Set<String> names) {
+		String[] sorted = names.toArray(new String[names.size()]);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Is the classname an annotation or interface or baseclass referenced in
+	 * this stereotype.
+	 *
+	 * @param classNameWithPackage
+	 *            the full qualified classname
+	 * @return true if the classname an annotation or interface or baseclass
+	 *         referenced in this stereotype.
+	 */
+	public boolean isPartOfStereotype(String classNameWithPackage) {
+		return partOfStereotype.contains(classNameWithPackage);
+	}
+
+	/**
+	 * @return the position of the rule in the {@link StereotypeRuleSet}.
+	 */
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	/**
+	 * @return the id of the stereotype.
+	 */
+	public StereotypeIdentifier getId() {
+		return id;
+	}
+
+	/**
+	 * @return the postfix or null if the stereotype has no postfix.
+	 */
+	public String getPostfix() {
+		return postfix;
+	}
+
+	/**
+	 * @return true if the postfix is sufficient.
+	 */
+	public boolean isPostfixSufficient() {
+		return postfixSufficient;
+	}
+
+	/**
+	 * @return the regular expression of the package or null if the stereotype
+	 *         has no package.
+	 */
+	public String getPackageName() {
+		return packageName;
+	}
+
+	/**
+	 * @return the compiled package name or null if the stereotype has no
+	 *         package.
+	 */
+	public PackageMatcher getPackageMatcher() {
+		return packageMatcher;
+	}
+
+	/**
+	 * @return true if the package is sufficient.
+	 */
+	public boolean isPackageNameSufficient() {
+		return packageNameSufficient;
+	}
+
+	/**
+	 * @return the number of annotation configurations.
+	 */
+	public int getAnnotationConfigCount() {
+		return annotationNames.length;
+	}
+
+	/**
+	 * @param index
+	 *            the index of the annotation configuration.
+	 * @return the sorted full qualified names of the annotations of the
+	 *         annotation configuration.
+	 */
+	public String[] getAnnotationNames(int index) {
+		return annotationNames[index].clone();
+	}
+
+	/**
+	 * @param index
+	 *            the index of the annotation configuration.
+	 * @return the type ids of the annotations of the annotation configuration.
+	 */
+	public BitSet getAnnotationTypes(int index) {
+		return (BitSet) annotationTypes[index].clone();
+	}
+
+	/**
+	 * @param index
+	 *            the index of the annotation configuration.
+	 * @param typeIds
+	 *            the type ids of the annotations of a class.
+	 * @return true if one of the type ids is an annotation of the annotation
+	 *         configuration.
+	 */
+	public boolean intersectsAnnotationTypes(int index, BitSet typeIds) {
+		return annotationTypes[index].intersects(typeIds);
+	}
+
+	/**
+	 * @param index
+	 *            the index of the annotation configuration.
+	 * @return true if the annotations of the annotation configuration are
+	 *         sufficient.
+	 */
+	public boolean isAnnotationSufficient(int index) {
+		return annotationSufficient[index];
+	}
+
+	/**
+	 * @return the sorted full qualified names of the interfaces.
+	 */
+	public String[] getInterfaceNames() {
+		return interfaceNames.clone();
+	}
+
+	/**
+	 * @return true if the stereotype has interfaces.
+	 */
+	public boolean hasInterfaceNames() {
+		return interfaceNames.length > 0;
+	}
+
+	/**
+	 * @return the type ids of the interfaces.
+	 */
+	public BitSet getInterfaceTypes() {
+		return (BitSet) interfaceTypes.clone();
+	}
+
+	/**
+	 * @param typeIds
+	 *            the type ids of the interfaces or base interfaces of a class.
+	 * @return true if one of the type ids is an interface of the stereotype.
+	 */
+	public boolean intersectsInterfaceTypes(BitSet typeIds) {
+		return interfaceTypes.intersects(typeIds);
+	}
+
+	/**
+	 * @return true if the interfaces are sufficient.
+	 */
+	public boolean isInterfaceNameSufficient() {
+		return interfaceNameSufficient;
+	}
+
+	/**
+	 * @return the sorted full qualified names of the base classes.
+	 */
+	public String[] getBaseClassNames() {
+		return baseClassNames.clone();
+	}
+
+	/**
+	 * @return true if the stereotype has base classes.
+	 */
+	public boolean hasBaseClassNames() {
+		return baseClassNames.length > 0;
+	}
+
+	/**
+	 * @return the type ids of the base classes.
+	 */
+	public BitSet getBaseClassTypes() {
+		return (BitSet) baseClassTypes.clone();
+	}
+
+	/**
+	 * @param typeIds
+	 *            the type ids of the base classes of a class.
+	 * @return true if one of the type ids is a base class of the stereotype.
+	 */
+	public boolean intersectsBaseClassTypes(BitSet typeIds) {
+		return baseClassTypes.intersects(typeIds);
+	}
+
+	/**
+	 * @return true if the base classes are sufficient.
+	 */
+	public boolean isBaseClassNameSufficient() {
+		return baseClassNameSufficient;
+	}
+
+	/**
+	 * @return the message for a class without the postfix.
+	 */
+	public String getMissingPostfixMessage() {
+		return missingPostfixMessage;
+	}
+
+	/**
+	 * @return the message for a class without the annotations.
+	 */
+	public String getMissingAnnotationMessage() {
+		return missingAnnotationMessage;
+	}
+
+	/**
+	 * @return the message for a class not implementing the interfaces.
+	 */
+	public String getMissingInterfaceMessage() {
+		return missingInterfaceMessage;
+	}
+
+	/**
+	 * @return the message for an interface not extending the interfaces.
+	 */
+	public String getMissingBaseInterfaceMessage() {
+		return missingBaseInterfaceMessage;
+	}
+
+	/**
+	 * @return the message for a class not extending the base classes.
+	 */
+	public String getMissingBaseClassMessage() {
+		return missingBaseClassMessage;
+	}
+
+	/**
+	 * @return the message for a class outside the package.
+	 */
+	public String getWrongPackageMessage() {
+		return wrongPackageMessage;
+	}
+
+	@Override
+	public String toString() {
+		return "StereotypeRule [ordinal=" + ordinal + ", id=" + id + "]";
+	}
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The compiled and immutable form of the stereotypes and dependencies of a
+ * {@link StereotypeCheckConfiguration}. Every stereotype gets a dense ordinal,
+ * which is the index of its {@link StereotypeRule}. The allowed dependencies
+ * are a bit matrix indexed by the ordinals of the stereotypes.
+ * <p>
+ * Every annotation, interface and base class named by any stereotype gets a
+ * dense type id, so that the types of a class can be resolved once into a bit
+ * set and compared with the types of every stereotype by a single
+ * intersection.
+ */
+public final class StereotypeRuleSet {
+
+	private static final int BITS_PER_WORD = Long.SIZE;
+
+	/** The rules, the index is the ordinal of the rule. */
+	private final StereotypeRule[] rules;
+
+	/**
+	 * The allowed dependencies. The bit of the dependency from a to b is bit
+	 * b of the row a, every row has {@link #wordsPerRow} words.
+	 */
+	private final long[] allowedDependencies;
+
+	private final int wordsPerRow;
+
+	/**
+	 * The type ids of all annotations, interfaces and base classes of all
+	 * stereotypes.
+	 */
+	private final Map<String, Integer> typeIds;
+
+	/** The postfixes of all stereotypes. */
+	private final PostfixTrie postfixes;
+
+	/** The packages of all stereotypes that are no regular expressions. */
+	private final PackageTrie packages = new PackageTrie();
+
+	/** The stereotypes whose package is a regular expression. */
+	private final StereotypeRule[] regexPackageRules;
+
+	/**
+	 * Compiles the stereotypes and dependencies.
+	 *
+	 * @param stereotypeConfig
+	 *            The stereotypes.
+	 * @param dependencies
+	 *            The dependencies.
+	 */
+	StereotypeRuleSet(Map<StereotypeIdentifier, StereotypeConfiguration> stereotypeConfig,
+			Map<StereotypeIdentifier, DependencyConfiguration> dependencies) {
+		this.rules = new StereotypeRule[stereotypeConfig.size()];
+		Map<String, Integer> typeIds = new HashMap<>();
+		for (StereotypeConfiguration config : stereotypeConfig.values()) {
+			for (AnnotationConfiguration annotationConfig : config.getAnnotationConfigs()) {
+				addTypeIds(annotationConfig.getAnnotationNames(), typeIds);
+			}
+			addTypeIds(config.getInterfaceNames(), typeIds);
+			addTypeIds(config.getBaseClassNames(), typeIds);
+		}
+		this.typeIds = typeIds;
+
+		Map<StereotypeIdentifier, StereotypeRule> rulesById = new HashMap<>();
+		int ordinal = 0;
+		for (StereotypeConfiguration config : stereotypeConfig.values()) {
+			StereotypeRule rule = new StereotypeRule(ordinal, config, typeIds);
+			rules[ordinal++] = rule;
+			rulesById.put(rule.getId(), rule);
+		}
+
+		String[] postfixNames = new String[rules.length];
+		for (StereotypeRule rule : rules) {
+			postfixNames[rule.getOrdinal()] = rule.getPostfix();
+		}
+		this.postfixes = new PostfixTrie(postfixNames);
+
+		List<StereotypeRule> regexPackageRules = new ArrayList<>();
+		for (StereotypeRule rule : rules) {
+			PackageMatcher packageMatcher = rule.getPackageMatcher();
+			if (packageMatcher != null && !packageMatcher.addTo(packages, rule.getOrdinal())) {
+				regexPackageRules.add(rule);
+			}
+		}
+		this.regexPackageRules = regexPackageRules.toArray(new StereotypeRule[regexPackageRules.size()]);
+
+		this.wordsPerRow = (rules.length + BITS_PER_WORD - 1) / BITS_PER_WORD;
+		this.allowedDependencies = new long[rules.length * wordsPerRow];
+		for (DependencyConfiguration dependency : dependencies.values()) {
+			StereotypeRule from = rulesById.get(dependency.getFrom());
+			if (from == null) {
+				continue;
+			}
+			for (StereotypeIdentifier toId : dependency.getAllowedToDependencies()) {
+				StereotypeRule to = rulesById.get(toId);
+				if (to != null) {
+					allowedDependencies[from.getOrdinal() * wordsPerRow
+							+ to.getOrdinal() / BITS_PER_WORD] |= 1L << to.getOrdinal();
+				}
+			}
+		}
+	}
+
+	private static void addTypeIds(Collection<String> names, Map<String, Integer> typeIds) {
+		for (String name : names) {
+			if (!typeIds.containsKey(name)) {
+				typeIds.put(name, typeIds.size());
+			}
+		}
+	}
+
+	/**
+	 * @return the number of stereotypes.
+	 */
+	public int size() {
+		return rules.length;
+	}
+
+	/**
+	 * @param ordinal
+	 *            the ordinal of the stereotype.
+	 * @return the rule of the stereotype.
+	 */
+	public StereotypeRule getRule(int ordinal) {
+		return rules[ordinal];
+	}
+
+	/**
+	 * Is the dependency between the stereotypes allowed.
+	 *
+	 * @param from
+	 *            the ordinal of the dependent stereotype.
+	 * @param to
+	 *            the ordinal of the stereotype depended on.
+	 * @return true if the dependency is explicitly allowed.
+	 */
+	public boolean isAllowed(int from, int to) {
+		return (allowedDependencies[from * wordsPerRow + to / BITS_PER_WORD] & (1L << to)) != 0;
+	}
+
+	/**
+	 * Finds all stereotypes whose postfix ends the given name.
+	 *
+	 * @param name
+	 *            the class name or full qualified class name.
+	 * @param result
+	 *            The ordinals of the matching stereotypes are set in this
+	 *            set.
+	 */
+	public void matchPostfixes(String name, BitSet result) {
+		postfixes.match(name, result);
+	}
+
+	/**
+	 * Finds all stereotypes whose package matches the given package. The
+	 * packages that are no regular expressions are found with one scan of the
+	 * package name.
+	 *
+	 * @param packageName
+	 *            the package name, the empty string is the default package.
+	 * @param result
+	 *            The ordinals of the matching stereotypes are set in this
+	 *            set.
+	 */
+	public void matchPackages(String packageName, BitSet result) {
+		packages.match(packageName, result);
+		for (int i = 0; i < regexPackageRules.length; i++) {
+			if (regexPackageRules[i].getPackageMatcher().matches(packageName)) {
+				result.set(regexPackageRules[i].getOrdinal());
+			}
+		}
+	}
+
+	/**
+	 * Is the classname an annotation or interface or baseclass referenced in
+	 * a stereotype.
+	 *
+	 * @param classNameWithPackage
+	 *            the full qualified classname
+	 * @return true if the classname an annotation or interface or baseclass
+	 *         referenced in a stereotype.
+	 */
+	public boolean isPartOfAnyStereotype(String classNameWithPackage) {
+		return typeIds.containsKey(classNameWithPackage);
+	}
+
+	/**
+	 * Finds the type ids of the given types. Types not named by any stereotype
+	 * have no type id and are ignored.
+	 *
+	 * @param typeNames
+	 *            the full qualified names of the types.
+	 * @param result
+	 *            The type ids of the types are set in this set.
+	 */
+	public void resolveTypes(Collection<String> typeNames, BitSet result) {
+		for (String typeName : typeNames) {
+			Integer typeId = typeIds.get(typeName);
+			if (typeId != null) {
+				result.set(typeId);
+			}
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds the cycles of a directed graph with the algorithm of Tarjan in linear
+ * time of the number of nodes and edges.
+ * <p>
+ * The nodes of the graph are numbered from 0 to n-1. The graph is given as
+ * the array of the successors of each node, or for large graphs as compact
+ * adjacency arrays: the successors of node n are
+ * <code>targets[offsets[n]]</code> to <code>targets[offsets[n + 1] - 1]</code>.
+ * The algorithm is iterative, so even long paths do not overflow the stack.
+ */
+public final class StronglyConnectedComponents {
+
+	private StronglyConnectedComponents() {
+	}
+
+	/**
+	 * Find all strongly connected components with more than one node. Every
+	 * node of such a component is part of a cycle. A node that only depends
+	 * on itself is not reported.
+	 *
+	 * @param successors
+	 *            The successors of every node.
+	 * @return the nodes of every component with more than one node, in
+	 *         reverse topological order of the components.
+	 */
+	public static List<int[]> of(int[][] successors) {
+		int[][] compact = compact(successors);
+		return of(compact[0], compact[1]);
+	}
+
+	/**
+	 * Find all strongly connected components with more than one node of a
+	 * graph given as compact adjacency arrays.
+	 *
+	 * @param offsets
+	 *            The start of the successors of every node in the targets,
+	 *            with one more element for the end of the last node.
+	 * @param targets
+	 *            The successors of all nodes.
+	 * @return the nodes of every component with more than one node, in
+	 *         reverse topological order of the components.
+	 * @see #of(int[][])
+	 */
+	public static List<int[]> of(int[] offsets, int[] targets) {
+		int nodeCount = offsets.length - 1;
+		int[] index = new int[nodeCount];
+		int[] lowLink = new int[nodeCount];
+		boolean[] onStack = new boolean[nodeCount];
+		int[] stack = new int[nodeCount];
+		int stackSize = 0;
+		int[] path = new int[nodeCount];
+		int[] nextEdge = new int[nodeCount];
+		int pathSize = 0;
+		// 0 marks a node that has not been visited yet
+		int nextIndex = 1;
+
+		List<int[]> components = new ArrayList<>();
+		for (int root = 0; root < nodeCount; root++) {
+			if (index[root] != 0) {
+				continue;
+			}
+			index[root] = lowLink[root] = nextIndex++;
+			stack[stackSize++] = root;
+			onStack[root] = true;
+			path[pathSize] = root;
+			nextEdge[pathSize++] = offsets[root];
+
+			while (pathSize > 0) {
+				int node = path[pathSize - 1];
+				if (nextEdge[pathSize - 1] < offsets[node + 1]) {
+					int successor = targets[nextEdge[pathSize - 1]++];
+					if (index[successor] == 0) {
+						index[successor] = lowLink[successor] = nextIndex++;
+						stack[stackSize++] = successor;
+						onStack[successor] = true;
+						path[pathSize] = successor;
+						nextEdge[pathSize++] = offsets[successor];
+					} else if (onStack[successor]) {
+						lowLink[node] = Math.min(lowLink[node], index[successor]);
+					}
+					continue;
+				}
+
+				pathSize--;
+				if (pathSize > 0) {
+					int parent = path[pathSize - 1];
+					lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+				}
+				if (lowLink[node] == index[node]) {
+					int start = stackSize;
+					do {
+						onStack[stack[--start]] = false;
+					} while (stack[start] != node);
+					if (stackSize - start > 1) {
+						components.add(Arrays.copyOfRange(stack, start, stackSize));
+					}
+					stackSize = start;
+				}
+			}
+		}
+		return components;
+	}
+
+	/**
+	 * Find a shortest cycle through the smallest node of the given component.
+	 *
+	 * @param successors
+	 *            The successors of every node.
+	 * @param component
+	 *            A component returned by {@link #of(int[][])}.
+	 * @return the nodes of the cycle starting with the smallest node of the
+	 *         component. The first node is not repeated at the end.
+	 */
+	public static int[] cycle(int[][] successors, int[] component) {
+		int[][] compact = compact(successors);
+		return cycle(compact[0], compact[1], component);
+	}
+
+	/**
+	 * Find a shortest cycle through the smallest node of the given component
+	 * of a graph given as compact adjacency arrays.
+	 *
+	 * @param offsets
+	 *            The start of the successors of every node in the targets,
+	 *            with one more element for the end of the last node.
+	 * @param targets
+	 *            The successors of all nodes.
+	 * @param component
+	 *            A component returned by {@link #of(int[], int[])}.
+	 * @return the nodes of the cycle starting with the smallest node of the
+	 *         component. The first node is not repeated at the end.
+	 */
+	public static int[] cycle(int[] offsets, int[] targets, int[] component) {
+		int[] members = component.clone();
+		Arrays.sort(members);
+		int[] predecessor = new int[members.length];
+		Arrays.fill(predecessor, -1);
+		int[] queue = new int[members.length];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = 0;
+
+		// breadth first search from the smallest member back to itself,
+		// restricted to the members of the component
+		while (head < tail) {
+			int local = queue[head++];
+			for (int edge = offsets[members[local]]; edge < offsets[members[local] + 1]; edge++) {
+				int successor = targets[edge];
+				int successorLocal = Arrays.binarySearch(members, successor);
+				if (successorLocal == local) {
+					// a node depending on itself is no cycle
+					continue;
+				}
+				if (successorLocal == 0) {
+					return path(members, predecessor, local);
+				}
+				if (successorLocal > 0 && predecessor[successorLocal] == -1) {
+					predecessor[successorLocal] = local;
+					queue[tail++] = successorLocal;
+				}
+			}
+		}
+		throw new IllegalArgumentException("The nodes " + Arrays.toString(component) + " are not a component");
+	}
+
+	/**
+	 * @return the offsets and the targets of the successors.
+	 */
+	private static int[][] compact(int[][] successors) {
+		int[] offsets = new int[successors.length + 1];
+		for (int node = 0; node < successors.length; node++) {
+			offsets[node + 1] = offsets[node] + successors[node].length;
+		}
+		int[] targets = new int[offsets[successors.length]];
+		for (int node = 0; node < successors.length; node++) {
+			System.arraycopy(successors[node], 0, targets, offsets[node], successors[node].length);
+		}
+		return new int[][] { offsets, targets };
+	}
+
+	private static int[] path(int[] members, int[] predecessor, int last) {
+		int length = 1;
+		for (int local = last; local != 0; local = predecessor[local]) {
+			length++;
+		}
+		int[] cycle = new int[length];
+		for (int local = last, i = length - 1; i >= 0; local = predecessor[local], i--) {
+			cycle[i] = members[local];
+		}
+		return cycle;
+	}
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+import javax.xml.validation.Schema;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * This delegate reader validates every event against a schema before it is
+ * returned to the caller. So the caller only gets events that have been
+ * validated and the file has to be parsed only once.
+ * <p>
+ * The events are passed to a {@link ValidatorHandler}, which is supported by
+ * every implementation of JAXP, in contrast to the validation of a
+ * {@link javax.xml.transform.stax.StAXSource}.
+ */
+final class ValidatingStreamReader extends StreamReaderDelegate {
+
+	private final ValidatorHandler validatorHandler;
+
+	/**
+	 * Creates a validating reader. The reader must be positioned at the start
+	 * of the document.
+	 *
+	 * @param reader
+	 *            The original reader.
+	 * @param schema
+	 *            The schema used to validate the events.
+	 * @throws XMLStreamException
+	 *             if the validation can not be started.
+	 */
+	ValidatingStreamReader(XMLStreamReader reader, Schema schema) throws XMLStreamException {
+		super(reader);
+		this.validatorHandler = schema.newValidatorHandler();
+		this.validatorHandler.setDocumentLocator(new StreamLocator());
+		try {
+			validatorHandler.startDocument();
+		} catch (SAXException e) {
+			throw validationError(e);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public int next() throws XMLStreamException {
+		int event = super.next();
+		try {
+			switch (event) {
+			case XMLStreamConstants.START_ELEMENT:
+				startElement();
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				endElement();
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				validatorHandler.characters(getTextCharacters(), getTextStart(), getTextLength());
+				break;
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+				validatorHandler.processingInstruction(getPITarget(), getPIData());
+				break;
+			case XMLStreamConstants.END_DOCUMENT:
+				validatorHandler.endDocument();
+				break;
+			}
+		} catch (SAXException e) {
+			throw validationError(e);
+		}
+		return event;
+	}
+
+	private void startElement() throws SAXException {
+		for (int i = 0; i < getNamespaceCount(); i++) {
+			validatorHandler.startPrefixMapping(emptyIfNull(getNamespacePrefix(i)), emptyIfNull(getNamespaceURI(i)));
+		}
+		AttributesImpl attributes = new AttributesImpl();
+		for (int i = 0; i < getAttributeCount(); i++) {
+			QName attributeName = getAttributeName(i);
+			attributes.addAttribute(emptyIfNull(attributeName.getNamespaceURI()), attributeName.getLocalPart(),
+					qualifiedName(attributeName), getAttributeType(i), getAttributeValue(i));
+		}
+		QName name = getName();
+		validatorHandler.startElement(emptyIfNull(name.getNamespaceURI()), name.getLocalPart(), qualifiedName(name),
+				attributes);
+	}
+
+	private void endElement() throws SAXException {
+		QName name = getName();
+		validatorHandler.endElement(emptyIfNull(name.getNamespaceURI()), name.getLocalPart(), qualifiedName(name));
+		for (int i = 0; i < getNamespaceCount(); i++) {
+			validatorHandler.endPrefixMapping(emptyIfNull(getNamespacePrefix(i)));
+		}
+	}
+
+	private XMLStreamException validationError(SAXException e) {
+		return new XMLStreamException(e.getMessage(), getLocation(), e);
+	}
+
+	private static String qualifiedName(QName name) {
+		String prefix = name.getPrefix();
+		return prefix == null || prefix.isEmpty() ? name.getLocalPart() : prefix + ":" + name.getLocalPart();
+	}
+
+	private static String emptyIfNull(String value) {
+		return value != null ? value : "";
+	}
+
+	/** Provides the actual position of the reader to the validator. */
+	private final class StreamLocator implements Locator {
+
+		@Override
+		public String getPublicId() {
+			Location location = getLocation();
+			return location != null ? location.getPublicId() : null;
+		}
+
+		@Override
+		public String getSystemId() {
+			Location location = getLocation();
+			return location != null ? location.getSystemId() : null;
+		}
+
+		@Override
+		public int getLineNumber() {
+			Location location = getLocation();
+			return location != null ? location.getLineNumber() : -1;
+		}
+
+		@Override
+		public int getColumnNumber() {
+			Location location = getLocation();
+			return location != null ? location.getColumnNumber() : -1;
+		}
+	}
+}
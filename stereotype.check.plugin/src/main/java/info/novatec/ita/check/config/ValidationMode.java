@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright 2016 NovaTec Consulting GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package info.novatec.ita.check.config;
+
+/**
+ * Defines how the {@link StereotypeCheckReader} validates a configuration file
+ * against its XSD.
+ */
+public enum ValidationMode {
+	/**
+	 * The file is validated while it is read. Every element is validated
+	 * before the configuration is built from it, so the file is parsed only
+	 * once.
+	 */
+	streaming,
+	/**
+	 * The whole file is validated first and read in a second pass.
+	 */
+	separate;
+}